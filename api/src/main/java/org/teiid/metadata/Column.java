@@ -50,6 +50,12 @@ public class Column extends BaseColumn implements Comparable<Column> {
 		}
 	}
 	
+    /**
+     * Extension property of comma separated equi-depth histogram bucket upper bounds, 
+     * using the same string form as the minimum and maximum values
+     */
+    public static final String HISTOGRAM = AbstractMetadataRecord.RELATIONAL_URI + "histogram"; //$NON-NLS-1$
+    
     private boolean selectable = true;
     private boolean updatable;
     private boolean autoIncremented;
@@ -18,11 +18,15 @@
 
 package org.teiid.client;
 
+import java.io.ByteArrayInputStream;
 import java.io.Externalizable;
 import java.io.IOException;
 import java.io.ObjectInput;
+import java.io.ObjectInputStream;
 import java.io.ObjectOutput;
+import java.io.ObjectOutputStream;
 import java.io.ObjectStreamConstants;
+import java.io.StreamCorruptedException;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.sql.Array;
@@ -36,6 +40,10 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TimeZone;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 
 import org.teiid.core.TeiidRuntimeException;
 import org.teiid.core.types.ArrayImpl;
@@ -45,6 +53,7 @@ import org.teiid.core.types.ClobType;
 import org.teiid.core.types.DataTypeManager;
 import org.teiid.core.types.GeometryType;
 import org.teiid.core.types.XMLType;
+import org.teiid.core.util.AccessibleByteArrayOutputStream;
 import org.teiid.jdbc.JDBCPlugin;
 
 
@@ -62,12 +71,20 @@ import org.teiid.jdbc.JDBCPlugin;
  *   uses a safer date/time serialization
  * <li>version 3: starts with 8.6 and adds better repeated string performance
  * <li>version 4: starts with 8.10 and adds the geometry type
+ * <li>version 5: optional format negotiated by the socket transport that adds
+ *   per batch compression and compact dictionary encoding of repeated strings
  * </ul>
  */
 public class BatchSerializer {
 
 	public static final byte VERSION_GEOMETRY = (byte)4;
+	public static final byte VERSION_COMPRESSED = (byte)5;
     static final byte CURRENT_VERSION = VERSION_GEOMETRY;
+    
+    /**
+     * The minimum number of values in a batch before compression is used
+     */
+    private static final int MIN_COMPRESSION_VALUES = 512;
 
 	private BatchSerializer() {} // Uninstantiable
 
@@ -88,7 +105,7 @@ public class BatchSerializer {
         serializers.put(DataTypeManager.DefaultDataTypes.SHORT,         new ColumnSerializer[] {new ShortColumnSerializer()});
         serializers.put(DataTypeManager.DefaultDataTypes.TIME,          new ColumnSerializer[] {new TimeColumnSerializer(), new TimeColumnSerializer1(), new TimeColumnSerializer()});
         serializers.put(DataTypeManager.DefaultDataTypes.TIMESTAMP,     new ColumnSerializer[] {new TimestampColumnSerializer()});
-        serializers.put(DataTypeManager.DefaultDataTypes.STRING,     	new ColumnSerializer[] {defaultSerializer, new StringColumnSerializer1(), new StringColumnSerializer1(), new StringColumnSerializer3()});
+        serializers.put(DataTypeManager.DefaultDataTypes.STRING,     	new ColumnSerializer[] {defaultSerializer, new StringColumnSerializer1(), new StringColumnSerializer1(), new StringColumnSerializer3(), new StringColumnSerializer3(), new StringColumnSerializer5()});
         serializers.put(DataTypeManager.DefaultDataTypes.CLOB,  	   	new ColumnSerializer[] {defaultSerializer, new ClobColumnSerializer1()});
         serializers.put(DataTypeManager.DefaultDataTypes.BLOB,     		new ColumnSerializer[] {defaultSerializer, new BlobColumnSerializer1()});
         serializers.put(DataTypeManager.DefaultDataTypes.GEOMETRY,     	new ColumnSerializer[] {defaultSerializer, new GeometryColumnSerializer()});
@@ -360,6 +377,73 @@ public class BatchSerializer {
     	}
     }
 
+    /**
+     * Dictionary encodes all but the shortest strings with a variable length reference
+     */
+    private static class StringColumnSerializer5 extends StringColumnSerializer1 {
+    	private static final int MIN_CACHED_STRING_LENGTH = 2;
+    	private static final byte REPEATED_STRING = 0;
+    	@Override
+    	protected Object readObject(ObjectInput in, List<Object> cache, byte version)
+    			throws IOException, ClassNotFoundException {
+    		byte b = in.readByte();
+    		if (b == REPEATED_STRING) {
+    			return cache.get(readVarInt(in));
+    		}
+    		String val = null;
+    		if (b == ObjectStreamConstants.TC_STRING) {
+    			val = in.readUTF();
+    		} else {
+    			val = (String) in.readObject();
+    		}
+    		if (val.length() >= MIN_CACHED_STRING_LENGTH) {
+    			cache.add(val);
+    		}
+    		return val;
+    	}
+    	
+    	@Override
+    	protected void writeObject(ObjectOutput out, Object obj,
+    			Map<Object, Integer> cache, byte version) throws IOException {
+    		String str = (String)obj;
+    		Integer val = cache.get(str);
+    		if (val != null) {
+    			out.writeByte(REPEATED_STRING);
+    			writeVarInt(out, val);
+    			return;
+    		} 
+    		if (str.length() >= MIN_CACHED_STRING_LENGTH) {
+    			cache.put(str, cache.size());
+    		}
+    		super.writeObject(out, obj, cache, version);
+    	}
+    	
+    	@Override
+    	public boolean usesCache(byte version) {
+    		return true;
+    	}
+    }
+    
+    static void writeVarInt(ObjectOutput out, int val) throws IOException {
+    	while ((val & ~0x7f) != 0) {
+    		out.writeByte((val & 0x7f) | 0x80);
+    		val >>>= 7;
+    	}
+    	out.writeByte(val);
+    }
+    
+    static int readVarInt(ObjectInput in) throws IOException {
+    	int result = 0;
+    	for (int shift = 0; shift < 32; shift += 7) {
+    		int b = in.readByte();
+    		result |= (b & 0x7f) << shift;
+    		if ((b & 0x80) == 0) {
+    			return result;
+    		}
+    	}
+    	throw new StreamCorruptedException();
+    }
+
     private static class NullColumnSerializer1 extends ColumnSerializer {
     	@Override
     	public void writeColumn(ObjectOutput out, int col,
@@ -850,10 +934,57 @@ public class BatchSerializer {
                 out.writeInt(batch.size());
         	}
             if (batch.size() > 0) {
-	            int columns = types.length;
-	            out.writeInt(columns);
-	            Map<Object, Integer> cache = null;
-	            for(int i = 0; i < columns; i++) {
+            	if (version >= VERSION_COMPRESSED) {
+            		boolean compress = canCompress(types, batch);
+            		out.writeBoolean(compress);
+            		if (compress) {
+            			writeCompressed(out, types, batch, version);
+            			return;
+            		}
+            	}
+            	writeColumns(out, types, batch, version);
+            }
+        }
+    }
+    
+    /**
+     * Compression is only used for larger batches that will not contain lobs or other values
+     * that require special handling by the transport
+     */
+    private static boolean canCompress(String[] types, List<? extends List<?>> batch) {
+    	if (batch.size() * types.length < MIN_COMPRESSION_VALUES) {
+    		return false;
+    	}
+    	for (String type : types) {
+    		if (DataTypeManager.isLOB(type) 
+    				|| DataTypeManager.isArrayType(type)
+    				|| DataTypeManager.DefaultDataTypes.OBJECT.equals(type)) {
+    			return false;
+    		}
+    	}
+    	return true;
+    }
+    
+    private static void writeCompressed(ObjectOutput out, String[] types, List<? extends List<?>> batch, byte version) throws IOException {
+    	AccessibleByteArrayOutputStream baos = new AccessibleByteArrayOutputStream(batch.size() * types.length * 4);
+    	Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    	try {
+	    	ObjectOutputStream oos = new ObjectOutputStream(new DeflaterOutputStream(baos, deflater, 1 << 13));
+	    	writeColumns(oos, types, batch, version);
+	    	oos.close();
+    	} finally {
+    		deflater.end();
+    	}
+    	out.writeInt(baos.getCount());
+    	out.write(baos.getBuffer(), 0, baos.getCount());
+    }
+
+	private static void writeColumns(ObjectOutput out, String[] types,
+			List<? extends List<?>> batch, byte version) throws IOException {
+		int columns = types.length;
+		out.writeInt(columns);
+		Map<Object, Integer> cache = null;
+		for(int i = 0; i < columns; i++) {
 	            	ColumnSerializer serializer = getSerializer(types[i], version);
 	            	
 	            	if (cache == null && serializer.usesCache(version)) {
@@ -874,9 +1005,7 @@ public class BatchSerializer {
 	                     throw new TeiidRuntimeException(JDBCPlugin.Event.TEIID20001, e, JDBCPlugin.Util.gs(JDBCPlugin.Event.TEIID20001, new Object[] {types[i], new Integer(i), objectClass}));
 	                }
 	            }
-            }
-        }
-    }
+	}
 
     public static List<List<Object>> readBatch(ObjectInput in, String[] types) throws IOException, ClassNotFoundException {
     	int rows = 0;
@@ -903,6 +1032,21 @@ public class BatchSerializer {
         	rows = -(rows+1);
         	version = in.readByte();
         }
+        if (version >= VERSION_COMPRESSED && in.readBoolean()) {
+        	byte[] bytes = new byte[in.readInt()];
+        	in.readFully(bytes);
+        	Inflater inflater = new Inflater();
+        	try {
+        		ObjectInputStream ois = new ObjectInputStream(new InflaterInputStream(new ByteArrayInputStream(bytes), inflater, 1 << 13));
+        		return readColumns(ois, types, rows, version);
+        	} finally {
+        		inflater.end();
+        	}
+        }
+        return readColumns(in, types, rows, version);
+    }
+
+	private static List<List<Object>> readColumns(ObjectInput in, String[] types, int rows, byte version) throws IOException, ClassNotFoundException {
         int columns = in.readInt();
         List<List<Object>> batch = new ResizingArrayList<List<Object>>(rows);
         int numBytes = rows/8;
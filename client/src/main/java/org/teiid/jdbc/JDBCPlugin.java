@@ -64,5 +64,6 @@ public class JDBCPlugin { // extends Plugin {
 		TEIID20036, 
 		TEIID20037, 
 		TEIID20038,
+		TEIID20039,
 	}	
 }
@@ -85,7 +85,8 @@ public class JDBCURL {
     	        TeiidURL.CONNECTION.ENCRYPT_REQUESTS,
     	        TeiidURL.CONNECTION.LOGIN_TIMEOUT,
     	        DatabaseMetaDataImpl.REPORT_AS_VIEWS,
-    	        ResultSetImpl.DISABLE_FETCH_SIZE));
+    	        ResultSetImpl.DISABLE_FETCH_SIZE,
+    	        ResultSetImpl.FETCH_WINDOW_SIZE));
     	props.addAll(EXECUTION_PROPERTIES.keySet());
     	Map<String, String> result = new TreeMap<String, String>(String.CASE_INSENSITIVE_ORDER);
     	for (String string : props) {
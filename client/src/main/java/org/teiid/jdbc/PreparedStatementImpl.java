@@ -301,6 +301,20 @@ public class PreparedStatementImpl extends StatementImpl implements TeiidPrepare
 	   	return this.updateCounts;
     }
 
+    /**
+     * Non-blocking form of {@link #executeBatch()}.  The batch is cleared once it has been submitted.
+     */
+    public ResultsFuture<Boolean> submitExecuteBatch() throws SQLException {
+    	if (batchParameterList == null || batchParameterList.isEmpty()) {
+    		return StatementImpl.booleanFuture(false);
+    	}
+    	try {
+    		return executeSql(new String[] {this.prepareSql}, true, ResultsMode.UPDATECOUNT, false, null);
+    	} finally {
+    		batchParameterList.clear();
+    	}
+    }
+
 	static int[] concatArrays(int[] array1, int[] array2) {
 		int length = array1.length;
 		array1 = Arrays.copyOf(array1, length + array2.length);
@@ -63,6 +63,15 @@ public class ResultSetImpl extends WrapperImpl implements TeiidResultSet, BatchF
 	private static final int BEFORE_FIRST_ROW = 0;
 
 	public static final String DISABLE_FETCH_SIZE = "disableResultSetFetchSize"; //$NON-NLS-1$
+	
+	/**
+	 * The max bytes to request in a single forward only fetch.  When positive the fetch size 
+	 * will grow to hide the latency of the prefetch.
+	 */
+	public static final String FETCH_WINDOW_SIZE = "fetchWindowSize"; //$NON-NLS-1$
+	
+	private static final int MAX_FETCH_GROWTH = 4;
+	private static final int ROW_SIZE_SAMPLES = 8;
 
 	// the object which was last read from Results
 	private Object currentValue;
@@ -103,6 +112,15 @@ public class ResultSetImpl extends WrapperImpl implements TeiidResultSet, BatchF
 	private static boolean DISABLE_FETCH_SIZE_DEFAULT = PropertiesUtils.getBooleanProperty(System.getProperties(), "org.teiid." + DISABLE_FETCH_SIZE, false); //$NON-NLS-1$
 	
 	private Boolean disableFetchSize;
+	
+	private static int FETCH_WINDOW_SIZE_DEFAULT = PropertiesUtils.getIntProperty(System.getProperties(), "org.teiid." + FETCH_WINDOW_SIZE, 0); //$NON-NLS-1$
+	
+	//adaptive prefetch state
+	private Integer fetchWindowSize;
+	private int adaptiveFetchSize;
+	private long batchReceived;
+	private int batchRows;
+	private int rowSizeEstimate;
 
 	/**
 	 * Constructor.
@@ -375,7 +393,9 @@ public class ResultSetImpl extends WrapperImpl implements TeiidResultSet, BatchF
     			//TODO: this is not efficient if the user is skipping around the results
     			//but the server logic at this point basically requires us
     			//to read what we have requested before requesting more (no queuing)
+    			long start = System.nanoTime();
     			ResultsMessage result = getResults(prefetch);
+    			adaptFetchSize(start, System.nanoTime() - start);
     			prefetch = null;
     			Batch nextBatch = processBatch(result);
 				return nextBatch;
@@ -417,7 +437,7 @@ public class ResultSetImpl extends WrapperImpl implements TeiidResultSet, BatchF
 			logger.finer("requestBatch requestID: " + requestID + " beginRow: " + beginRow ); //$NON-NLS-1$ //$NON-NLS-2$
 		}
 		try {
-			results = statement.getDQP().processCursorRequest(requestID, beginRow, fetchSize);
+			results = statement.getDQP().processCursorRequest(requestID, beginRow, adaptiveFetchSize > 0 ? adaptiveFetchSize : fetchSize);
 		} catch (TeiidProcessingException e) {
 			throw TeiidSQLException.create(e);
 		}
@@ -435,6 +455,86 @@ public class ResultSetImpl extends WrapperImpl implements TeiidResultSet, BatchF
 		return getCurrentBatch(currentResultMsg);
 	}
 
+	private int getFetchWindowSize() {
+		if (fetchWindowSize == null) {
+			fetchWindowSize = FETCH_WINDOW_SIZE_DEFAULT;
+			try {
+				ConnectionImpl conn = statement.getConnection();
+				if (conn != null) {
+					fetchWindowSize = PropertiesUtils.getIntProperty(conn.getConnectionProps(), FETCH_WINDOW_SIZE, FETCH_WINDOW_SIZE_DEFAULT);
+				}
+			} catch (SQLException e) {
+				//use the default
+			}
+		}
+		return fetchWindowSize;
+	}
+	
+	/**
+	 * If we had to wait on the prefetch, then the consumption of the last batch 
+	 * did not cover the round trip.  Grow the fetch size proportionally up to the 
+	 * fetch window.
+	 * @param requested when the prefetch results were requested
+	 * @param waitNanos how long we waited for the prefetch results
+	 */
+	private void adaptFetchSize(long requested, long waitNanos) {
+		int window = getFetchWindowSize();
+		if (window <= 0 || batchRows <= 0) {
+			return;
+		}
+		int current = adaptiveFetchSize > 0 ? adaptiveFetchSize : fetchSize;
+		long consumeNanos = Math.max(1, requested - batchReceived);
+		int target = computeFetchSize(fetchSize, current, window, rowSizeEstimate, batchRows, consumeNanos, waitNanos);
+		if (target != current && logger.isLoggable(Level.FINER)) {
+			logger.finer("Adjusting fetch size for requestID: " + requestID + " to " + target + " wait ms: " + waitNanos/1000000 + " consume ms: " + consumeNanos/1000000); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		}
+		adaptiveFetchSize = target;
+	}
+	
+	/**
+	 * Compute the next fetch size.  The result is at least the user fetch size and 
+	 * at most the window / row size, and grows by no more than {@link #MAX_FETCH_GROWTH} at a time.
+	 */
+	static int computeFetchSize(int fetchSize, int current, int window, int rowSize, int batchRows, long consumeNanos, long waitNanos) {
+		long max = Math.max(fetchSize, window / Math.max(1, rowSize));
+		long target = current;
+		if (waitNanos > consumeNanos / 10) {
+			//rows we could have consumed over the full round trip, with some headroom
+			target = (long)(batchRows * ((double)(consumeNanos + waitNanos) / consumeNanos) * 1.5);
+			target = Math.min(target, current * (long)MAX_FETCH_GROWTH);
+		}
+		target = Math.max(fetchSize, Math.min(target, max));
+		return (int)Math.min(target, Integer.MAX_VALUE);
+	}
+	
+	/**
+	 * Estimate the transfer size of a row from a sample of the batch 
+	 */
+	static int estimateRowSize(List<? extends List<?>> rows) {
+		if (rows.isEmpty()) {
+			return 0;
+		}
+		int step = Math.max(1, rows.size() / ROW_SIZE_SAMPLES);
+		long size = 0;
+		int count = 0;
+		for (int i = 0; i < rows.size(); i += step) {
+			for (Object value : rows.get(i)) {
+				if (value == null) {
+					size += 1;
+				} else if (value instanceof String) {
+					size += ((String)value).length() + 4;
+				} else if (value instanceof BinaryType) {
+					size += ((BinaryType)value).getLength() + 4;
+				} else {
+					//fixed width values and lob references
+					size += 8;
+				}
+			}
+			count++;
+		}
+		return (int)(size / count);
+	}
+
 	private ResultsMessage getResults(ResultsFuture<ResultsMessage> results)
 			throws SQLException, InterruptedException, ExecutionException,
 			TimeoutException {
@@ -452,8 +552,13 @@ public class ResultSetImpl extends WrapperImpl implements TeiidResultSet, BatchF
 				&& prefetch == null && currentResultMsg.getLastRow() != currentResultMsg.getFinalRow()) {
 			//fetch before processing the results
 			prefetch = submitRequestBatch(currentResultMsg.getLastRow() + 1);
+			this.batchReceived = System.nanoTime();
+			this.batchRows = currentResultMsg.getLastRow() - currentResultMsg.getFirstRow() + 1;
 		}
 		currentResultMsg.processResults();
+		if (prefetch != null && getFetchWindowSize() > 0) {
+			this.rowSizeEstimate = estimateRowSize((List<? extends List<?>>) currentResultMsg.getResultsList());
+		}
 		List<?> lastTuple = null;
 		List<List<?>> resultsList = (List<List<?>>) currentResultMsg.getResultsList();
 		//similar logic to BatchCollector on the server side
@@ -1379,6 +1484,7 @@ public class ResultSetImpl extends WrapperImpl implements TeiidResultSet, BatchF
         	}
         	if (disableFetchSize == null || !disableFetchSize) {
         		this.fetchSize = rows;
+        		this.adaptiveFetchSize = 0;
         	}
         }
 	}
@@ -42,6 +42,8 @@ public class Handshake implements Externalizable {
     private byte[] publicKeyLarge;
     private AuthenticationType authType = AuthenticationType.USERPASSWORD;
     private boolean cbc = true;
+    private boolean compressBatches;
+    private boolean multiplex;
     
     public Handshake() {
     	
@@ -119,6 +121,28 @@ public class Handshake implements Externalizable {
         this.cbc = cbc;
     }
     
+    /**
+     * @return true if result batches may be sent using the compressed serialization format
+     */
+    public boolean isCompressBatches() {
+		return compressBatches;
+	}
+    
+    public void setCompressBatches(boolean compressBatches) {
+		this.compressBatches = compressBatches;
+	}
+    
+    /**
+     * @return true if logical channels may be multiplexed over the connection using {@link MultiplexedMessage}s
+     */
+    public boolean isMultiplex() {
+		return multiplex;
+	}
+    
+    public void setMultiplex(boolean multiplex) {
+		this.multiplex = multiplex;
+	}
+    
     @Override
     public void readExternal(ObjectInput in) throws IOException,
     		ClassNotFoundException {
@@ -141,6 +165,20 @@ public class Handshake implements Externalizable {
     	} catch (EOFException e) {
     	    cbc = false;
     	}
+    	try {
+    	    compressBatches = in.readBoolean();
+    	} catch (OptionalDataException e) {
+    	    compressBatches = false;
+    	} catch (EOFException e) {
+    	    compressBatches = false;
+    	}
+    	try {
+    	    multiplex = in.readBoolean();
+    	} catch (OptionalDataException e) {
+    	    multiplex = false;
+    	} catch (EOFException e) {
+    	    multiplex = false;
+    	}
     }
     
     @Override
@@ -155,6 +193,8 @@ public class Handshake implements Externalizable {
 	    	out.write(publicKeyLarge);
     	}
     	out.writeBoolean(cbc);
+    	out.writeBoolean(compressBatches);
+    	out.writeBoolean(multiplex);
     }
     
 }
@@ -0,0 +1,87 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.teiid.net.socket;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+/**
+ * Envelope for a message sent over a logical channel of a shared socket.
+ * The channel is opened by the client with an {@link #OPEN} message, after which
+ * the server responds with a {@link Handshake} on that channel.  Either side
+ * may send {@link #CLOSE} to end the logical channel.
+ */
+public class MultiplexedMessage implements Externalizable {
+	
+	private static final long serialVersionUID = -2381297374616419186L;
+	
+	public static final byte DATA = 0;
+	public static final byte OPEN = 1;
+	public static final byte CLOSE = 2;
+	
+	private int channelId;
+	private byte type;
+	private Object contents;
+	
+	public MultiplexedMessage() {
+		
+	}
+	
+	public MultiplexedMessage(int channelId, byte type, Object contents) {
+		this.channelId = channelId;
+		this.type = type;
+		this.contents = contents;
+	}
+	
+	public int getChannelId() {
+		return channelId;
+	}
+	
+	public byte getType() {
+		return type;
+	}
+	
+	public Object getContents() {
+		return contents;
+	}
+	
+	@Override
+	public void readExternal(ObjectInput in) throws IOException,
+			ClassNotFoundException {
+		this.channelId = in.readInt();
+		this.type = in.readByte();
+		this.contents = in.readObject();
+	}
+	
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		out.writeInt(channelId);
+		out.writeByte(type);
+		out.writeObject(contents);
+	}
+	
+	@Override
+	public String toString() {
+		return "MultiplexedMessage: channel=" + channelId + " type=" + type + " contents=" + contents; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	}
+
+}
@@ -0,0 +1,470 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.teiid.net.socket;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetAddress;
+import java.net.SocketAddress;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.teiid.client.util.ResultsFuture;
+import org.teiid.client.util.ResultsReceiver;
+import org.teiid.core.util.PropertiesUtils;
+import org.teiid.jdbc.JDBCPlugin;
+import org.teiid.net.CommunicationException;
+import org.teiid.net.HostInfo;
+
+/**
+ * An {@link ObjectChannelFactory} that shares up to maxPhysicalConnections sockets per host
+ * between any number of logical channels.
+ * <br>
+ * Each physical socket has a single reader thread that demultiplexes the incoming
+ * {@link MultiplexedMessage}s and completes the pending results of the owning
+ * {@link SocketServerInstanceImpl}, so application threads do not perform socket reads.
+ * Completion listeners of remote results will therefore run on the reader thread and
+ * should not block on other remote calls.
+ * <br>
+ * If the server does not offer multiplexing in its {@link Handshake}, each logical channel
+ * falls back to a dedicated socket.
+ */
+public final class MultiplexedObjectChannelFactory implements ObjectChannelFactory {
+	
+	private static Logger log = Logger.getLogger("org.teiid.client.sockets"); //$NON-NLS-1$
+	
+	final class LogicalChannel implements ObjectChannel {
+		private final PhysicalChannel physical;
+		private final int id;
+		private LinkedList<Object> pending = new LinkedList<Object>();
+		private ResultsReceiver<Object> receiver;
+		private IOException failure;
+		private boolean open = true;
+		
+		private LogicalChannel(PhysicalChannel physical, int id) {
+			this.physical = physical;
+			this.id = id;
+		}
+		
+		/**
+		 * Have all subsequent messages pushed to the receiver by the reader thread. 
+		 */
+		void setReceiver(ResultsReceiver<Object> receiver) {
+			List<Object> toDeliver = null;
+			IOException e = null;
+			synchronized (this) {
+				this.receiver = receiver;
+				toDeliver = new ArrayList<Object>(pending);
+				pending.clear();
+				e = failure;
+			}
+			for (Object msg : toDeliver) {
+				receiver.receiveResults(msg);
+			}
+			if (e != null) {
+				receiver.exceptionOccurred(e);
+			}
+		}
+		
+		void received(Object msg) {
+			ResultsReceiver<Object> r = null;
+			synchronized (this) {
+				r = receiver;
+				if (r == null) {
+					pending.add(msg);
+					this.notifyAll();
+					return;
+				}
+			}
+			r.receiveResults(msg);
+		}
+		
+		void failed(IOException e) {
+			ResultsReceiver<Object> r = null;
+			synchronized (this) {
+				if (failure != null || !open) {
+					return;
+				}
+				failure = e;
+				r = receiver;
+				this.notifyAll();
+			}
+			if (r != null) {
+				r.exceptionOccurred(e);
+			}
+		}
+		
+		@Override
+		public Object read() throws IOException, ClassNotFoundException {
+			synchronized (this) {
+				if (pending.isEmpty() && failure == null && open) {
+					try {
+						this.wait(Math.max(1, getSoTimeout()));
+					} catch (InterruptedException e) {
+						throw new InterruptedIOException();
+					}
+				}
+				if (!pending.isEmpty()) {
+					return pending.removeFirst();
+				}
+				if (failure != null) {
+					throw failure;
+				}
+				if (!open) {
+					throw new EOFException(JDBCPlugin.Util.gs(JDBCPlugin.Event.TEIID20039, physical.info));
+				}
+			}
+			Long timeout = OioOjbectChannelFactory.TIMEOUTS.get();
+			if (timeout != null && timeout < System.currentTimeMillis()) {
+				OioOjbectChannelFactory.TIMEOUTS.set(null);
+				throw new InterruptedIOException(JDBCPlugin.Util.gs(JDBCPlugin.Event.TEIID20035));
+			}
+			throw new SocketTimeoutException();
+		}
+		
+		@Override
+		public Future<?> write(Object msg) {
+			if (!isOpen()) {
+				ResultsFuture<Void> result = new ResultsFuture<Void>();
+				result.getResultsReceiver().exceptionOccurred(new EOFException(JDBCPlugin.Util.gs(JDBCPlugin.Event.TEIID20039, physical.info)));
+				return result;
+			}
+			if (physical.multiplexed) {
+				msg = new MultiplexedMessage(id, MultiplexedMessage.DATA, msg);
+			}
+			return physical.channel.write(msg);
+		}
+		
+		@Override
+		public synchronized boolean isOpen() {
+			return open && failure == null && physical.channel.isOpen();
+		}
+		
+		@Override
+		public void close() {
+			synchronized (this) {
+				if (!open) {
+					return;
+				}
+				open = false;
+				this.notifyAll();
+			}
+			physical.remove(this);
+		}
+		
+		@Override
+		public SocketAddress getRemoteAddress() {
+			return physical.channel.getRemoteAddress();
+		}
+		
+		@Override
+		public InetAddress getLocalAddress() {
+			return physical.channel.getLocalAddress();
+		}
+	}
+	
+	final class PhysicalChannel implements Runnable {
+		private final HostInfo info;
+		private final ObjectChannel channel;
+		private Map<Integer, LogicalChannel> channels = new ConcurrentHashMap<Integer, LogicalChannel>();
+		private int nextId;
+		private boolean multiplexed;
+		private volatile boolean closed;
+		
+		private PhysicalChannel(HostInfo info, ObjectChannel channel) {
+			this.info = info;
+			this.channel = channel;
+		}
+		
+		/**
+		 * Read the server handshake.  The response is left to the 
+		 * logical channel.
+		 */
+		private Handshake readHandshake() throws IOException, CommunicationException {
+			boolean sentInit = false;
+			long retries = Math.max(1, synchTimeout/Math.max(1, getSoTimeout()));
+			for (int i = 0;; i++) {
+				try {
+					Object obj = channel.read();
+					if (!(obj instanceof Handshake)) {
+						throw new SingleInstanceCommunicationException(JDBCPlugin.Event.TEIID20009, null, JDBCPlugin.Util.gs(JDBCPlugin.Event.TEIID20009));
+					}
+					return (Handshake)obj;
+				} catch (ClassNotFoundException e) {
+					throw new SingleInstanceCommunicationException(JDBCPlugin.Event.TEIID20010, e, e.getMessage());
+				} catch (SocketTimeoutException e) {
+					if (!sentInit && !info.isSsl()) {
+						//see SocketServerInstanceImpl.doHandshake
+						channel.write(null);
+						sentInit = true;
+					}
+					if (i >= retries - 1) {
+						throw e;
+					}
+				} catch (IOException e) {
+					if (sentInit && !info.isSsl()) {
+						throw new SingleInstanceCommunicationException(JDBCPlugin.Event.TEIID20032, e, JDBCPlugin.Util.gs(JDBCPlugin.Event.TEIID20032));
+					}
+					throw e;
+				}
+			}
+		}
+		
+		private LogicalChannel createLogicalChannel() {
+			LogicalChannel result = new LogicalChannel(this, nextId++);
+			channels.put(result.id, result);
+			return result;
+		}
+		
+		private void open(LogicalChannel logicalChannel) throws IOException {
+			try {
+				channel.write(new MultiplexedMessage(logicalChannel.id, MultiplexedMessage.OPEN, null)).get();
+			} catch (InterruptedException e) {
+				throw new InterruptedIOException();
+			} catch (ExecutionException e) {
+				logicalChannel.close();
+				if (e.getCause() instanceof IOException) {
+					throw (IOException)e.getCause();
+				}
+				throw new IOException(e.getCause());
+			}
+		}
+		
+		private void remove(LogicalChannel logicalChannel) {
+			boolean shutdown = false;
+			synchronized (MultiplexedObjectChannelFactory.this) {
+				channels.remove(logicalChannel.id);
+				if (!multiplexed || channels.isEmpty()) {
+					removePhysicalChannel(this);
+					shutdown = true;
+				}
+			}
+			if (shutdown) {
+				closed = true;
+				channel.close();
+			} else {
+				channel.write(new MultiplexedMessage(logicalChannel.id, MultiplexedMessage.CLOSE, null));
+			}
+		}
+		
+		@Override
+		public void run() {
+			IOException failure = null;
+			try {
+				while (!closed) {
+					Object msg = null;
+					try {
+						msg = channel.read();
+					} catch (SocketTimeoutException e) {
+						continue;
+					}
+					LogicalChannel logicalChannel = null;
+					if (!multiplexed) {
+						logicalChannel = channels.get(0);
+					} else if (msg instanceof MultiplexedMessage) {
+						MultiplexedMessage message = (MultiplexedMessage)msg;
+						logicalChannel = channels.get(message.getChannelId());
+						if (logicalChannel != null && message.getType() == MultiplexedMessage.CLOSE) {
+							channels.remove(message.getChannelId());
+							logicalChannel.failed(new EOFException(JDBCPlugin.Util.gs(JDBCPlugin.Event.TEIID20039, info)));
+							continue;
+						}
+						msg = message.getContents();
+					} 
+					if (logicalChannel == null) {
+						if (log.isLoggable(Level.FINE)) {
+							log.log(Level.FINE, "packet ignored:" + msg); //$NON-NLS-1$
+						}
+						continue;
+					}
+					try {
+						logicalChannel.received(msg);
+					} catch (RuntimeException e) {
+						log.log(Level.WARNING, "Unexpected exception processing message", e); //$NON-NLS-1$
+					}
+				}
+			} catch (IOException e) {
+				failure = e;
+			} catch (ClassNotFoundException e) {
+				failure = new IOException(e);
+			} finally {
+				synchronized (MultiplexedObjectChannelFactory.this) {
+					removePhysicalChannel(this);
+				}
+				channel.close();
+				if (failure == null || closed) {
+					failure = new EOFException(JDBCPlugin.Util.gs(JDBCPlugin.Event.TEIID20039, info));
+				} else {
+					log.log(Level.FINE, "Shared socket read failed", failure); //$NON-NLS-1$
+				}
+				for (LogicalChannel logicalChannel : channels.values()) {
+					logicalChannel.failed(failure);
+				}
+				channels.clear();
+			}
+		}
+	}
+	
+	private OioOjbectChannelFactory channelFactory;
+	private long synchTimeout;
+	private int maxPhysicalConnections = 4;
+	private Map<HostInfo, List<PhysicalChannel>> physicalChannels = new HashMap<HostInfo, List<PhysicalChannel>>();
+	private Map<HostInfo, Integer> connecting = new HashMap<HostInfo, Integer>();
+	
+	public MultiplexedObjectChannelFactory(Properties props, long synchTimeout) {
+		this.channelFactory = new OioOjbectChannelFactory(props);
+		this.synchTimeout = synchTimeout;
+		PropertiesUtils.setBeanProperties(this, props, "org.teiid.sockets"); //$NON-NLS-1$
+	}
+	
+	@Override
+	public ObjectChannel createObjectChannel(HostInfo info)
+			throws CommunicationException, IOException {
+		LogicalChannel result = null;
+		synchronized (this) {
+			while (true) {
+				List<PhysicalChannel> channels = physicalChannels.get(info);
+				int size = channels == null ? 0 : channels.size();
+				Integer pending = connecting.get(info);
+				if (pending == null) {
+					pending = 0;
+				}
+				if (size + pending < maxPhysicalConnections) {
+					//reserve the slot before connecting so that concurrent callers don't overshoot the max
+					connecting.put(info, pending + 1);
+					break;
+				}
+				if (size > 0) {
+					PhysicalChannel least = null;
+					for (PhysicalChannel physicalChannel : channels) {
+						if (least == null || physicalChannel.channels.size() < least.channels.size()) {
+							least = physicalChannel;
+						}
+					}
+					result = least.createLogicalChannel();
+					break;
+				}
+				//all slots are still connecting, wait for one of them to complete
+				try {
+					this.wait();
+				} catch (InterruptedException e) {
+					throw new InterruptedIOException();
+				}
+			}
+		}
+		if (result != null) {
+			result.physical.open(result);
+			return result;
+		}
+		PhysicalChannel physical = null;
+		Handshake handshake = null;
+		try {
+			physical = new PhysicalChannel(info, channelFactory.createObjectChannel(info));
+			handshake = physical.readHandshake();
+		} catch (IOException e) {
+			connectFailed(info, physical);
+			throw e;
+		} catch (CommunicationException e) {
+			connectFailed(info, physical);
+			throw e;
+		} catch (RuntimeException e) {
+			connectFailed(info, physical);
+			throw e;
+		}
+		synchronized (this) {
+			releaseReservation(info);
+			result = physical.createLogicalChannel();
+			if (handshake.isMultiplex()) {
+				physical.multiplexed = true;
+				List<PhysicalChannel> channels = physicalChannels.get(info);
+				if (channels == null) {
+					channels = new ArrayList<PhysicalChannel>(maxPhysicalConnections);
+					physicalChannels.put(info, channels);
+				}
+				channels.add(physical);
+			} else {
+				//dedicated to a single logical channel
+				result.received(handshake);
+			}
+		}
+		Thread reader = new Thread(physical, "TeiidSocketReader " + info); //$NON-NLS-1$
+		reader.setDaemon(true);
+		reader.start();
+		if (physical.multiplexed) {
+			physical.open(result);
+		}
+		return result;
+	}
+	
+	/**
+	 * Release the connection reservation after a failed connect
+	 */
+	private void connectFailed(HostInfo info, PhysicalChannel physical) {
+		synchronized (this) {
+			releaseReservation(info);
+		}
+		if (physical != null) {
+			physical.channel.close();
+		}
+	}
+	
+	private void releaseReservation(HostInfo info) {
+		Integer pending = connecting.remove(info);
+		if (pending != null && pending > 1) {
+			connecting.put(info, pending - 1);
+		}
+		this.notifyAll();
+	}
+	
+	private void removePhysicalChannel(PhysicalChannel physical) {
+		List<PhysicalChannel> channels = physicalChannels.get(physical.info);
+		if (channels != null && channels.remove(physical) && channels.isEmpty()) {
+			physicalChannels.remove(physical.info);
+		}
+	}
+	
+	@Override
+	public int getSoTimeout() {
+		return channelFactory.getSoTimeout();
+	}
+	
+	public int getMaxPhysicalConnections() {
+		return maxPhysicalConnections;
+	}
+	
+	/**
+	 * Set the max number of sockets per host that will be shared by logical channels
+	 */
+	public void setMaxPhysicalConnections(int maxPhysicalConnections) {
+		this.maxPhysicalConnections = Math.max(1, maxPhysicalConnections);
+	}
+
+}
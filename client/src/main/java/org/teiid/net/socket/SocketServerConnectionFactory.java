@@ -144,6 +144,8 @@ public class SocketServerConnectionFactory implements ServerConnectionFactory, S
 	//config properties
 	private long synchronousTtl = 240000l;
 	private int maxCachedInstances=16;
+	private boolean compressBatches;
+	private boolean multiplexConnections;
 
 	private boolean disablePing;
 
@@ -180,7 +182,11 @@ public class SocketServerConnectionFactory implements ServerConnectionFactory, S
 	
 	public void initialize(Properties info) {
 		PropertiesUtils.setBeanProperties(this, info, "org.teiid.sockets"); //$NON-NLS-1$
-		this.channelFactory = new OioOjbectChannelFactory(info);
+		if (multiplexConnections) {
+			this.channelFactory = new MultiplexedObjectChannelFactory(info, getSynchronousTtl());
+		} else {
+			this.channelFactory = new OioOjbectChannelFactory(info);
+		}
 
 		if (disablePing) {
 			return;
@@ -270,6 +276,7 @@ public class SocketServerConnectionFactory implements ServerConnectionFactory, S
 			}
 		}
 		SocketServerInstanceImpl ssii = new SocketServerInstanceImpl(info, getSynchronousTtl(), this.channelFactory.getSoTimeout());
+		ssii.setCompressBatches(compressBatches);
 		ssii.connect(this.channelFactory);
 		if (useCache) {
 			key.actual = ssii;
@@ -328,6 +335,29 @@ public class SocketServerConnectionFactory implements ServerConnectionFactory, S
 		this.maxCachedInstances = maxCachedInstances;
 	}
 	
+	public boolean isCompressBatches() {
+		return compressBatches;
+	}
+	
+	/**
+	 * Request compressed result batches from servers that support them
+	 */
+	public void setCompressBatches(boolean compressBatches) {
+		this.compressBatches = compressBatches;
+	}
+	
+	public boolean isMultiplexConnections() {
+		return multiplexConnections;
+	}
+	
+	/**
+	 * Share a small number of sockets per server between all connections. 
+	 * Must be set prior to initialization.
+	 */
+	public void setMultiplexConnections(boolean multiplexConnections) {
+		this.multiplexConnections = multiplexConnections;
+	}
+	
 	@Override
 	public void connected(SocketServerInstance instance, SessionToken session) {
 		synchronized (sessions) {
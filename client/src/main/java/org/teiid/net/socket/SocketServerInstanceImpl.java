@@ -75,7 +75,9 @@ public class SocketServerInstanceImpl implements SocketServerInstance {
     private HashMap<Class<?>, Object> serviceMap = new HashMap<Class<?>, Object>();
     
     private boolean hasReader;
+    private volatile boolean asynchronousReads;
     private int soTimeout;
+    private boolean compressBatches;
     
     public SocketServerInstanceImpl(HostInfo info, long synchTimeout, int soTimeout) {
     	if (!info.isResolved()) {
@@ -90,6 +92,21 @@ public class SocketServerInstanceImpl implements SocketServerInstance {
         this.socketChannel = channelFactory.createObjectChannel(info);
         try {
         	doHandshake();
+        	if (this.socketChannel instanceof MultiplexedObjectChannelFactory.LogicalChannel) {
+        		//messages will be delivered by the shared reader thread
+        		((MultiplexedObjectChannelFactory.LogicalChannel)this.socketChannel).setReceiver(new ResultsReceiver<Object>() {
+        			@Override
+        			public void receiveResults(Object results) {
+        				receivedMessage(results);
+        			}
+        			
+        			@Override
+        			public void exceptionOccurred(Throwable e) {
+        				SocketServerInstanceImpl.this.exceptionOccurred(e);
+        			}
+        		});
+        		this.asynchronousReads = true;
+        	}
         } catch (CommunicationException e) {
         	this.socketChannel.close();
         	throw e;
@@ -183,6 +200,8 @@ public class SocketServerInstanceImpl implements SocketServerInstance {
                 this.cryptor = new NullCryptor();
             }
             
+            //only request compression if the server offered it
+            handshake.setCompressBatches(this.compressBatches && handshake.isCompressBatches());
             this.socketChannel.write(handshake);
         } catch (CryptoException e) {
         	 throw new CommunicationException(JDBCPlugin.Event.TEIID20012, e, e.getMessage());
@@ -301,6 +320,10 @@ public class SocketServerInstanceImpl implements SocketServerInstance {
     }
     
     public void read(long timeout, TimeUnit unit, ResultsFuture<?> future) throws TimeoutException, InterruptedException {
+    	if (asynchronousReads) {
+    		//the caller will simply wait for the future to be completed
+    		return;
+    	}
     	long timeoutMillis = (int)Math.min(unit.toMillis(timeout), Integer.MAX_VALUE);
 		long start = System.currentTimeMillis();
 		while (!future.isDone()) {
@@ -359,6 +382,14 @@ public class SocketServerInstanceImpl implements SocketServerInstance {
 		return iface.cast(service);
 	}
 	
+    /**
+     * Request the compressed batch format if offered by the server.
+     * Must be set prior to connecting.
+     */
+    public void setCompressBatches(boolean compressBatches) {
+		this.compressBatches = compressBatches;
+	}
+    
     public long getSynchTimeout() {
 		return synchTimeout;
 	}
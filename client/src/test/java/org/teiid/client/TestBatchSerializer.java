@@ -170,4 +170,30 @@ public class TestBatchSerializer {
     	assertFalse(val instanceof GeometryType);
     }
 
+    @Test public void testSerializeCompressed() throws Exception {
+        helpTestSerialization(sampleBatchTypes, sampleBatchWithNulls(1), BatchSerializer.VERSION_COMPRESSED);
+        helpTestSerialization(sampleBatchTypes, sampleBatchWithNulls(833), BatchSerializer.VERSION_COMPRESSED); //object column prevents compression
+        String[] types = Arrays.copyOf(sampleBatchTypes, sampleBatchTypes.length - 2);
+        helpTestSerialization(types, sampleBatchWithNulls(17), BatchSerializer.VERSION_COMPRESSED);
+        helpTestSerialization(types, sampleBatchWithNulls(833), BatchSerializer.VERSION_COMPRESSED);
+    }
+    
+    @Test public void testCompressedRepeatedStrings() throws Exception {
+    	String[] types = new String[] {DataTypeManager.DefaultDataTypes.INTEGER, DataTypeManager.DefaultDataTypes.STRING};
+    	List<?>[] batch = new List[1024];
+    	for (int i = 0; i < batch.length; i++) {
+    		batch[i] = Arrays.asList(i, (i%300 == 0)?null:"value " + i%200); //$NON-NLS-1$
+    	}
+    	helpTestSerialization(types, batch, BatchSerializer.VERSION_COMPRESSED);
+    	assertTrue(serializedSize(types, batch, BatchSerializer.VERSION_COMPRESSED) < serializedSize(types, batch, BatchSerializer.VERSION_GEOMETRY)/2);
+    }
+    
+    private static int serializedSize(String[] types, List<?>[] batch, byte version) throws IOException {
+        ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(byteStream);
+        BatchSerializer.writeBatch(out, types, Arrays.asList(batch), version);
+        out.close();
+        return byteStream.size();
+    }
+
 }
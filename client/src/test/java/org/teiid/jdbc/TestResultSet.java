@@ -699,6 +699,30 @@ public class TestResultSet {
         cs.close();      
     }
     
+    @Test public void testEstimateRowSize() throws Exception {
+    	assertEquals(0, ResultSetImpl.estimateRowSize(new ArrayList<List<?>>()));
+    	List<List<?>> rows = new ArrayList<List<?>>();
+    	for (int i = 0; i < 100; i++) {
+    		rows.add(Arrays.asList(i, "abcdef", null));
+    	}
+    	assertEquals(19, ResultSetImpl.estimateRowSize(rows));
+    }
+    
+    @Test public void testComputeFetchSize() throws Exception {
+    	//no noticeable wait, so no change
+    	assertEquals(500, ResultSetImpl.computeFetchSize(500, 500, 1 << 20, 10, 500, 1000, 50));
+    	//a wait equal to the consumption time grows 3x
+    	assertEquals(1500, ResultSetImpl.computeFetchSize(500, 500, 1 << 20, 10, 500, 1000, 1000));
+    	//growth is capped per step
+    	assertEquals(2000, ResultSetImpl.computeFetchSize(500, 500, 1 << 20, 10, 500, 1000, 100000));
+    	//and by the window
+    	assertEquals(1000, ResultSetImpl.computeFetchSize(500, 500, 10000, 10, 500, 1000, 100000));
+    	//but never below the user fetch size
+    	assertEquals(500, ResultSetImpl.computeFetchSize(500, 500, 100, 10, 500, 1000, 100000));
+    	//without a wait the adapted size is kept
+    	assertEquals(2000, ResultSetImpl.computeFetchSize(500, 2000, 1 << 20, 10, 100, 1000, 0));
+    }
+    
     @Test public void testOutputParameter() throws Exception {
         StatementImpl statement = createMockStatement(ResultSet.TYPE_FORWARD_ONLY);
         ResultsMessage resultsMsg = new ResultsMessage();
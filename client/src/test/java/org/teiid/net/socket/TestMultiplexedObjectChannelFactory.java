@@ -0,0 +1,257 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.teiid.net.socket;
+
+import static org.junit.Assert.*;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+import org.teiid.client.util.ResultsFuture;
+import org.teiid.core.util.AccessibleBufferedInputStream;
+import org.teiid.net.HostInfo;
+import org.teiid.netty.handler.codec.serialization.ObjectDecoderInputStream;
+import org.teiid.netty.handler.codec.serialization.ObjectEncoderOutputStream;
+
+@SuppressWarnings("nls")
+public class TestMultiplexedObjectChannelFactory {
+	
+	/**
+	 * Echoes the contents of each message, optionally using multiplexing
+	 */
+	private static class FakeServer implements Runnable {
+		private ServerSocket serverSocket;
+		private boolean multiplex;
+		private AtomicInteger accepted = new AtomicInteger();
+		private AtomicInteger closed = new AtomicInteger();
+		
+		public FakeServer(boolean multiplex) throws IOException {
+			this.multiplex = multiplex;
+			this.serverSocket = new ServerSocket(0);
+			Thread t = new Thread(this);
+			t.setDaemon(true);
+			t.start();
+		}
+		
+		@Override
+		public void run() {
+			while (true) {
+				final Socket socket;
+				try {
+					socket = serverSocket.accept();
+				} catch (IOException e) {
+					return;
+				}
+				accepted.incrementAndGet();
+				Thread t = new Thread() {
+					public void run() {
+						try {
+							ObjectEncoderOutputStream out = new ObjectEncoderOutputStream(new DataOutputStream(socket.getOutputStream()), 512);
+							ObjectDecoderInputStream in = new ObjectDecoderInputStream(new AccessibleBufferedInputStream(socket.getInputStream(), 512), getClass().getClassLoader(), 1 << 20);
+							Handshake handshake = new Handshake();
+							handshake.setMultiplex(multiplex);
+							write(out, handshake);
+							while (true) {
+								Object msg = in.readObject();
+								int id = -1;
+								if (msg instanceof MultiplexedMessage) {
+									MultiplexedMessage mm = (MultiplexedMessage)msg;
+									id = mm.getChannelId();
+									if (mm.getType() == MultiplexedMessage.OPEN) {
+										write(out, new MultiplexedMessage(id, MultiplexedMessage.DATA, new Handshake()));
+										continue;
+									}
+									msg = mm.getContents();
+								}
+								if (msg instanceof Message) {
+									Message reply = new Message();
+									reply.setContents(((Message)msg).getContents());
+									reply.setMessageKey(((Message)msg).getMessageKey());
+									write(out, id == -1?reply:new MultiplexedMessage(id, MultiplexedMessage.DATA, reply));
+								}
+							}
+						} catch (Exception e) {
+							closed.incrementAndGet();
+						}
+					}
+				};
+				t.setDaemon(true);
+				t.start();
+			}
+		}
+		
+		private synchronized void write(ObjectEncoderOutputStream out, Object msg) throws IOException {
+			out.writeObject(msg);
+			out.flush();
+			out.reset();
+		}
+		
+		int getPort() {
+			return serverSocket.getLocalPort();
+		}
+		
+		void close() throws IOException {
+			serverSocket.close();
+		}
+	}
+	
+	private FakeServer server;
+	
+	@After public void tearDown() throws IOException {
+		if (server != null) {
+			server.close();
+		}
+	}
+	
+	private MultiplexedObjectChannelFactory createFactory(int maxPhysicalConnections) {
+		Properties p = new Properties();
+		p.setProperty("org.teiid.sockets.maxPhysicalConnections", String.valueOf(maxPhysicalConnections));
+		p.setProperty("org.teiid.sockets.soTimeout", "100");
+		MultiplexedObjectChannelFactory factory = new MultiplexedObjectChannelFactory(p, 10000);
+		assertEquals(maxPhysicalConnections, factory.getMaxPhysicalConnections());
+		return factory;
+	}
+	
+	private HostInfo getHostInfo() throws UnknownHostException {
+		HostInfo info = new HostInfo("127.0.0.1", server.getPort());
+		info.getInetAddress();
+		return info;
+	}
+	
+	private List<SocketServerInstanceImpl> connect(int count, int maxPhysicalConnections) throws Exception {
+		MultiplexedObjectChannelFactory factory = createFactory(maxPhysicalConnections);
+		HostInfo info = getHostInfo();
+		List<SocketServerInstanceImpl> instances = new ArrayList<SocketServerInstanceImpl>();
+		for (int i = 0; i < count; i++) {
+			SocketServerInstanceImpl instance = new SocketServerInstanceImpl(info, 10000, factory.getSoTimeout());
+			instance.connect(factory);
+			instances.add(instance);
+		}
+		return instances;
+	}
+	
+	private void assertEcho(List<SocketServerInstanceImpl> instances) throws Exception {
+		List<ResultsFuture<Object>> results = new ArrayList<ResultsFuture<Object>>();
+		//pipeline all of the requests before waiting
+		for (int i = 0; i < instances.size(); i++) {
+			Message message = new Message();
+			message.setContents(i);
+			ResultsFuture<Object> result = new ResultsFuture<Object>();
+			instances.get(i).send(message, result.getResultsReceiver(), i);
+			results.add(result);
+		}
+		for (int i = 0; i < instances.size(); i++) {
+			assertEquals(i, results.get(i).get(10, TimeUnit.SECONDS));
+		}
+	}
+	
+	@Test public void testSharedSockets() throws Exception {
+		server = new FakeServer(true);
+		List<SocketServerInstanceImpl> instances = connect(5, 2);
+		assertEquals(2, server.accepted.get());
+		assertEcho(instances);
+		
+		instances.remove(0).shutdown();
+		assertFalse(instances.isEmpty());
+		assertEcho(instances);
+		
+		for (SocketServerInstanceImpl instance : instances) {
+			instance.shutdown();
+			assertFalse(instance.isOpen());
+		}
+		for (int i = 0; i < 100 && server.closed.get() < 2; i++) {
+			Thread.sleep(10);
+		}
+		assertEquals(2, server.closed.get());
+	}
+	
+	@Test public void testConcurrentConnect() throws Exception {
+		server = new FakeServer(true);
+		final MultiplexedObjectChannelFactory factory = createFactory(2);
+		final HostInfo info = getHostInfo();
+		final List<SocketServerInstanceImpl> instances = Collections.synchronizedList(new ArrayList<SocketServerInstanceImpl>());
+		final CountDownLatch start = new CountDownLatch(1);
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int i = 0; i < 8; i++) {
+			Thread t = new Thread() {
+				public void run() {
+					try {
+						start.await();
+						SocketServerInstanceImpl instance = new SocketServerInstanceImpl(info, 10000, factory.getSoTimeout());
+						instance.connect(factory);
+						instances.add(instance);
+					} catch (Exception e) {
+						
+					}
+				}
+			};
+			t.start();
+			threads.add(t);
+		}
+		start.countDown();
+		for (Thread t : threads) {
+			t.join(10000);
+		}
+		assertEquals(8, instances.size());
+		assertEquals(2, server.accepted.get());
+		assertEcho(instances);
+	}
+	
+	@Test public void testServerWithoutMultiplexing() throws Exception {
+		server = new FakeServer(false);
+		List<SocketServerInstanceImpl> instances = connect(3, 1);
+		assertEquals(3, server.accepted.get());
+		assertEcho(instances);
+	}
+	
+	@Test public void testSocketFailure() throws Exception {
+		server = new FakeServer(true);
+		List<SocketServerInstanceImpl> instances = connect(2, 1);
+		//a failed write closes the shared socket
+		Message message = new Message();
+		message.setContents(new Object[] {new Object()});
+		ResultsFuture<Object> result = new ResultsFuture<Object>();
+		try {
+			instances.get(0).send(message, result.getResultsReceiver(), 1);
+			fail();
+		} catch (SingleInstanceCommunicationException e) {
+			
+		}
+		for (SocketServerInstanceImpl instance : instances) {
+			for (int i = 0; i < 100 && instance.isOpen(); i++) {
+				Thread.sleep(10);
+			}
+			assertFalse(instance.isOpen());
+		}
+	}
+
+}
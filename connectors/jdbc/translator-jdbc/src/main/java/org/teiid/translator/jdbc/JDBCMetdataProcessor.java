@@ -18,10 +18,13 @@
 
 package org.teiid.translator.jdbc;
 
+import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
 import java.sql.Types;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -60,6 +63,10 @@ import org.teiid.translator.TypeFacility;
  */
 public class JDBCMetdataProcessor implements MetadataProcessor<Connection>{
 	
+	private static final int HISTOGRAM_BUCKETS = 10;
+	private static final int HISTOGRAM_SAMPLE_SIZE = 10000;
+	private static final int HISTOGRAM_FETCH_SIZE = 1024;
+	
 	/**
 	 * A holder for table records that keeps track of catalog and schema information.
 	 */
@@ -108,6 +115,7 @@ public class JDBCMetdataProcessor implements MetadataProcessor<Connection>{
 	
 	private boolean useAnyIndexCardinality;
 	private boolean importStatistics;
+	private boolean importColumnStatistics;
 	
 	private String columnNamePattern;
 	
@@ -188,6 +196,16 @@ public class JDBCMetdataProcessor implements MetadataProcessor<Connection>{
 			}
 		}
 		
+		if (importColumnStatistics) {
+			for (TableInfo tableInfo : tables) {
+				try {
+					getColumnStatistics(conn, tableInfo);
+				} catch (SQLException e) {
+					LogManager.logWarning(LogConstants.CTX_CONNECTOR, e, JDBCPlugin.Util.gs(JDBCPlugin.Event.TEIID11027, tableInfo.table.getFullName()));
+				}
+			}
+		}
+		
 		if (importProcedures) {
 			getProcedures(metadataFactory, metadata);
 		}
@@ -216,6 +234,127 @@ public class JDBCMetdataProcessor implements MetadataProcessor<Connection>{
 		
 	}
 
+	/**
+	 * Query the table directly for the cardinality (if not already known), the column
+	 * ndv, null count, min and max, and an equi-depth histogram of the numeric and temporal columns.
+	 * <br>
+	 * Histograms of columns with more than {@link #HISTOGRAM_SAMPLE_SIZE} values are built from a sample
+	 * and are skipped if the source does not provide a {@link #getSampleClause(double)}.
+	 */
+	void getColumnStatistics(Connection conn, TableInfo tableInfo) throws SQLException {
+		Table table = tableInfo.table;
+		String tableName = getFullyQualifiedName(tableInfo.catalog, tableInfo.schema, tableInfo.name, true);
+		LogManager.logDetail(LogConstants.CTX_CONNECTOR, "JDBCMetadataProcessor - Importing column statistics for", tableName); //$NON-NLS-1$
+		Statement stmt = conn.createStatement();
+		try {
+			for (Column column : table.getColumns()) {
+				if (DataTypeManager.isNonComparable(column.getRuntimeType())) {
+					continue;
+				}
+				String columnName = column.getNameInSource();
+				long nonNull = 0;
+				ResultSet rs = stmt.executeQuery("SELECT COUNT(*), COUNT(" + columnName + "), COUNT(DISTINCT " + columnName + "), MIN(" + columnName + "), MAX(" + columnName + ") FROM " + tableName); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$
+				try {
+					if (!rs.next()) {
+						continue;
+					}
+					long count = rs.getLong(1);
+					if (table.getCardinality() == Table.UNKNOWN_CARDINALITY) {
+						table.setCardinality(count);
+					}
+					nonNull = rs.getLong(2);
+					column.setNullValues(count - nonNull);
+					column.setDistinctValues(rs.getLong(3));
+					column.setMinimumValue(getStatisticValue(rs.getObject(4)));
+					column.setMaximumValue(getStatisticValue(rs.getObject(5)));
+				} finally {
+					rs.close();
+				}
+				Class<?> type = column.getJavaType();
+				if (nonNull <= HISTOGRAM_BUCKETS || column.getDistinctValues() <= HISTOGRAM_BUCKETS 
+						|| !(Number.class.isAssignableFrom(type) || java.util.Date.class.isAssignableFrom(type))) {
+					continue;
+				}
+				String from = tableName;
+				int maxValues = Integer.MAX_VALUE;
+				if (nonNull > HISTOGRAM_SAMPLE_SIZE) {
+					String sample = getSampleClause(100d * HISTOGRAM_SAMPLE_SIZE / nonNull);
+					if (sample == null) {
+						continue;
+					}
+					from += " " + sample; //$NON-NLS-1$
+					//guard against a poor sample
+					maxValues = 4 * HISTOGRAM_SAMPLE_SIZE;
+				}
+				stmt.setFetchSize(HISTOGRAM_FETCH_SIZE);
+				rs = stmt.executeQuery("SELECT " + columnName + " FROM " + from + " WHERE " + columnName + " IS NOT NULL ORDER BY " + columnName); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+				try {
+					String histogram = getHistogram(rs, maxValues);
+					if (histogram != null) {
+						column.setProperty(Column.HISTOGRAM, histogram);
+					}
+				} finally {
+					rs.close();
+				}
+			}
+		} finally {
+			stmt.close();
+		}
+	}
+	
+	/**
+	 * Return a clause to follow the table name in the FROM clause that will sample
+	 * roughly the given percentage of the rows, or null if sampling is not supported.
+	 * @param percent
+	 * @return
+	 */
+	protected String getSampleClause(double percent) {
+		return null;
+	}
+	
+	/**
+	 * Read the ordered values and return the upper bound of each equi-depth bucket,
+	 * or null if there are more than maxValues values
+	 */
+	String getHistogram(ResultSet rs, int maxValues) throws SQLException {
+		List<String> values = new ArrayList<String>();
+		while (rs.next()) {
+			if (values.size() == maxValues) {
+				return null;
+			}
+			values.add(getStatisticValue(rs.getObject(1)));
+		}
+		if (values.isEmpty()) {
+			return null;
+		}
+		StringBuilder histogram = new StringBuilder();
+		int buckets = Math.min(HISTOGRAM_BUCKETS, values.size());
+		for (int bucket = 1; bucket <= buckets; bucket++) {
+			if (bucket > 1) {
+				histogram.append(',');
+			}
+			//the last bucket ends with the final value
+			histogram.append(values.get((int)((long)bucket * values.size() / buckets) - 1));
+		}
+		return histogram.toString();
+	}
+	
+	/**
+	 * Use the same string forms expected by costing - timestamp format for dates
+	 */
+	private String getStatisticValue(Object value) {
+		if (value == null) {
+			return null;
+		}
+		if (value instanceof java.sql.Date) {
+			return new Timestamp(((java.sql.Date)value).getTime()).toString();
+		}
+		if (value instanceof BigDecimal) {
+			return ((BigDecimal)value).toPlainString();
+		}
+		return value.toString();
+	}
+
 	private void getProcedures(MetadataFactory metadataFactory,
 			DatabaseMetaData metadata) throws SQLException {
 		LogManager.logDetail(LogConstants.CTX_CONNECTOR, "JDBCMetadataProcessor - Importing procedures"); //$NON-NLS-1$
@@ -892,6 +1031,10 @@ public class JDBCMetdataProcessor implements MetadataProcessor<Connection>{
 		this.importStatistics = importStatistics;
 	}
 	
+	public void setImportColumnStatistics(boolean importColumnStatistics) {
+		this.importColumnStatistics = importColumnStatistics;
+	}
+	
 	public void setImportForeignKeys(boolean importForeignKeys) {
 		this.importForeignKeys = importForeignKeys;
 	}
@@ -990,6 +1133,11 @@ public class JDBCMetdataProcessor implements MetadataProcessor<Connection>{
         return importStatistics;
     }
     
+    @TranslatorProperty(display="Import Column Statistics", category=PropertyType.IMPORT, description="true will query each imported table to determine the cardinality, column distinct and null counts, min and max values, and histograms of numeric and temporal columns. This requires a full scan of each table column, with histograms sampled where supported, and should only be used with a table name pattern or with cached metadata.", advanced=true)
+    public boolean isImportColumnStatistics() {
+        return importColumnStatistics;
+    }
+    
     @TranslatorProperty(display="Column Name Pattern", category=PropertyType.IMPORT, description="a column name pattern; must match the column name as it is stored in the database. Used to import columns of tables.  Leave unset to import all columns.", advanced=true)
     public String getColumnNamePattern() {
         return columnNamePattern;
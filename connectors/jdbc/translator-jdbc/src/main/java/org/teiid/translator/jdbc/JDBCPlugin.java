@@ -57,5 +57,6 @@ public class JDBCPlugin {
 		TEIID11024,
 		TEIID11025, 
 		TEIID11026,
+		TEIID11027,
 	}
 }
@@ -20,6 +20,7 @@ package org.teiid.translator.jdbc.postgresql;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.Date;
 import java.sql.PreparedStatement;
@@ -105,6 +106,7 @@ public class PostgreSQLExecutionFactory extends JDBCExecutionFactory {
 	public static final Version EIGHT_4 = Version.getVersion("8.4"); //$NON-NLS-1$
 	public static final Version NINE_0 = Version.getVersion("9.0"); //$NON-NLS-1$
 	public static final Version NINE_3 = Version.getVersion("9.3"); //$NON-NLS-1$
+	public static final Version NINE_5 = Version.getVersion("9.5"); //$NON-NLS-1$
 	protected OracleFormatFunctionModifier parseModifier = new PostgreSQLFormatFunctionModifier("TO_TIMESTAMP(", true); //$NON-NLS-1$
 	
 	//postgis versions
@@ -943,6 +945,14 @@ public class PostgreSQLExecutionFactory extends JDBCExecutionFactory {
                 return super.getRuntimeType(type, typeName, precision);                    
             }
             
+            @Override
+            protected String getSampleClause(double percent) {
+            	if (getVersion().compareTo(NINE_5) < 0) {
+            		return null;
+            	}
+            	return "TABLESAMPLE SYSTEM (" + BigDecimal.valueOf(percent).toPlainString() + ")"; //$NON-NLS-1$ //$NON-NLS-2$
+            }
+            
             @Override
             protected Column addColumn(ResultSet columns, Table table,
                     MetadataFactory metadataFactory, int rsColumns)
@@ -20,6 +20,7 @@
  */
 package org.teiid.translator.jdbc.sqlserver;
 
+import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.Date;
 import java.sql.ResultSet;
@@ -500,6 +501,14 @@ public class SQLServerExecutionFactory extends SybaseExecutionFactory {
     @Override
     public MetadataProcessor<Connection> getMetadataProcessor() {
         return new JDBCMetdataProcessor() {
+            @Override
+            protected String getSampleClause(double percent) {
+            	if (getVersion().compareTo(NINE_0) < 0) {
+            		return null;
+            	}
+            	return "TABLESAMPLE (" + BigDecimal.valueOf(percent).toPlainString() + " PERCENT)"; //$NON-NLS-1$ //$NON-NLS-2$
+            }
+            
             @Override
             protected Column addColumn(ResultSet columns, Table table,
                     MetadataFactory metadataFactory, int rsColumns)
@@ -20,9 +20,11 @@ package org.teiid.translator.jdbc;
 
 import static org.junit.Assert.*;
 
+import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.Arrays;
 import java.util.Properties;
 
@@ -30,6 +32,7 @@ import org.junit.Test;
 import org.mockito.Mockito;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
+import org.teiid.metadata.Column;
 import org.teiid.metadata.MetadataFactory;
 import org.teiid.metadata.Table;
 import org.teiid.query.metadata.SystemMetadata;
@@ -75,4 +78,82 @@ public class TestMetadataProcessor {
 		assertEquals("x", jmp.quoteName("x"));
 	}
 	
+	private ResultSet getValues(final int count) throws SQLException {
+		ResultSet rs = Mockito.mock(ResultSet.class);
+		final int[] row = new int[1];
+		Mockito.stub(rs.next()).toAnswer(new Answer<Boolean>() {
+			@Override
+			public Boolean answer(InvocationOnMock invocation) throws Throwable {
+				return row[0]++ < count;
+			}
+		});
+		Mockito.stub(rs.getObject(1)).toAnswer(new Answer<Object>() {
+			@Override
+			public Object answer(InvocationOnMock invocation) throws Throwable {
+				return row[0];
+			}
+		});
+		return rs;
+	}
+	
+	@Test public void testHistogram() throws SQLException {
+		JDBCMetdataProcessor processor = new JDBCMetdataProcessor();
+		assertEquals("2,5,7,10,12,15,17,20,22,25", processor.getHistogram(getValues(25), Integer.MAX_VALUE));
+		assertEquals("1,2,3,4,5", processor.getHistogram(getValues(5), Integer.MAX_VALUE));
+		assertNull(processor.getHistogram(getValues(5), 3));
+		assertNull(processor.getHistogram(getValues(0), Integer.MAX_VALUE));
+	}
+	
+	private Column helpTestColumnStatistics(JDBCMetdataProcessor processor, Statement stmt) throws SQLException {
+		MetadataFactory mf = new MetadataFactory("vdb", 1, "x", SystemMetadata.getInstance().getRuntimeTypeMap(), new Properties(), null);
+		Table t = mf.addTable("c");
+		Column c = mf.addColumn("x", "integer", t);
+		c.setNameInSource("x");
+		JDBCMetdataProcessor.TableInfo ti = new JDBCMetdataProcessor.TableInfo("a", "b", "c", t);
+		
+		ResultSet rs = Mockito.mock(ResultSet.class);
+		Mockito.stub(rs.next()).toReturn(true);
+		Mockito.stub(rs.getLong(1)).toReturn(20000l);
+		Mockito.stub(rs.getLong(2)).toReturn(15000l);
+		Mockito.stub(rs.getLong(3)).toReturn(15000l);
+		Mockito.stub(rs.getObject(4)).toReturn(1);
+		Mockito.stub(rs.getObject(5)).toReturn(15000);
+		Mockito.stub(stmt.executeQuery("SELECT COUNT(*), COUNT(x), COUNT(DISTINCT x), MIN(x), MAX(x) FROM a.b.c")).toReturn(rs);
+		Connection conn = Mockito.mock(Connection.class);
+		Mockito.stub(conn.createStatement()).toReturn(stmt);
+		
+		processor.getColumnStatistics(conn, ti);
+		assertEquals(20000, t.getCardinality());
+		assertEquals(5000, c.getNullValues());
+		assertEquals(15000, c.getDistinctValues());
+		assertEquals("1", c.getMinimumValue());
+		assertEquals("15000", c.getMaximumValue());
+		Mockito.verify(stmt).close();
+		return c;
+	}
+	
+	@Test public void testColumnStatisticsSampled() throws SQLException {
+		JDBCMetdataProcessor processor = new JDBCMetdataProcessor() {
+			@Override
+			protected String getSampleClause(double percent) {
+				return "SAMPLE(" + Math.round(percent) + ")";
+			}
+		};
+		Statement stmt = Mockito.mock(Statement.class);
+		ResultSet values = getValues(10000);
+		Mockito.stub(stmt.executeQuery("SELECT x FROM a.b.c SAMPLE(67) WHERE x IS NOT NULL ORDER BY x")).toReturn(values);
+		Column c = helpTestColumnStatistics(processor, stmt);
+		Mockito.verify(stmt).setFetchSize(Mockito.anyInt());
+		Mockito.verify(values).close();
+		assertEquals("1000,2000,3000,4000,5000,6000,7000,8000,9000,10000", c.getProperty(Column.HISTOGRAM, false));
+	}
+	
+	@Test public void testColumnStatisticsWithoutSampling() throws SQLException {
+		Statement stmt = Mockito.mock(Statement.class);
+		Column c = helpTestColumnStatistics(new JDBCMetdataProcessor(), stmt);
+		//the column is too large to read in full
+		Mockito.verify(stmt, Mockito.times(1)).executeQuery(Mockito.anyString());
+		assertNull(c.getProperty(Column.HISTOGRAM, false));
+	}
+	
 }
@@ -0,0 +1,150 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.teiid.benchmark;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.teiid.core.types.DataTypeManager;
+import org.teiid.query.sql.symbol.ElementSymbol;
+
+/**
+ * Generates the reproducible datasets used by the benchmarks.
+ * <br>
+ * All data is derived from a fixed seed so that results from different runs
+ * and releases are comparable.
+ */
+public final class BenchmarkData {
+	
+	public static final long SEED = 20171018l;
+	
+	public static final String[] MIXED_TYPES = new String[] {
+		DataTypeManager.DefaultDataTypes.INTEGER,
+		DataTypeManager.DefaultDataTypes.LONG,
+		DataTypeManager.DefaultDataTypes.DOUBLE,
+		DataTypeManager.DefaultDataTypes.BIG_DECIMAL,
+		DataTypeManager.DefaultDataTypes.STRING,
+		DataTypeManager.DefaultDataTypes.STRING,
+		DataTypeManager.DefaultDataTypes.BOOLEAN,
+		DataTypeManager.DefaultDataTypes.TIMESTAMP,
+	};
+	
+	private static final String[] WORDS = new String[256];
+	
+	static {
+		Random r = new Random(SEED);
+		for (int i = 0; i < WORDS.length; i++) {
+			WORDS[i] = randomString(r, 4 + r.nextInt(12));
+		}
+	}
+	
+	private BenchmarkData() {
+		
+	}
+	
+	public static Random random() {
+		return new Random(SEED);
+	}
+	
+	public static String randomString(Random r, int length) {
+		char[] chars = new char[length];
+		for (int i = 0; i < length; i++) {
+			chars[i] = (char)('a' + r.nextInt(26));
+		}
+		return new String(chars);
+	}
+	
+	/**
+	 * @return a shuffled sequence of the integers 0 to count - 1
+	 */
+	public static int[] shuffledKeys(int count) {
+		int[] result = new int[count];
+		for (int i = 0; i < count; i++) {
+			result[i] = i;
+		}
+		Random r = random();
+		for (int i = count - 1; i > 0; i--) {
+			int j = r.nextInt(i + 1);
+			int tmp = result[i];
+			result[i] = result[j];
+			result[j] = tmp;
+		}
+		return result;
+	}
+	
+	/**
+	 * Rows of an integer key with the given number of distinct values and a string payload
+	 */
+	public static List<List<?>> keyValueRows(int rows, int distinctKeys) {
+		Random r = random();
+		List<List<?>> result = new ArrayList<List<?>>(rows);
+		for (int i = 0; i < rows; i++) {
+			result.add(Arrays.asList(r.nextInt(distinctKeys), WORDS[r.nextInt(WORDS.length)]));
+		}
+		return result;
+	}
+	
+	/**
+	 * Rows matching the {@link #MIXED_TYPES} with roughly 5% nulls and
+	 * strings drawn from a limited vocabulary
+	 */
+	public static List<List<?>> mixedRows(int rows) {
+		Random r = random();
+		long start = 1500000000000l;
+		List<List<?>> result = new ArrayList<List<?>>(rows);
+		for (int i = 0; i < rows; i++) {
+			Object[] row = new Object[] {
+				i,
+				r.nextLong(),
+				r.nextDouble() * 1000,
+				BigDecimal.valueOf(r.nextInt(10000000), 2),
+				WORDS[r.nextInt(WORDS.length)],
+				randomString(r, 10 + r.nextInt(30)),
+				r.nextBoolean(),
+				new Timestamp(start + r.nextInt(Integer.MAX_VALUE) * 1000l),
+			};
+			for (int j = 1; j < row.length; j++) {
+				if (r.nextInt(20) == 0) {
+					row[j] = null;
+				}
+			}
+			result.add(Arrays.asList(row));
+		}
+		return result;
+	}
+	
+	/**
+	 * @return element symbols named prefix1, prefix2, ... with the given types
+	 */
+	public static List<ElementSymbol> elements(String prefix, String... types) {
+		List<ElementSymbol> result = new ArrayList<ElementSymbol>(types.length);
+		for (int i = 0; i < types.length; i++) {
+			ElementSymbol es = new ElementSymbol(prefix + (i + 1));
+			es.setType(DataTypeManager.getDataTypeClass(types[i]));
+			result.add(es);
+		}
+		return result;
+	}
+	
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.teiid.benchmark;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.teiid.json.simple.JSONParser;
+import org.teiid.json.simple.ParseException;
+import org.teiid.json.simple.SimpleContentHandler;
+
+/**
+ * Compares two JMH json result files, typically from a baseline release and a candidate,
+ * and reports the relative change for each benchmark.
+ * <br>
+ * Usage: BenchmarkReport baseline.json current.json [threshold percent]
+ * <br>
+ * The exit code is 1 if any benchmark regressed by more than the threshold (default 10%)
+ * and by more than the combined score error.
+ */
+public class BenchmarkReport {
+	
+	private static final double DEFAULT_THRESHOLD = 10;
+	
+	static class Result {
+		String mode;
+		double score;
+		double error;
+		String unit;
+	}
+	
+	public static void main(String[] args) throws Exception {
+		if (args.length < 2) {
+			System.err.println("Usage: BenchmarkReport baseline.json current.json [threshold percent]"); //$NON-NLS-1$
+			System.exit(2);
+		}
+		double threshold = DEFAULT_THRESHOLD;
+		if (args.length > 2) {
+			threshold = Double.parseDouble(args[2]);
+		}
+		Map<String, Result> baseline = read(args[0]);
+		Map<String, Result> current = read(args[1]);
+		int regressions = report(baseline, current, threshold, System.out);
+		System.exit(regressions > 0?1:0);
+	}
+	
+	/**
+	 * @return the results keyed by benchmark name and parameters
+	 */
+	static Map<String, Result> read(String file) throws IOException, ParseException {
+		Reader reader = new InputStreamReader(new FileInputStream(file), "UTF-8"); //$NON-NLS-1$
+		try {
+			SimpleContentHandler handler = new SimpleContentHandler();
+			new JSONParser().parse(reader, handler);
+			return toResults((List<?>)handler.getResult());
+		} finally {
+			reader.close();
+		}
+	}
+	
+	static Map<String, Result> toResults(List<?> runs) {
+		Map<String, Result> results = new TreeMap<String, Result>();
+		for (Object o : runs) {
+			Map<?, ?> run = (Map<?, ?>)o;
+			StringBuilder key = new StringBuilder((String)run.get("benchmark")); //$NON-NLS-1$
+			Map<?, ?> params = (Map<?, ?>)run.get("params"); //$NON-NLS-1$
+			if (params != null) {
+				key.append(new TreeMap<Object, Object>(params));
+			}
+			Map<?, ?> metric = (Map<?, ?>)run.get("primaryMetric"); //$NON-NLS-1$
+			Result result = new Result();
+			result.mode = (String)run.get("mode"); //$NON-NLS-1$
+			result.score = toDouble(metric.get("score")); //$NON-NLS-1$
+			result.error = toDouble(metric.get("scoreError")); //$NON-NLS-1$
+			result.unit = (String)metric.get("scoreUnit"); //$NON-NLS-1$
+			results.put(key.toString(), result);
+		}
+		return results;
+	}
+
+	private static double toDouble(Object value) {
+		if (value instanceof Number) {
+			return ((Number)value).doubleValue();
+		}
+		//NaN is reported as a string
+		return Double.NaN;
+	}
+	
+	/**
+	 * Print the comparison 
+	 * @return the number of regressions
+	 */
+	static int report(Map<String, Result> baseline, Map<String, Result> current, double threshold, PrintStream out) {
+		int regressions = 0;
+		out.println(String.format("%-90s %14s %14s %9s", "Benchmark", "Baseline", "Current", "Change")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+		Map<String, Result> all = new LinkedHashMap<String, Result>(baseline);
+		for (Map.Entry<String, Result> entry : current.entrySet()) {
+			if (!all.containsKey(entry.getKey())) {
+				all.put(entry.getKey(), null);
+			}
+		}
+		for (Map.Entry<String, Result> entry : all.entrySet()) {
+			Result base = entry.getValue();
+			Result cur = current.get(entry.getKey());
+			if (base == null || cur == null) {
+				out.println(String.format("%-90s %14s %14s %9s", entry.getKey(), format(base), format(cur), "n/a")); //$NON-NLS-1$ //$NON-NLS-2$
+				continue;
+			}
+			double change = (cur.score - base.score) / base.score * 100;
+			//throughput is the only mode where higher is better
+			boolean higherIsBetter = "thrpt".equals(base.mode); //$NON-NLS-1$
+			double worse = higherIsBetter?-change:change;
+			String flag = ""; //$NON-NLS-1$
+			if (worse > threshold && Math.abs(cur.score - base.score) > base.error + cur.error) {
+				flag = " REGRESSION"; //$NON-NLS-1$
+				regressions++;
+			} else if (-worse > threshold) {
+				flag = " improved"; //$NON-NLS-1$
+			}
+			out.println(String.format("%-90s %14s %14s %+8.1f%%%s", entry.getKey(), format(base), format(cur), change, flag)); //$NON-NLS-1$
+		}
+		out.println(regressions + " regression(s) with a threshold of " + threshold + "%"); //$NON-NLS-1$ //$NON-NLS-2$
+		return regressions;
+	}
+
+	private static String format(Result result) {
+		if (result == null) {
+			return "-"; //$NON-NLS-1$
+		}
+		return String.format("%.3f", result.score); //$NON-NLS-1$
+	}
+
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.teiid.client;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.teiid.benchmark.BenchmarkData;
+import org.teiid.core.util.AccessibleByteArrayOutputStream;
+
+/**
+ * Serialization and deserialization of a batch of mixed types for each of the
+ * client serialization versions
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class BatchSerializerBenchmark {
+	
+	@Param({"256", "2048"})
+	public int rows;
+	
+	@Param({"4", "5"})
+	public byte version;
+	
+	private List<List<?>> batch;
+	private AccessibleByteArrayOutputStream baos = new AccessibleByteArrayOutputStream(1 << 16);
+	private byte[] serialized;
+	
+	@Setup
+	public void setup() throws IOException {
+		batch = BenchmarkData.mixedRows(rows);
+		write();
+		serialized = baos.toByteArray();
+	}
+	
+	@Benchmark
+	public int write() throws IOException {
+		baos.reset();
+		ObjectOutputStream out = new ObjectOutputStream(baos);
+		BatchSerializer.writeBatch(out, BenchmarkData.MIXED_TYPES, batch, version);
+		out.flush();
+		return baos.getCount();
+	}
+	
+	@Benchmark
+	public List<List<Object>> read() throws IOException, ClassNotFoundException {
+		ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(serialized));
+		return BatchSerializer.readBatch(in, BenchmarkData.MIXED_TYPES);
+	}
+	
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.teiid.common.buffer;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.teiid.benchmark.BenchmarkData;
+import org.teiid.common.buffer.STree.InsertMode;
+import org.teiid.common.buffer.impl.BufferManagerImpl;
+import org.teiid.core.types.DataTypeManager;
+import org.teiid.query.sql.symbol.ElementSymbol;
+
+/**
+ * Insert and point lookups against an {@link STree} keyed by an integer
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class STreeBenchmark {
+	
+	@Param({"10000", "200000"})
+	public int rows;
+	
+	private BufferManagerImpl bm;
+	private List<ElementSymbol> elements;
+	private int[] keys;
+	private STree lookupTree;
+	
+	@Setup
+	public void setup() throws Exception {
+		bm = BufferManagerFactory.createBufferManager();
+		elements = BenchmarkData.elements("e", DataTypeManager.DefaultDataTypes.INTEGER, DataTypeManager.DefaultDataTypes.STRING); //$NON-NLS-1$
+		keys = BenchmarkData.shuffledKeys(rows);
+		lookupTree = createTree(InsertMode.NEW);
+	}
+	
+	@TearDown
+	public void tearDown() {
+		lookupTree.remove();
+	}
+
+	private STree createTree(InsertMode mode) throws Exception {
+		STree tree = bm.createSTree(elements, "bench", 1); //$NON-NLS-1$
+		int sizeHint = tree.getExpectedHeight(rows);
+		if (mode == InsertMode.ORDERED) {
+			for (int i = 0; i < rows; i++) {
+				tree.insert(Arrays.asList(i, String.valueOf(i)), mode, rows);
+			}
+		} else {
+			for (int key : keys) {
+				tree.insert(Arrays.asList(key, String.valueOf(key)), mode, sizeHint);
+			}
+		}
+		return tree;
+	}
+	
+	@Benchmark
+	public long insertUnordered() throws Exception {
+		STree tree = createTree(InsertMode.NEW);
+		long count = tree.getRowCount();
+		tree.remove();
+		return count;
+	}
+	
+	@Benchmark
+	public long insertOrdered() throws Exception {
+		STree tree = createTree(InsertMode.ORDERED);
+		long count = tree.getRowCount();
+		tree.remove();
+		return count;
+	}
+	
+	@Benchmark
+	public int find() throws Exception {
+		int found = 0;
+		for (int key : keys) {
+			if (lookupTree.find(Arrays.asList(key)) != null) {
+				found++;
+			}
+		}
+		return found;
+	}
+	
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.teiid.common.buffer.impl;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.lang.ref.WeakReference;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.teiid.benchmark.BenchmarkData;
+import org.teiid.common.buffer.CacheEntry;
+import org.teiid.common.buffer.Serializer;
+
+/**
+ * Writes and reads fixed size entries through the {@link BufferFrontedFileStoreCache}.
+ * When the memory buffer is smaller than the data set reads and writes will also go
+ * through the (in memory) storage layer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class BufferFrontedFileStoreCacheBenchmark {
+	
+	private static final int ENTRIES = 2000;
+	
+	private static final class IntArraySerializer implements Serializer<int[]> {
+		@Override
+		public int[] deserialize(ObjectInput ois) throws IOException, ClassNotFoundException {
+			int[] result = new int[ois.readInt()];
+			for (int i = 0; i < result.length; i++) {
+				result[i] = ois.readInt();
+			}
+			return result;
+		}
+
+		@Override
+		public Long getId() {
+			return 1l;
+		}
+
+		@Override
+		public void serialize(int[] obj, ObjectOutput oos) throws IOException {
+			oos.writeInt(obj.length);
+			for (int i = 0; i < obj.length; i++) {
+				oos.writeInt(obj[i]);
+			}
+		}
+
+		@Override
+		public boolean useSoftCache() {
+			return false;
+		}
+		
+		@Override
+		public String describe(int[] obj) {
+			return null;
+		}
+	}
+	
+	/**
+	 * The size in KB of the memory buffer
+	 */
+	@Param({"8192", "65536"})
+	public int memoryBufferKB;
+	
+	/**
+	 * The size of each entry in ints
+	 */
+	@Param({"256", "4096"})
+	public int entrySize;
+	
+	private BufferFrontedFileStoreCache cache;
+	private IntArraySerializer serializer = new IntArraySerializer();
+	private WeakReference<Serializer<?>> ref = new WeakReference<Serializer<?>>(serializer);
+	private Random random;
+	private long nextId;
+	private int[] value;
+	
+	@Setup(Level.Iteration)
+	public void setup() throws Exception {
+		cache = new BufferFrontedFileStoreCache();
+		cache.cleanerRunning.set(true); //prevent asynch affects
+		cache.setMemoryBufferSpace(memoryBufferKB * 1024l);
+		cache.setDirect(false);
+		SplittableStorageManager ssm = new SplittableStorageManager(new MemoryStorageManager());
+		ssm.setMaxFileSizeDirect(MemoryStorageManager.MAX_FILE_SIZE);
+		cache.setStorageManager(ssm);
+		cache.initialize();
+		cache.createCacheGroup(serializer.getId());
+		value = new int[entrySize];
+		random = BenchmarkData.random();
+		for (int i = 0; i < value.length; i++) {
+			value[i] = random.nextInt();
+		}
+		for (nextId = 0; nextId < ENTRIES; nextId++) {
+			add(nextId);
+		}
+	}
+
+	private void add(long id) {
+		CacheEntry ce = new CacheEntry(id);
+		ce.setObject(value);
+		cache.addToCacheGroup(serializer.getId(), id);
+		cache.add(ce, serializer);
+	}
+	
+	@TearDown(Level.Iteration)
+	public void tearDown() {
+		cache.removeCacheGroup(serializer.getId());
+		cache.shutdown();
+	}
+	
+	@Benchmark
+	public void write() {
+		//replace an existing entry to keep the data set size stable
+		long id = nextId++;
+		cache.remove(serializer.getId(), id - ENTRIES);
+		add(id);
+	}
+	
+	@Benchmark
+	public Object read() throws Exception {
+		Long id = nextId - 1 - random.nextInt(ENTRIES);
+		PhysicalInfo info = cache.lockForLoad(id, serializer);
+		try {
+			return cache.get(info, id, ref);
+		} finally {
+			cache.unlockForLoad(info);
+		}
+	}
+	
+}
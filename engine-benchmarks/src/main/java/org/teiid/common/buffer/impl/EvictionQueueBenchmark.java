@@ -0,0 +1,106 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.teiid.common.buffer.impl;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.teiid.benchmark.BenchmarkData;
+import org.teiid.common.buffer.BaseCacheEntry;
+import org.teiid.common.buffer.CacheKey;
+
+/**
+ * Compares the contention of the {@link LrfuEvictionQueue} and the {@link ShardedLrfuEvictionQueue}
+ * under concurrent touches and evictions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Threads(4)
+@Fork(1)
+public class EvictionQueueBenchmark {
+	
+	private static final int ENTRIES = 1 << 16;
+	
+	@State(Scope.Thread)
+	public static class ThreadState {
+		Random random = new Random(BenchmarkData.SEED + Thread.currentThread().getId());
+	}
+	
+	@Param({"false", "true"})
+	public boolean sharded;
+	
+	private AtomicLong clock = new AtomicLong();
+	private AtomicLong ids = new AtomicLong();
+	private LrfuEvictionQueue<BaseCacheEntry> queue;
+	private BaseCacheEntry[] entries;
+	
+	@Setup
+	public void setup() {
+		if (sharded) {
+			queue = new ShardedLrfuEvictionQueue<BaseCacheEntry>(clock);
+		} else {
+			queue = new LrfuEvictionQueue<BaseCacheEntry>(clock);
+		}
+		entries = new BaseCacheEntry[ENTRIES];
+		for (int i = 0; i < ENTRIES; i++) {
+			entries[i] = new BaseCacheEntry(new CacheKey(ids.getAndIncrement(), 0, 0));
+			queue.touch(entries[i]);
+		}
+	}
+	
+	@Benchmark
+	public void touch(ThreadState state) {
+		BaseCacheEntry entry = entries[state.random.nextInt(ENTRIES)];
+		clock.addAndGet(LrfuEvictionQueue.MIN_INTERVAL);
+		synchronized (entry) {
+			queue.touch(entry);
+		}
+	}
+	
+	@Benchmark
+	public Object evict(ThreadState state) {
+		BaseCacheEntry entry = queue.firstEntry(true);
+		if (entry != null) {
+			//re-add with a new key to keep the queue size stable
+			int index = state.random.nextInt(ENTRIES);
+			BaseCacheEntry replacement = new BaseCacheEntry(new CacheKey(ids.getAndIncrement(), clock.get(), 0));
+			entries[index] = replacement;
+			queue.add(replacement);
+		}
+		return entry;
+	}
+	
+}
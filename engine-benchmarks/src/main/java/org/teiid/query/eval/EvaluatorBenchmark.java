@@ -0,0 +1,110 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.teiid.query.eval;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.teiid.benchmark.BenchmarkData;
+import org.teiid.query.metadata.TransformationMetadata;
+import org.teiid.query.parser.QueryParser;
+import org.teiid.query.resolver.QueryResolver;
+import org.teiid.query.resolver.util.ResolverUtil;
+import org.teiid.query.sql.lang.Query;
+import org.teiid.query.sql.symbol.ElementSymbol;
+import org.teiid.query.sql.symbol.Expression;
+import org.teiid.query.sql.util.SymbolMap;
+import org.teiid.query.unittest.RealMetadataFactory;
+import org.teiid.query.util.CommandContext;
+
+/**
+ * Evaluates common expression forms over a batch of pm1.g1 rows
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class EvaluatorBenchmark {
+	
+	private static final int ROWS = 1024;
+	
+	@Param({"e2 * 2 + 1", 
+		"concat(e1, 'x')",
+		"CASE WHEN e2 > 500 THEN e4 ELSE 0 END",
+		"e1 LIKE 'a%' AND e2 BETWEEN 100 AND 500",
+		"convert(e2, string)",
+		"ifnull(e1, 'none')",
+		"e2 IN (1, 5, 10, 50, 100, 500)"})
+	public String expression;
+	
+	private Expression expr;
+	private Evaluator evaluator;
+	private List<List<?>> tuples;
+	
+	@Setup
+	public void setup() throws Exception {
+		TransformationMetadata metadata = RealMetadataFactory.example1Cached();
+		Query query = (Query)QueryParser.getQueryParser().parseCommand("SELECT " + expression + " FROM pm1.g1"); //$NON-NLS-1$ //$NON-NLS-2$
+		QueryResolver.resolveCommand(query, metadata);
+		expr = SymbolMap.getExpression(query.getSelect().getSymbols().get(0));
+		List<ElementSymbol> elements = ResolverUtil.resolveElementsInGroup(query.getFrom().getGroups().get(0), metadata);
+		Map<ElementSymbol, Integer> elementMap = new HashMap<ElementSymbol, Integer>();
+		for (int i = 0; i < elements.size(); i++) {
+			elementMap.put(elements.get(i), i);
+		}
+		evaluator = new Evaluator(elementMap, null, new CommandContext());
+		//pm1.g1 is string, integer, boolean, double
+		Random r = BenchmarkData.random();
+		tuples = new ArrayList<List<?>>(ROWS);
+		for (int i = 0; i < ROWS; i++) {
+			tuples.add(Arrays.asList(r.nextInt(20) == 0 ? null : BenchmarkData.randomString(r, 8), r.nextInt(1000), r.nextBoolean(), r.nextDouble()));
+		}
+	}
+	
+	@Benchmark
+	public int evaluate() throws Exception {
+		int nonNull = 0;
+		for (List<?> tuple : tuples) {
+			if (evaluator.evaluate(expr, tuple) != null) {
+				nonNull++;
+			}
+		}
+		return nonNull;
+	}
+	
+}
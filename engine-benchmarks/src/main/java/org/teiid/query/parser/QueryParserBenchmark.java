@@ -0,0 +1,88 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.teiid.query.parser;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.teiid.query.metadata.TransformationMetadata;
+import org.teiid.query.resolver.QueryResolver;
+import org.teiid.query.rewriter.QueryRewriter;
+import org.teiid.query.sql.lang.Command;
+import org.teiid.query.unittest.RealMetadataFactory;
+import org.teiid.query.util.CommandContext;
+
+/**
+ * Parsing and resolving/rewriting throughput for representative BQT queries 
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class QueryParserBenchmark {
+	
+	@Param({"simple", "join", "aggregate", "subquery", "union"})
+	public String query;
+	
+	private String sql;
+	private TransformationMetadata metadata;
+	private QueryParser parser = QueryParser.getQueryParser();
+	
+	@Setup
+	public void setup() {
+		metadata = RealMetadataFactory.exampleBQTCached();
+		if ("simple".equals(query)) { //$NON-NLS-1$
+			sql = "SELECT IntKey, StringKey FROM BQT1.SmallA WHERE IntKey > 10 AND StringKey LIKE 'a%' ORDER BY IntKey"; //$NON-NLS-1$
+		} else if ("join".equals(query)) { //$NON-NLS-1$
+			sql = "SELECT a.IntKey, b.StringKey, c.DoubleNum FROM BQT1.SmallA a INNER JOIN BQT1.SmallB b ON a.IntKey = b.IntKey LEFT OUTER JOIN BQT2.MediumA c ON b.StringKey = c.StringKey WHERE a.IntNum BETWEEN 1 AND 100 AND (b.BooleanValue = TRUE OR c.IntNum IS NULL)"; //$NON-NLS-1$
+		} else if ("aggregate".equals(query)) { //$NON-NLS-1$
+			sql = "SELECT StringKey, COUNT(*), SUM(IntNum), AVG(DoubleNum), MAX(DateValue) FROM BQT1.SmallA WHERE IntKey < 500 GROUP BY StringKey HAVING COUNT(*) > 1 ORDER BY 2 DESC LIMIT 10"; //$NON-NLS-1$
+		} else if ("subquery".equals(query)) { //$NON-NLS-1$
+			sql = "SELECT IntKey, (SELECT MAX(IntNum) FROM BQT1.SmallB WHERE SmallB.StringKey = SmallA.StringKey) FROM BQT1.SmallA WHERE IntKey IN (SELECT IntKey FROM BQT2.SmallA WHERE StringNum = '1') AND EXISTS (SELECT 1 FROM BQT1.MediumA WHERE MediumA.IntKey = SmallA.IntKey)"; //$NON-NLS-1$
+		} else {
+			sql = "SELECT IntKey, StringKey FROM BQT1.SmallA WHERE IntKey = 1 UNION ALL SELECT IntKey, StringKey FROM BQT1.SmallB WHERE IntKey = 2 UNION SELECT IntKey, StringKey FROM BQT2.SmallA WHERE 1 = 1 AND StringKey = concat('a', 'b')"; //$NON-NLS-1$
+		}
+	}
+	
+	@Benchmark
+	public Command parse() throws Exception {
+		return parser.parseCommand(sql);
+	}
+	
+	@Benchmark
+	public Command resolveAndRewrite() throws Exception {
+		Command command = parser.parseCommand(sql);
+		QueryResolver.resolveCommand(command, metadata);
+		return QueryRewriter.rewrite(command, metadata, new CommandContext());
+	}
+	
+}
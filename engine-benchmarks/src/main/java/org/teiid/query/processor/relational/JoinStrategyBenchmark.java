@@ -0,0 +1,162 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.teiid.query.processor.relational;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.teiid.benchmark.BenchmarkData;
+import org.teiid.common.buffer.BlockedException;
+import org.teiid.common.buffer.BufferManagerFactory;
+import org.teiid.common.buffer.TupleBatch;
+import org.teiid.common.buffer.impl.BufferManagerImpl;
+import org.teiid.core.types.DataTypeManager;
+import org.teiid.query.processor.relational.MergeJoinStrategy.SortOption;
+import org.teiid.query.sql.lang.JoinType;
+import org.teiid.query.sql.symbol.ElementSymbol;
+import org.teiid.query.sql.symbol.Expression;
+import org.teiid.query.util.CommandContext;
+
+/**
+ * Performs an inner equi-join of two unsorted inputs with each of the join strategies 
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class JoinStrategyBenchmark {
+	
+	/**
+	 * Simple in memory source that does not require the buffer manager
+	 */
+	static class RowSourceNode extends RelationalNode {
+		
+		private List<List<?>> rows;
+		private int currentRow;
+		
+		public RowSourceNode(int nodeId, List<List<?>> rows, List<? extends Expression> elements) {
+			super(nodeId);
+			this.rows = rows;
+			setElements(elements);
+		}
+		
+		@Override
+		public void reset() {
+			super.reset();
+			this.currentRow = 0;
+		}
+		
+		@Override
+		protected TupleBatch nextBatchDirect() {
+			int endRow = Math.min(rows.size(), currentRow + getBatchSize());
+			TupleBatch batch = new TupleBatch(currentRow + 1, rows.subList(currentRow, endRow));
+			currentRow = endRow;
+			batch.setTerminationFlag(currentRow >= rows.size());
+			return batch;
+		}
+		
+		@Override
+		public Object clone() {
+			return new RowSourceNode(getID(), rows, getElements());
+		}
+	}
+	
+	@Param({"10000", "100000"})
+	public int rows;
+	
+	@Param({"MERGE", "ENHANCED_SORT_MERGE", "HASH"})
+	public String strategy;
+	
+	private List<List<?>> leftRows;
+	private List<List<?>> rightRows;
+	private BufferManagerImpl bm;
+	
+	@Setup
+	public void setup() {
+		bm = BufferManagerFactory.createBufferManager();
+		leftRows = BenchmarkData.keyValueRows(rows, rows);
+		//the right side has fewer distinct keys, which gives roughly a 1:4 fan out
+		rightRows = BenchmarkData.keyValueRows(rows/2, rows/8);
+	}
+	
+	private JoinStrategy createStrategy() {
+		if ("MERGE".equals(strategy)) { //$NON-NLS-1$
+			return new MergeJoinStrategy(SortOption.SORT, SortOption.SORT, false);
+		}
+		if ("ENHANCED_SORT_MERGE".equals(strategy)) { //$NON-NLS-1$
+			return new EnhancedSortMergeJoinStrategy(SortOption.SORT, SortOption.SORT);
+		}
+		return new HashJoinStrategy();
+	}
+	
+	@Benchmark
+	public long join() throws Exception {
+		List<ElementSymbol> leftElements = BenchmarkData.elements("l", DataTypeManager.DefaultDataTypes.INTEGER, DataTypeManager.DefaultDataTypes.STRING); //$NON-NLS-1$
+		List<ElementSymbol> rightElements = BenchmarkData.elements("r", DataTypeManager.DefaultDataTypes.INTEGER, DataTypeManager.DefaultDataTypes.STRING); //$NON-NLS-1$
+		
+		JoinNode join = new JoinNode(3);
+		join.setJoinType(JoinType.JOIN_INNER);
+		join.setJoinStrategy(createStrategy());
+		join.setJoinExpressions(leftElements.subList(0, 1), rightElements.subList(0, 1));
+		List<ElementSymbol> joinElements = new ArrayList<ElementSymbol>(leftElements);
+		joinElements.addAll(rightElements);
+		join.setElements(joinElements);
+		
+		RelationalNode left = new RowSourceNode(1, leftRows, leftElements);
+		RelationalNode right = new RowSourceNode(2, rightRows, rightElements);
+		join.addChild(left);
+		join.addChild(right);
+		CommandContext context = new CommandContext("pid", "bench", null, null, 1); //$NON-NLS-1$ //$NON-NLS-2$
+		left.initialize(context, bm, null);
+		right.initialize(context, bm, null);
+		join.initialize(context, bm, null);
+		
+		long count = 0;
+		join.open();
+		while (true) {
+			try {
+				TupleBatch batch = join.nextBatch();
+				count += batch.getRowCount();
+				if (batch.getTerminationFlag()) {
+					break;
+				}
+			} catch (BlockedException e) {
+				//continue
+			}
+		}
+		join.close();
+		return count;
+	}
+	
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.teiid.query.processor.relational;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.teiid.benchmark.BenchmarkData;
+import org.teiid.common.buffer.BufferManager.TupleSourceType;
+import org.teiid.common.buffer.BufferManagerFactory;
+import org.teiid.common.buffer.TupleBuffer;
+import org.teiid.common.buffer.impl.BufferManagerImpl;
+import org.teiid.core.types.DataTypeManager;
+import org.teiid.query.sql.symbol.ElementSymbol;
+
+/**
+ * Sorts a buffer of key/value rows with and without duplicate removal
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class SortUtilityBenchmark {
+	
+	@Param({"10000", "200000"})
+	public int rows;
+	
+	@Param({"SORT", "DUP_REMOVE_SORT"})
+	public String mode;
+	
+	private BufferManagerImpl bm;
+	private TupleBuffer source;
+	private List<ElementSymbol> elements;
+	
+	@Setup
+	public void setup() throws Exception {
+		bm = BufferManagerFactory.createBufferManager();
+		elements = BenchmarkData.elements("e", DataTypeManager.DefaultDataTypes.INTEGER, DataTypeManager.DefaultDataTypes.STRING); //$NON-NLS-1$
+		source = bm.createTupleBuffer(elements, "bench", TupleSourceType.PROCESSOR); //$NON-NLS-1$
+		for (List<?> row : BenchmarkData.keyValueRows(rows, rows/4)) {
+			source.addTuple(row);
+		}
+		source.close();
+	}
+	
+	@TearDown
+	public void tearDown() {
+		source.remove();
+	}
+	
+	@Benchmark
+	public long sort() throws Exception {
+		SortUtility su = new SortUtility(source.createIndexedTupleSource(), elements, Arrays.asList(Boolean.TRUE, Boolean.TRUE), SortUtility.Mode.valueOf(mode), bm, "bench", elements); //$NON-NLS-1$
+		TupleBuffer result = su.sort();
+		long count = result.getRowCount();
+		result.remove();
+		return count;
+	}
+	
+}
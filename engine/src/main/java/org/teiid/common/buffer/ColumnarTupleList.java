@@ -0,0 +1,283 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.teiid.common.buffer;
+
+import java.util.AbstractList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.RandomAccess;
+
+import org.teiid.core.types.DataTypeManager;
+
+/**
+ * A column major representation of a batch of tuples.  Integer, long, double and boolean 
+ * columns are held in primitive arrays with a null bitmap, all other columns are held in 
+ * object arrays.
+ * <br>
+ * The rows are exposed as views so that consumers expecting a list of 
+ * tuples may use this as a drop in replacement.  The views and the boxed values read through 
+ * them are created on first access and then reused.  Setting a value of an 
+ * unexpected type into a primitive column will convert that column to an object column.
+ */
+public class ColumnarTupleList extends AbstractList<List<?>> implements RandomAccess {
+	
+	private static final byte OBJECT = 0;
+	private static final byte INTEGER = 1;
+	private static final byte LONG = 2;
+	private static final byte DOUBLE = 3;
+	private static final byte BOOLEAN = 4;
+	
+	private final class Row extends AbstractList<Object> implements RandomAccess {
+		private final int row;
+		
+		public Row(int row) {
+			this.row = row;
+		}
+		
+		@Override
+		public Object get(int index) {
+			return getValue(row, index);
+		}
+		
+		@Override
+		public Object set(int index, Object element) {
+			Object old = getValue(row, index);
+			setValue(row, index, element);
+			return old;
+		}
+		
+		@Override
+		public int size() {
+			return kinds.length;
+		}
+	}
+	
+	private final byte[] kinds;
+	private final Object[] columns;
+	private final BitSet[] nulls;
+	private final Object[][] boxed;
+	private final int rowCount;
+	private Row[] rows;
+	
+	public ColumnarTupleList(Class<?>[] types, List<? extends List<?>> tuples) {
+		this.rowCount = tuples.size();
+		this.kinds = new byte[types.length];
+		this.columns = new Object[types.length];
+		this.nulls = new BitSet[types.length];
+		this.boxed = new Object[types.length][];
+		for (int col = 0; col < types.length; col++) {
+			byte kind = getKind(types[col]);
+			this.kinds[col] = kind;
+			switch (kind) {
+			case INTEGER:
+				this.columns[col] = new int[rowCount];
+				break;
+			case LONG:
+				this.columns[col] = new long[rowCount];
+				break;
+			case DOUBLE:
+				this.columns[col] = new double[rowCount];
+				break;
+			case BOOLEAN:
+				this.columns[col] = new BitSet(rowCount);
+				break;
+			default:
+				this.columns[col] = new Object[rowCount];
+			}
+		}
+		for (int row = 0; row < rowCount; row++) {
+			List<?> tuple = tuples.get(row);
+			for (int col = 0; col < kinds.length; col++) {
+				setValue(row, col, tuple.get(col));
+			}
+		}
+	}
+	
+	/**
+	 * @return true if any of the types would be stored as primitive values 
+	 */
+	public static boolean hasPrimitiveColumns(Class<?>[] types) {
+		for (Class<?> type : types) {
+			if (getKind(type) != OBJECT) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	private static byte getKind(Class<?> type) {
+		if (type == DataTypeManager.DefaultDataClasses.INTEGER) {
+			return INTEGER;
+		}
+		if (type == DataTypeManager.DefaultDataClasses.LONG) {
+			return LONG;
+		}
+		if (type == DataTypeManager.DefaultDataClasses.DOUBLE) {
+			return DOUBLE;
+		}
+		if (type == DataTypeManager.DefaultDataClasses.BOOLEAN) {
+			return BOOLEAN;
+		}
+		return OBJECT;
+	}
+	
+	private static Class<?> getClass(byte kind) {
+		switch (kind) {
+		case INTEGER:
+			return DataTypeManager.DefaultDataClasses.INTEGER;
+		case LONG:
+			return DataTypeManager.DefaultDataClasses.LONG;
+		case DOUBLE:
+			return DataTypeManager.DefaultDataClasses.DOUBLE;
+		case BOOLEAN:
+			return DataTypeManager.DefaultDataClasses.BOOLEAN;
+		}
+		return null;
+	}
+	
+	Object getValue(int row, int col) {
+		byte kind = kinds[col];
+		if (kind == OBJECT) {
+			return ((Object[])columns[col])[row];
+		}
+		BitSet nullBits = nulls[col];
+		if (nullBits != null && nullBits.get(row)) {
+			return null;
+		}
+		if (kind == BOOLEAN) {
+			return ((BitSet)columns[col]).get(row);
+		}
+		Object[] values = boxed[col];
+		if (values == null) {
+			values = new Object[rowCount];
+			boxed[col] = values;
+		} else if (values[row] != null) {
+			return values[row];
+		}
+		Object value = null;
+		switch (kind) {
+		case INTEGER:
+			value = ((int[])columns[col])[row];
+			break;
+		case LONG:
+			value = ((long[])columns[col])[row];
+			break;
+		default:
+			value = ((double[])columns[col])[row];
+		}
+		values[row] = value;
+		return value;
+	}
+	
+	void setValue(int row, int col, Object value) {
+		byte kind = kinds[col];
+		if (kind != OBJECT) {
+			if (value == null) {
+				BitSet nullBits = nulls[col];
+				if (nullBits == null) {
+					nullBits = new BitSet(rowCount);
+					nulls[col] = nullBits;
+				}
+				nullBits.set(row);
+				return;
+			}
+			if (value.getClass() != getClass(kind)) {
+				toObjectColumn(col);
+				kind = OBJECT;
+			} else {
+				if (nulls[col] != null) {
+					nulls[col].clear(row);
+				}
+				if (boxed[col] != null) {
+					boxed[col][row] = value;
+				}
+			}
+		}
+		switch (kind) {
+		case INTEGER:
+			((int[])columns[col])[row] = (Integer)value;
+			break;
+		case LONG:
+			((long[])columns[col])[row] = (Long)value;
+			break;
+		case DOUBLE:
+			((double[])columns[col])[row] = (Double)value;
+			break;
+		case BOOLEAN:
+			((BitSet)columns[col]).set(row, (Boolean)value);
+			break;
+		default:
+			((Object[])columns[col])[row] = value;
+		}
+	}
+
+	private void toObjectColumn(int col) {
+		Object[] values = new Object[rowCount];
+		for (int row = 0; row < rowCount; row++) {
+			values[row] = getValue(row, col);
+		}
+		this.columns[col] = values;
+		this.nulls[col] = null;
+		this.boxed[col] = null;
+		this.kinds[col] = OBJECT;
+	}
+	
+	@Override
+	public List<?> get(int index) {
+		if (index < 0 || index >= rowCount) {
+			throw new IndexOutOfBoundsException(String.valueOf(index));
+		}
+		if (rows == null) {
+			rows = new Row[rowCount];
+		}
+		Row result = rows[index];
+		if (result == null) {
+			result = new Row(index);
+			rows[index] = result;
+		}
+		return result;
+	}
+	
+	@Override
+	public int size() {
+		return rowCount;
+	}
+	
+	/**
+	 * Get the backing storage for the given column, which will be a primitive array, 
+	 * a {@link BitSet} for boolean values, or an Object array.
+	 */
+	public Object getColumn(int col) {
+		return columns[col];
+	}
+	
+	/**
+	 * Get the null bitmap for the given column.
+	 * @return the bitmap or null if the column has no null values or is an object column 
+	 */
+	public BitSet getNulls(int col) {
+		return nulls[col];
+	}
+	
+	public int getColumnCount() {
+		return kinds.length;
+	}
+	
+}
@@ -896,6 +896,18 @@ public class BufferFrontedFileStoreCache implements Cache<PhysicalInfo> {
 		this.direct = direct;
 	}
 	
+	/**
+	 * Use a {@link ShardedLrfuEvictionQueue} for the memory buffer entries.
+	 * Should be called prior to initialization. 
+	 */
+	public void setShardedEvictionQueue(boolean sharded) {
+		if (sharded) {
+			this.memoryBufferEntries = new ShardedLrfuEvictionQueue<PhysicalInfo>(readAttempts);
+		} else {
+			this.memoryBufferEntries = new LrfuEvictionQueue<PhysicalInfo>(readAttempts);
+		}
+	}
+	
 	@Override
 	public boolean addToCacheGroup(Long gid, Long oid) {
 		Map<Long, PhysicalInfo> map = physicalMapping.get(gid);
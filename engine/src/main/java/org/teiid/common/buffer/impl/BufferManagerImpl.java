@@ -195,6 +195,7 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 		private long totalSize;
 		private long currentSize;
 		private long rowsSampled;
+		private Class<?>[] columnarTypes;
 
 		private BatchManagerImpl(Long newID, Class<?>[] types) {
 			this.id = newID;
@@ -214,6 +215,14 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 			this.lobManager = lobManager;
 		}
 		
+		/**
+		 * Hold batches in a {@link ColumnarTupleList} while they are in memory.
+		 * Should only be used when the batches are not directly modified. 
+		 */
+		public void setColumnarTypes(Class<?>[] columnarTypes) {
+			this.columnarTypes = columnarTypes;
+		}
+		
 		@Override
 		public String[] getTypes() {
 			return types;
@@ -244,6 +253,9 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 		public Long createManagedBatch(List<? extends List<?>> batch,
 				Long previous, boolean removeOld)
 				throws TeiidComponentException {
+			if (columnarTypes != null && !(batch instanceof ColumnarTupleList)) {
+				batch = new ColumnarTupleList(columnarTypes, batch);
+			}
 			if (cleanup == null) {
 				cache.createCacheGroup(id);
 				cleanup = AutoCleanupUtil.setCleanupReference(this, new Remover(id, prefersMemory));
@@ -317,6 +329,9 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 					}
 				}
 			}
+			if (columnarTypes != null) {
+				return new ColumnarTupleList(columnarTypes, batch);
+			}
 			return batch;
 		}
 		
@@ -600,6 +615,9 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
     	int[] lobIndexes = LobManager.getLobIndexes(elements);
     	Class<?>[] types = getTypeClasses(elements);
     	BatchManagerImpl batchManager = createBatchManager(newID, types);
+    	if (getOptions().isColumnarBatches() && ColumnarTupleList.hasPrimitiveColumns(types)) {
+    		batchManager.setColumnarTypes(types);
+    	}
     	LobManager lobManager = null;
 		if (lobIndexes != null) {
 			FileStore lobStore = createFileStore(newID + "_lobs"); //$NON-NLS-1$
@@ -1283,6 +1301,20 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 		this.useWeakReferences = useWeakReferences;
 	}	
 	
+	/**
+	 * Use {@link ShardedLrfuEvictionQueue}s to reduce contention under high concurrency.
+	 * Should be called prior to use. 
+	 */
+	public void setShardedEvictionQueue(boolean sharded) {
+		if (sharded) {
+			this.evictionQueue = new ShardedLrfuEvictionQueue<CacheEntry>(readAttempts);
+			this.initialEvictionQueue = new ShardedLrfuEvictionQueue<CacheEntry>(readAttempts);
+		} else {
+			this.evictionQueue = new LrfuEvictionQueue<CacheEntry>(readAttempts);
+			this.initialEvictionQueue = new LrfuEvictionQueue<CacheEntry>(readAttempts);
+		}
+	}
+	
 	@Override
 	public void getState(OutputStream ostream) {
 	}
@@ -22,6 +22,12 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -47,6 +53,36 @@ public class FileStorageManager implements StorageManager {
 	public static final int DEFAULT_MAX_OPEN_FILES = 64;
 	public static final long DEFAULT_MAX_BUFFERSPACE = 50L * 1024L * MB;
 	private static final String FILE_PREFIX = "b_"; //$NON-NLS-1$
+	static final int SEGMENT_BITS = 26; //64MB
+	public static final int DEFAULT_MAX_MAPPED_SEGMENTS = 4096;
+	
+	private static Object UNSAFE;
+	private static Method INVOKE_CLEANER;
+	private static Method CLEANER;
+	private static Method CLEAN;
+	
+	static {
+		try {
+			//java 9+
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe"); //$NON-NLS-1$
+			INVOKE_CLEANER = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class); //$NON-NLS-1$
+			Field f = unsafeClass.getDeclaredField("theUnsafe"); //$NON-NLS-1$
+			f.setAccessible(true);
+			UNSAFE = f.get(null);
+		} catch (Exception e) {
+			INVOKE_CLEANER = null;
+			try {
+				CLEANER = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner"); //$NON-NLS-1$ //$NON-NLS-2$
+				CLEAN = CLEANER.getReturnType().getMethod("clean"); //$NON-NLS-1$
+			} catch (Exception e1) {
+				//mappings will be released by gc
+			}
+		}
+	}
+	
+	private boolean memoryMapped;
+	private int maxMappedSegments = DEFAULT_MAX_MAPPED_SEGMENTS;
+	private AtomicInteger mappedSegments = new AtomicInteger();
 	
 	private long maxBufferSpace = DEFAULT_MAX_BUFFERSPACE;
 	private AtomicLong usedBufferSpace = new AtomicLong();
@@ -98,6 +134,8 @@ public class FileStorageManager implements StorageManager {
 	public class DiskStore extends FileStore {
 	    private String name;
 		private FileInfo fileInfo; 
+		private MappedByteBuffer[] segments;
+		private long length;
 	    
 	    public DiskStore(String name) {
 			this.name = name;
@@ -117,6 +155,9 @@ public class FileStorageManager implements StorageManager {
 	    	if (!write) {
 	    		if (fileInfo == null) {
 	    			return -1;
+	    		}
+	    		if (memoryMapped) {
+	    			return readMapped(fileOffset, b, offSet, length);
 	    		}
 				try {
 					RandomAccessFile fileAccess = fileInfo.open();
@@ -141,6 +182,90 @@ public class FileStorageManager implements StorageManager {
 	    	return length;
 	    }
 
+		/**
+		 * Read through a read only mapping of the segment containing the offset.  Writes still go 
+		 * through the file so that growth is accounted for by {@link #setLength(RandomAccessFile, long, boolean)}.
+		 * A segment is remapped only when a read extends past what was previously mapped.  If the 
+		 * max number of mapped segments has been reached, the read goes through the file instead.
+		 */
+		private int readMapped(long fileOffset, byte[] b, int offSet,
+				int length) throws IOException {
+			if (fileOffset >= this.length) {
+				return -1;
+			}
+			int index = (int)(fileOffset >> SEGMENT_BITS);
+			int position = (int)(fileOffset - ((long)index << SEGMENT_BITS));
+			MappedByteBuffer segment = null;
+			if (segments != null && segments.length > index) {
+				segment = segments[index];
+			}
+			if (segment == null || segment.capacity() <= position) {
+				segment = map(index);
+				if (segment == null) {
+					try {
+						RandomAccessFile fileAccess = fileInfo.open();
+				        fileAccess.seek(fileOffset);
+				        return fileAccess.read(b, offSet, length);
+					} finally {
+						fileInfo.close();
+					}
+				}
+			}
+			ByteBuffer buffer = segment.duplicate();
+			buffer.position(position);
+			int count = Math.min(length, buffer.remaining());
+			buffer.get(b, offSet, count);
+			return count;
+		}
+		
+		private MappedByteBuffer map(int index) throws IOException {
+			MappedByteBuffer old = null;
+			if (segments == null || segments.length <= index) {
+				segments = segments == null?new MappedByteBuffer[index + 1]:Arrays.copyOf(segments, index + 1);
+			} else {
+				old = segments[index];
+			}
+			if (old == null) {
+				if (mappedSegments.incrementAndGet() > maxMappedSegments) {
+					mappedSegments.decrementAndGet();
+					return null;
+				}
+			} else {
+				segments[index] = null;
+				unmap(old);
+			}
+			long start = (long)index << SEGMENT_BITS;
+			MappedByteBuffer segment = null;
+			try {
+				RandomAccessFile fileAccess = fileInfo.open();
+				segment = fileAccess.getChannel().map(MapMode.READ_ONLY, start, Math.min(1 << SEGMENT_BITS, this.length - start));
+			} finally {
+				fileInfo.close();
+				if (segment == null) {
+					mappedSegments.decrementAndGet();
+				}
+			}
+			segments[index] = segment;
+			return segment;
+		}
+		
+		/**
+		 * Release all of the mappings.  Unmapping explicitly rather than waiting for gc 
+		 * allows the disk space of removed files to be reclaimed and bounds the number of mappings.
+		 */
+		private void unmapSegments() {
+			if (segments == null) {
+				return;
+			}
+			for (MappedByteBuffer segment : segments) {
+				if (segment != null) {
+					unmap(segment);
+					mappedSegments.decrementAndGet();
+				}
+			}
+			segments = null;
+		}
+
 		private void setLength(RandomAccessFile fileAccess, long newLength, boolean truncate)
 				throws IOException {
 			long currentLength = fileAccess.length();
@@ -152,6 +277,8 @@ public class FileStorageManager implements StorageManager {
 				if (!truncate) {
 					return;
 				}
+				//drop the mappings so that the truncated region is not accessed
+				unmapSegments();
 			} else if (bytesUsed > MB) {
 				//this is a weak check, concurrent access may push us over the max.  we are just trying to prevent large overage allocations
 				long used = usedBufferSpace.get() + bytesUsed;
@@ -165,6 +292,7 @@ public class FileStorageManager implements StorageManager {
 				}
 			}
 			fileAccess.setLength(newLength);
+			this.length = newLength;
 			long used = usedBufferSpace.addAndGet(bytesUsed);
 			if (LogManager.isMessageToBeRecorded(org.teiid.logging.LogConstants.CTX_BUFFER_MGR, MessageLevel.DETAIL) && (sample.getAndIncrement() % 100) == 0) {
 				LogManager.logDetail(LogConstants.CTX_BUFFER_MGR, "sampling bytes used:", used); //$NON-NLS-1$
@@ -175,6 +303,7 @@ public class FileStorageManager implements StorageManager {
 				used = usedBufferSpace.get();
 				if (used > maxBufferSpace) {
 					fileAccess.setLength(currentLength);
+					this.length = currentLength;
 					usedBufferSpace.addAndGet(-bytesUsed);
 					throw new OutOfDiskException(QueryPlugin.Util.getString("FileStoreageManager.space_exhausted", bytesUsed, used, maxBufferSpace)); //$NON-NLS-1$
 				}
@@ -196,12 +325,32 @@ public class FileStorageManager implements StorageManager {
 	    @Override
 		public synchronized void removeDirect() {
 			usedBufferSpace.addAndGet(-getLength());
+			unmapSegments();
+			this.length = 0;
 			if (fileInfo != null){
 				fileInfo.delete();
 			}
 		}
 	    
 	}
+	
+	static void unmap(MappedByteBuffer buffer) {
+		try {
+			if (INVOKE_CLEANER != null) {
+				INVOKE_CLEANER.invoke(UNSAFE, buffer);
+				return;
+			}
+			if (CLEAN == null) {
+				return;
+			}
+			Object cleaner = CLEANER.invoke(buffer);
+			if (cleaner != null) {
+				CLEAN.invoke(cleaner);
+			}
+		} catch (Exception e) {
+			LogManager.logDetail(LogConstants.CTX_BUFFER_MGR, e, "Could not unmap buffer"); //$NON-NLS-1$
+		}
+	}
 
     // Initialization
     private int maxOpenFiles = DEFAULT_MAX_OPEN_FILES;
@@ -257,6 +406,30 @@ public class FileStorageManager implements StorageManager {
 		this.maxOpenFiles = maxOpenFiles;
 	}
     
+    /**
+     * Serve reads from memory mapped segments of the storage files rather than 
+     * copying through file reads.  
+     */
+    public void setMemoryMapped(boolean memoryMapped) {
+		this.memoryMapped = memoryMapped;
+	}
+    
+    public boolean isMemoryMapped() {
+		return memoryMapped;
+	}
+    
+    /**
+     * Set the max number of segments that may be mapped at once across all files.  
+     * Reads beyond the limit go through the file.
+     */
+    public void setMaxMappedSegments(int maxMappedSegments) {
+		this.maxMappedSegments = maxMappedSegments;
+	}
+    
+    public int getMappedSegments() {
+		return mappedSegments.get();
+	}
+    
     public void setStorageDirectory(String directory) {
 		this.directory = directory;
 	}
@@ -66,15 +66,23 @@ public class LrfuEvictionQueue<V extends BaseCacheEntry> {
 	protected AtomicLong clock;
 	protected long maxInterval;
 	protected long halfLife;
-	private AtomicInteger size = new AtomicInteger();
+	protected AtomicInteger size = new AtomicInteger();
 	
 	public LrfuEvictionQueue(AtomicLong clock) {
 		this.clock = clock;
 		setHalfLife(DEFAULT_HALF_LIFE);
 	}
 
+	/**
+	 * Get the map that holds the given key
+	 */
+	protected ConcurrentSkipListMap<CacheKey, V> getQueue(CacheKey key) {
+		return evictionQueue;
+	}
+
 	public boolean remove(V value) {
-		if (evictionQueue.remove(value.getKey()) != null) {
+		CacheKey key = value.getKey();
+		if (getQueue(key).remove(key) != null) {
 			int result = size.addAndGet(-1);
 			assert result >=0 || !isSuspectSize(size);
 			return true;
@@ -83,7 +91,8 @@ public class LrfuEvictionQueue<V extends BaseCacheEntry> {
 	}
 	
 	public boolean add(V value) {
-		if (evictionQueue.putIfAbsent(value.getKey(), value) == null) {
+		CacheKey key = value.getKey();
+		if (getQueue(key).putIfAbsent(key, value) == null) {
 			size.addAndGet(1);
 			return true;
 		}
@@ -132,7 +141,7 @@ public class LrfuEvictionQueue<V extends BaseCacheEntry> {
 		long orderingValue = key.getOrderingValue();
 		orderingValue = computeNextOrderingValue(currentClock, lastAccess,
 				orderingValue);
-		assert !this.evictionQueue.containsKey(value.getKey());
+		assert !getQueue(key).containsKey(key);
 		value.setKey(new CacheKey(key.getId(), currentClock, orderingValue));
 	}
 	
@@ -0,0 +1,187 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.teiid.common.buffer.impl;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.teiid.common.buffer.BaseCacheEntry;
+import org.teiid.common.buffer.CacheKey;
+
+/**
+ * A {@link LrfuEvictionQueue} that stripes the entries over several skip lists
+ * by the key id so that concurrent add/remove/touch operations do not all contend 
+ * on the same structure.
+ * <br>
+ * Only the operations that need a global order - obtaining the first entry and 
+ * iterating - need to consult each shard.  Since each shard is ordered, the 
+ * first entry is the minimum of the shard heads and iteration is a merge of the shards.
+ * Both are weakly consistent, as is the single queue. 
+ * @param <V>
+ */
+public class ShardedLrfuEvictionQueue<V extends BaseCacheEntry> extends LrfuEvictionQueue<V> {
+	
+	private final class MergingIterator implements Iterator<V> {
+		private Iterator<Map.Entry<CacheKey, V>>[] iters;
+		private Map.Entry<CacheKey, V>[] heads;
+		
+		@SuppressWarnings("unchecked")
+		public MergingIterator() {
+			iters = new Iterator[shards.length];
+			heads = new Map.Entry[shards.length];
+			for (int i = 0; i < shards.length; i++) {
+				iters[i] = shards[i].entrySet().iterator();
+				if (iters[i].hasNext()) {
+					heads[i] = iters[i].next();
+				}
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			for (Map.Entry<CacheKey, V> head : heads) {
+				if (head != null) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public V next() {
+			int min = -1;
+			for (int i = 0; i < heads.length; i++) {
+				if (heads[i] != null && (min == -1 || heads[i].getKey().compareTo(heads[min].getKey()) < 0)) {
+					min = i;
+				}
+			}
+			if (min == -1) {
+				throw new NoSuchElementException();
+			}
+			V result = heads[min].getValue();
+			heads[min] = iters[min].hasNext()?iters[min].next():null;
+			return result;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	private ConcurrentSkipListMap<CacheKey, V>[] shards;
+	private int shift;
+	
+	public ShardedLrfuEvictionQueue(AtomicLong clock) {
+		this(clock, Runtime.getRuntime().availableProcessors() * 2);
+	}
+	
+	@SuppressWarnings("unchecked")
+	public ShardedLrfuEvictionQueue(AtomicLong clock, int shardCount) {
+		super(clock);
+		int count = Integer.highestOneBit(Math.max(1, Math.min(shardCount, 1<<10)) * 2 - 1);
+		this.shift = 32 - Integer.numberOfTrailingZeros(count);
+		this.shards = new ConcurrentSkipListMap[count];
+		for (int i = 0; i < count; i++) {
+			shards[i] = new ConcurrentSkipListMap<CacheKey, V>();
+		}
+		this.evictionQueue = null;
+	}
+	
+	@Override
+	protected ConcurrentSkipListMap<CacheKey, V> getQueue(CacheKey key) {
+		if (shift == 32) {
+			return shards[0];
+		}
+		long id = key.getId();
+		int hash = (int)(id ^ (id >>> 32)) * 0x9E3779B9;
+		return shards[hash >>> shift];
+	}
+	
+	@Override
+	public V firstEntry(boolean poll) {
+		while (true) {
+			ConcurrentSkipListMap<CacheKey, V> minShard = null;
+			Map.Entry<CacheKey, V> min = null;
+			for (ConcurrentSkipListMap<CacheKey, V> shard : shards) {
+				Map.Entry<CacheKey, V> entry = shard.firstEntry();
+				if (entry != null && (min == null || entry.getKey().compareTo(min.getKey()) < 0)) {
+					min = entry;
+					minShard = shard;
+				}
+			}
+			if (min == null) {
+				return null;
+			}
+			if (!poll) {
+				return min.getValue();
+			}
+			if (minShard.remove(min.getKey(), min.getValue())) {
+			    int result = size.addAndGet(-1);
+			    assert result >=0 || !isSuspectSize(size);
+				return min.getValue();
+			}
+			//lost a race with another remove, try again
+		}
+	}
+	
+	@Override
+	public Collection<V> getEvictionQueue() {
+		return new AbstractCollection<V>() {
+			@Override
+			public Iterator<V> iterator() {
+				return new MergingIterator();
+			}
+			
+			@Override
+			public int size() {
+				int result = 0;
+				for (ConcurrentSkipListMap<CacheKey, V> shard : shards) {
+					result += shard.size();
+				}
+				return result;
+			}
+			
+			@Override
+			public void clear() {
+				for (ConcurrentSkipListMap<CacheKey, V> shard : shards) {
+					shard.clear();
+				}
+			}
+		};
+	}
+	
+	int getShardCount() {
+		return shards.length;
+	}
+	
+	@Override
+	public String toString() {
+		StringBuilder result = new StringBuilder();
+		result.append("Size:").append(getSize()).append(" Shards:").append(shards.length); //$NON-NLS-1$ //$NON-NLS-2$
+		return result.toString();
+	}
+
+}
@@ -26,6 +26,7 @@ import java.io.Serializable;
 import java.lang.reflect.Array;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -34,6 +35,7 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import org.teiid.common.buffer.ColumnarTupleList;
 import org.teiid.core.types.ArrayImpl;
 import org.teiid.core.types.BaseLob;
 import org.teiid.core.types.BinaryType;
@@ -118,6 +120,9 @@ public final class SizeUtility {
 	}
 	
     public long getBatchSize(boolean accountForValueCache, List<? extends List<?>> data) {
+    	if (data instanceof ColumnarTupleList) {
+    		return getColumnarBatchSize(accountForValueCache, (ColumnarTupleList)data);
+    	}
         int colLength = types.length;
         int rowLength = data.size();
     
@@ -142,6 +147,55 @@ public final class SizeUtility {
         return size;
     }
 
+    /**
+     * Columnar batches are sized by their backing arrays, only the object
+     * columns need to be sampled.  The row views and boxed values that are cached 
+     * as the batch is read are included as if every row had been read.
+     */
+    private long getColumnarBatchSize(boolean accountForValueCache, ColumnarTupleList data) {
+    	int rowLength = data.size();
+    	long size = 48 + alignMemory(data.getColumnCount() * REFERENCE_SIZE) * 4;
+    	long cacheArraySize = 16 + alignMemory(rowLength * REFERENCE_SIZE);
+    	//row view array and views (8 object overhead + 4 outer ref + 4 int)
+    	size += cacheArraySize + rowLength * 24;
+    	for (int col = 0; col < data.getColumnCount(); col++) {
+    		Object column = data.getColumn(col);
+    		if (column instanceof BitSet) {
+    			size += getBitSetSize((BitSet)column);
+    		} else if (column.getClass().getComponentType().isPrimitive()) {
+    			size += getSize(column, accountForValueCache);
+    			//boxed value cache
+    			size += cacheArraySize + getSize(accountForValueCache, types[col]) * rowLength;
+    		} else {
+    			size += 16 + alignMemory(rowLength * REFERENCE_SIZE);
+    			Class<?> type = types[col];
+    			if (isVariableSize(type)) {
+    				Object[] values = (Object[])column;
+    				int rowsSampled = 0;
+    				int estimatedSize = 0;
+    				for (int row = 0; row < rowLength; row=(row*2)+1) {
+    					rowsSampled++;
+    					estimatedSize += getSize(values[row], accountForValueCache);
+    				}
+    				if (rowsSampled > 0) {
+    					size += estimatedSize/(float)rowsSampled * rowLength;
+    				}
+    			} else {
+    				size += getSize(accountForValueCache, type) * rowLength;
+    			}
+    		}
+    		BitSet nulls = data.getNulls(col);
+    		if (nulls != null) {
+    			size += getBitSetSize(nulls);
+    		}
+    	}
+    	return size;
+    }
+
+	private static long getBitSetSize(BitSet bits) {
+		return 32 + alignMemory(bits.size() >> 3);
+	}
+
     public static boolean isVariableSize(Class<?> type) {
         return VARIABLE_SIZE_TYPES.contains(type) || type.isArray();
     }
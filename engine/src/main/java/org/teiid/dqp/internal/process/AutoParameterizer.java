@@ -0,0 +1,203 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.teiid.dqp.internal.process;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.teiid.api.exception.query.QueryMetadataException;
+import org.teiid.core.TeiidComponentException;
+import org.teiid.core.TeiidProcessingException;
+import org.teiid.language.SQLConstants;
+import org.teiid.query.metadata.QueryMetadataInterface;
+import org.teiid.query.metadata.TempMetadataID;
+import org.teiid.query.resolver.QueryResolver;
+import org.teiid.query.sql.LanguageVisitor;
+import org.teiid.query.sql.lang.Command;
+import org.teiid.query.sql.lang.CompareCriteria;
+import org.teiid.query.sql.lang.Delete;
+import org.teiid.query.sql.lang.QueryCommand;
+import org.teiid.query.sql.lang.SetCriteria;
+import org.teiid.query.sql.lang.SetQuery;
+import org.teiid.query.sql.lang.UnaryFromClause;
+import org.teiid.query.sql.lang.Update;
+import org.teiid.query.sql.navigator.DeepPreOrderNavigator;
+import org.teiid.query.sql.symbol.Constant;
+import org.teiid.query.sql.symbol.ElementSymbol;
+import org.teiid.query.sql.symbol.Expression;
+import org.teiid.query.sql.symbol.GroupSymbol;
+import org.teiid.query.sql.symbol.Reference;
+import org.teiid.query.sql.visitor.ReferenceCollectorVisitor;
+
+/**
+ * Replaces the literals in the criteria of an ad hoc command with references, so that 
+ * the plan may be cached as a {@link PreparedPlan} and reused for other literal values.
+ * <br>
+ * Only literals in equality or IN predicates directly against a column of the same type are replaced.  
+ * Range comparison literals are used to estimate selectivity and are retained, as are literals 
+ * elsewhere - the select, order by, limit, function arguments, etc. - that may affect planning.  Comparisons against multi-source columns or columns of union views 
+ * are also retained as they may be used to prune sources or branches.  A view is considered 
+ * a union view if its resolved definition, or that of any nested view, contains a UNION.
+ */
+class AutoParameterizer extends LanguageVisitor {
+	
+	/**
+	 * Collects the UNIONs and the from clause groups of a command
+	 */
+	private static class UnionCollector extends LanguageVisitor {
+		private boolean union;
+		private List<GroupSymbol> groups = new ArrayList<GroupSymbol>();
+		
+		@Override
+		public void visit(SetQuery obj) {
+			if (obj.getOperation() == SetQuery.Operation.UNION) {
+				union = true;
+			}
+		}
+		
+		@Override
+		public void visit(UnaryFromClause obj) {
+			groups.add(obj.getGroup());
+		}
+	}
+	
+	private QueryMetadataInterface metadata;
+	private Map<Reference, Object> values = new IdentityHashMap<Reference, Object>();
+	private Map<Object, Boolean> unionViews = new HashMap<Object, Boolean>();
+	private boolean commandHasUnion;
+	
+	private AutoParameterizer(QueryMetadataInterface metadata) {
+		this.metadata = metadata;
+	}
+	
+	/**
+	 * Resolve the command and replace the eligible literals.
+	 * @param values will be populated with the literal values in reference order
+	 * @return the parameterized sql or null if nothing could be replaced
+	 */
+	static String parameterize(Command command, QueryMetadataInterface metadata, List<Object> values) throws TeiidComponentException, TeiidProcessingException {
+		if (!(command instanceof QueryCommand || command instanceof Update || command instanceof Delete)) {
+			return null;
+		}
+		if (!ReferenceCollectorVisitor.getReferences(command).isEmpty()) {
+			return null;
+		}
+		if (!command.isResolved()) {
+			QueryResolver.resolveCommand(command, metadata);
+		}
+		AutoParameterizer visitor = new AutoParameterizer(metadata);
+		UnionCollector collector = new UnionCollector();
+		DeepPreOrderNavigator.doVisit(command, collector);
+		//inline views and with clause groups are defined by the command itself
+		visitor.commandHasUnion = collector.union;
+		DeepPreOrderNavigator.doVisit(command, visitor);
+		if (visitor.values.isEmpty()) {
+			return null;
+		}
+		for (Reference ref : ReferenceCollectorVisitor.getReferences(command)) {
+			values.add(visitor.values.get(ref));
+		}
+		return command.toString();
+	}
+	
+	@Override
+	public void visit(CompareCriteria obj) {
+		if (obj.getOperator() == CompareCriteria.EQ && obj.getRightExpression() instanceof Constant 
+				&& isParameterizable(obj.getLeftExpression(), (Constant)obj.getRightExpression())) {
+			obj.setRightExpression(createReference((Constant)obj.getRightExpression()));
+		}
+	}
+	
+	@Override
+	public void visit(SetCriteria obj) {
+		if (!obj.isNegated() && obj.isAllConstants() && obj.getValues().size() > 0) {
+			for (Object value : obj.getValues()) {
+				if (!isParameterizable(obj.getExpression(), (Constant)value)) {
+					return;
+				}
+			}
+			List<Expression> refs = new ArrayList<Expression>(obj.getValues().size());
+			for (Object value : obj.getValues()) {
+				refs.add(createReference((Constant)value));
+			}
+			obj.setValues(refs);
+		}
+	}
+	
+	private Reference createReference(Constant constant) {
+		Reference ref = new Reference(values.size());
+		values.put(ref, constant.getValue());
+		return ref;
+	}
+	
+	private boolean isParameterizable(Expression expr, Constant constant) {
+		if (!(expr instanceof ElementSymbol) || constant.isMultiValued() || constant.getValue() == null 
+				|| constant.getType() != expr.getType()) {
+			return false;
+		}
+		ElementSymbol es = (ElementSymbol)expr;
+		if (es.getGroupSymbol() == null || es.isExternalReference()) {
+			return false;
+		}
+		try {
+			if (metadata.isMultiSourceElement(es.getMetadataID())) {
+				return false;
+			}
+			if (isUnionView(es.getGroupSymbol().getMetadataID())) {
+				//partitioning may depend on the value
+				return false;
+			}
+		} catch (QueryMetadataException e) {
+			return false;
+		} catch (TeiidComponentException e) {
+			return false;
+		} catch (TeiidProcessingException e) {
+			return false;
+		}
+		return true;
+	}
+	
+	private boolean isUnionView(Object groupId) throws TeiidComponentException, TeiidProcessingException {
+		if (groupId instanceof TempMetadataID) {
+			return ((TempMetadataID)groupId).isVirtual() && commandHasUnion;
+		}
+		Boolean result = unionViews.get(groupId);
+		if (result != null) {
+			return result;
+		}
+		result = false;
+		if (metadata.isVirtualGroup(groupId)) {
+			GroupSymbol group = new GroupSymbol(metadata.getFullName(groupId));
+			group.setMetadataID(groupId);
+			Command command = QueryResolver.resolveView(group, metadata.getVirtualPlan(groupId), SQLConstants.Reserved.SELECT, metadata, false).getCommand();
+			UnionCollector collector = new UnionCollector();
+			DeepPreOrderNavigator.doVisit(command, collector);
+			result = collector.union;
+			for (int i = 0; !result && i < collector.groups.size(); i++) {
+				result = isUnionView(collector.groups.get(i).getMetadataID());
+			}
+		}
+		unionViews.put(groupId, result);
+		return result;
+	}
+
+}
@@ -48,6 +48,7 @@ public class CachedResults implements Serializable, Cachable {
 	private String uuid;
 	private boolean hasLobs;
 	private int rowLimit;
+	private String sql;
 	
 	private AccessInfo accessInfo = new AccessInfo();
 	
@@ -121,4 +122,16 @@ public class CachedResults implements Serializable, Cachable {
 		this.rowLimit = rowLimit;
 	}
 	
+	/**
+	 * The sql of the cached command, which is retained for results that are 
+	 * cached under a key other than the command string.
+	 */
+	public String getSql() {
+		return sql;
+	}
+	
+	public void setSql(String sql) {
+		this.sql = sql;
+	}
+	
 }
@@ -263,6 +263,10 @@ public class DQPCore implements DQP {
 		Request request = null;
 	    if ( requestMsg.isPreparedStatement() || requestMsg.isCallableStatement() || requestMsg.getRequestOptions().isContinuous()) {
 	    	request = new PreparedStatementRequest(prepPlanCache);
+	    } else if (options.isAutoParameterize() && !requestMsg.isBatchedUpdate() && requestMsg.getCommand() == null) {
+	    	PreparedStatementRequest psr = new PreparedStatementRequest(prepPlanCache);
+	    	psr.setAutoParameterize(true);
+	    	request = psr;
 	    } else {
 	    	request = new Request();
 	    }
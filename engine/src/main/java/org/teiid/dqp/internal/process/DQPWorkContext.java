@@ -141,6 +141,7 @@ public class DQPWorkContext implements Serializable {
     private HashMap<String, DataPolicy> policies;
     private boolean useCallingThread;
     private Version clientVersion = Version.latest();
+    private boolean compressBatches;
     private boolean admin;
     private MetadataFactory metadataFactory;
 
@@ -351,6 +352,17 @@ public class DQPWorkContext implements Serializable {
 		this.clientVersion = clientVersion;
 	}
 	
+	/**
+	 * @return true if the client negotiated the compressed batch serialization format
+	 */
+	public boolean isCompressBatches() {
+		return compressBatches;
+	}
+	
+	public void setCompressBatches(boolean compressBatches) {
+		this.compressBatches = compressBatches;
+	}
+	
 	public void setAdmin(boolean admin) {
 		this.admin = admin;
 	}
@@ -28,6 +28,7 @@ import java.util.List;
 
 import org.teiid.api.exception.query.ExpressionEvaluationException;
 import org.teiid.api.exception.query.QueryMetadataException;
+import org.teiid.api.exception.query.QueryParserException;
 import org.teiid.api.exception.query.QueryPlannerException;
 import org.teiid.api.exception.query.QueryResolverException;
 import org.teiid.api.exception.query.QueryValidatorException;
@@ -49,6 +50,7 @@ import org.teiid.query.eval.Evaluator;
 import org.teiid.query.metadata.QueryMetadataInterface;
 import org.teiid.query.optimizer.BatchedUpdatePlanner;
 import org.teiid.query.optimizer.capabilities.SourceCapabilities;
+import org.teiid.query.parser.QueryParser;
 import org.teiid.query.processor.ProcessorPlan;
 import org.teiid.query.processor.relational.AccessNode;
 import org.teiid.query.processor.relational.RelationalPlan;
@@ -70,11 +72,29 @@ import org.teiid.query.util.CommandContext;
 public class PreparedStatementRequest extends Request {
     private SessionAwareCache<PreparedPlan> prepPlanCache;
     private PreparedPlan prepPlan;
+    private boolean autoParameterize;
+    private String parameterizedSql;
     
     public PreparedStatementRequest(SessionAwareCache<PreparedPlan> prepPlanCache) {
     	this.prepPlanCache = prepPlanCache;
     }
     
+    /**
+     * Treat an ad hoc statement as a prepared statement by replacing its literals with references.
+     * See {@link AutoParameterizer}
+     */
+    public void setAutoParameterize(boolean autoParameterize) {
+		this.autoParameterize = autoParameterize;
+	}
+    
+    @Override
+    protected Command parseCommand() throws QueryParserException {
+    	if (this.parameterizedSql != null) {
+    		return QueryParser.getQueryParser().parseCommand(this.parameterizedSql, createParseInfo(this.requestMsg, this.workContext.getSession()));
+    	}
+    	return super.parseCommand();
+    }
+    
     @Override
     protected void checkReferences(List<Reference> references)
     		throws QueryValidatorException {
@@ -98,6 +118,30 @@ public class PreparedStatementRequest extends Request {
     	if (this.preParser != null) {
     		sqlQuery = this.preParser.preParse(sqlQuery, this.context);
     	}
+    	List<?> values = requestMsg.getParameterValues();
+    	if (this.autoParameterize) {
+    		List<Object> literals = new ArrayList<Object>();
+    		Command command = this.resolvedUserCommand;
+    		if (command != null) {
+    			command = (Command)command.clone();
+    		} else {
+    			command = super.parseCommand();
+    		}
+    		String parameterized = AutoParameterizer.parameterize(command, this.metadata, literals);
+    		if (parameterized == null) {
+    			//nothing to bind, plan as an ad hoc statement reusing the parsing and resolving
+    			if (this.resolvedUserCommand == null && command.isResolved()) {
+    				this.resolvedUserCommand = command;
+    			}
+    			super.generatePlan(false);
+    			return;
+    		}
+    		this.resolvedUserCommand = null;
+    		LogManager.logDetail(LogConstants.CTX_DQP, requestId, "Using auto parameterized command", parameterized); //$NON-NLS-1$
+    		this.parameterizedSql = parameterized;
+    		sqlQuery = parameterized;
+    		values = literals;
+    	}
     	CacheID id = new CacheID(this.workContext, Request.createParseInfo(this.requestMsg, this.workContext.getSession()), sqlQuery);
         prepPlan = prepPlanCache.get(id);
         
@@ -145,7 +189,6 @@ public class PreparedStatementRequest extends Request {
 	        handlePreparedBatchUpdate();
         } else {
 	        List<Reference> params = prepPlan.getReferences();
-	        List<?> values = requestMsg.getParameterValues();
 	
 	    	PreparedStatementRequest.resolveParameterValues(params, values, this.context, this.metadata);
         }
@@ -134,6 +134,7 @@ public class Request {
 	private int userRequestConcurrency;
 	private AuthorizationValidator authorizationValidator;
 	private Executor executor;
+	protected Command resolvedUserCommand;
 	protected Options options;
 	protected PreParser preParser;
 
@@ -290,7 +291,7 @@ public class Request {
         validateWithVisitor(visitor, metadata, command);
     }
     
-    private Command parseCommand() throws QueryParserException {
+    protected Command parseCommand() throws QueryParserException {
     	if (requestMsg.getCommand() != null) {
     		return (Command)requestMsg.getCommand();
     	}
@@ -408,14 +409,21 @@ public class Request {
      * @throws TeiidProcessingException 
      */
     protected void generatePlan(boolean prepared) throws TeiidComponentException, TeiidProcessingException {
-    	createCommandContext();
-        Command command = parseCommand();
+    	Command command = this.resolvedUserCommand;
+    	this.resolvedUserCommand = null;
+    	boolean resolved = command != null;
+    	if (!resolved) {
+	    	createCommandContext();
+	        command = parseCommand();
+    	}
         
         List<Reference> references = ReferenceCollectorVisitor.getReferences(command);
         
         getAnalysisRecord();
-                
-        resolveCommand(command);
+        
+        if (!resolved) {
+        	resolveCommand(command);
+        }
 
         checkReferences(references);
         
@@ -469,6 +477,23 @@ public class Request {
         LogManager.logDetail(LogConstants.CTX_DQP, new Object[] { QueryPlugin.Util.getString("BasicInterceptor.ProcessTree_for__4"), requestId, processPlan }); //$NON-NLS-1$
     }
 
+    /**
+     * Parse and resolve the user command without planning, so that it may be matched against cached results.
+     * The resolved command is retained for {@link #generatePlan(boolean)} if the cached results are not used.
+     * @return a copy of the resolved command
+     */
+    Command resolveUserCommand() throws TeiidComponentException, TeiidProcessingException {
+    	initMetadata();
+    	createCommandContext();
+    	Command command = parseCommand();
+    	if (requestMsg.getCommand() != null) {
+    		command = (Command)command.clone();
+    	}
+    	resolveCommand(command);
+    	this.resolvedUserCommand = command;
+    	return (Command)command.clone();
+    }
+
 	private AnalysisRecord getAnalysisRecord() {
 		if (this.analysisRecord == null) {
 			this.analysisRecord = new AnalysisRecord(requestMsg.getShowPlan() != ShowPlan.OFF, requestMsg.getShowPlan() == ShowPlan.DEBUG);
@@ -82,6 +82,7 @@ import org.teiid.query.processor.QueryProcessor.ExpiredTimeSliceException;
 import org.teiid.query.sql.lang.CacheHint;
 import org.teiid.query.sql.lang.Command;
 import org.teiid.query.sql.lang.Insert;
+import org.teiid.query.sql.lang.Query;
 import org.teiid.query.sql.lang.SPParameter;
 import org.teiid.query.sql.lang.StoredProcedure;
 import org.teiid.query.sql.symbol.ElementSymbol;
@@ -104,6 +105,9 @@ public class RequestWorkItem extends AbstractWorkItem implements PrioritizedRunn
 	//TODO: this could be configurable
 	private static final int OUTPUT_BUFFER_MAX_BATCHES = 8;
 	private static final int CLIENT_FETCH_MAX_BATCHES = 3;
+	//bounds for client requested fetch sizes larger than the output buffer
+	private static final int CLIENT_FETCH_MAX_MULTIPLE = 4;
+	private static final int CLIENT_FETCH_MAX_BYTES = 1 << 23;
 	
 	public static final class MoreWorkTask implements Runnable {
 
@@ -192,6 +196,8 @@ public class RequestWorkItem extends AbstractWorkItem implements PrioritizedRunn
     private TransactionContext transactionContext;
     TupleBuffer resultsBuffer;
     private boolean returnsUpdateCount;
+    private boolean subsumedResults;
+    private String subsumptionKey;
     
     /*
      * maintained during processing
@@ -208,6 +214,7 @@ public class RequestWorkItem extends AbstractWorkItem implements PrioritizedRunn
 	private ResultsReceiver<ResultsMessage> resultsReceiver;
 	private int begin;
 	private int end;
+	private int fetchRows;
     private TupleBatch savedBatch;
     private Map<Integer, LobWorkItem> lobStreams = Collections.synchronizedMap(new HashMap<Integer, LobWorkItem>(4));    
     
@@ -259,6 +266,7 @@ public class RequestWorkItem extends AbstractWorkItem implements PrioritizedRunn
 		this.resultsReceiver = receiver;
 		this.begin = beginRow;
 		this.end = endRow;
+		this.fetchRows = endRow - beginRow + 1;
 	}
     
 	@Override
@@ -546,6 +554,10 @@ public class RequestWorkItem extends AbstractWorkItem implements PrioritizedRunn
 					}
 				}
 	
+				if (this.subsumedResults) {
+					//the results were computed for this request
+					this.resultsBuffer.remove();
+				}
 				this.resultsBuffer = null;
 				
 				if (!this.lobStreams.isEmpty()) {
@@ -649,6 +661,9 @@ public class RequestWorkItem extends AbstractWorkItem implements PrioritizedRunn
 						}
 						LogManager.logDetail(LogConstants.CTX_DQP, requestID, "Cached result command to be modified, will not use the cached results", cacheId); //$NON-NLS-1$
 					} 
+					if (isSubsumptionEnabled() && useSubsumedResults(rsCache, pi)) {
+						return;
+					}
 				} else {
 					LogManager.logDetail(LogConstants.CTX_DQP, requestID, "Parameters are not serializable - cache cannot be used for", cacheId); //$NON-NLS-1$
 				}
@@ -664,6 +679,9 @@ public class RequestWorkItem extends AbstractWorkItem implements PrioritizedRunn
 		originalCommand = request.userCommand;
         if (cachable && (requestMsg.useResultSetCache() || originalCommand.getCacheHint() != null) && rsCache != null && originalCommand.areResultsCachable()) {
         	this.cid = cacheId;
+        	if (isSubsumptionEnabled() && originalCommand instanceof Query && ((Query)originalCommand).getLimit() == null) {
+        		this.subsumptionKey = ResultSetSubsumption.getKey(originalCommand);
+        	}
         	//turn on the collection of data objects used
         	request.processor.getContext().setDataObjects(new HashSet<Object>(4));
         }
@@ -728,8 +746,8 @@ public class RequestWorkItem extends AbstractWorkItem implements PrioritizedRunn
 					}
 				}
 				
-				if (resultsBuffer.getManagedRowCount() < maxRows) {
-					return; //continue to buffer
+				if (resultsBuffer.getManagedRowCount() < Math.max(maxRows, getFetchRowLimit(fetchRows, maxRows, resultsBuffer.getRowSizeEstimate()))) {
+					return; //continue to buffer, at least enough for the next client fetch
 				}
 					
 				int timeOut = 500;
@@ -789,6 +807,48 @@ public class RequestWorkItem extends AbstractWorkItem implements PrioritizedRunn
 		request = null;
 	}
 
+	private boolean isSubsumptionEnabled() {
+		return request.options != null && request.options.isResultSetCacheSubsumption() 
+				&& !requestMsg.isPreparedStatement() && !requestMsg.isCallableStatement() 
+				&& requestMsg.getParameterValues().isEmpty();
+	}
+	
+	/**
+	 * Attempt to answer the request from the cached results of a less restrictive query
+	 * @return true if the cached results were used
+	 */
+	private boolean useSubsumedResults(SessionAwareCache<CachedResults> rsCache, ParseInfo pi) throws TeiidComponentException, TeiidProcessingException {
+		Command command = request.resolveUserCommand();
+		String key = ResultSetSubsumption.getKey(command);
+		if (key == null) {
+			return false;
+		}
+		CacheID subsumptionId = new CacheID(this.dqpWorkContext, pi, key);
+		CachedResults cr = rsCache.get(subsumptionId);
+		if (cr == null || cr.getRowLimit() != 0 || cr.getSql() == null) {
+			return false;
+		}
+		Command cachedCommand = cr.getCommand(cr.getSql(), request.metadata, pi);
+		if (!key.equals(ResultSetSubsumption.getKey(cachedCommand))) {
+			return false;
+		}
+		if (request.validateAccess(requestMsg.getCommands(), command, CommandType.CACHED)) {
+			LogManager.logDetail(LogConstants.CTX_DQP, requestID, "Command to be modified, will not use the subsumed cached results", subsumptionId); //$NON-NLS-1$
+			return false;
+		}
+		TupleBuffer results = ResultSetSubsumption.getResults((Query)cachedCommand, cr.getResults(), (Query)command, dqpCore.getBufferManager(), request.context);
+		if (results == null) {
+			LogManager.logDetail(LogConstants.CTX_DQP, requestID, "Cached results do not subsume the command", subsumptionId); //$NON-NLS-1$
+			return false;
+		}
+		LogManager.logDetail(LogConstants.CTX_DQP, requestID, "Using subsumed result set cached results", subsumptionId); //$NON-NLS-1$
+		this.originalCommand = command;
+		this.resultsBuffer = results;
+		this.subsumedResults = true;
+		doneProducingBatches();
+		return true;
+	}
+
 	private void initTransactionState(TransactionContext tc) {
 		transactionContext = tc;
 		if (this.transactionContext != null && this.transactionContext.getTransactionType() != Scope.NONE) {
@@ -813,6 +873,7 @@ public class RequestWorkItem extends AbstractWorkItem implements PrioritizedRunn
     	Determinism determinismLevel = processor.getContext().getDeterminismLevel();
     	CachedResults cr = new CachedResults();
     	cr.setCommand(originalCommand);
+    	cr.setSql(requestMsg.getCommandString());
         cr.setResults(resultsBuffer, processor.getProcessorPlan());
         if (requestMsg.getRowLimit() > 0 && resultsBuffer.getRowCount() == requestMsg.getRowLimit() + (collector.isSaveLastRow()?1:0)) {
         	cr.setRowLimit(requestMsg.getRowLimit());
@@ -843,13 +904,33 @@ public class RequestWorkItem extends AbstractWorkItem implements PrioritizedRunn
 		} catch (TeiidException e) {
 			LogManager.logDetail(LogConstants.CTX_DQP, e, QueryPlugin.Util.getString("failed_to_cache")); //$NON-NLS-1$
 		}
-        dqpCore.getRsCache().put(cid, determinismLevel, cr, originalCommand.getCacheHint() != null?originalCommand.getCacheHint().getTtl():null);
+        Long ttl = originalCommand.getCacheHint() != null?originalCommand.getCacheHint().getTtl():null;
+        dqpCore.getRsCache().put(cid, determinismLevel, cr, ttl);
+        if (this.subsumptionKey != null && cr.getRowLimit() == 0) {
+        	//also make the results available to queries over the same from clause
+        	CacheID subsumptionId = new CacheID(this.dqpWorkContext, Request.createParseInfo(requestMsg, this.dqpWorkContext.getSession()), this.subsumptionKey);
+        	dqpCore.getRsCache().put(subsumptionId, determinismLevel, cr, ttl);
+        }
 	}
 	
 	public SessionAwareCache<CachedResults> getRsCache() {
 		return dqpCore.getRsCache();
 	}
 
+	/**
+	 * Bound a client requested fetch so that a large fetch size cannot defeat back-pressure.
+	 * The limit is a multiple of the output buffer rows and, when a row size estimate is
+	 * available, a fixed byte budget.
+	 * @return the max number of rows to buffer or send for the fetch
+	 */
+	static int getFetchRowLimit(int fetchRows, int maxRows, int rowSize) {
+		long limit = Math.min(fetchRows, (long)maxRows * CLIENT_FETCH_MAX_MULTIPLE);
+		if (rowSize > 0) {
+			limit = Math.min(limit, CLIENT_FETCH_MAX_BYTES / rowSize);
+		}
+		return (int)Math.max(0, limit);
+	}
+
 	/**
 	 * Send results if they have been requested.  This should only be called from the processing thread.
 	 */
@@ -901,6 +982,10 @@ public class RequestWorkItem extends AbstractWorkItem implements PrioritizedRunn
 		    					batches *= multiplier;
 		    				}
 		    			}
+		    			if (count > RequestMessage.DEFAULT_FETCH_SIZE) {
+		    				//the client asked for a large fetch to save round trips, so return what is available up to the server limit
+		    				batches = Math.max(batches, getFetchRowLimit(count, OUTPUT_BUFFER_MAX_BATCHES * resultsBuffer.getBatchSize(), rowSize) / resultsBuffer.getBatchSize());
+		    			}
 		    			if (returnsUpdateCount) {
 			    			batches = Integer.MAX_VALUE;
 			    		}
@@ -1086,6 +1171,9 @@ public class RequestWorkItem extends AbstractWorkItem implements PrioritizedRunn
         String[] dataTypes = new String[columnSymbols.size()];
 
         byte clientSerializationVersion = this.dqpWorkContext.getClientVersion().getClientSerializationVersion();
+        if (this.dqpWorkContext.isCompressBatches() && clientSerializationVersion >= BatchSerializer.VERSION_GEOMETRY) {
+        	clientSerializationVersion = BatchSerializer.VERSION_COMPRESSED;
+        }
         for(int i=0; i<columnSymbols.size(); i++) {
             Expression symbol = columnSymbols.get(i);
             columnNames[i] = Symbol.getShortName(Symbol.getOutputName(symbol));
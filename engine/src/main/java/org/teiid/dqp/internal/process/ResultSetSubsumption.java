@@ -0,0 +1,409 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.teiid.dqp.internal.process;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.teiid.common.buffer.BufferManager;
+import org.teiid.common.buffer.BufferManager.TupleSourceType;
+import org.teiid.common.buffer.TupleBuffer;
+import org.teiid.common.buffer.TupleSource;
+import org.teiid.core.TeiidComponentException;
+import org.teiid.core.TeiidProcessingException;
+import org.teiid.metadata.FunctionMethod.PushDown;
+import org.teiid.query.eval.Evaluator;
+import org.teiid.query.function.FunctionDescriptor;
+import org.teiid.query.function.FunctionLibrary;
+import org.teiid.query.processor.relational.SortUtility;
+import org.teiid.query.processor.relational.SortUtility.Mode;
+import org.teiid.query.sql.lang.Command;
+import org.teiid.query.sql.lang.CompareCriteria;
+import org.teiid.query.sql.lang.Criteria;
+import org.teiid.query.sql.LanguageObject;
+import org.teiid.query.sql.lang.IsNullCriteria;
+import org.teiid.query.sql.lang.Limit;
+import org.teiid.query.sql.lang.OrderBy;
+import org.teiid.query.sql.lang.OrderByItem;
+import org.teiid.query.sql.lang.Query;
+import org.teiid.query.sql.lang.SetCriteria;
+import org.teiid.query.sql.symbol.Constant;
+import org.teiid.query.sql.symbol.ElementSymbol;
+import org.teiid.query.sql.symbol.Expression;
+import org.teiid.query.sql.symbol.Function;
+import org.teiid.query.sql.symbol.WindowFunction;
+import org.teiid.query.sql.util.SymbolMap;
+import org.teiid.query.sql.visitor.AggregateSymbolCollectorVisitor;
+import org.teiid.query.sql.visitor.ElementCollectorVisitor;
+import org.teiid.query.sql.visitor.FunctionCollectorVisitor;
+import org.teiid.query.sql.visitor.ReferenceCollectorVisitor;
+import org.teiid.query.sql.visitor.ValueIteratorProviderCollectorVisitor;
+import org.teiid.query.util.CommandContext;
+
+/**
+ * Support for answering a query from the cached results of a less restrictive query.
+ * <br>
+ * Simple queries - a single FROM clause without grouping, distinct, or subqueries - have their results 
+ * additionally cached under a key based upon the FROM clause.  A later query with the same FROM clause 
+ * can use those results if its criteria implies the criteria of the cached query and the cached 
+ * query projects all of the columns it needs.  The criteria, projection, ordering, and limit of the 
+ * new query are then applied to the cached rows.  Queries using functions that can only be evaluated 
+ * by a source or that require processing, such as lookup, are not eligible.
+ */
+class ResultSetSubsumption {
+	
+	private static final String KEY_PREFIX = "/*+ subsumption */ "; //$NON-NLS-1$
+	
+	/**
+	 * Get the key that the results of the command would be cached under for subsumption matching
+	 * @return the key or null if the command is not eligible
+	 */
+	static String getKey(Command command) {
+		if (!(command instanceof Query)) {
+			return null;
+		}
+		Query query = (Query)command;
+		if (query.getFrom() == null || query.getInto() != null || query.getWith() != null 
+				|| query.getSelect().isDistinct() || query.hasAggregates()) {
+			return null;
+		}
+		List<WindowFunction> windowFunctions = new ArrayList<WindowFunction>(2);
+		AggregateSymbolCollectorVisitor.getAggregates(query.getSelect(), null, null, null, windowFunctions, null);
+		if (!windowFunctions.isEmpty() 
+				|| !ValueIteratorProviderCollectorVisitor.getValueIteratorProviders(query).isEmpty()
+				|| !ReferenceCollectorVisitor.getReferences(query).isEmpty()) {
+			return null;
+		}
+		StringBuilder key = new StringBuilder(KEY_PREFIX).append(query.getFrom());
+		if (query.getOption() != null) {
+			key.append(' ').append(query.getOption());
+		}
+		return key.toString();
+	}
+	
+	/**
+	 * Compute the results of the target query from the cached results of the base query.
+	 * Both queries should have the same non-null {@link #getKey(Command)}.
+	 * @return the results or null if the base results do not subsume the target
+	 */
+	static TupleBuffer getResults(Query base, TupleBuffer cached, Query target, BufferManager bufferManager, CommandContext context) throws TeiidComponentException, TeiidProcessingException {
+		if (base.getLimit() != null || cached.isLobs() || !implies(target.getCriteria(), base.getCriteria())) {
+			return null;
+		}
+		Map<ElementSymbol, Integer> elementMap = new HashMap<ElementSymbol, Integer>();
+		List<Expression> baseSelect = base.getProjectedSymbols();
+		for (int i = 0; i < baseSelect.size(); i++) {
+			Expression ex = SymbolMap.getExpression(baseSelect.get(i));
+			if (ex instanceof ElementSymbol && !elementMap.containsKey(ex)) {
+				elementMap.put((ElementSymbol)ex, i);
+			}
+		}
+		List<Expression> projected = target.getProjectedSymbols();
+		List<Expression> expressions = new ArrayList<Expression>(projected.size());
+		for (Expression ex : projected) {
+			expressions.add(SymbolMap.getExpression(ex));
+		}
+		List<Expression> schema = new ArrayList<Expression>(projected);
+		List<OrderByItem> sortItems = null;
+		if (target.getOrderBy() != null) {
+			sortItems = new ArrayList<OrderByItem>(target.getOrderBy().getOrderByItems().size());
+			for (OrderByItem item : target.getOrderBy().getOrderByItems()) {
+				Expression sortKey = null;
+				if (item.getExpressionPosition() != -1) {
+					sortKey = schema.get(item.getExpressionPosition());
+				} else {
+					//unrelated sort key
+					expressions.add(SymbolMap.getExpression(item.getSymbol()));
+					ElementSymbol es = new ElementSymbol("sort" + sortItems.size()); //$NON-NLS-1$
+					es.setType(item.getSymbol().getType());
+					schema.add(es);
+					sortKey = es;
+				}
+				OrderByItem sortItem = new OrderByItem(sortKey, item.isAscending());
+				sortItem.setNullOrdering(item.getNullOrdering());
+				sortItems.add(sortItem);
+			}
+		}
+		List<ElementSymbol> needed = new ArrayList<ElementSymbol>();
+		for (Expression ex : expressions) {
+			ElementCollectorVisitor.getElements(ex, needed);
+		}
+		if (target.getCriteria() != null) {
+			ElementCollectorVisitor.getElements(target.getCriteria(), needed);
+		}
+		if (!elementMap.keySet().containsAll(needed) 
+				|| !isEngineEvaluatable(target.getSelect()) 
+				|| !isEngineEvaluatable(target.getCriteria()) 
+				|| !isEngineEvaluatable(target.getOrderBy())
+				|| !isEngineEvaluatable(target.getLimit())) {
+			return null;
+		}
+		final Evaluator eval = new Evaluator(elementMap, null, context);
+		final Criteria crit = target.getCriteria();
+		final List<Expression> toEvaluate = expressions;
+		final TupleSource cachedTs = cached.createIndexedTupleSource();
+		TupleSource ts = new TupleSource() {
+			
+			@Override
+			public List<?> nextTuple() throws TeiidComponentException,
+					TeiidProcessingException {
+				List<?> tuple = null;
+				while ((tuple = cachedTs.nextTuple()) != null) {
+					if (crit != null && !eval.evaluate(crit, tuple)) {
+						continue;
+					}
+					List<Object> result = new ArrayList<Object>(toEvaluate.size());
+					for (Expression ex : toEvaluate) {
+						result.add(eval.evaluate(ex, tuple));
+					}
+					return result;
+				}
+				return null;
+			}
+			
+			@Override
+			public void closeSource() {
+				cachedTs.closeSource();
+			}
+		};
+		TupleBuffer sorted = null;
+		if (sortItems != null) {
+			SortUtility sort = new SortUtility(ts, sortItems, Mode.SORT, bufferManager, context.getConnectionId(), schema);
+			sort.setNonBlocking(true);
+			try {
+				sorted = sort.sort();
+			} finally {
+				ts.closeSource();
+			}
+			ts = sorted.createIndexedTupleSource(true);
+		}
+		int offset = 0;
+		int rowLimit = -1;
+		Limit limit = target.getLimit();
+		if (limit != null) {
+			if (limit.getOffset() != null) {
+				offset = (Integer)eval.evaluate(limit.getOffset(), null);
+			}
+			if (limit.getRowLimit() != null) {
+				rowLimit = (Integer)eval.evaluate(limit.getRowLimit(), null);
+			}
+		}
+		TupleBuffer result = bufferManager.createTupleBuffer(target.getProjectedSymbols(), context.getConnectionId(), TupleSourceType.FINAL);
+		boolean success = false;
+		try {
+			List<?> tuple = null;
+			int index = 0;
+			while (rowLimit != 0 && (tuple = ts.nextTuple()) != null) {
+				if (index++ < offset) {
+					continue;
+				}
+				if (tuple.size() > projected.size()) {
+					tuple = tuple.subList(0, projected.size());
+				}
+				result.addTuple(tuple);
+				if (rowLimit > 0) {
+					rowLimit--;
+				}
+			}
+			result.close();
+			success = true;
+			return result;
+		} finally {
+			ts.closeSource();
+			if (sorted != null) {
+				sorted.remove();
+			}
+			if (!success) {
+				result.remove();
+			}
+		}
+	}
+	
+	/**
+	 * @return true if the functions in the object can be evaluated against the cached rows
+	 */
+	static boolean isEngineEvaluatable(LanguageObject obj) {
+		if (obj == null) {
+			return true;
+		}
+		for (Function function : FunctionCollectorVisitor.getFunctions(obj, false)) {
+			FunctionDescriptor fd = function.getFunctionDescriptor();
+			if (fd.getPushdown() == PushDown.MUST_PUSHDOWN 
+					|| fd.getProcedure() != null
+					|| function.getName().equalsIgnoreCase(FunctionLibrary.LOOKUP)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Determine if the target criteria implies the base criteria, 
+	 * by matching each base conjunct to a target conjunct.
+	 */
+	static boolean implies(Criteria target, Criteria base) {
+		if (base == null) {
+			return true;
+		}
+		if (target == null) {
+			return false;
+		}
+		List<Criteria> targetConjuncts = Criteria.separateCriteriaByAnd(target);
+		outer: for (Criteria baseConjunct : Criteria.separateCriteriaByAnd(base)) {
+			for (Criteria targetConjunct : targetConjuncts) {
+				if (impliesConjunct(targetConjunct, baseConjunct)) {
+					continue outer;
+				}
+			}
+			return false;
+		}
+		return true;
+	}
+	
+	private static boolean impliesConjunct(Criteria target, Criteria base) {
+		if (target.equals(base)) {
+			return true;
+		}
+		Expression targetExpr = getExpression(target);
+		if (targetExpr == null) {
+			return false;
+		}
+		if (base instanceof IsNullCriteria) {
+			//a predicate with non-null values is not satisfied by null
+			IsNullCriteria isNull = (IsNullCriteria)base;
+			return isNull.isNegated() && isNull.getExpression().equals(targetExpr);
+		}
+		if (!targetExpr.equals(getExpression(base))) {
+			return false;
+		}
+		try {
+			Collection<Object> targetValues = getValues(target);
+			if (targetValues != null) {
+				//each value must satisfy the base
+				Collection<Object> baseValues = getValues(base);
+				for (Object value : targetValues) {
+					if (baseValues != null) {
+						if (!baseValues.contains(value)) {
+							return false;
+						}
+					} else if (!satisfies(value, (CompareCriteria)base)) {
+						return false;
+					}
+				}
+				return true;
+			}
+			if (!(base instanceof CompareCriteria)) {
+				return false;
+			}
+			CompareCriteria targetRange = (CompareCriteria)target;
+			CompareCriteria baseRange = (CompareCriteria)base;
+			Object targetValue = ((Constant)targetRange.getRightExpression()).getValue();
+			Object baseValue = ((Constant)baseRange.getRightExpression()).getValue();
+			int compare = Constant.COMPARATOR.compare(targetValue, baseValue);
+			switch (baseRange.getOperator()) {
+			case CompareCriteria.GT:
+			case CompareCriteria.GE:
+				if (targetRange.getOperator() != CompareCriteria.GT && targetRange.getOperator() != CompareCriteria.GE) {
+					return false;
+				}
+				return compare > 0 || (compare == 0 && (baseRange.getOperator() == CompareCriteria.GE || targetRange.getOperator() == CompareCriteria.GT));
+			case CompareCriteria.LT:
+			case CompareCriteria.LE:
+				if (targetRange.getOperator() != CompareCriteria.LT && targetRange.getOperator() != CompareCriteria.LE) {
+					return false;
+				}
+				return compare < 0 || (compare == 0 && (baseRange.getOperator() == CompareCriteria.LE || targetRange.getOperator() == CompareCriteria.LT));
+			}
+		} catch (ClassCastException e) {
+			//mismatched types
+		}
+		return false;
+	}
+	
+	private static boolean satisfies(Object value, CompareCriteria base) {
+		int compare = Constant.COMPARATOR.compare(value, ((Constant)base.getRightExpression()).getValue());
+		switch (base.getOperator()) {
+		case CompareCriteria.EQ:
+			return compare == 0;
+		case CompareCriteria.LT:
+			return compare < 0;
+		case CompareCriteria.LE:
+			return compare <= 0;
+		case CompareCriteria.GT:
+			return compare > 0;
+		case CompareCriteria.GE:
+			return compare >= 0;
+		}
+		return false;
+	}
+	
+	/**
+	 * @return the expression of a comparison against non-null constants or null if not a supported predicate 
+	 */
+	private static Expression getExpression(Criteria crit) {
+		if (crit instanceof CompareCriteria) {
+			CompareCriteria cc = (CompareCriteria)crit;
+			if (cc.getOperator() == CompareCriteria.NE || !(cc.getRightExpression() instanceof Constant)) {
+				return null;
+			}
+			Constant c = (Constant)cc.getRightExpression();
+			if (c.isMultiValued() || c.getValue() == null) {
+				return null;
+			}
+			return cc.getLeftExpression();
+		}
+		if (crit instanceof SetCriteria) {
+			SetCriteria sc = (SetCriteria)crit;
+			if (sc.isNegated()) {
+				return null;
+			}
+			for (Object value : sc.getValues()) {
+				if (!(value instanceof Constant) || ((Constant)value).isMultiValued() || ((Constant)value).getValue() == null) {
+					return null;
+				}
+			}
+			return sc.getExpression();
+		}
+		return null;
+	}
+	
+	/**
+	 * @return the values of an equality or in predicate, or null if a range
+	 */
+	private static Collection<Object> getValues(Criteria crit) {
+		if (crit instanceof SetCriteria) {
+			List<Object> result = new ArrayList<Object>();
+			for (Object value : ((SetCriteria)crit).getValues()) {
+				result.add(((Constant)value).getValue());
+			}
+			return result;
+		}
+		CompareCriteria cc = (CompareCriteria)crit;
+		if (cc.getOperator() == CompareCriteria.EQ) {
+			List<Object> result = new ArrayList<Object>(1);
+			result.add(((Constant)cc.getRightExpression()).getValue());
+			return result;
+		}
+		return null;
+	}
+	
+}
@@ -259,12 +259,15 @@ public class JSONParser {
 					case Yytoken.TYPE_COLON:
 						break;
 					case Yytoken.TYPE_VALUE:
+						/*
+						 * use the S_IN_PAIR_VALUE marker so that endObjectEntry is still called
+						 * when resuming after the handler stops on the primitive value.
+						 */
 						statusStack.removeFirst();
-						status=peekStatus(statusStack);
+						status=S_IN_PAIR_VALUE;
+						statusStack.addFirst(new Integer(status));
 						if(!contentHandler.primitive(token.value))
 							return;
-						if(!contentHandler.endObjectEntry())
-							return;
 						break;
 					case Yytoken.TYPE_LEFT_SQUARE:
 						statusStack.removeFirst();
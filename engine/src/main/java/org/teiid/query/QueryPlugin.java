@@ -630,6 +630,17 @@ public class QueryPlugin { // extends Plugin {
         TEIID31261, 
         TEIID31262, 
         TEIID31263, 
-        TEIID31264
+        TEIID31264,
+        TEIID31265,
+        TEIID31266,
+        TEIID31267,
+        TEIID31268,
+        TEIID31269,
+        TEIID31270,
+        TEIID31271,
+        TEIID31272,
+        TEIID31273,
+        TEIID31274,
+        TEIID31275
 	}
 }
@@ -0,0 +1,345 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.teiid.query.eval;
+
+import java.util.List;
+import java.util.Map;
+
+import org.teiid.api.exception.query.ExpressionEvaluationException;
+import org.teiid.common.buffer.BlockedException;
+import org.teiid.core.TeiidComponentException;
+import org.teiid.metadata.FunctionMethod.PushDown;
+import org.teiid.query.QueryPlugin;
+import org.teiid.query.function.FunctionDescriptor;
+import org.teiid.query.function.FunctionLibrary;
+import org.teiid.query.sql.lang.CompareCriteria;
+import org.teiid.query.sql.lang.CompoundCriteria;
+import org.teiid.query.sql.lang.Criteria;
+import org.teiid.query.sql.lang.IsNullCriteria;
+import org.teiid.query.sql.lang.NotCriteria;
+import org.teiid.query.sql.symbol.Constant;
+import org.teiid.query.sql.symbol.DerivedExpression;
+import org.teiid.query.sql.symbol.Expression;
+import org.teiid.query.sql.symbol.ExpressionSymbol;
+import org.teiid.query.sql.symbol.Function;
+
+/**
+ * Compiles {@link Expression}s and {@link Criteria} into a tree of evaluation objects 
+ * that are bound to tuple positions and function descriptors up front.  
+ * This avoids the per row type dispatch and element map lookups performed by the {@link Evaluator}.
+ * 
+ * Only common expression forms - element references, constants, system/java functions, comparisons, 
+ * compound, not and is null criteria - are compiled.  Anything else is delegated back 
+ * to the supplied {@link Evaluator}, so the result is always safe to use in place of interpretation.
+ */
+public class ExpressionCompiler {
+	
+	public interface CompiledExpression {
+		Object evaluate(List<?> tuple) throws ExpressionEvaluationException, BlockedException, TeiidComponentException;
+	}
+	
+	public interface CompiledCriteria {
+		/**
+		 * @return the three valued logic result
+		 */
+		Boolean evaluateTVL(List<?> tuple) throws ExpressionEvaluationException, BlockedException, TeiidComponentException;
+	}
+	
+	private static class ColumnReference implements CompiledExpression {
+		private int index;
+		
+		ColumnReference(int index) {
+			this.index = index;
+		}
+		
+		@Override
+		public Object evaluate(List<?> tuple) {
+			return tuple.get(index);
+		}
+	}
+	
+	private static class ConstantValue implements CompiledExpression {
+		private Object value;
+		
+		ConstantValue(Object value) {
+			this.value = value;
+		}
+		
+		@Override
+		public Object evaluate(List<?> tuple) {
+			return value;
+		}
+	}
+	
+	private static class FunctionInvocation implements CompiledExpression {
+		private Evaluator evaluator;
+		private FunctionDescriptor fd;
+		private CompiledExpression[] args;
+		
+		FunctionInvocation(Evaluator evaluator, FunctionDescriptor fd, CompiledExpression[] args) {
+			this.evaluator = evaluator;
+			this.fd = fd;
+			this.args = args;
+		}
+		
+		@Override
+		public Object evaluate(List<?> tuple) throws ExpressionEvaluationException, BlockedException, TeiidComponentException {
+			Object[] values = null;
+			int start = 0;
+			if (fd.requiresContext()) {
+				values = new Object[args.length + 1];
+				values[0] = evaluator.context;
+				start = 1;
+			} else {
+				values = new Object[args.length];
+			}
+			for (int i = 0; i < args.length; i++) {
+				values[i + start] = args[i].evaluate(tuple);
+			}
+			return fd.invokeFunction(values, evaluator.context, null, true);
+		}
+	}
+	
+	private static class InterpretedExpression implements CompiledExpression {
+		private Evaluator evaluator;
+		private Expression expression;
+		
+		InterpretedExpression(Evaluator evaluator, Expression expression) {
+			this.evaluator = evaluator;
+			this.expression = expression;
+		}
+		
+		@Override
+		public Object evaluate(List<?> tuple) throws ExpressionEvaluationException, BlockedException, TeiidComponentException {
+			return evaluator.internalEvaluate(expression, tuple);
+		}
+	}
+	
+	private static class Comparison implements CompiledCriteria {
+		private CompareCriteria criteria;
+		private CompiledExpression left;
+		private CompiledExpression right;
+		
+		Comparison(CompareCriteria criteria, CompiledExpression left, CompiledExpression right) {
+			this.criteria = criteria;
+			this.left = left;
+			this.right = right;
+		}
+		
+		@Override
+		public Boolean evaluateTVL(List<?> tuple) throws ExpressionEvaluationException, BlockedException, TeiidComponentException {
+			Object leftValue = null;
+			try {
+				leftValue = left.evaluate(tuple);
+			} catch(ExpressionEvaluationException e) {
+	             throw new ExpressionEvaluationException(QueryPlugin.Event.TEIID30312, e, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30312, "left", criteria)); //$NON-NLS-1$
+			}
+			if (leftValue == null) {
+				return null;
+			}
+			Object rightValue = null;
+			try {
+				rightValue = right.evaluate(tuple);
+			} catch(ExpressionEvaluationException e) {
+	             throw new ExpressionEvaluationException(QueryPlugin.Event.TEIID30312, e, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30312, "right", criteria)); //$NON-NLS-1$
+			}
+			if (rightValue == null) {
+				return null;
+			}
+			return Evaluator.compare(criteria.getOperator(), leftValue, rightValue);
+		}
+	}
+	
+	private static class Compound implements CompiledCriteria {
+		private boolean and;
+		private CompiledCriteria[] criteria;
+		
+		Compound(boolean and, CompiledCriteria[] criteria) {
+			this.and = and;
+			this.criteria = criteria;
+		}
+		
+		@Override
+		public Boolean evaluateTVL(List<?> tuple) throws ExpressionEvaluationException, BlockedException, TeiidComponentException {
+			Boolean result = and?Boolean.TRUE:Boolean.FALSE;
+			for (int i = 0; i < criteria.length; i++) {
+				Boolean value = criteria[i].evaluateTVL(tuple);
+				if (value == null) {
+					result = null;
+				} else if (!value.booleanValue()) {
+					if (and) {
+						return Boolean.FALSE;
+					}
+				} else if (!and) {
+					return Boolean.TRUE;
+				}
+			}
+			return result;
+		}
+	}
+	
+	private static class Not implements CompiledCriteria {
+		private CompiledCriteria criteria;
+		
+		Not(CompiledCriteria criteria) {
+			this.criteria = criteria;
+		}
+		
+		@Override
+		public Boolean evaluateTVL(List<?> tuple) throws ExpressionEvaluationException, BlockedException, TeiidComponentException {
+			Boolean result = criteria.evaluateTVL(tuple);
+			if (result == null) {
+				return null;
+			}
+			return !result.booleanValue();
+		}
+	}
+	
+	private static class IsNull implements CompiledCriteria {
+		private IsNullCriteria criteria;
+		private CompiledExpression expression;
+		
+		IsNull(IsNullCriteria criteria, CompiledExpression expression) {
+			this.criteria = criteria;
+			this.expression = expression;
+		}
+		
+		@Override
+		public Boolean evaluateTVL(List<?> tuple) throws ExpressionEvaluationException, BlockedException, TeiidComponentException {
+			Object value = null;
+			try {
+				value = expression.evaluate(tuple);
+			} catch(ExpressionEvaluationException e) {
+	             throw new ExpressionEvaluationException(QueryPlugin.Event.TEIID30323, e, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30323, criteria));
+			}
+			return value == null ^ criteria.isNegated();
+		}
+	}
+	
+	private static class InterpretedCriteria implements CompiledCriteria {
+		private Evaluator evaluator;
+		private Criteria criteria;
+		
+		InterpretedCriteria(Evaluator evaluator, Criteria criteria) {
+			this.evaluator = evaluator;
+			this.criteria = criteria;
+		}
+		
+		@Override
+		public Boolean evaluateTVL(List<?> tuple) throws ExpressionEvaluationException, BlockedException, TeiidComponentException {
+			return evaluator.evaluateTVL(criteria, tuple);
+		}
+	}
+	
+	/**
+	 * Wraps the root of a compiled expression to report errors in the same way as the {@link Evaluator} 
+	 */
+	private static class Root implements CompiledExpression {
+		private Expression expression;
+		private CompiledExpression compiled;
+		
+		Root(Expression expression, CompiledExpression compiled) {
+			this.expression = expression;
+			this.compiled = compiled;
+		}
+		
+		@Override
+		public Object evaluate(List<?> tuple) throws ExpressionEvaluationException, BlockedException, TeiidComponentException {
+			try {
+				return compiled.evaluate(tuple);
+			} catch (ExpressionEvaluationException e) {
+		         throw new ExpressionEvaluationException(QueryPlugin.Event.TEIID30328, e, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30328, new Object[] {expression, e.getMessage()}));
+			}
+		}
+	}
+
+	private Evaluator evaluator;
+	private Map<?, Integer> elements;
+	
+	/**
+	 * @param evaluator the evaluator to use for anything that cannot be compiled, it should 
+	 * use the same element map
+	 * @param elements the map of expressions to tuple positions
+	 */
+	public ExpressionCompiler(Evaluator evaluator, Map<?, Integer> elements) {
+		this.evaluator = evaluator;
+		this.elements = elements;
+	}
+	
+	public CompiledExpression compile(Expression expression) {
+		CompiledExpression result = compileInternal(expression);
+		if (result instanceof ColumnReference || result instanceof ConstantValue) {
+			return result;
+		}
+		return new Root(expression, result);
+	}
+	
+	public CompiledCriteria compile(Criteria criteria) {
+		if (criteria instanceof CompoundCriteria) {
+			CompoundCriteria cc = (CompoundCriteria)criteria;
+			List<Criteria> crits = cc.getCriteria();
+			CompiledCriteria[] compiled = new CompiledCriteria[crits.size()];
+			for (int i = 0; i < compiled.length; i++) {
+				compiled[i] = compile(crits.get(i));
+			}
+			return new Compound(cc.getOperator() == CompoundCriteria.AND, compiled);
+		} 
+		if (criteria instanceof NotCriteria) {
+			return new Not(compile(((NotCriteria)criteria).getCriteria()));
+		}
+		if (criteria instanceof CompareCriteria) {
+			CompareCriteria cc = (CompareCriteria)criteria;
+			return new Comparison(cc, compile(cc.getLeftExpression()), compile(cc.getRightExpression()));
+		}
+		if (criteria instanceof IsNullCriteria) {
+			IsNullCriteria inc = (IsNullCriteria)criteria;
+			return new IsNull(inc, compile(inc.getExpression()));
+		}
+		return new InterpretedCriteria(evaluator, criteria);
+	}
+	
+	private CompiledExpression compileInternal(Expression expression) {
+		if (expression instanceof DerivedExpression) {
+			Integer index = elements.get(expression);
+			if (index != null) {
+				return new ColumnReference(index);
+			}
+			if (expression instanceof ExpressionSymbol) {
+				return compileInternal(((ExpressionSymbol)expression).getExpression());
+			}
+		} else if (expression instanceof Constant) {
+			return new ConstantValue(((Constant)expression).getValue());
+		} else if (expression instanceof Function) {
+			Function function = (Function)expression;
+			FunctionDescriptor fd = function.getFunctionDescriptor();
+			if (fd != null && fd.getPushdown() != PushDown.MUST_PUSHDOWN && fd.getProcedure() == null 
+					&& !function.getName().equalsIgnoreCase(FunctionLibrary.LOOKUP)) {
+				Expression[] args = function.getArgs();
+				CompiledExpression[] compiledArgs = new CompiledExpression[args.length];
+				for (int i = 0; i < args.length; i++) {
+					compiledArgs[i] = compileInternal(args[i]);
+				}
+				return new FunctionInvocation(evaluator, fd, compiledArgs);
+			}
+		}
+		return new InterpretedExpression(evaluator, expression);
+	}
+
+}
@@ -19,9 +19,13 @@
 package org.teiid.query.function;
 
 import java.io.Serializable;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Array;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.util.Arrays;
 
 import org.teiid.api.exception.query.FunctionExecutionException;
@@ -32,6 +36,7 @@ import org.teiid.core.types.ArrayImpl;
 import org.teiid.core.types.BinaryType;
 import org.teiid.core.types.DataTypeManager;
 import org.teiid.core.types.TransformationException;
+import org.teiid.core.types.basic.ObjectToAnyTransform;
 import org.teiid.core.util.PropertiesUtils;
 import org.teiid.metadata.AbstractMetadataRecord;
 import org.teiid.metadata.FunctionMethod;
@@ -64,6 +69,10 @@ public class FunctionDescriptor implements Serializable, Cloneable {
     // a different VM.  This function descriptor can be used to look up 
     // the real VM descriptor for execution.
     private transient Method invocationMethod;
+    private transient MethodHandle invocationHandle;
+    private transient Class<?>[] handleParameterTypes;
+    private transient boolean[] handlePrimitiveParameters;
+    private transient volatile boolean handleResolved;
     
     private ClassLoader classLoader;
 
@@ -204,6 +213,15 @@ public class FunctionDescriptor implements Serializable, Cloneable {
 	 * @return Result of invoking the function
 	 */
 	public Object invokeFunction(Object[] values, CommandContext context, Object functionTarget) throws FunctionExecutionException, BlockedException {
+		return invokeFunction(values, context, functionTarget, false);
+	}
+	
+	/**
+	 * Invoke the function as with {@link #invokeFunction(Object[], CommandContext, Object)}.
+	 * @param useHandle if true a cached {@link MethodHandle} is used to avoid the per call overhead 
+	 * of reflection.  This is intended for compiled expressions that invoke the same function many times.  
+	 */
+	public Object invokeFunction(Object[] values, CommandContext context, Object functionTarget, boolean useHandle) throws FunctionExecutionException, BlockedException {
         if (!isNullDependent()) {
         	for (int i = requiresContext?1:0; i < values.length; i++) {
 				if (values[i] == null) {
@@ -272,7 +290,15 @@ public class FunctionDescriptor implements Serializable, Cloneable {
         	    if (this.classLoader != null) {
         	        Thread.currentThread().setContextClassLoader(this.classLoader);
         	    }
-        	    result = invocationMethod.invoke(functionTarget, values);
+        	    MethodHandle handle = null;
+        	    if (useHandle) {
+        	    	handle = getInvocationHandle();
+        	    }
+        	    if (handle != null && isHandleCompatible(values)) {
+        	    	result = invokeHandle(handle, values, functionTarget);
+        	    } else {
+        	    	result = invocationMethod.invoke(functionTarget, values);
+        	    }
         	} finally {
         	    Thread.currentThread().setContextClassLoader(originalCL);
         	}
@@ -294,6 +320,72 @@ public class FunctionDescriptor implements Serializable, Cloneable {
 		}
 	}
 
+    /**
+     * Get a spreading {@link MethodHandle} for the invocation method, which avoids the
+     * per call overhead of {@link Method#invoke(Object, Object...)}.
+     * @return the handle or null if the method is not accessible and reflection should be used
+     */
+    private MethodHandle getInvocationHandle() {
+    	if (!handleResolved) {
+    		MethodHandle handle = null;
+    		Class<?>[] paramTypes = invocationMethod.getParameterTypes();
+    		try {
+    			int params = paramTypes.length;
+    			boolean isStatic = Modifier.isStatic(invocationMethod.getModifiers());
+				handle = MethodHandles.publicLookup().unreflect(invocationMethod).asFixedArity();
+				handle = handle.asType(MethodType.genericMethodType(params + (isStatic?0:1))).asSpreader(Object[].class, params);
+			} catch (IllegalAccessException e) {
+				//not public, use reflection
+			}
+    		Class<?>[] boxedTypes = new Class<?>[paramTypes.length];
+    		boolean[] primitive = new boolean[paramTypes.length];
+    		for (int i = 0; i < paramTypes.length; i++) {
+    			primitive[i] = paramTypes[i].isPrimitive();
+    			boxedTypes[i] = ObjectToAnyTransform.convertPrimitiveToObject(paramTypes[i]);
+    		}
+    		this.handleParameterTypes = boxedTypes;
+    		this.handlePrimitiveParameters = primitive;
+    		this.invocationHandle = handle;
+    		this.handleResolved = true;
+    	}
+    	return this.invocationHandle;
+    }
+    
+    /**
+     * The handle converts arguments with casts, so values that do not match the 
+     * parameter types are left to reflection to report in the usual way.
+     */
+    private boolean isHandleCompatible(Object[] values) {
+    	if (values.length != handleParameterTypes.length) {
+    		return false;
+    	}
+    	for (int i = 0; i < values.length; i++) {
+    		Object value = values[i];
+    		if (value == null) {
+    			if (handlePrimitiveParameters[i]) {
+    				return false;
+    			}
+    		} else if (!handleParameterTypes[i].isInstance(value)) {
+    			return false;
+    		}
+    	}
+    	return true;
+    }
+    
+    private Object invokeHandle(MethodHandle handle, Object[] values, Object functionTarget) throws InvocationTargetException {
+    	try {
+	    	if (handle.type().parameterCount() == 1) {
+	    		return (Object)handle.invokeExact(values);
+	    	}
+	    	return (Object)handle.invokeExact(functionTarget, values);
+    	} catch (Error e) {
+    		throw e;
+    	} catch (Throwable e) {
+    		//match the reflective handling of exceptions thrown by the function
+    		throw new InvocationTargetException(e);
+    	}
+    }
+
     private void checkMethod() throws FunctionExecutionException {
         // If descriptor is missing invokable method, find this VM's descriptor
         // give name and types from fd
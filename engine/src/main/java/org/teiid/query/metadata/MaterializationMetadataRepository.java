@@ -53,6 +53,33 @@ public class MaterializationMetadataRepository extends MetadataRepository {
 	
 	public static final String MATVIEW_WRITE_THROUGH = "{http://www.teiid.org/ext/relational/2012}MATVIEW_WRITE_THROUGH"; //$NON-NLS-1$
 	public static final String MATVIEW_MAX_STALENESS_PCT = "{http://www.teiid.org/ext/relational/2012}MATVIEW_MAX_STALENESS_PCT"; //$NON-NLS-1$
+	/**
+	 * If true row level source events will be applied incrementally to an internal materialized view 
+	 */
+	public static final String MATVIEW_INCREMENTAL = "{http://www.teiid.org/ext/relational/2012}MATVIEW_INCREMENTAL"; //$NON-NLS-1$
+	/**
+	 * Set on an index or unique key of an internal materialized view to choose the index structure - TREE (the default), HASH, or BITMAP 
+	 */
+	public static final String MATVIEW_INDEX_TYPE = "{http://www.teiid.org/ext/relational/2012}MATVIEW_INDEX_TYPE"; //$NON-NLS-1$
+	/**
+	 * The number of partitions to use when loading an internal materialized view.  Without a 
+	 * {@link #MATVIEW_LOAD_PARTITION_COLUMN} the branches of a UNION ALL transformation are split among the partitions. 
+	 */
+	public static final String MATVIEW_LOAD_PARTITIONS = "{http://www.teiid.org/ext/relational/2012}MATVIEW_LOAD_PARTITIONS"; //$NON-NLS-1$
+	/**
+	 * An integral view column used to split the load of an internal materialized view into {@link #MATVIEW_LOAD_PARTITIONS}.
+	 * The split is only used if the source supports the partition criteria. 
+	 */
+	public static final String MATVIEW_LOAD_PARTITION_COLUMN = "{http://www.teiid.org/ext/relational/2012}MATVIEW_LOAD_PARTITION_COLUMN"; //$NON-NLS-1$
+	/**
+	 * The storage format of an internal materialized view - ROW (the default) or COLUMNAR.  A COLUMNAR view is stored read-only 
+	 * as compressed column pages and uses per page min/max values rather than indexes to filter. 
+	 */
+	public static final String MATVIEW_STORAGE = "{http://www.teiid.org/ext/relational/2012}MATVIEW_STORAGE"; //$NON-NLS-1$
+	/**
+	 * The number of rows per page of a COLUMNAR internal materialized view 
+	 */
+	public static final String MATVIEW_STORAGE_PAGE_SIZE = "{http://www.teiid.org/ext/relational/2012}MATVIEW_STORAGE_PAGE_SIZE"; //$NON-NLS-1$
 	
 	public enum LoadStates {NEEDS_LOADING, LOADING, LOADED, FAILED_LOAD};
 	public enum Scope {IMPORTED, FULL};
@@ -0,0 +1,317 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.teiid.query.optimizer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.teiid.api.exception.query.QueryMetadataException;
+import org.teiid.api.exception.query.QueryResolverException;
+import org.teiid.api.exception.query.QueryValidatorException;
+import org.teiid.core.TeiidComponentException;
+import org.teiid.language.SQLConstants;
+import org.teiid.metadata.Column;
+import org.teiid.metadata.KeyRecord;
+import org.teiid.metadata.Table;
+import org.teiid.query.metadata.QueryMetadataInterface;
+import org.teiid.query.resolver.QueryResolver;
+import org.teiid.query.sql.lang.Command;
+import org.teiid.query.sql.lang.CompareCriteria;
+import org.teiid.query.sql.lang.Criteria;
+import org.teiid.query.sql.lang.FromClause;
+import org.teiid.query.sql.lang.JoinPredicate;
+import org.teiid.query.sql.lang.Query;
+import org.teiid.query.sql.symbol.AggregateSymbol;
+import org.teiid.query.sql.symbol.Constant;
+import org.teiid.query.sql.symbol.ElementSymbol;
+import org.teiid.query.sql.symbol.Expression;
+import org.teiid.query.sql.symbol.GroupSymbol;
+import org.teiid.query.sql.symbol.WindowFunction;
+import org.teiid.query.sql.util.SymbolMap;
+import org.teiid.query.sql.visitor.AggregateSymbolCollectorVisitor;
+import org.teiid.query.sql.visitor.SQLStringVisitor;
+
+/**
+ * Derives the delta maintenance action for an internal materialized view in response 
+ * to a row level change of one of its source tables.
+ * <br>
+ * The action is expressed as a trigger action that determines the affected view 
+ * primary key values and refreshes those rows with SYSADMIN.refreshMatViewRow, which 
+ * recomputes, upserts, or deletes the corresponding materialized rows. 
+ * <br>
+ * Supported are views defined by a single query block over base tables - selection/projection,
+ * inner and outer joins, and grouping by the key.  Self joins of the changed table are rejected.  
+ * The key values are determined either:
+ * <ul>
+ * <li>directly - when each view key column is, possibly through join equalities, a column of the changed table
+ * <li>by lookup - when the changed table's primary key is projected, in which case the affected 
+ * keys are found in the current materialized rows and from the view definition
+ * </ul>
+ */
+final class IncrementalMatViewPlanner {
+	
+	private static final String REFRESH_MAT_VIEW_ROW = "EXECUTE SYSADMIN.refreshMatViewRow("; //$NON-NLS-1$
+	private static final String KEYS = "#keys"; //$NON-NLS-1$
+	
+	private IncrementalMatViewPlanner() {
+		
+	}
+	
+	/**
+	 * @return the trigger action or null if the view cannot be incrementally maintained
+	 */
+	static String createAction(Table view, Table source, int updateType, QueryMetadataInterface metadata) throws TeiidComponentException, QueryMetadataException {
+		KeyRecord pk = view.getPrimaryKey();
+		if (pk == null) {
+			return null;
+		}
+		Query query = getViewDefinition(view, metadata);
+		if (query == null) {
+			return null;
+		}
+		GroupSymbol sourceGroup = null;
+		for (GroupSymbol group : query.getFrom().getGroups()) {
+			if (group.getMetadataID() != source) {
+				continue;
+			}
+			if (sourceGroup != null) {
+				//self joins are not supported - the changed row may affect the view through 
+				//either group, so the keys cannot be derived from a single equivalence
+				return null;
+			}
+			sourceGroup = group;
+		}
+		if (sourceGroup == null) {
+			return null;
+		}
+		Map<ElementSymbol, Set<ElementSymbol>> equivalences = new HashMap<ElementSymbol, Set<ElementSymbol>>();
+		for (Criteria crit : Criteria.separateCriteriaByAnd(query.getCriteria())) {
+			addEquivalence(crit, equivalences);
+		}
+		for (FromClause clause : query.getFrom().getClauses()) {
+			addJoinEquivalences(clause, equivalences);
+		}
+		List<Expression> projected = query.getProjectedSymbols();
+		
+		//direct
+		List<Column> sourceColumns = new ArrayList<Column>(pk.getColumns().size());
+		for (Column c : pk.getColumns()) {
+			Expression ex = SymbolMap.getExpression(projected.get(c.getPosition() - 1));
+			ElementSymbol sourceElement = getEquivalent(ex, sourceGroup, null, equivalences);
+			if (sourceElement == null) {
+				break;
+			}
+			sourceColumns.add((Column)sourceElement.getMetadataID());
+		}
+		String viewName = SQLStringVisitor.getSQLString(new Constant(view.getFullName()));
+		if (sourceColumns.size() == pk.getColumns().size()) {
+			return createDirectAction(viewName, sourceColumns, updateType);
+		}
+		
+		//lookup
+		KeyRecord sourceKey = source.getPrimaryKey();
+		if (sourceKey == null) {
+			return null;
+		}
+		List<Column> viewColumns = new ArrayList<Column>(sourceKey.getColumns().size());
+		for (Column c : sourceKey.getColumns()) {
+			Column viewColumn = null;
+			for (int i = 0; i < projected.size() && viewColumn == null; i++) {
+				if (getEquivalent(SymbolMap.getExpression(projected.get(i)), sourceGroup, c, equivalences) != null) {
+					viewColumn = view.getColumns().get(i);
+				}
+			}
+			if (viewColumn == null) {
+				return null;
+			}
+			viewColumns.add(viewColumn);
+		}
+		return createLookupAction(view, viewName, pk.getColumns(), viewColumns, sourceKey.getColumns(), updateType);
+	}
+
+	private static Query getViewDefinition(Table view, QueryMetadataInterface metadata) throws TeiidComponentException, QueryMetadataException {
+		GroupSymbol group = new GroupSymbol(view.getFullName());
+		group.setMetadataID(view);
+		Command command = null;
+		try {
+			command = QueryResolver.resolveView(group, metadata.getVirtualPlan(view), SQLConstants.Reserved.SELECT, metadata, false).getCommand();
+		} catch (QueryResolverException e) {
+			return null;
+		} catch (QueryValidatorException e) {
+			return null;
+		}
+		if (!(command instanceof Query)) {
+			return null;
+		}
+		Query query = (Query)command;
+		if (query.getFrom() == null || query.getLimit() != null || query.getInto() != null) {
+			return null;
+		}
+		List<AggregateSymbol> aggs = new ArrayList<AggregateSymbol>();
+		List<WindowFunction> windowFunctions = new ArrayList<WindowFunction>();
+		AggregateSymbolCollectorVisitor.getAggregates(query.getSelect(), aggs, null, null, windowFunctions, null);
+		if (!windowFunctions.isEmpty() || (!aggs.isEmpty() && query.getGroupBy() == null)) {
+			return null;
+		}
+		return query;
+	}
+	
+	private static void addJoinEquivalences(FromClause clause, Map<ElementSymbol, Set<ElementSymbol>> equivalences) {
+		if (!(clause instanceof JoinPredicate)) {
+			return;
+		}
+		JoinPredicate jp = (JoinPredicate)clause;
+		for (Object crit : jp.getJoinCriteria()) {
+			addEquivalence((Criteria)crit, equivalences);
+		}
+		addJoinEquivalences(jp.getLeftClause(), equivalences);
+		addJoinEquivalences(jp.getRightClause(), equivalences);
+	}
+	
+	private static void addEquivalence(Criteria crit, Map<ElementSymbol, Set<ElementSymbol>> equivalences) {
+		if (!(crit instanceof CompareCriteria)) {
+			return;
+		}
+		CompareCriteria cc = (CompareCriteria)crit;
+		if (cc.getOperator() != CompareCriteria.EQ || !(cc.getLeftExpression() instanceof ElementSymbol) || !(cc.getRightExpression() instanceof ElementSymbol)) {
+			return;
+		}
+		Set<ElementSymbol> left = getEquivalences((ElementSymbol)cc.getLeftExpression(), equivalences);
+		Set<ElementSymbol> right = getEquivalences((ElementSymbol)cc.getRightExpression(), equivalences);
+		if (left == right) {
+			return;
+		}
+		left.addAll(right);
+		for (ElementSymbol es : right) {
+			equivalences.put(es, left);
+		}
+	}
+
+	private static Set<ElementSymbol> getEquivalences(ElementSymbol es, Map<ElementSymbol, Set<ElementSymbol>> equivalences) {
+		Set<ElementSymbol> result = equivalences.get(es);
+		if (result == null) {
+			result = new LinkedHashSet<ElementSymbol>();
+			result.add(es);
+			equivalences.put(es, result);
+		}
+		return result;
+	}
+	
+	/**
+	 * Find an element of the source group equivalent to the given expression
+	 * @param column if not null the element must also be for the given column
+	 */
+	private static ElementSymbol getEquivalent(Expression ex, GroupSymbol sourceGroup, Column column, Map<ElementSymbol, Set<ElementSymbol>> equivalences) {
+		if (!(ex instanceof ElementSymbol)) {
+			return null;
+		}
+		ElementSymbol es = (ElementSymbol)ex;
+		Set<ElementSymbol> equivalent = equivalences.get(es);
+		if (equivalent == null) {
+			equivalent = getEquivalences(es, new HashMap<ElementSymbol, Set<ElementSymbol>>());
+		}
+		for (ElementSymbol element : equivalent) {
+			if (sourceGroup.equals(element.getGroupSymbol()) && (column == null || column == element.getMetadataID())) {
+				return element;
+			}
+		}
+		return null;
+	}
+	
+	private static String createDirectAction(String viewName, List<Column> sourceColumns, int updateType) {
+		StringBuilder sb = new StringBuilder("FOR EACH ROW BEGIN ATOMIC\n"); //$NON-NLS-1$
+		if (updateType != Command.TYPE_INSERT) {
+			appendRefresh(sb, viewName, SQLConstants.Reserved.OLD, sourceColumns);
+		}
+		if (updateType == Command.TYPE_UPDATE) {
+			//only needed if the key has changed
+			sb.append("IF ("); //$NON-NLS-1$
+			for (int i = 0; i < sourceColumns.size(); i++) {
+				if (i > 0) {
+					sb.append(" OR "); //$NON-NLS-1$
+				}
+				sb.append("CHANGING.").append(SQLStringVisitor.escapeSinglePart(sourceColumns.get(i).getName())); //$NON-NLS-1$
+			}
+			sb.append(")\nBEGIN\n"); //$NON-NLS-1$
+			appendRefresh(sb, viewName, SQLConstants.Reserved.NEW, sourceColumns);
+			sb.append("END\n"); //$NON-NLS-1$
+		} else if (updateType == Command.TYPE_INSERT) {
+			appendRefresh(sb, viewName, SQLConstants.Reserved.NEW, sourceColumns);
+		}
+		sb.append("END"); //$NON-NLS-1$
+		return sb.toString();
+	}
+	
+	private static void appendRefresh(StringBuilder sb, String viewName, String prefix, List<Column> columns) {
+		sb.append(REFRESH_MAT_VIEW_ROW).append(viewName);
+		for (Column c : columns) {
+			sb.append(", ").append(prefix).append('.').append(SQLStringVisitor.escapeSinglePart(c.getName())); //$NON-NLS-1$
+		}
+		sb.append(");\n"); //$NON-NLS-1$
+	}
+	
+	/**
+	 * Collect the affected keys into a temp table from both the current materialized
+	 * rows (old values) and the view definition (new values) prior to refreshing, 
+	 * which mirrors SYSADMIN.updateMatView 
+	 */
+	private static String createLookupAction(Table view, String viewName, List<Column> keyColumns, List<Column> viewColumns, List<Column> sourceColumns, int updateType) {
+		String group = SQLStringVisitor.escapeSinglePart(view.getParent().getName()) + '.' + SQLStringVisitor.escapeSinglePart(view.getName());
+		StringBuilder keys = new StringBuilder();
+		for (int i = 0; i < keyColumns.size(); i++) {
+			if (i > 0) {
+				keys.append(", "); //$NON-NLS-1$
+			}
+			keys.append(SQLStringVisitor.escapeSinglePart(keyColumns.get(i).getName()));
+		}
+		StringBuilder sb = new StringBuilder("FOR EACH ROW BEGIN ATOMIC\n"); //$NON-NLS-1$
+		if (updateType != Command.TYPE_INSERT) {
+			sb.append("SELECT ").append(keys).append(" INTO ").append(KEYS).append(" FROM ").append(group); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			appendLookupCriteria(sb, SQLConstants.Reserved.OLD, viewColumns, sourceColumns);
+			sb.append(";\n"); //$NON-NLS-1$
+		}
+		if (updateType != Command.TYPE_DELETE) {
+			if (updateType == Command.TYPE_INSERT) {
+				sb.append("SELECT ").append(keys).append(" INTO ").append(KEYS); //$NON-NLS-1$ //$NON-NLS-2$
+			} else {
+				sb.append("INSERT INTO ").append(KEYS).append(" (").append(keys).append(") SELECT ").append(keys); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			}
+			sb.append(" FROM ").append(group); //$NON-NLS-1$
+			appendLookupCriteria(sb, SQLConstants.Reserved.NEW, viewColumns, sourceColumns);
+			sb.append(" OPTION NOCACHE ").append(group).append(";\n"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		sb.append("LOOP ON (SELECT DISTINCT ").append(keys).append(" FROM ").append(KEYS).append(") AS x\nBEGIN\n"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		appendRefresh(sb, viewName, "x", keyColumns); //$NON-NLS-1$
+		sb.append("END\nEND"); //$NON-NLS-1$
+		return sb.toString();
+	}
+
+	private static void appendLookupCriteria(StringBuilder sb, String prefix, List<Column> viewColumns, List<Column> sourceColumns) {
+		for (int i = 0; i < viewColumns.size(); i++) {
+			sb.append(i == 0?" WHERE ":" AND "); //$NON-NLS-1$ //$NON-NLS-2$
+			sb.append(SQLStringVisitor.escapeSinglePart(viewColumns.get(i).getName())).append(" = ").append(prefix).append('.').append(SQLStringVisitor.escapeSinglePart(sourceColumns.get(i).getName())); //$NON-NLS-1$
+		}
+	}
+	
+}
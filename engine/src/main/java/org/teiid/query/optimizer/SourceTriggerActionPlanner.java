@@ -20,6 +20,7 @@ package org.teiid.query.optimizer;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -36,10 +37,12 @@ import org.teiid.core.TeiidComponentException;
 import org.teiid.core.TeiidProcessingException;
 import org.teiid.core.id.IDGenerator;
 import org.teiid.core.types.DataTypeManager;
+import org.teiid.dqp.internal.process.PreparedPlan;
 import org.teiid.language.SQLConstants;
 import org.teiid.logging.LogConstants;
 import org.teiid.logging.LogManager;
 import org.teiid.metadata.Column;
+import org.teiid.metadata.FunctionMethod.Determinism;
 import org.teiid.metadata.Table;
 import org.teiid.metadata.Trigger;
 import org.teiid.query.QueryPlugin;
@@ -151,6 +154,7 @@ public final class SourceTriggerActionPlanner implements CommandPlanner {
         private Object[] oldValues;
         private Object[] newValues;
         private String[] columnNames;
+        private List<Table> materializedViews = Collections.emptyList();
         
         public SourceEventCommand(Table t, Object[] old, Object[] newValues,
                 String[] columnNames) {
@@ -159,6 +163,15 @@ public final class SourceTriggerActionPlanner implements CommandPlanner {
             this.newValues = newValues;
             this.columnNames = columnNames;
         }
+        
+        /**
+         * @param materializedViews the internal materialized views to incrementally maintain
+         */
+        public SourceEventCommand(Table t, Object[] old, Object[] newValues,
+                String[] columnNames, List<Table> materializedViews) {
+            this(t, old, newValues, columnNames);
+            this.materializedViews = materializedViews;
+        }
 
         @Override
         public void acceptVisitor(LanguageVisitor visitor) {
@@ -200,6 +213,10 @@ public final class SourceTriggerActionPlanner implements CommandPlanner {
             return columnNames;
         }
         
+        public List<Table> getMaterializedViews() {
+            return materializedViews;
+        }
+        
         @Override
         public String toString() {
             return "AFTER EVENT ON " + table; //$NON-NLS-1$
@@ -303,36 +320,107 @@ public final class SourceTriggerActionPlanner implements CommandPlanner {
                 }
                 break;
             }
-            //create plan
-            ForEachRowPlan result = new ForEachRowPlan();
-            result.setSingleRow(true);
-            result.setParams(params);
-            TriggerAction parseProcedure;
-            GroupSymbol gs = new GroupSymbol(sec.table.getFullName());
-            try {
-                parseProcedure = (TriggerAction)QueryParser.getQueryParser().parseProcedure(tr.getPlan(), true);
-                QueryResolver.resolveCommand(parseProcedure, gs, updateType, metadata.getDesignTimeMetadata(), false);
-            } catch (QueryParserException e) {
-                //should have been validated
-                throw new TeiidComponentException(e);
-            } catch (QueryResolverException e) {
-                //should have been validated
-                throw new TeiidComponentException(e);
-            }
-            CreateProcedureCommand cpc = new CreateProcedureCommand(parseProcedure.getBlock());
-            gs.setMetadataID(sec.table);
-            cpc.setVirtualGroup(gs);
-            cpc.setUpdateType(updateType);
-            ProcedurePlan rowProcedure = (ProcedurePlan)QueryOptimizer.optimizePlan(cpc, metadata, idGenerator, capFinder, analysisRecord, context);
-            rowProcedure.setRunInContext(false);
-            result.setRowProcedure(rowProcedure);
-            result.setLookupMap(lookup);
-            result.setTupleSource(new CollectionTupleSource(Arrays.asList(tuple).iterator()));
-            plans.add(result);
+            plans.add(planAction(tr.getPlan(), updateType, sec, params, lookup, tuple, idGenerator, metadata, capFinder, analysisRecord, context));
             names.add(tr.getName());
         }
         
+        int updateType = Command.TYPE_UPDATE;
+        if (sec.oldValues == null) {
+            updateType = Command.TYPE_INSERT;
+        } else if (sec.newValues == null) {
+            updateType = Command.TYPE_DELETE;
+        }
+        for (Table view : sec.getMaterializedViews()) {
+            ProcedurePlan rowProcedure = getMatViewRowProcedure(view, updateType, sec, idGenerator, metadata, capFinder, analysisRecord, context);
+            if (rowProcedure == null) {
+                continue;
+            }
+            plans.add(createForEachRowPlan(rowProcedure, params, lookup, tuple));
+            names.add(view.getFullName());
+        }
+        
         return new CompositeProcessorPlan(plans, names, sec.table);
 	}
 
+	/**
+	 * Get the row procedure that maintains the view.  The derived action only depends upon the 
+	 * metadata, so the plan is cached and cloned for each event.
+	 * @return the plan or null if the view cannot be incrementally maintained
+	 */
+	private ProcedurePlan getMatViewRowProcedure(Table view, int updateType, SourceEventCommand sec,
+			IDGenerator idGenerator, QueryMetadataInterface metadata, CapabilitiesFinder capFinder,
+			AnalysisRecord analysisRecord, CommandContext context) throws TeiidComponentException,
+			QueryPlannerException, QueryMetadataException {
+		String key = "incremental matview cache:" + view.getFullName() + ":" + sec.table.getFullName() + ":" + updateType; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		PreparedPlan pp = context.getPlan(key);
+		if (pp == null) {
+			String action = IncrementalMatViewPlanner.createAction(view, sec.table, updateType, metadata.getDesignTimeMetadata());
+			if (action == null) {
+				LogManager.logDetail(LogConstants.CTX_MATVIEWS, "Materialized view", view.getFullName(), "cannot be incrementally maintained for changes to", sec.table.getFullName()); //$NON-NLS-1$ //$NON-NLS-2$
+				return null;
+			}
+			Determinism determinismLevel = context.resetDeterminismLevel();
+			try {
+				CommandContext clone = context.clone();
+				ProcedurePlan plan = planRowProcedure(action, updateType, sec, idGenerator, metadata, capFinder, analysisRecord, clone);
+				clone.accessedPlanningObject(view);
+				clone.accessedPlanningObject(sec.table);
+				pp = new PreparedPlan();
+				pp.setPlan(plan, clone);
+				context.putPlan(key, pp, context.getDeterminismLevel());
+			} finally {
+				context.setDeterminismLevel(determinismLevel);
+			}
+		}
+		for (Object id : pp.getAccessInfo().getObjectsAccessed()) {
+			context.accessedPlanningObject(id);
+		}
+		return (ProcedurePlan)pp.getPlan().clone();
+	}
+
+	private ProcessorPlan planAction(String plan, int updateType, SourceEventCommand sec,
+			Map<ElementSymbol, Expression> params, Map<Expression, Integer> lookup, List<Object> tuple, 
+			IDGenerator idGenerator, QueryMetadataInterface metadata, CapabilitiesFinder capFinder,
+			AnalysisRecord analysisRecord, CommandContext context) throws TeiidComponentException,
+			QueryPlannerException, QueryMetadataException {
+		ProcedurePlan rowProcedure = planRowProcedure(plan, updateType, sec, idGenerator, metadata, capFinder, analysisRecord, context);
+		return createForEachRowPlan(rowProcedure, params, lookup, tuple);
+	}
+
+	private ForEachRowPlan createForEachRowPlan(ProcedurePlan rowProcedure, Map<ElementSymbol, Expression> params, 
+			Map<Expression, Integer> lookup, List<Object> tuple) {
+		ForEachRowPlan result = new ForEachRowPlan();
+		result.setSingleRow(true);
+		result.setParams(params);
+		result.setRowProcedure(rowProcedure);
+		result.setLookupMap(lookup);
+		result.setTupleSource(new CollectionTupleSource(Arrays.asList(tuple).iterator()));
+		return result;
+	}
+
+	private ProcedurePlan planRowProcedure(String plan, int updateType, SourceEventCommand sec,
+			IDGenerator idGenerator, QueryMetadataInterface metadata, CapabilitiesFinder capFinder,
+			AnalysisRecord analysisRecord, CommandContext context) throws TeiidComponentException,
+			QueryPlannerException, QueryMetadataException {
+		TriggerAction parseProcedure;
+		GroupSymbol gs = new GroupSymbol(sec.table.getFullName());
+		try {
+		    parseProcedure = (TriggerAction)QueryParser.getQueryParser().parseProcedure(plan, true);
+		    QueryResolver.resolveCommand(parseProcedure, gs, updateType, metadata.getDesignTimeMetadata(), false);
+		} catch (QueryParserException e) {
+		    //should have been validated
+		    throw new TeiidComponentException(e);
+		} catch (QueryResolverException e) {
+		    //should have been validated
+		    throw new TeiidComponentException(e);
+		}
+		CreateProcedureCommand cpc = new CreateProcedureCommand(parseProcedure.getBlock());
+		gs.setMetadataID(sec.table);
+		cpc.setVirtualGroup(gs);
+		cpc.setUpdateType(updateType);
+		ProcedurePlan rowProcedure = (ProcedurePlan)QueryOptimizer.optimizePlan(cpc, metadata, idGenerator, capFinder, analysisRecord, context);
+		rowProcedure.setRunInContext(false);
+		return rowProcedure;
+	}
+
 }
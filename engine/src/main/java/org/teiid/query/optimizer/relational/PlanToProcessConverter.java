@@ -289,6 +289,12 @@ public class PlanToProcessConverter {
                     List rightExpressions = (List) node.getProperty(NodeConstants.Info.RIGHT_EXPRESSIONS);
                     jnode.setJoinExpressions(leftExpressions, rightExpressions);
                     joinCrits = (List) node.getProperty(NodeConstants.Info.NON_EQUI_JOIN_CRITERIA);
+                } else if (stype == JoinStrategyType.HASH) {
+                	jnode.setJoinStrategy(new HashJoinStrategy());
+                    List leftExpressions = (List) node.getProperty(NodeConstants.Info.LEFT_EXPRESSIONS);
+                    List rightExpressions = (List) node.getProperty(NodeConstants.Info.RIGHT_EXPRESSIONS);
+                    jnode.setJoinExpressions(leftExpressions, rightExpressions);
+                    joinCrits = (List) node.getProperty(NodeConstants.Info.NON_EQUI_JOIN_CRITERIA);
                 } else if (stype == JoinStrategyType.NESTED_TABLE) {
                 	NestedTableJoinStrategy ntjStrategy = new NestedTableJoinStrategy();
                 	jnode.setJoinStrategy(ntjStrategy);
@@ -306,6 +312,7 @@ public class PlanToProcessConverter {
                 processNode = jnode;
                 
                 jnode.setDependentValueSource(depValueSource);
+                jnode.setDependentCardinality((Number)node.getProperty(NodeConstants.Info.EST_DEP_SOURCE_CARDINALITY));
                 
 				break;
 
@@ -547,6 +554,7 @@ public class PlanToProcessConverter {
 				gnode.setRemoveDuplicates(node.hasBooleanProperty(NodeConstants.Info.IS_DUP_REMOVAL));
 				List<Expression> gCols = (List) node.getProperty(NodeConstants.Info.GROUP_COLS);
 				OrderBy orderBy = (OrderBy) node.getProperty(Info.SORT_ORDER);
+				gnode.setOrderRequired(orderBy != null);
 				if (orderBy == null) {
 			        if (gCols != null) {
 			        	LinkedHashSet<Expression> exprs = new LinkedHashSet<Expression>();
@@ -639,6 +647,14 @@ public class PlanToProcessConverter {
 					processNode = atn;
 					break;
 				}
+				if (source instanceof JSONTable) {
+					JSONTableNode jtn = new JSONTableNode(getID());
+					JSONTable jt = (JSONTable)source;
+					updateGroupName(node, jt);
+					jtn.setTable(jt);
+					processNode = jtn;
+					break;
+				}
 			    SymbolMap symbolMap = (SymbolMap) node.getProperty(NodeConstants.Info.SYMBOL_MAP);
 				if(symbolMap != null) {
 					PlanNode child = node.getLastChild();
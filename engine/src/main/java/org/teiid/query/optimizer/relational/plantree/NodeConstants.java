@@ -147,6 +147,7 @@ public final class NodeConstants {
         // Plan Node Cost Estimate Constants
         EST_SET_SIZE,        // Integer represents the estimated set size this node would produce for a sibling node as the independent node in a dependent join scenario
         EST_DEP_CARDINALITY, // Float value that represents the estimated cardinality (amount of rows) produced by this node as the dependent node in a dependent join scenario
+        EST_DEP_SOURCE_CARDINALITY, // Float value on a dependent join that represents the estimated cardinality of the dependent side without the dependent criteria
         EST_DEP_JOIN_COST,   // Float value that represents the estimated cost of a dependent join (the join strategy for this could be Nested Loop or Merge)
         EST_JOIN_COST,       // Float value that represents the estimated cost of a merge join (the join strategy for this could be Nested Loop or Merge)
         EST_CARDINALITY,     // Float represents the estimated cardinality (amount of rows) produced by this node
@@ -32,6 +32,7 @@ import org.teiid.core.types.DataTypeManager;
 import org.teiid.language.Like.MatchMode;
 import org.teiid.logging.LogConstants;
 import org.teiid.logging.LogManager;
+import org.teiid.metadata.Column;
 import org.teiid.query.QueryPlugin;
 import org.teiid.query.metadata.QueryMetadataInterface;
 import org.teiid.query.metadata.TempMetadataAdapter;
@@ -67,6 +68,7 @@ public class NewCalculateCostUtil {
     private final static float compareTime = .0001f; //TODO: a better estimate would be based upon the number of conjuncts
     private final static float readTime = .001f; //TODO: should come from the connector
     private final static float procNewRequestTime = 1; //TODO: should come from the connector
+    private final static float hashFactor = 2; //relative to a single comparison, the cost of hashing and building/probing
     
     enum Stat {
     	NDV,
@@ -1213,30 +1215,31 @@ public class NewCalculateCostUtil {
             // in the expected format, NumberFormatException is thrown and reverts to default costing.
             if(dataType.equals(DataTypeManager.DefaultDataClasses.TIMESTAMP)) {
                 compareValue = ((Timestamp)value.getValue()).getTime();
-                maxValue = Timestamp.valueOf(max).getTime();
-                minValue = Timestamp.valueOf(min).getTime();
             } else if(dataType.equals(DataTypeManager.DefaultDataClasses.TIME)) {
                 compareValue = ((Time)value.getValue()).getTime();
-                maxValue = Time.valueOf(max).getTime();
-                minValue = Time.valueOf(min).getTime();
-            // (For date, our costing sets the max and min values using timestamp format)
             } else if(dataType.equals(DataTypeManager.DefaultDataClasses.DATE)) {
                 compareValue = ((Date)value.getValue()).getTime();
-                maxValue = Timestamp.valueOf(max).getTime();
-                minValue = Timestamp.valueOf(min).getTime();
             } else {
             	if(!Number.class.isAssignableFrom(dataType)) {
                     return childCost/3;
                 }
                 compareValue = ((Number)value.getValue()).floatValue();
-                maxValue = Integer.parseInt(max);
-                minValue = Integer.parseInt(min);
             }
+            maxValue = getStatisticValue(dataType, max);
+            minValue = getStatisticValue(dataType, min);
             float range = Math.max(maxValue - minValue, 1);
             
             float costMultiple = 1;
             
-            if(compCrit.getOperator() == CompareCriteria.GT || compCrit.getOperator() == CompareCriteria.GE) {
+            String histogram = metadata.getExtensionProperty(element.getMetadataID(), Column.HISTOGRAM, false);
+            if (histogram != null && histogram.length() > 0) {
+            	float fraction = getHistogramFraction(dataType, histogram, minValue, compareValue);
+            	if(compCrit.getOperator() == CompareCriteria.GT || compCrit.getOperator() == CompareCriteria.GE) {
+            		costMultiple = 1 - fraction;
+            	} else if(compCrit.getOperator() == CompareCriteria.LT || compCrit.getOperator() == CompareCriteria.LE) {
+            		costMultiple = fraction;
+            	}
+            } else if(compCrit.getOperator() == CompareCriteria.GT || compCrit.getOperator() == CompareCriteria.GE) {
             	costMultiple = (maxValue - compareValue)/range;
                 if (compareValue < 0 && maxValue < 0) {
                 	costMultiple = (1 - costMultiple);
@@ -1261,6 +1264,43 @@ public class NewCalculateCostUtil {
         return cost;
     }
     
+    /**
+     * Convert a min, max, or histogram value to a float.  
+     * Date values are expected in timestamp format.
+     */
+    private static float getStatisticValue(Class<?> dataType, String value) {
+    	if(dataType.equals(DataTypeManager.DefaultDataClasses.TIME)) {
+    		return Time.valueOf(value).getTime();
+    	}
+    	if(dataType.equals(DataTypeManager.DefaultDataClasses.TIMESTAMP) || dataType.equals(DataTypeManager.DefaultDataClasses.DATE)) {
+    		return Timestamp.valueOf(value).getTime();
+    	}
+    	return Float.parseFloat(value);
+    }
+    
+    /**
+     * Estimate the fraction of values less than the compare value from the 
+     * upper bounds of an equi-depth histogram, interpolating within the bucket.
+     */
+    static float getHistogramFraction(Class<?> dataType, String histogram, float minValue, float compareValue) {
+    	String[] bounds = histogram.split(","); //$NON-NLS-1$
+    	float lower = minValue;
+    	float buckets = 0;
+    	for (String bound : bounds) {
+    		float upper = getStatisticValue(dataType, bound);
+    		if (compareValue >= upper) {
+    			buckets++;
+    			lower = upper;
+    			continue;
+    		}
+    		if (compareValue > lower) {
+    			buckets += (compareValue - lower)/(upper - lower);
+    		}
+    		break;
+    	}
+    	return buckets/bounds.length;
+    }
+    
     static boolean usesKey(PlanNode planNode, Collection<? extends Expression> allElements, QueryMetadataInterface metadata) throws QueryMetadataException, TeiidComponentException {
     	//TODO: key preserved joins should be marked
     	return isSingleTable(planNode)
@@ -1356,7 +1396,34 @@ public class NewCalculateCostUtil {
     private static float safeLog(float x) {
         return (float)Math.max(1, Math.log(x));
     }
-    
+
+    /**
+     * Determine if a hash join is expected to be cheaper than a sort based join.
+     *
+     * The sort based cost assumes that at best the smaller side is indexed and probed by the larger.
+     * The hash cost assumes a constant factor for building and probing the hash table.
+     * Small build sides are left to the enhanced sort join, which will use a memory resident index.
+     */
+    static boolean useHashJoin(PlanNode joinNode, QueryMetadataInterface metadata, int batchSize) throws QueryMetadataException, TeiidComponentException {
+    	float leftCost = computeCostForTree(joinNode.getFirstChild(), metadata);
+    	float rightCost = computeCostForTree(joinNode.getLastChild(), metadata);
+    	if (leftCost == UNKNOWN_VALUE || rightCost == UNKNOWN_VALUE) {
+    		return false;
+    	}
+    	float buildCost = rightCost;
+    	float probeCost = leftCost;
+    	if (joinNode.getProperty(NodeConstants.Info.JOIN_TYPE) == JoinType.JOIN_INNER && leftCost < rightCost) {
+    		buildCost = leftCost;
+    		probeCost = rightCost;
+    	}
+    	if (buildCost <= batchSize) {
+    		return false;
+    	}
+    	float sortCost = (buildCost + probeCost) * safeLog(buildCost);
+    	float hashCost = hashFactor * (buildCost + probeCost);
+    	return hashCost < sortCost;
+    }
+
     /**
      * Computes the cost of a Dependent Join
      * 
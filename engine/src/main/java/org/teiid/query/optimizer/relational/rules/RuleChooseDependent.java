@@ -377,6 +377,11 @@ public final class RuleChooseDependent implements OptimizerRule {
     	String id = nextId();
         // Create DependentValueSource and set on the independent side as this will feed the values
         joinNode.setProperty(NodeConstants.Info.DEPENDENT_VALUE_SOURCE, id);
+        //retain the estimate without the dependent criteria for the adaptive check at runtime
+        float depCardinality = NewCalculateCostUtil.computeCostForTree(sourceNode, metadata);
+        if (depCardinality != NewCalculateCostUtil.UNKNOWN_VALUE) {
+        	joinNode.setProperty(NodeConstants.Info.EST_DEP_SOURCE_CARDINALITY, depCardinality);
+        }
         
         PlanNode depNode = isLeft?joinNode.getFirstChild():joinNode.getLastChild();
         depNode = FrameUtil.findJoinSourceNode(depNode);
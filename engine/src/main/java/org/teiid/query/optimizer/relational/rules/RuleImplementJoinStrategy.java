@@ -48,6 +48,7 @@ import org.teiid.query.sql.lang.CompareCriteria;
 import org.teiid.query.sql.lang.Criteria;
 import org.teiid.query.sql.lang.JoinType;
 import org.teiid.query.sql.lang.OrderBy;
+import org.teiid.query.sql.symbol.Constant;
 import org.teiid.query.sql.symbol.ElementSymbol;
 import org.teiid.query.sql.symbol.Expression;
 import org.teiid.query.sql.symbol.GroupSymbol;
@@ -126,6 +127,14 @@ public class RuleImplementJoinStrategy implements OptimizerRule {
             	right = false;
             }
             JoinType joinType = (JoinType) joinNode.getProperty(NodeConstants.Info.JOIN_TYPE);
+            if (context != null && context.getOptions().isHashJoin() && canUseHashJoin(joinNode, joinType, leftExpressions)
+            		&& NewCalculateCostUtil.useHashJoin(joinNode, metadata, context.getProcessorBatchSize())) {
+            	//no sorts are needed, but the join expressions must still be projected
+            	insertSort(joinNode.getFirstChild(), leftExpressions, joinNode, metadata, capabilitiesFinder, false, context);
+            	insertSort(joinNode.getLastChild(), rightExpressions, joinNode, metadata, capabilitiesFinder, false, context);
+            	joinNode.setProperty(NodeConstants.Info.JOIN_STRATEGY, JoinStrategyType.HASH);
+            	continue;
+            }
             /**
              * Don't push sorts for unbalanced inner joins, we prefer to use a processing time cost based decision 
              */
@@ -219,6 +228,26 @@ public class RuleImplementJoinStrategy implements OptimizerRule {
         return plan;
     }
 
+    /**
+     * Hash joins are limited to non-dependent inner and left outer joins.  
+     * Grouping sources are excluded as they already produce sorted output. 
+     */
+    static boolean canUseHashJoin(PlanNode joinNode, JoinType joinType, List<Expression> expressions) {
+    	if (joinType != JoinType.JOIN_INNER && joinType != JoinType.JOIN_LEFT_OUTER) {
+    		return false;
+    	}
+    	if (joinNode.getProperty(NodeConstants.Info.DEPENDENT_VALUE_SOURCE) != null) {
+    		return false;
+    	}
+    	for (PlanNode child : joinNode.getChildren()) {
+    		if (FrameUtil.findJoinSourceNode(child).getType() == NodeConstants.Types.GROUP) {
+    			return false;
+    		}
+    	}
+    	//character hashing is not consistent with a collation or pad space comparison
+    	return Constant.isHashConsistent(expressions);
+    }
+
     /**
      * Insert a sort node under the merge join node.  If necessary, also insert a project
      * node to handle function evaluation.  
@@ -358,6 +358,14 @@ public class AccessNode extends SubqueryAwareRelationalNode {
 		return nextCommand; 
 	}
 
+    /**
+     * Allows subclasses to discard source rows before they are projected and added to the output.
+     * @param tuple the source row
+     */
+    protected boolean isValid(List<?> tuple) {
+    	return true;
+    }
+
     protected boolean prepareNextCommand(Command atomicCommand) throws TeiidComponentException, TeiidProcessingException {
 		rewriteAndEvaluate(atomicCommand, getEvaluator(Collections.emptyMap()), this.getContext(), this.getContext().getMetadata());
     	return RelationalNodeUtil.shouldExecute(atomicCommand, true);
@@ -389,6 +397,9 @@ public class AccessNode extends SubqueryAwareRelationalNode {
 	        		
 	        		while ((tuple = tupleSource.nextTuple()) != null) {
 	                    returnedRows = true;
+	                    if (!isValid(tuple)) {
+	                    	continue;
+	                    }
 	                    if (this.projection != null && this.projection.length > 0) {
 	                    	List<Object> newTuple = new ArrayList<Object>(this.projection.length);
 	                    	for (Object object : this.projection) {
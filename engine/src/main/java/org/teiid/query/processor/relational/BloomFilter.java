@@ -0,0 +1,123 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.teiid.query.processor.relational;
+
+import org.teiid.query.sql.symbol.Constant;
+
+/**
+ * A simple Bloom filter over engine values used to reduce the dependent side of a dependent join
+ * when the independent values will not be pushed as IN predicates.
+ * <br>
+ * Hashing is consistent with the engine comparison semantics only if {@link Constant#isHashConsistent(java.util.List)},
+ * see {@link Constant#hashValue(Object)}.
+ * A negative result from {@link #mightContain(Object)} is definitive, a positive result may be a false positive.
+ */
+public class BloomFilter {
+	
+	public static final double DEFAULT_FALSE_POSITIVE_RATE = .01;
+	
+	private static final int MAX_BITS = Integer.MAX_VALUE - 63;
+	
+	private long[] bits;
+	private int numBits;
+	private int numHashes;
+	private long count;
+	
+	public BloomFilter(long expectedInsertions) {
+		this(expectedInsertions, DEFAULT_FALSE_POSITIVE_RATE);
+	}
+	
+	public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+		expectedInsertions = Math.max(1, expectedInsertions);
+		double m = -expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+		this.numBits = (int)Math.max(64, Math.min(MAX_BITS, Math.ceil(m)));
+		this.numHashes = Math.max(1, (int)Math.round((double)numBits / expectedInsertions * Math.log(2)));
+		this.bits = new long[(numBits + 63) >>> 6];
+	}
+	
+	/**
+	 * Add the value to the filter.  null values are ignored.
+	 */
+	public void add(Object value) {
+		if (value == null) {
+			return;
+		}
+		long hash = mix(Constant.hashValue(value));
+		int h1 = (int)hash;
+		int h2 = (int)(hash >>> 32);
+		for (int i = 0; i < numHashes; i++) {
+			int index = ((h1 + i * h2) & Integer.MAX_VALUE) % numBits;
+			bits[index >>> 6] |= 1L << index;
+		}
+		count++;
+	}
+	
+	/**
+	 * @return false if the value was definitely not added to the filter. null values always return false
+	 */
+	public boolean mightContain(Object value) {
+		if (value == null) {
+			return false;
+		}
+		long hash = mix(Constant.hashValue(value));
+		int h1 = (int)hash;
+		int h2 = (int)(hash >>> 32);
+		for (int i = 0; i < numHashes; i++) {
+			int index = ((h1 + i * h2) & Integer.MAX_VALUE) % numBits;
+			if ((bits[index >>> 6] & (1L << index)) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * spread the 32 bit hash over 64 bits using the murmur3 finalizer
+	 */
+	private static long mix(int hash) {
+		long h = hash * 0x9E3779B97F4A7C15L;
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb93fe53e80a5L;
+		h ^= h >>> 33;
+		return h;
+	}
+	
+	public long getCount() {
+		return count;
+	}
+	
+	public int getNumBits() {
+		return numBits;
+	}
+	
+	public int getNumHashes() {
+		return numHashes;
+	}
+	
+	/**
+	 * @return the approximate size of the filter in bytes
+	 */
+	public long getSizeInBytes() {
+		return bits.length * 8l;
+	}
+
+}
@@ -19,11 +19,13 @@
 package org.teiid.query.processor.relational;
 
 import java.util.Collections;
+import java.util.List;
 
 import org.teiid.common.buffer.BlockedException;
 import org.teiid.core.TeiidComponentException;
 import org.teiid.core.TeiidProcessingException;
 import org.teiid.core.util.Assertion;
+import org.teiid.query.processor.relational.DependentCriteriaProcessor.SetState;
 import org.teiid.query.sql.lang.Command;
 import org.teiid.query.sql.lang.Criteria;
 import org.teiid.query.sql.lang.Query;
@@ -53,6 +55,8 @@ public class DependentAccessNode extends AccessNode {
     private Command rewrittenCommand;
 	private boolean useBindings;
 	private boolean complexQuery;
+	private int[] bloomFilterIndexes;
+	private BloomFilter[] bloomFilters;
     
     public DependentAccessNode(int nodeID) {
         super(nodeID);
@@ -75,6 +79,8 @@ public class DependentAccessNode extends AccessNode {
         dependentCrit = null;
         sort = true;
         rewrittenCommand = null;
+        bloomFilterIndexes = null;
+        bloomFilters = null;
     }
     
     @Override
@@ -148,10 +154,25 @@ public class DependentAccessNode extends AccessNode {
             this.criteriaProcessor.setPushdown(pushdown);
             this.criteriaProcessor.setUseBindings(useBindings);
             this.criteriaProcessor.setComplexQuery(complexQuery);
+            if (getContext().getOptions().isDependentJoinBloomFilter()) {
+            	this.criteriaProcessor.setBloomFilterSymbols(query.getProjectedSymbols());
+            }
         }
         
         if (this.dependentCrit == null) {
             dependentCrit = criteriaProcessor.prepareCriteria();
+            if (this.bloomFilters == null) {
+            	List<SetState> states = criteriaProcessor.getBloomFilterStates();
+            	if (!states.isEmpty()) {
+            		this.bloomFilterIndexes = new int[states.size()];
+            		this.bloomFilters = new BloomFilter[states.size()];
+            		for (int i = 0; i < states.size(); i++) {
+            			SetState state = states.get(i);
+            			this.bloomFilterIndexes[i] = state.bloomFilterIndex;
+            			this.bloomFilters[i] = state.bloomFilter;
+            		}
+            	}
+            }
         }
         
         query.setCriteria(dependentCrit);
@@ -194,6 +215,19 @@ public class DependentAccessNode extends AccessNode {
         sort = false;
     }
 
+    @Override
+    protected boolean isValid(List<?> tuple) {
+    	if (bloomFilters == null) {
+    		return true;
+    	}
+    	for (int i = 0; i < bloomFilters.length; i++) {
+    		if (!bloomFilters[i].mightContain(tuple.get(bloomFilterIndexes[i]))) {
+    			return false;
+    		}
+    	}
+    	return true;
+    }
+
     /**
      * @see org.teiid.query.processor.relational.AccessNode#hasNextCommand()
      */
@@ -26,6 +26,7 @@ import org.teiid.core.TeiidComponentException;
 import org.teiid.core.TeiidProcessingException;
 import org.teiid.logging.LogConstants;
 import org.teiid.logging.LogManager;
+import org.teiid.logging.MessageLevel;
 import org.teiid.query.QueryPlugin;
 import org.teiid.query.optimizer.relational.rules.NewCalculateCostUtil;
 import org.teiid.query.processor.relational.SortUtility.Mode;
@@ -41,6 +42,7 @@ import org.teiid.query.sql.lang.SetCriteria;
 import org.teiid.query.sql.symbol.Array;
 import org.teiid.query.sql.symbol.Constant;
 import org.teiid.query.sql.symbol.Expression;
+import org.teiid.query.sql.util.SymbolMap;
 import org.teiid.query.sql.util.ValueIterator;
 
 
@@ -60,6 +62,9 @@ public class DependentCriteriaProcessor {
         
         float maxNdv = NewCalculateCostUtil.UNKNOWN_VALUE;
         
+        //true if there is a planner max ndv or a MAKEDEP max 
+        boolean bounded;
+        
         boolean overMax;
         
         long replacementSize() {
@@ -69,6 +74,10 @@ public class DependentCriteriaProcessor {
         long valueCount = 1;
 
         SetCriteria existingSet;
+        
+        BloomFilter bloomFilter;
+        
+        int bloomFilterIndex = -1;
 
     }
 
@@ -79,15 +88,38 @@ public class DependentCriteriaProcessor {
         private List<SetState> dependentSetStates = new LinkedList<SetState>();
         private String valueSource;
         private DependentValueSource originalVs;
+        private boolean abandoned;
 
         public TupleState(String source) {
         	this.valueSource = source;
         }
 
+        /**
+         * @return true if any of the criteria already limit the number of values 
+         * based upon the planning cost or the MAKEDEP max
+         */
+        private boolean isBounded() {
+        	for (SetState setState : dependentSetStates) {
+        		if (setState.bounded) {
+        			return true;
+        		}
+        	}
+        	return false;
+        }
+
         public void sort() throws BlockedException,
                    TeiidComponentException, TeiidProcessingException {
             if (dvs == null) {
                 originalVs = (DependentValueSource)dependentNode.getContext().getVariableContext().getGlobalValue(valueSource);
+                if (originalVs.isAbandoned() && !isBounded()) {
+                	//the independent side was much larger than estimated, so don't push the values
+                	abandoned = true;
+                	dvs = originalVs;
+                	for (SetState setState : dependentSetStates) {
+                		setState.overMax = true;
+                	}
+                	return;
+                }
                 if (!originalVs.isDistinct() || dependentSetStates.size() != originalVs.getTupleBuffer().getSchema().size()) {
 	            	if (sortUtility == null) {
 	            		List<Expression> sortSymbols = new ArrayList<Expression>(dependentSetStates.size());
@@ -161,6 +193,7 @@ public class DependentCriteriaProcessor {
     private boolean pushdown;
     private boolean useBindings;
     private boolean complexQuery;
+    private List<? extends Expression> bloomFilterSymbols;
 
     //initialization state
     private List<Criteria> queryCriteria;
@@ -244,6 +277,7 @@ public class DependentCriteriaProcessor {
                 }
                 ts.getDepedentSetStates().add(state);
                 state.maxNdv = dsc.getMaxNdv();
+                state.bounded = state.maxNdv > 0 || (dsc.getMakeDepOptions() != null && dsc.getMakeDepOptions().getMax() != null);
             } 
         }        
     }
@@ -301,7 +335,7 @@ public class DependentCriteriaProcessor {
 					TupleState ts = dependentState.get(dsc.getContextSymbol());
 					DependentValueSource dvs = ts.dvs;
 					// check if this has more rows than we want to push
-					if ((dsc.getMaxNdv() != -1 && dvs.getTupleBuffer().getRowCount() > dsc.getMaxNdv())
+					if (ts.abandoned || (dsc.getMaxNdv() != -1 && dvs.getTupleBuffer().getRowCount() > dsc.getMaxNdv())
 							|| (dsc.getMakeDepOptions() != null
 									&& dsc.getMakeDepOptions().getMax() != null 
 									&& dvs.getTupleBuffer().getRowCount() > dsc.getMakeDepOptions().getMax())) {
@@ -329,6 +363,10 @@ public class DependentCriteriaProcessor {
 				}
 			}
 
+			if (bloomFilterSymbols != null) {
+				chooseBloomFilters();
+			}
+
 			//proceed with set based processing
             phase = SET_PROCESSING;
         }
@@ -361,6 +399,60 @@ public class DependentCriteriaProcessor {
         return new CompoundCriteria(CompoundCriteria.AND, crits);
     }
     
+    /**
+     * When the independent values will not be pushed, rather than reading the full 
+     * dependent side use a Bloom filter over the independent values to discard 
+     * non-matching rows as they are read.
+     */
+    private void chooseBloomFilters() throws TeiidComponentException {
+    	for (int i = 0; i < queryCriteria.size(); i++) {
+    		Criteria criteria = queryCriteria.get(i);
+    		SetState state = this.setStates.get(i);
+    		if (!(criteria instanceof DependentSetCriteria) || state == null || state.existingSet != null 
+    				|| state.valueExpression instanceof Array) {
+    			continue;
+    		}
+    		DependentSetCriteria dsc = (DependentSetCriteria)criteria;
+    		if (!state.overMax || dsc.getExpression().getType() != state.valueExpression.getType()
+    				|| !Constant.isHashConsistent(Arrays.asList(dsc.getExpression()))) {
+    			continue;
+    		}
+    		TupleState ts = dependentState.get(dsc.getContextSymbol());
+    		int index = -1;
+    		for (int j = 0; j < bloomFilterSymbols.size(); j++) {
+    			if (SymbolMap.getExpression(bloomFilterSymbols.get(j)).equals(dsc.getExpression())) {
+    				index = j;
+    				break;
+    			}
+    		}
+    		if (index == -1) {
+    			continue;
+    		}
+    		state.bloomFilter = ts.dvs.getBloomFilter(state.valueExpression);
+    		state.bloomFilterIndex = index;
+    		if (LogManager.isMessageToBeRecorded(LogConstants.CTX_DQP, MessageLevel.DETAIL)) {
+    			LogManager.logDetail(LogConstants.CTX_DQP, "Using a bloom filter of", state.bloomFilter.getNumBits(), "bits for", ts.dvs.getTupleBuffer().getRowCount(), "values that will not be pushed for", dsc); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+    		}
+    	}
+    }
+    
+    /**
+     * @return the {@link SetState}s that should be applied as Bloom filters against the 
+     * dependent rows, or an empty list if none are used
+     */
+    public List<SetState> getBloomFilterStates() {
+    	if (bloomFilterSymbols == null || phase != SET_PROCESSING) {
+    		return Collections.emptyList();
+    	}
+    	List<SetState> result = new ArrayList<SetState>(1);
+    	for (SetState state : setStates.values()) {
+    		if (state.bloomFilter != null) {
+    			result.add(state);
+    		}
+    	}
+    	return result;
+    }
+    
     public void consumedCriteria() {
         // flush only the value iterators starting at the restart index
         // it is only safe to do this after the super call to prepare command
@@ -548,4 +640,11 @@ public class DependentCriteriaProcessor {
 		this.complexQuery = complexQuery;
 	}
 	
+	/**
+	 * Enable the usage of Bloom filters against the given projected symbols of the dependent query.
+	 */
+	public void setBloomFilterSymbols(List<? extends Expression> bloomFilterSymbols) {
+		this.bloomFilterSymbols = bloomFilterSymbols;
+	}
+	
 }
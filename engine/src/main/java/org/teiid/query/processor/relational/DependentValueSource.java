@@ -47,8 +47,10 @@ public class DependentValueSource implements
     private TupleBuffer buffer;
     private List<? extends Expression> schema;
     private Map<Expression, Set<Object>> cachedSets;
+    private Map<Expression, BloomFilter> cachedFilters;
     private boolean unused; //TODO: use this value instead of the context
     private boolean distinct;
+    private boolean abandoned;
 
     public DependentValueSource(TupleBuffer tb) {
     	this(tb, tb.getSchema());
@@ -146,6 +148,31 @@ public class DependentValueSource implements
     	return result;
     }
     
+    /**
+     * Get a {@link BloomFilter} over the non-null values of the given expression.
+     * Array value expressions are not supported. 
+     */
+    public BloomFilter getBloomFilter(Expression valueExpression) throws TeiidComponentException {
+    	Assertion.assertTrue(!(valueExpression instanceof Array));
+    	BloomFilter result = null;
+    	if (cachedFilters != null) {
+    		result = cachedFilters.get(valueExpression);
+    	}
+    	if (result == null) {
+    		result = new BloomFilter(buffer.getRowCount());
+    		TupleSourceValueIterator ve = getValueIterator(valueExpression);
+    		while (ve.hasNext()) {
+    			result.add(ve.next());
+    		}
+    		ve.close();
+    		if (cachedFilters == null) {
+    			cachedFilters = new HashMap<Expression, BloomFilter>();
+    		}
+    		cachedFilters.put(valueExpression, result);
+    	}
+    	return result;
+    }
+    
     @Override
     public boolean isUnused() {
 		return unused;
@@ -156,6 +183,18 @@ public class DependentValueSource implements
 		this.unused = unused;
 	}
     
+    /**
+     * @return true if the dependent criteria should not be applied, 
+     * such as when the independent side was much larger than estimated
+     */
+    public boolean isAbandoned() {
+		return abandoned;
+	}
+    
+    public void setAbandoned(boolean abandoned) {
+		this.abandoned = abandoned;
+	}
+    
     public boolean isDistinct() {
 		return distinct;
 	}
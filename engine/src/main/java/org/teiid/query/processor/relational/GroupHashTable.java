@@ -0,0 +1,262 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.teiid.query.processor.relational;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.RandomAccess;
+
+import org.teiid.query.sql.symbol.Constant;
+
+/**
+ * An open addressing hash table of groups used for hash aggregation.
+ * <br>
+ * Each group is a row of the grouping key values followed by the accumulator state values -
+ * the same layout used by the sorted group {@link org.teiid.common.buffer.STree}.  Integral and floating
+ * point state is held in primitive arrays rather than as boxed values.
+ * <br>
+ * Key equality is consistent with the comparison used for sort based grouping, with nulls forming a single group.
+ */
+class GroupHashTable {
+	
+	private static final float LOAD_FACTOR = .75f;
+	
+	private static final byte OBJECT = 0;
+	private static final byte INTEGER = 1;
+	private static final byte LONG = 2;
+	private static final byte DOUBLE = 3;
+	
+	private final class GroupRow extends AbstractList<Object> implements RandomAccess {
+		private int group;
+		
+		@Override
+		public Object get(int index) {
+			return getValue(group, index);
+		}
+		
+		@Override
+		public int size() {
+			return columnCount;
+		}
+	}
+	
+	private int keyCount;
+	private int columnCount;
+	private int[] keyIndexes;
+	private byte[] kinds;
+	
+	private Object[] columns;
+	private BitSet[] nulls;
+	private int[] hashes;
+	private int size;
+	
+	private int[] slots; //group + 1, 0 is empty
+	private int mask;
+	private int threshold;
+	
+	private GroupRow probeRow = new GroupRow();
+	
+	GroupHashTable(int keyCount, List<? extends Class<?>> stateTypes, int initialCapacity) {
+		this.keyCount = keyCount;
+		this.columnCount = keyCount + stateTypes.size();
+		this.keyIndexes = new int[keyCount];
+		for (int i = 0; i < keyCount; i++) {
+			this.keyIndexes[i] = i;
+		}
+		this.kinds = new byte[columnCount];
+		for (int i = 0; i < stateTypes.size(); i++) {
+			Class<?> type = stateTypes.get(i);
+			if (type == Integer.class) {
+				kinds[keyCount + i] = INTEGER;
+			} else if (type == Long.class) {
+				kinds[keyCount + i] = LONG;
+			} else if (type == Double.class) {
+				kinds[keyCount + i] = DOUBLE;
+			}
+		}
+		int capacity = Math.max(16, Integer.highestOneBit(Math.max(1, initialCapacity) - 1) << 1);
+		this.columns = new Object[columnCount];
+		this.nulls = new BitSet[columnCount];
+		for (int i = 0; i < columnCount; i++) {
+			this.nulls[i] = new BitSet();
+			switch (kinds[i]) {
+			case INTEGER:
+			case LONG:
+				columns[i] = new long[capacity];
+				break;
+			case DOUBLE:
+				columns[i] = new double[capacity];
+				break;
+			default:
+				columns[i] = new Object[capacity];
+			}
+		}
+		this.hashes = new int[capacity];
+		initSlots(capacity * 2);
+	}
+	
+	private void initSlots(int capacity) {
+		this.slots = new int[capacity];
+		this.mask = capacity - 1;
+		this.threshold = (int)(capacity * LOAD_FACTOR);
+	}
+	
+	static int hash(List<?> tuple, int keyCount) {
+		int result = 1;
+		for (int i = 0; i < keyCount; i++) {
+			result = 31 * result + Constant.hashValue(tuple.get(i));
+		}
+		return result;
+	}
+	
+	private static int slot(int hash) {
+		int h = hash * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+	
+	/**
+	 * @return the group for the key values of the tuple, or -1 if the group does not exist
+	 */
+	int find(List<?> tuple, int hash) {
+		int index = slot(hash) & mask;
+		while (true) {
+			int group = slots[index] - 1;
+			if (group == -1) {
+				return -1;
+			}
+			if (hashes[group] == hash) {
+				probeRow.group = group;
+				if (MergeJoinStrategy.compareTuples(tuple, probeRow, keyIndexes, keyIndexes, true, false) == 0) {
+					return group;
+				}
+			}
+			index = (index + 1) & mask;
+		}
+	}
+	
+	/**
+	 * Add a new group with the key values of the tuple.  The state values are initially null.
+	 * @return the new group
+	 */
+	int add(List<?> tuple, int hash) {
+		int group = size++;
+		if (group == hashes.length) {
+			grow();
+		}
+		hashes[group] = hash;
+		for (int i = 0; i < keyCount; i++) {
+			setValue(group, i, tuple.get(i));
+		}
+		for (int i = keyCount; i < columnCount; i++) {
+			nulls[i].set(group);
+		}
+		if (size > threshold) {
+			initSlots(slots.length << 1);
+			for (int i = 0; i < size - 1; i++) {
+				insertSlot(i);
+			}
+		}
+		insertSlot(group);
+		return group;
+	}
+
+	private void insertSlot(int group) {
+		int index = slot(hashes[group]) & mask;
+		while (slots[index] != 0) {
+			index = (index + 1) & mask;
+		}
+		slots[index] = group + 1;
+	}
+	
+	private void grow() {
+		int capacity = hashes.length << 1;
+		this.hashes = Arrays.copyOf(hashes, capacity);
+		for (int i = 0; i < columnCount; i++) {
+			Object column = columns[i];
+			if (column instanceof long[]) {
+				columns[i] = Arrays.copyOf((long[])column, capacity);
+			} else if (column instanceof double[]) {
+				columns[i] = Arrays.copyOf((double[])column, capacity);
+			} else {
+				columns[i] = Arrays.copyOf((Object[])column, capacity);
+			}
+		}
+	}
+	
+	/**
+	 * Set the state values of the group from the values starting at keyCount in the given list 
+	 */
+	void setState(int group, List<?> values) {
+		for (int i = keyCount; i < columnCount; i++) {
+			setValue(group, i, values.get(i));
+		}
+	}
+	
+	private void setValue(int group, int col, Object value) {
+		if (value == null) {
+			nulls[col].set(group);
+			return;
+		}
+		nulls[col].clear(group);
+		switch (kinds[col]) {
+		case INTEGER:
+		case LONG:
+			((long[])columns[col])[group] = ((Number)value).longValue();
+			break;
+		case DOUBLE:
+			((double[])columns[col])[group] = (Double)value;
+			break;
+		default:
+			((Object[])columns[col])[group] = value;
+		}
+	}
+	
+	private Object getValue(int group, int col) {
+		if (nulls[col].get(group)) {
+			return null;
+		}
+		switch (kinds[col]) {
+		case INTEGER:
+			return (int)((long[])columns[col])[group];
+		case LONG:
+			return ((long[])columns[col])[group];
+		case DOUBLE:
+			return ((double[])columns[col])[group];
+		default:
+			return ((Object[])columns[col])[group];
+		}
+	}
+	
+	/**
+	 * @return a read only view of the key and state values of the group
+	 */
+	List<?> getRow(int group) {
+		GroupRow row = new GroupRow();
+		row.group = group;
+		return row;
+	}
+	
+	int size() {
+		return size;
+	}
+
+}
@@ -25,6 +25,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
@@ -34,6 +35,8 @@ import org.teiid.api.exception.query.FunctionExecutionException;
 import org.teiid.client.plan.PlanNode;
 import org.teiid.common.buffer.BlockedException;
 import org.teiid.common.buffer.BufferManager;
+import org.teiid.common.buffer.BufferManager.BufferReserveMode;
+import org.teiid.common.buffer.BufferManager.TupleSourceType;
 import org.teiid.common.buffer.STree;
 import org.teiid.common.buffer.STree.InsertMode;
 import org.teiid.common.buffer.TupleBatch;
@@ -44,6 +47,9 @@ import org.teiid.core.TeiidProcessingException;
 import org.teiid.core.TeiidRuntimeException;
 import org.teiid.core.types.DataTypeManager;
 import org.teiid.language.SortSpecification.NullOrdering;
+import org.teiid.logging.LogConstants;
+import org.teiid.logging.LogManager;
+import org.teiid.logging.MessageLevel;
 import org.teiid.query.eval.Evaluator;
 import org.teiid.query.function.aggregate.*;
 import org.teiid.query.processor.BatchCollector;
@@ -55,6 +61,7 @@ import org.teiid.query.sql.lang.OrderBy;
 import org.teiid.query.sql.lang.OrderByItem;
 import org.teiid.query.sql.symbol.AggregateSymbol;
 import org.teiid.query.sql.symbol.AggregateSymbol.Type;
+import org.teiid.query.sql.symbol.Constant;
 import org.teiid.query.sql.symbol.ElementSymbol;
 import org.teiid.query.sql.symbol.Expression;
 import org.teiid.query.sql.symbol.TextLine;
@@ -105,10 +112,32 @@ public class GroupingNode extends SubqueryAwareRelationalNode {
 		}
 	}
 
+    private static class SpilledPartition {
+    	TupleBuffer buffer;
+    	int level;
+    	
+    	SpilledPartition(TupleBuffer buffer, int level) {
+    		this.buffer = buffer;
+    		this.level = level;
+		}
+    }
+    
+    /**
+     * The number of hash bits used to choose a spill partition 
+     */
+    private static final int SPILL_BITS = 3;
+    private static final int SPILL_PARTITIONS = 1 << SPILL_BITS;
+    private static final int MAX_SPILL_LEVEL = 32 / SPILL_BITS;
+    /**
+     * The number of groups to reserve memory for at a time 
+     */
+    private static final int RESERVE_GROUPS = 1024;
+
 	// Grouping columns set by the planner 
 	private List<OrderByItem> orderBy;
 	private boolean removeDuplicates;
 	private SymbolMap outputMapping;
+	private boolean orderRequired = true;
     
     // Collection phase
     private int phase = COLLECTION;
@@ -132,12 +161,25 @@ public class GroupingNode extends SubqueryAwareRelationalNode {
     private int[] accumulatorStateCount;
     private TupleSource groupSortTupleSource;
     private int[] projection;
+    
+    // Group hash
+    private GroupHashTable hashTable;
+    private List<Class<?>> stateTypes;
+    private TupleBuffer[] spillPartitions;
+    private LinkedList<SpilledPartition> pendingPartitions = new LinkedList<SpilledPartition>();
+    private int hashLevel;
+    private int hashOutputIndex;
+    private int hashRowSize;
+    private int reservedGroups;
+    private int reserved;
 
     private static final int COLLECTION = 1;
     private static final int SORT = 2;
     private static final int GROUP = 3;
     private static final int GROUP_SORT = 4;
     private static final int GROUP_SORT_OUTPUT = 5;
+    private static final int GROUP_HASH = 6;
+    private static final int GROUP_HASH_OUTPUT = 7;
 	private int[] indexes;
 	private boolean rollup;
 	private HashMap<Integer, Integer> indexMap;
@@ -157,6 +199,10 @@ public class GroupingNode extends SubqueryAwareRelationalNode {
         lastRow = null;
         currentGroupTuple = null;
         
+        hashTable = null;
+        hashLevel = 0;
+        hashOutputIndex = 0;
+        
         if (this.functions != null) {
 	    	for (AggregateFunction[] functions : this.functions) {
 	    		for (AggregateFunction function : functions) {
@@ -177,6 +223,14 @@ public class GroupingNode extends SubqueryAwareRelationalNode {
     public void setOutputMapping(SymbolMap outputMapping) {
 		this.outputMapping = outputMapping;
 	}
+    
+    /**
+     * @param orderRequired true if the output must be ordered by the grouping columns.
+     * If false the grouping may be performed via hashing.
+     */
+    public void setOrderRequired(boolean orderRequired) {
+		this.orderRequired = orderRequired;
+	}
 
 	@Override
 	public void initialize(CommandContext context, BufferManager bufferManager,
@@ -381,6 +435,16 @@ public class GroupingNode extends SubqueryAwareRelationalNode {
         	return groupSortOutputPhase();
         }
         
+        while (this.phase == GROUP_HASH || this.phase == GROUP_HASH_OUTPUT) {
+        	if (this.phase == GROUP_HASH) {
+        		groupHashPhase();
+        	}
+        	TupleBatch batch = groupHashOutputPhase();
+        	if (batch != null) {
+        		return batch;
+        	}
+        }
+        
         this.terminateBatches();
         return pullBatch();
     }
@@ -474,6 +538,17 @@ public class GroupingNode extends SubqueryAwareRelationalNode {
 			    		schema.add(es);
 		    		}
 		    		
+		    		if (!orderRequired && getContext().getOptions().isHashAggregation() 
+		    				&& Constant.isHashConsistent(schema.subList(0, orderBy.size()))) {
+		    			//no need to sort, just hash the groups
+		    			this.stateTypes = allTypes;
+		    			this.hashRowSize = Math.max(1, getBufferManager().getSchemaSize(schema)/Math.max(1, getBufferManager().getProcessorBatchSize(schema)));
+		    			this.hashTable = new GroupHashTable(orderBy.size(), allTypes, getBatchSize());
+		    			this.groupSortTupleSource = this.getGroupSortTupleSource();
+		    			this.phase = GROUP_HASH;
+		    			return;
+		    		}
+		    		
 		    		tree = this.getBufferManager().createSTree(schema, this.getConnectionID(), orderBy.size());
 		    		//non-default order needs to update the comparator
 		    		tree.getComparator().setNullOrdering(nullOrdering);
@@ -562,6 +637,151 @@ public class GroupingNode extends SubqueryAwareRelationalNode {
 		return pullBatch();
 	}
 
+    /**
+     * Process the input into the hash table.  Once memory can no longer be reserved
+     * the rows for new groups are spilled into partitions based upon the hash of the group, which 
+     * are processed in turn after the in memory groups are output.
+     * @throws TeiidComponentException
+     * @throws TeiidProcessingException
+     */
+	private void groupHashPhase() throws TeiidComponentException, TeiidProcessingException {
+		List<?> tuple = null;
+		int keyCount = orderBy.size();
+		List<Object> accumulated = new ArrayList<Object>(keyCount + stateTypes.size());
+		while ((tuple = groupSortTupleSource.nextTuple()) != null) {
+			int hash = GroupHashTable.hash(tuple, keyCount);
+			int group = hashTable.find(tuple, hash);
+			boolean update = true;
+			if (group == -1) {
+				if (spillPartitions != null) {
+					spillPartitions[getSpillPartition(hash)].addTuple(tuple);
+					continue;
+				}
+				group = hashTable.add(tuple, hash);
+				update = false;
+				if (hashTable.size() > reservedGroups) {
+					reserveGroups();
+				}
+			}
+			List<?> current = hashTable.getRow(group);
+			accumulated.clear();
+			for (int i = 0; i < keyCount; i++) {
+				accumulated.add(null);
+			}
+			int index = keyCount;
+			for (int i = 0; i < this.groupSortfunctions.length; i++) {
+				AggregateFunction aggregateFunction = this.groupSortfunctions[i];
+				if (update) {
+					aggregateFunction.setState(current, index);
+				} else {
+					aggregateFunction.reset();
+				}
+				index+=this.accumulatorStateCount[i];
+				aggregateFunction.addInput(tuple, getContext());
+				aggregateFunction.getState(accumulated);
+			}
+			hashTable.setState(group, accumulated);
+		}
+		this.groupSortTupleSource.closeSource();
+		this.groupSortTupleSource = null;
+		if (spillPartitions != null) {
+			for (TupleBuffer tb : spillPartitions) {
+				tb.close();
+				if (tb.getRowCount() == 0) {
+					tb.remove();
+				} else {
+					this.pendingPartitions.add(new SpilledPartition(tb, hashLevel + 1));
+				}
+			}
+			spillPartitions = null;
+		}
+		this.hashOutputIndex = 0;
+		this.phase = GROUP_HASH_OUTPUT;
+	}
+
+	/**
+	 * Reserve memory for additional groups.  If the reservation is not granted start spilling.
+	 */
+	private void reserveGroups() throws TeiidComponentException {
+		BufferManager bm = getBufferManager();
+		int toReserve = (int)Math.min(Integer.MAX_VALUE, (long)RESERVE_GROUPS * hashRowSize);
+		int available = 0;
+		if ((long)reserved + toReserve <= bm.getMaxProcessingSize()) {
+			available = bm.reserveBuffers(toReserve, BufferReserveMode.FORCE);
+		} else {
+			available = bm.reserveBuffers(toReserve, BufferReserveMode.NO_WAIT);
+		}
+		this.reserved += available;
+		this.reservedGroups += RESERVE_GROUPS;
+		if (available >= toReserve || hashLevel >= MAX_SPILL_LEVEL - 1) {
+			return;
+		}
+		if (LogManager.isMessageToBeRecorded(LogConstants.CTX_DQP, MessageLevel.DETAIL)) {
+			LogManager.logDetail(LogConstants.CTX_DQP, "hash aggregation spilling new groups after", hashTable.size(), "groups at level", hashLevel, getID()); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		List<Expression> schema = new ArrayList<Expression>(collectedExpressions.keySet());
+		this.spillPartitions = new TupleBuffer[SPILL_PARTITIONS];
+		for (int i = 0; i < SPILL_PARTITIONS; i++) {
+			this.spillPartitions[i] = bm.createTupleBuffer(schema, getConnectionID(), TupleSourceType.PROCESSOR);
+			this.spillPartitions[i].setForwardOnly(true);
+		}
+	}
+	
+	/**
+	 * Use successive high order bits of a mixed hash for each level, the hash table 
+	 * uses a different mixing of the hash.
+	 */
+	private int getSpillPartition(int hash) {
+		return ((hash * 0x85EBCA6B) >>> (32 - SPILL_BITS * (hashLevel + 1))) & (SPILL_PARTITIONS - 1);
+	}
+	
+	/**
+	 * Output the in memory groups, then move onto the next spilled partition if one exists.
+	 * @return the next batch, or null if there is a spilled partition to process
+	 */
+	private TupleBatch groupHashOutputPhase() throws FunctionExecutionException, ExpressionEvaluationException, TeiidComponentException, TeiidProcessingException {
+		int size = orderBy.size();
+		List<Object> vals = Arrays.asList(new Object[size + groupSortfunctions.length]);
+		while (hashOutputIndex < hashTable.size()) {
+			List<?> tuple = hashTable.getRow(hashOutputIndex);
+			for (int i = 0; i < size; i++) {
+				vals.set(i, tuple.get(i));
+			}
+			int index = size;
+			for (int i = 0; i < this.groupSortfunctions.length; i++) {
+				AggregateFunction aggregateFunction = this.groupSortfunctions[i];
+				aggregateFunction.setState(tuple, index);
+				index+=this.accumulatorStateCount[i];
+				vals.set(size + i, aggregateFunction.getResult(getContext()));
+			}
+			List<?> result = RelationalNode.projectTuple(projection, vals);
+			addBatchRow(result);
+			hashOutputIndex++;
+			if (isBatchFull()) {
+				return pullBatch();
+			}
+		}
+		releaseHashReserve();
+		SpilledPartition partition = this.pendingPartitions.poll();
+		if (partition != null) {
+			this.hashLevel = partition.level;
+			this.hashTable = new GroupHashTable(size, stateTypes, getBatchSize());
+			this.groupSortTupleSource = partition.buffer.createIndexedTupleSource(true);
+			this.phase = GROUP_HASH;
+			return null;
+		}
+		terminateBatches();
+		return pullBatch();
+	}
+	
+	private void releaseHashReserve() {
+		if (this.reserved > 0) {
+			getBufferManager().releaseBuffers(this.reserved);
+			this.reserved = 0;
+		}
+		this.reservedGroups = 0;
+	}
+
     private void sortPhase() throws BlockedException, TeiidComponentException, TeiidProcessingException {
         this.sortBuffer = this.sortUtility.sort();
         this.sortBuffer.setForwardOnly(true);
@@ -685,6 +905,24 @@ public class GroupingNode extends SubqueryAwareRelationalNode {
     		this.tree.remove();
     		this.tree = null;
     	}
+    	if (this.spillPartitions != null) {
+    		for (TupleBuffer tb : this.spillPartitions) {
+    			tb.remove();
+    		}
+    		this.spillPartitions = null;
+    	}
+    	for (SpilledPartition partition : this.pendingPartitions) {
+    		partition.buffer.remove();
+    	}
+    	this.pendingPartitions.clear();
+    	if (this.hashTable != null) {
+    		if (this.groupSortTupleSource != null) {
+    			this.groupSortTupleSource.closeSource();
+    			this.groupSortTupleSource = null;
+    		}
+    		this.hashTable = null;
+    	}
+    	releaseHashReserve();
     }
 
 	protected void getNodeString(StringBuffer str) {
@@ -702,6 +940,7 @@ public class GroupingNode extends SubqueryAwareRelationalNode {
 		clonedNode.outputMapping = outputMapping;
 		clonedNode.orderBy = orderBy;
 		clonedNode.rollup = rollup;
+		clonedNode.orderRequired = orderRequired;
 		return clonedNode;
 	}
 
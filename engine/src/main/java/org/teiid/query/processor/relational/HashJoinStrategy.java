@@ -0,0 +1,515 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.teiid.query.processor.relational;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.teiid.common.buffer.BufferManager;
+import org.teiid.common.buffer.BufferManager.BufferReserveMode;
+import org.teiid.common.buffer.BufferManager.TupleSourceType;
+import org.teiid.common.buffer.TupleBuffer;
+import org.teiid.common.buffer.TupleSource;
+import org.teiid.core.TeiidComponentException;
+import org.teiid.core.TeiidProcessingException;
+import org.teiid.logging.LogConstants;
+import org.teiid.logging.LogManager;
+import org.teiid.logging.MessageLevel;
+import org.teiid.query.processor.relational.SourceState.ImplicitBuffer;
+import org.teiid.query.sql.lang.JoinType;
+import org.teiid.query.sql.symbol.Constant;
+
+
+/**
+ * A hash join for inner and left outer equi-joins that does not require either side to be sorted.
+ * 
+ * The smaller side (always the right side for a left outer join) is fully buffered and used to build 
+ * an in memory hash table.  The other side is then streamed against the table.
+ * 
+ * If the build side will not fit in the memory that can be reserved, then both sides are partitioned by 
+ * the hash of the join expressions into {@link TupleBuffer}s - which may spill to storage - 
+ * and the partitions are then joined pairwise.  A build partition that is still too large, 
+ * typically due to skew, is recursively partitioned using other bits of the hash up to {@link #MAX_LEVELS}.  
+ * If a pass does not reduce the partition, then all of its rows share a single key and it is loaded as is.
+ */
+public class HashJoinStrategy extends JoinStrategy {
+	
+	private enum State {
+		PARTITION, PROBE, DONE
+	}
+	
+	/**
+	 * The maximum number of partitions to use for a single pass
+	 */
+	static final int MAX_PARTITIONS = 256;
+	
+	/**
+	 * The maximum number of times a partition will be split - each level uses a different 8 bits of the hash
+	 */
+	static final int MAX_LEVELS = 3;
+	
+	/**
+	 * A pair of build and probe buffers that will be joined
+	 */
+	static final class Partition {
+		TupleBuffer build;
+		TupleBuffer probe;
+		int level;
+		
+		Partition(TupleBuffer build, TupleBuffer probe, int level) {
+			this.build = build;
+			this.probe = probe;
+			this.level = level;
+		}
+		
+		void remove() {
+			this.build.remove();
+			this.probe.remove();
+		}
+	}
+	
+	/**
+	 * Wraps a tuple so that its join expression values can be used as a hash key.
+	 * Equality is consistent with the comparison used by the merge join.
+	 */
+	static final class HashKey {
+		private List<?> tuple;
+		private int[] indexes;
+		private int hash;
+		
+		HashKey(List<?> tuple, int[] indexes, int hash) {
+			this.tuple = tuple;
+			this.indexes = indexes;
+			this.hash = hash;
+		}
+		
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if (obj == this) {
+				return true;
+			}
+			if (!(obj instanceof HashKey)) {
+				return false;
+			}
+			HashKey other = (HashKey)obj;
+			return other.hash == this.hash 
+					&& MergeJoinStrategy.compareTuples(this.tuple, other.tuple, this.indexes, other.indexes, false, false) == 0;
+		}
+	}
+	
+	private State state = State.PARTITION;
+	
+	private SourceState buildSource;
+	private SourceState probeSource;
+	private boolean buildLeft;
+	
+	private int partitionCount = 1;
+	private TupleBuffer[] buildPartitions;
+	private TupleBuffer[] probePartitions;
+	private LinkedList<Partition> partitions = new LinkedList<Partition>();
+	private Partition currentPartition;
+	private long partitionSpace;
+	private int rowSize;
+	private Map<HashKey, List<List<?>>> table;
+	
+	//probe state
+	private TupleSource currentSource;
+	private List<?> currentTuple;
+	private List<List<?>> matches;
+	private int matchIndex;
+	private boolean matched;
+
+	@Override
+	public void initialize(JoinNode joinNode) {
+		super.initialize(joinNode);
+		this.state = State.PARTITION;
+		this.partitionCount = 1;
+		this.currentPartition = null;
+	}
+	
+	@Override
+	public void close() {
+		if (joinNode == null) {
+			return;
+		}
+		try {
+			super.close();
+		} finally {
+			removePartitions(this.buildPartitions);
+			removePartitions(this.probePartitions);
+			this.buildPartitions = null;
+			this.probePartitions = null;
+			if (this.currentPartition != null) {
+				this.partitions.addFirst(this.currentPartition);
+				this.currentPartition = null;
+			}
+			for (Partition partition : this.partitions) {
+				partition.remove();
+			}
+			this.partitions.clear();
+			this.table = null;
+			this.matches = null;
+			this.currentTuple = null;
+			if (this.currentSource != null) {
+				this.currentSource.closeSource();
+				this.currentSource = null;
+			}
+			this.buildSource = null;
+			this.probeSource = null;
+		}
+	}
+
+	private static void removePartitions(TupleBuffer[] partitions) {
+		if (partitions == null) {
+			return;
+		}
+		for (TupleBuffer tb : partitions) {
+			if (tb != null) {
+				tb.remove();
+			}
+		}
+	}
+	
+	@Override
+	protected void loadLeft() throws TeiidComponentException,
+			TeiidProcessingException {
+		if (this.joinNode.isDependent()) {
+			this.leftSource.getTupleBuffer();
+		}
+	}
+	
+	@Override
+	protected void loadRight() throws TeiidComponentException,
+			TeiidProcessingException {
+		if (this.buildSource == null) {
+			this.buildLeft = shouldBuildLeft();
+			if (this.buildLeft) {
+				this.buildSource = this.leftSource;
+				this.probeSource = this.rightSource;
+			} else {
+				this.buildSource = this.rightSource;
+				this.probeSource = this.leftSource;
+			}
+		}
+		this.probeSource.setImplicitBuffer(ImplicitBuffer.NONE);
+		this.buildSource.getTupleBuffer();
+	}
+
+	/**
+	 * Use incremental row counts to choose the smaller side without fully buffering the larger.
+	 * Only inner joins may build off of the left side.
+	 */
+	private boolean shouldBuildLeft() throws TeiidComponentException, TeiidProcessingException {
+		if (this.joinNode.getJoinType() != JoinType.JOIN_INNER) {
+			return false;
+		}
+		long size = this.joinNode.getBatchSize();
+		while (true) {
+			if (this.rightSource.rowCountLE(size)) {
+				return false;
+			}
+			if (this.leftSource.rowCountLE(size)) {
+				return true;
+			}
+			size *= 2;
+		}
+	}
+	
+	/**
+	 * Reserve memory for the build side and determine the number of partitions needed.
+	 */
+	private void reserveAndPartition() throws TeiidComponentException, TeiidProcessingException {
+		BufferManager bm = this.joinNode.getBufferManager();
+		TupleBuffer buildBuffer = this.buildSource.getTupleBuffer();
+		this.rowSize = buildBuffer.getRowSizeEstimate();
+		if (this.rowSize <= 0) {
+			this.rowSize = Math.max(1, bm.getSchemaSize(this.buildSource.getSource().getElements())/Math.max(1, buildBuffer.getBatchSize()));
+		}
+		long memorySpaceNeeded = buildBuffer.getRowCount() * rowSize;
+		int toReserve = (int)Math.min(memorySpaceNeeded, Integer.MAX_VALUE);
+		int available = bm.reserveBuffers(Math.min(bm.getMaxProcessingSize(), toReserve), BufferReserveMode.FORCE);
+		if (available < toReserve) {
+			available += bm.reserveBuffers(toReserve - available, BufferReserveMode.NO_WAIT);
+		}
+		this.reserved += available;
+		this.partitionSpace = Math.max(1, available);
+		while (this.partitionCount < MAX_PARTITIONS && (long)available * this.partitionCount < memorySpaceNeeded) {
+			this.partitionCount <<= 1;
+		}
+		if (this.partitionCount == 1) {
+			this.table = buildTable(buildBuffer.createIndexedTupleSource(), buildBuffer.getRowCount());
+			this.probeSource.setImplicitBuffer(ImplicitBuffer.NONE);
+			this.currentSource = this.probeSource.getIterator();
+			this.state = State.PROBE;
+			return;
+		}
+		if (LogManager.isMessageToBeRecorded(LogConstants.CTX_DQP, MessageLevel.DETAIL)) {
+			LogManager.logDetail(LogConstants.CTX_DQP, "hash join partitioning into", this.partitionCount, "partitions", this.joinNode.getID()); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		this.buildPartitions = createPartitions(this.buildSource, this.partitionCount);
+		this.probePartitions = createPartitions(this.probeSource, this.partitionCount);
+		TupleSource ts = buildBuffer.createIndexedTupleSource();
+		int[] indexes = this.buildSource.getExpressionIndexes();
+		List<?> tuple = null;
+		while ((tuple = ts.nextTuple()) != null) {
+			if (hasNullKey(tuple, indexes)) {
+				continue;
+			}
+			this.buildPartitions[getPartition(hash(tuple, indexes), 0, this.partitionCount)].addTuple(tuple);
+		}
+		ts.closeSource();
+		for (TupleBuffer tb : this.buildPartitions) {
+			tb.close();
+		}
+		this.probeSource.setImplicitBuffer(ImplicitBuffer.NONE);
+		this.currentSource = this.probeSource.getIterator();
+	}
+
+	private TupleBuffer[] createPartitions(SourceState source, int count) throws TeiidComponentException {
+		TupleBuffer[] result = new TupleBuffer[count];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = source.createSourceTupleBuffer();
+			result[i].setForwardOnly(true);
+		}
+		return result;
+	}
+	
+	/**
+	 * Stream the probe side into its partitions.  Safe to resume after a {@link org.teiid.common.buffer.BlockedException}
+	 */
+	private void partitionProbe() throws TeiidComponentException, TeiidProcessingException {
+		int[] indexes = this.probeSource.getExpressionIndexes();
+		List<?> tuple = null;
+		while ((tuple = this.currentSource.nextTuple()) != null) {
+			if (hasNullKey(tuple, indexes)) {
+				if (this.joinNode.getJoinType() == JoinType.JOIN_LEFT_OUTER) {
+					//can't match, but still must be output
+					this.probePartitions[0].addTuple(tuple);
+				}
+				continue;
+			}
+			this.probePartitions[getPartition(hash(tuple, indexes), 0, this.partitionCount)].addTuple(tuple);
+		}
+		this.currentSource = null;
+		for (int i = 0; i < this.partitionCount; i++) {
+			this.probePartitions[i].close();
+			this.partitions.add(new Partition(this.buildPartitions[i], this.probePartitions[i], 0));
+		}
+		this.buildPartitions = null;
+		this.probePartitions = null;
+	}
+	
+	private boolean nextPartition() throws TeiidComponentException, TeiidProcessingException {
+		if (this.currentPartition != null) {
+			this.currentSource.closeSource();
+			this.currentPartition.remove();
+			this.currentPartition = null;
+		}
+		while (!this.partitions.isEmpty()) {
+			Partition partition = this.partitions.removeFirst();
+			this.currentPartition = partition;
+			if (partition.level < MAX_LEVELS && partition.build.getRowCount() * this.rowSize > this.partitionSpace) {
+				split(partition);
+				partition.remove();
+				this.currentPartition = null;
+				continue;
+			}
+			this.table = buildTable(partition.build.createIndexedTupleSource(true), partition.build.getRowCount());
+			this.currentSource = partition.probe.createIndexedTupleSource(true);
+			return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * Split a partition that is too large to build in memory into sub-partitions, 
+	 * which are processed before the remaining partitions.
+	 */
+	private void split(Partition partition) throws TeiidComponentException, TeiidProcessingException {
+		long rowCount = partition.build.getRowCount();
+		int count = 2;
+		while (count < MAX_PARTITIONS && count * this.partitionSpace < rowCount * this.rowSize) {
+			count <<= 1;
+		}
+		int level = partition.level + 1;
+		if (LogManager.isMessageToBeRecorded(LogConstants.CTX_DQP, MessageLevel.DETAIL)) {
+			LogManager.logDetail(LogConstants.CTX_DQP, "hash join repartitioning", rowCount, "rows into", count, "partitions at level", level, this.joinNode.getID()); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+		Partition[] result = new Partition[count];
+		TupleBuffer[] builds = createPartitions(this.buildSource, count);
+		TupleBuffer[] probes = createPartitions(this.probeSource, count);
+		for (int i = count - 1; i >= 0; i--) {
+			result[i] = new Partition(builds[i], probes[i], level);
+			//track the new partitions so that they will be removed on close
+			this.partitions.addFirst(result[i]);
+		}
+		splitBuffer(partition.build, this.buildSource.getExpressionIndexes(), builds, level);
+		splitBuffer(partition.probe, this.probeSource.getExpressionIndexes(), probes, level);
+		for (Partition sub : result) {
+			if (sub.build.getRowCount() == rowCount) {
+				//no reduction - all rows have the same key
+				sub.level = MAX_LEVELS;
+			}
+		}
+	}
+	
+	private void splitBuffer(TupleBuffer source, int[] indexes, TupleBuffer[] targets, int level) throws TeiidComponentException, TeiidProcessingException {
+		TupleSource ts = source.createIndexedTupleSource(true);
+		List<?> tuple = null;
+		while ((tuple = ts.nextTuple()) != null) {
+			if (hasNullKey(tuple, indexes)) {
+				//left outer probe tuples without a key
+				targets[0].addTuple(tuple);
+				continue;
+			}
+			targets[getPartition(hash(tuple, indexes), level, targets.length)].addTuple(tuple);
+		}
+		ts.closeSource();
+		for (TupleBuffer tb : targets) {
+			tb.close();
+		}
+	}
+
+	private Map<HashKey, List<List<?>>> buildTable(TupleSource ts, long rowCount) throws TeiidComponentException, TeiidProcessingException {
+		int[] indexes = this.buildSource.getExpressionIndexes();
+		Map<HashKey, List<List<?>>> result = new HashMap<HashKey, List<List<?>>>((int)Math.min(Integer.MAX_VALUE >> 1, rowCount * 4 / 3 + 1));
+		List<?> tuple = null;
+		while ((tuple = ts.nextTuple()) != null) {
+			if (hasNullKey(tuple, indexes)) {
+				continue;
+			}
+			HashKey key = new HashKey(tuple, indexes, hash(tuple, indexes));
+			List<List<?>> values = result.get(key);
+			if (values == null) {
+				values = new ArrayList<List<?>>(this.buildSource.isExpresssionDistinct()?1:2);
+				result.put(key, values);
+			}
+			values.add(tuple);
+		}
+		ts.closeSource();
+		return result;
+	}
+	
+	@Override
+	protected void process() throws TeiidComponentException,
+			TeiidProcessingException {
+		if (this.state == State.PARTITION) {
+			if (this.currentSource == null) {
+				reserveAndPartition();
+			}
+			if (this.state == State.PARTITION) {
+				partitionProbe();
+				this.state = State.PROBE;
+				if (!nextPartition()) {
+					this.state = State.DONE;
+				}
+			}
+		}
+		while (this.state == State.PROBE) {
+			probe();
+			if (this.partitionCount == 1 || !nextPartition()) {
+				this.state = State.DONE;
+			}
+		}
+	}
+
+	/**
+	 * Probe the current table with the current source.  Safe to resume after a 
+	 * {@link org.teiid.common.buffer.BlockedException} or when the output batch is full.
+	 */
+	private void probe() throws TeiidComponentException, TeiidProcessingException {
+		int[] indexes = this.probeSource.getExpressionIndexes();
+		while (true) {
+			if (this.currentTuple == null) {
+				this.currentTuple = this.currentSource.nextTuple();
+				if (this.currentTuple == null) {
+					return;
+				}
+				this.matched = false;
+				this.matchIndex = 0;
+				this.matches = null;
+				if (!hasNullKey(this.currentTuple, indexes)) {
+					this.matches = this.table.get(new HashKey(this.currentTuple, indexes, hash(this.currentTuple, indexes)));
+				}
+			}
+			if (this.matches != null && this.matchIndex < this.matches.size()) {
+				List<?> buildTuple = this.matches.get(this.matchIndex);
+				List outputTuple = this.buildLeft?outputTuple(buildTuple, this.currentTuple):outputTuple(this.currentTuple, buildTuple);
+				boolean match = this.joinNode.matchesCriteria(outputTuple);
+				this.matchIndex++;
+				if (match) {
+					this.matched = true;
+					this.joinNode.addBatchRow(outputTuple);
+				}
+				continue;
+			}
+			List<?> tuple = this.currentTuple;
+			this.currentTuple = null;
+			if (!this.matched && this.joinNode.getJoinType() == JoinType.JOIN_LEFT_OUTER) {
+				this.joinNode.addBatchRow(outputTuple(tuple, this.rightSource.getOuterVals()));
+			}
+		}
+	}
+	
+	static int getPartition(int hash, int level, int count) {
+		//use the high order bits of a mixed hash, the hash map will use the low order bits
+		//each level rotates in the next 8 bits so that a split partition is divided by different bits
+		return Integer.rotateLeft(hash * 0x9E3779B9, level << 3) >>> (32 - Integer.numberOfTrailingZeros(count));
+	}
+	
+	static boolean hasNullKey(List<?> tuple, int[] indexes) {
+		for (int i : indexes) {
+			if (tuple.get(i) == null) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	static int hash(List<?> tuple, int[] indexes) {
+		int result = 1;
+		for (int i : indexes) {
+			result = 31 * result + Constant.hashValue(tuple.get(i));
+		}
+		return result;
+	}
+
+	@Override
+	public HashJoinStrategy clone() {
+		return new HashJoinStrategy();
+	}
+	
+	@Override
+	public String toString() {
+		if (this.partitionCount > 1) {
+			return "HASH JOIN RAN AS PARTITIONED (" + this.partitionCount + ")"; //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		return "HASH JOIN"; //$NON-NLS-1$
+	}
+
+}
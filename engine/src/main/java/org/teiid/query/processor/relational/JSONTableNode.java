@@ -0,0 +1,548 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.teiid.query.processor.relational;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.teiid.api.exception.query.ExpressionEvaluationException;
+import org.teiid.client.plan.PlanNode;
+import org.teiid.common.buffer.BlockedException;
+import org.teiid.common.buffer.BufferManager;
+import org.teiid.common.buffer.TupleBatch;
+import org.teiid.core.TeiidComponentException;
+import org.teiid.core.TeiidProcessingException;
+import org.teiid.core.TeiidRuntimeException;
+import org.teiid.core.types.BlobType;
+import org.teiid.core.types.ClobImpl;
+import org.teiid.core.types.ClobType;
+import org.teiid.core.types.DataTypeManager;
+import org.teiid.core.types.TransformationException;
+import org.teiid.dqp.internal.process.RequestWorkItem;
+import org.teiid.json.simple.ContentHandler;
+import org.teiid.json.simple.JSONParser;
+import org.teiid.json.simple.ParseException;
+import org.teiid.query.QueryPlugin;
+import org.teiid.query.analysis.AnalysisRecord;
+import org.teiid.query.function.source.XMLSystemFunctions;
+import org.teiid.query.processor.ProcessorDataManager;
+import org.teiid.query.sql.LanguageObject;
+import org.teiid.query.sql.lang.JSONTable;
+import org.teiid.query.sql.lang.JSONTable.JSONColumn;
+import org.teiid.query.sql.symbol.Expression;
+import org.teiid.query.util.CommandContext;
+import org.teiid.query.util.JSONPath;
+
+/**
+ * Handles JSONTABLE processing.
+ * <br>
+ * The document is read with the pull style {@link JSONParser} - parsing is paused whenever 
+ * rows are available so that only the values of the current row, and only for the 
+ * projected columns, are held in memory.  Object or array values selected by a column
+ * are returned as JSON text.
+ */
+public class JSONTableNode extends SubqueryAwareRelationalNode {
+	
+	private JSONTable table;
+	
+	//initialized state
+	private List<JSONColumn> projectedColumns;
+	
+	//per document state
+	private Reader reader;
+	private JSONParser parser;
+	private RowHandler handler;
+	private String systemId;
+	private long rowNumber;
+	
+	private volatile boolean running;
+	private volatile TeiidRuntimeException asynchException;
+
+	private int limit = -1;
+	
+	/**
+	 * Tracks the parser position and collects the projected values of matching rows 
+	 */
+	private final class RowHandler implements ContentHandler {
+		
+		private List<JSONPath.Step> rowSteps = table.getRowPathExpression().getSteps();
+		
+		//position state
+		private boolean[] arrays = new boolean[8];
+		private String[] keys = new String[8];
+		private int[] indexes = new int[8];
+		private int depth;
+		
+		//row state
+		private int rowDepth = -1;
+		private Object[] row;
+		private List<Capture> captures = new ArrayList<Capture>(2);
+		private ArrayDeque<Object[]> rows = new ArrayDeque<Object[]>();
+		private boolean done;
+		
+		@Override
+		public void startJSON() throws ParseException, IOException {
+			
+		}
+		
+		@Override
+		public void endJSON() throws ParseException, IOException {
+			done = true;
+		}
+		
+		@Override
+		public boolean startObject() throws ParseException, IOException {
+			startValue(false);
+			for (Capture capture : captures) {
+				capture.beforeValue();
+				capture.value.write('{');
+				capture.first = true;
+			}
+			push(false);
+			return rows.isEmpty();
+		}
+		
+		@Override
+		public boolean endObject() throws ParseException, IOException {
+			return endValue('}');
+		}
+		
+		@Override
+		public boolean startArray() throws ParseException, IOException {
+			startValue(false);
+			for (Capture capture : captures) {
+				capture.beforeValue();
+				capture.value.write('[');
+				capture.first = true;
+			}
+			push(true);
+			return rows.isEmpty();
+		}
+		
+		@Override
+		public boolean endArray() throws ParseException, IOException {
+			return endValue(']');
+		}
+		
+		@Override
+		public boolean startObjectEntry(String key) throws ParseException,
+				IOException {
+			keys[depth - 1] = key;
+			for (Capture capture : captures) {
+				capture.key(key);
+			}
+			return rows.isEmpty();
+		}
+		
+		@Override
+		public boolean endObjectEntry() throws ParseException, IOException {
+			return rows.isEmpty();
+		}
+		
+		@Override
+		public boolean primitive(Object value) throws ParseException,
+				IOException {
+			List<Integer> matches = startValue(true);
+			if (matches != null) {
+				for (Integer column : matches) {
+					row[column] = value;
+				}
+			}
+			for (Capture capture : captures) {
+				capture.beforeValue();
+				if (value instanceof String) {
+					capture.value.write('"');
+					JSONParser.escape((String)value, capture.value);
+					capture.value.write('"');
+				} else {
+					capture.value.write(String.valueOf(value));
+				}
+			}
+			if (row != null && depth == rowDepth) {
+				endRow();
+			}
+			return rows.isEmpty();
+		}
+		
+		/**
+		 * Called prior to each value to update the position and start
+		 * rows and column captures
+		 * @return the matching columns for a primitive value
+		 */
+		private List<Integer> startValue(boolean primitive) {
+			if (depth > 0 && arrays[depth - 1]) {
+				indexes[depth - 1]++;
+			}
+			if (row == null) {
+				if (depth != rowSteps.size() || !matches(rowSteps, 0)) {
+					return null;
+				}
+				rowDepth = depth;
+				row = new Object[projectedColumns.size()];
+			}
+			List<Integer> result = null;
+			int relativeDepth = depth - rowDepth;
+			for (int i = 0; i < projectedColumns.size(); i++) {
+				JSONColumn column = projectedColumns.get(i);
+				if (column.isOrdinal()) {
+					continue;
+				}
+				List<JSONPath.Step> steps = column.getPathExpression().getSteps();
+				if (steps.size() != relativeDepth || !matches(steps, rowDepth)) {
+					continue;
+				}
+				if (!primitive) {
+					captures.add(new Capture(i, depth));
+				} else {
+					if (result == null) {
+						result = new ArrayList<Integer>(2);
+					}
+					result.add(i);
+				}
+			}
+			return result;
+		}
+
+		private boolean matches(List<JSONPath.Step> steps, int offset) {
+			for (int i = 0; i < steps.size(); i++) {
+				int frame = i + offset;
+				if (!steps.get(i).matches(arrays[frame], keys[frame], indexes[frame])) {
+					return false;
+				}
+			}
+			return true;
+		}
+		
+		private void push(boolean array) {
+			if (depth == arrays.length) {
+				arrays = Arrays.copyOf(arrays, depth * 2);
+				keys = Arrays.copyOf(keys, depth * 2);
+				indexes = Arrays.copyOf(indexes, depth * 2);
+			}
+			arrays[depth] = array;
+			keys[depth] = null;
+			indexes[depth] = -1;
+			depth++;
+		}
+		
+		private boolean endValue(char c) {
+			depth--;
+			for (Iterator<Capture> iter = captures.iterator(); iter.hasNext();) {
+				Capture capture = iter.next();
+				capture.value.write(c);
+				capture.first = false;
+				if (capture.depth == depth) {
+					row[capture.column] = capture.value.toString();
+					iter.remove();
+				}
+			}
+			if (row != null && depth == rowDepth) {
+				endRow();
+			}
+			return rows.isEmpty();
+		}
+
+		private void endRow() {
+			rows.add(row);
+			row = null;
+			rowDepth = -1;
+		}
+		
+	}
+	
+	/**
+	 * Accumulates the JSON text of an object or array column value 
+	 */
+	private static class Capture {
+		int column;
+		int depth;
+		StringWriter value = new StringWriter();
+		boolean first = true;
+		boolean afterKey;
+		
+		public Capture(int column, int depth) {
+			this.column = column;
+			this.depth = depth;
+		}
+		
+		void beforeValue() {
+			if (afterKey) {
+				afterKey = false;
+			} else if (!first) {
+				value.write(',');
+			}
+			first = false;
+		}
+		
+		void key(String key) throws IOException {
+			if (!first) {
+				value.write(',');
+			}
+			value.write('"');
+			JSONParser.escape(key, value);
+			value.write("\":"); //$NON-NLS-1$
+			first = false;
+			afterKey = true;
+		}
+	}
+	
+	public JSONTableNode(int nodeID) {
+		super(nodeID);
+	}
+	
+	@Override
+	public void initialize(CommandContext context, BufferManager bufferManager,
+			ProcessorDataManager dataMgr) {
+		super.initialize(context, bufferManager, dataMgr);
+		if (projectedColumns != null) {
+			return;
+		}
+        Map<Expression, Integer> elementMap = createLookupMap(table.getProjectedSymbols());
+        int[] projectionIndexes = getProjectionIndexes(elementMap, getElements());
+        projectedColumns = new ArrayList<JSONColumn>(projectionIndexes.length);
+        for (int index : projectionIndexes) {
+			projectedColumns.add(table.getColumns().get(index));
+		}
+	}
+	
+	@Override
+	public void closeDirect() {
+		super.closeDirect();
+		reset();
+	}
+	
+	@Override
+	public void reset() {
+		super.reset();
+		if (this.reader != null) {
+			try {
+				this.reader.close();
+			} catch (IOException e) {
+			}
+			this.reader = null;
+		}
+		this.parser = null;
+		this.handler = null;
+		this.rowNumber = 0;
+		this.running = false;
+		this.asynchException = null;
+		this.limit = -1;
+	}
+	
+	public void setTable(JSONTable table) {
+		this.table = table;
+	}
+
+	@Override
+	public JSONTableNode clone() {
+		JSONTableNode clone = new JSONTableNode(getID());
+		this.copyTo(clone);
+		clone.setTable(table);
+		return clone;
+	}
+	
+	@Override
+	public void open() throws TeiidComponentException, TeiidProcessingException {
+		super.open();
+		if (getParent() instanceof LimitNode) {
+			LimitNode parent = (LimitNode)getParent();
+			if (parent.getLimit() > 0) {
+				limit = parent.getLimit() + parent.getOffset();
+			}
+		}
+	}
+
+	@Override
+	protected synchronized TupleBatch nextBatchDirect() throws BlockedException,
+			TeiidComponentException, TeiidProcessingException {
+		
+		if (reader == null) {
+			initReader();
+		}
+
+		if (reader == null) {
+			terminateBatches();
+			return pullBatch();
+		}
+		
+		if (isLastBatch()) {
+			return pullBatch();
+		}
+		
+		if (isBatchFull()) {
+			TupleBatch result = pullBatch();
+			processAsynch(); // read ahead
+			return result;
+		}
+		
+		unwrapException(asynchException);
+		
+		processAsynch();
+		
+		if (this.getContext().getWorkItem() == null) {
+			//this is for compatibility with engine tests that are below the level of using the work item
+			synchronized (this) {
+				while (running) {
+					try {
+						this.wait();
+					} catch (InterruptedException e) {
+						throw new TeiidRuntimeException(e);
+					}
+				}
+			}
+		}
+		
+		throw BlockedException.block("Blocking on results from json processing."); //$NON-NLS-1$
+	}
+
+	private void processAsynch() {
+		if (!running) {
+			running = true;
+			getContext().getExecutor().execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						process();
+					} catch (TeiidRuntimeException e) {
+						asynchException = e;
+					} catch (Throwable e) {
+						asynchException = new TeiidRuntimeException(e);
+					} finally {
+						running = false;
+						RequestWorkItem workItem = JSONTableNode.this.getContext().getWorkItem();
+						if (workItem != null) {
+							workItem.moreWork();
+						} else {
+							synchronized (JSONTableNode.this) {
+								JSONTableNode.this.notifyAll();
+							}
+						}
+					}
+				}
+			});
+		}
+	}
+
+	private void process() throws TeiidProcessingException {
+		while (true) {
+			synchronized (this) {
+				if (isBatchFull() || handler == null) {
+					return;
+				}
+				Object[] values = handler.rows.poll();
+				if (values == null) {
+					if (handler.done) {
+						terminateBatches();
+						break;
+					}
+					try {
+						parser.parse(reader, handler, true);
+					} catch (IOException e) {
+						throw new TeiidProcessingException(QueryPlugin.Event.TEIID31266, e, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID31266, systemId, e.getMessage()));
+					} catch (ParseException e) {
+						throw new TeiidProcessingException(QueryPlugin.Event.TEIID31266, e, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID31266, systemId, e.getMessage()));
+					}
+					continue;
+				}
+				
+				rowNumber++;
+				
+				List<Object> tuple = new ArrayList<Object>(projectedColumns.size());
+				for (int i = 0; i < projectedColumns.size(); i++) {
+					JSONColumn col = projectedColumns.get(i);
+					if (col.isOrdinal()) {
+						if (rowNumber > Integer.MAX_VALUE) {
+				    		throw new TeiidRuntimeException(new TeiidProcessingException(QueryPlugin.Event.TEIID31174, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID31174)));
+				    	}
+						tuple.add((int)rowNumber);
+						continue;
+					}
+					try {
+						tuple.add(DataTypeManager.transformValue(values[i], col.getSymbol().getType()));
+					} catch (TransformationException e) {
+						throw new TeiidProcessingException(QueryPlugin.Event.TEIID31267, e, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID31267, col.getName(), rowNumber));
+					}
+				}
+				addBatchRow(tuple);
+				
+				if (rowNumber == limit) {
+					terminateBatches();
+					break;
+				}
+			}
+		}
+	}
+
+	private void initReader() throws ExpressionEvaluationException,
+			BlockedException, TeiidComponentException, TeiidProcessingException {
+		
+		setReferenceValues(this.table);
+		Object value = getEvaluator(Collections.emptyMap()).evaluate(table.getJson(), null);
+		if (value == null) {
+			return;
+		}
+		
+		//get the reader
+		try {
+			this.systemId = "Unknown"; //$NON-NLS-1$
+			if (value instanceof BlobType) {
+				this.reader = XMLSystemFunctions.getJsonReader((BlobType)value);
+			} else {
+				ClobType json = (ClobType)value;
+				if (json.getReference() instanceof ClobImpl) {
+					this.systemId = ((ClobImpl)json.getReference()).getStreamFactory().getSystemId();
+					if (this.systemId == null) {
+						this.systemId = "Unknown"; //$NON-NLS-1$
+					}
+				}
+				this.reader = json.getCharacterStream();
+			}
+		} catch (SQLException e) {
+			 throw new TeiidProcessingException(QueryPlugin.Event.TEIID30180, e);
+		} catch (IOException e) {
+			 throw new TeiidProcessingException(QueryPlugin.Event.TEIID30180, e);
+		}
+		this.parser = new JSONParser();
+		this.handler = new RowHandler();
+	}
+	
+	@Override
+	public Collection<? extends LanguageObject> getObjects() {
+		return Arrays.asList(this.table.getJson());
+	}
+	
+	@Override
+	public PlanNode getDescriptionProperties() {
+		PlanNode props = super.getDescriptionProperties();
+        AnalysisRecord.addLanaguageObjects(props, AnalysisRecord.PROP_TABLE_FUNCTION, Arrays.asList(this.table));
+        return props;
+	}
+	
+}
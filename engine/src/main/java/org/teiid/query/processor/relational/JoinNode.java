@@ -33,6 +33,10 @@ import org.teiid.common.buffer.TupleBatch;
 import org.teiid.common.buffer.TupleBuffer;
 import org.teiid.core.TeiidComponentException;
 import org.teiid.core.TeiidProcessingException;
+import org.teiid.logging.LogConstants;
+import org.teiid.logging.LogManager;
+import org.teiid.logging.MessageLevel;
+import org.teiid.query.eval.ExpressionCompiler.CompiledCriteria;
 import org.teiid.query.processor.ProcessorDataManager;
 import org.teiid.query.processor.relational.SourceState.ImplicitBuffer;
 import org.teiid.query.sql.LanguageObject;
@@ -54,7 +58,8 @@ public class JoinNode extends SubqueryAwareRelationalNode {
 	    MERGE,
 	    ENHANCED_SORT,
 	    NESTED_LOOP,
-	    NESTED_TABLE
+	    NESTED_TABLE,
+	    HASH
 	}
         
     private enum State { LOAD_LEFT, LOAD_RIGHT, EXECUTE }    
@@ -63,6 +68,7 @@ public class JoinNode extends SubqueryAwareRelationalNode {
     private JoinStrategy joinStrategy;
     private JoinType joinType;
     private String dependentValueSource;
+    private Number dependentCardinality;
    
     private List leftExpressions;
     private List rightExpressions;
@@ -75,6 +81,9 @@ public class JoinNode extends SubqueryAwareRelationalNode {
     
     private DependentValueSource dvs;
     
+    private CompiledCriteria compiledJoinCriteria;
+    private boolean compiled;
+    
     public JoinNode(int nodeID) {
         super(nodeID);
     }
@@ -134,6 +143,16 @@ public class JoinNode extends SubqueryAwareRelationalNode {
         throws TeiidComponentException, TeiidProcessingException {
         // Set Up Join Strategy
         this.joinStrategy.initialize(this);
+        
+        if (!compiled) {
+        	if (this.joinCriteria != null) {
+        		this.compiledJoinCriteria = compile(this.joinCriteria, this.combinedElementMap);
+        	}
+        	compiled = true;
+        } else if (this.compiledJoinCriteria != null) {
+        	//ensure the evaluator has the current context
+        	getEvaluator(this.combinedElementMap);
+        }
 
         if (isDependent() && (this.joinType == JoinType.JOIN_ANTI_SEMI || this.joinType == JoinType.JOIN_SEMI)) {
         	joinStrategy.openRight();
@@ -165,6 +184,7 @@ public class JoinNode extends SubqueryAwareRelationalNode {
         
         clonedNode.rightExpressions = rightExpressions;
         clonedNode.dependentValueSource = this.dependentValueSource;
+        clonedNode.dependentCardinality = this.dependentCardinality;
         clonedNode.rightDistinct = rightDistinct;
         clonedNode.leftDistinct = leftDistinct;
         
@@ -190,6 +210,7 @@ public class JoinNode extends SubqueryAwareRelationalNode {
 	                //the tuplebuffer may be from a lower node, so pass in the schema
 	                dvs = new DependentValueSource(buffer, this.joinStrategy.rightSource.getSource().getElements());
 	                dvs.setDistinct(this.joinStrategy.rightSource.isExpresssionDistinct());
+	                checkAdaptive(this.joinStrategy.rightSource);
 	                this.getContext().getVariableContext().setGlobalValue(this.dependentValueSource, dvs);
 	    		}
 	        	if (this.joinType != JoinType.JOIN_FULL_OUTER || this.getJoinCriteria() == null) {
@@ -202,6 +223,7 @@ public class JoinNode extends SubqueryAwareRelationalNode {
 	                //the tuplebuffer may be from a lower node, so pass in the schema
 	                dvs = new DependentValueSource(buffer, this.joinStrategy.leftSource.getSource().getElements());
 	                dvs.setDistinct(this.joinStrategy.leftSource.isExpresssionDistinct());
+	                checkAdaptive(this.joinStrategy.leftSource);
 	                this.getContext().getVariableContext().setGlobalValue(this.dependentValueSource, dvs);
 	            }
 	            state = State.LOAD_RIGHT;
@@ -246,6 +268,36 @@ public class JoinNode extends SubqueryAwareRelationalNode {
         return pullBatch();
     }
 
+	/**
+	 * When adaptive joins are enabled, compare the actual independent row count to the 
+	 * planning estimate.  If the estimate was exceeded by more than the factor and there 
+	 * are at least as many independent values as the estimated dependent rows without the dependent 
+	 * criteria, then pushing the values will not restrict the dependent side and the dependent criteria are abandoned.
+	 * Criteria with a planner max ndv or a MAKEDEP max are instead bounded by those values, see 
+	 * {@link DependentCriteriaProcessor}.
+	 */
+	private void checkAdaptive(SourceState independent) throws TeiidComponentException {
+		int factor = getContext().getOptions().getAdaptiveJoinFactor();
+		if (factor <= 0) {
+			return;
+		}
+		Number estimate = independent.getSource().getEstimateNodeCardinality();
+		if (estimate == null || estimate.floatValue() < 0) {
+			return;
+		}
+		long actual = dvs.getTupleBuffer().getRowCount();
+		if (actual <= Math.max(1, estimate.floatValue()) * factor) {
+			return;
+		}
+		if (dependentCardinality == null || dependentCardinality.floatValue() < 0 || actual < dependentCardinality.floatValue()) {
+			return;
+		}
+		dvs.setAbandoned(true);
+		if (LogManager.isMessageToBeRecorded(LogConstants.CTX_DQP, MessageLevel.DETAIL)) {
+			LogManager.logDetail(LogConstants.CTX_DQP, "Abandoning dependent join", getID(), "the independent side produced", actual, "rows but was estimated at", estimate, "with an estimated dependent side of", dependentCardinality); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		}
+	}
+
 	private void prefetch(SourceState toFetch, SourceState other) throws TeiidComponentException,
 			TeiidProcessingException {
 		toFetch.prefetch(Math.max(1l, other.getIncrementalRowCount(false)/other.getSource().getBatchSize())*toFetch.getSource().getBatchSize());
@@ -325,6 +377,13 @@ public class JoinNode extends SubqueryAwareRelationalNode {
 		return dependentValueSource;
 	}
     
+    /**
+     * @param dependentCardinality the planning estimate of the dependent side without the dependent criteria
+     */
+    public void setDependentCardinality(Number dependentCardinality) {
+		this.dependentCardinality = dependentCardinality;
+	}
+    
     public void closeDirect() {
         super.closeDirect();
         joinStrategy.close();
@@ -354,7 +413,13 @@ public class JoinNode extends SubqueryAwareRelationalNode {
     }
     
     boolean matchesCriteria(List outputTuple) throws BlockedException, TeiidComponentException, ExpressionEvaluationException {
-		return (this.joinCriteria == null || getEvaluator(this.combinedElementMap).evaluate(this.joinCriteria, outputTuple));
+		if (this.joinCriteria == null) {
+			return true;
+		}
+		if (this.compiledJoinCriteria != null) {
+			return Boolean.TRUE.equals(this.compiledJoinCriteria.evaluateTVL(outputTuple));
+		}
+		return getEvaluator(this.combinedElementMap).evaluate(this.joinCriteria, outputTuple);
     }
 
     public List getLeftExpressions() {
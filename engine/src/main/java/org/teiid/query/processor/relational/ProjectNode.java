@@ -35,6 +35,7 @@ import org.teiid.common.buffer.TupleBuffer;
 import org.teiid.core.TeiidComponentException;
 import org.teiid.core.TeiidProcessingException;
 import org.teiid.query.analysis.AnalysisRecord;
+import org.teiid.query.eval.ExpressionCompiler.CompiledExpression;
 import org.teiid.query.sql.LanguageObject;
 import org.teiid.query.sql.symbol.AliasSymbol;
 import org.teiid.query.sql.symbol.Expression;
@@ -57,6 +58,9 @@ public class ProjectNode extends SubqueryAwareRelationalNode {
     private TupleBatch currentBatch;
     private int currentRow = 1;
     
+    private CompiledExpression[] compiledExpressions;
+    private boolean compiled;
+    
     protected ProjectNode() {
     	super();
     }
@@ -154,6 +158,14 @@ public class ProjectNode extends SubqueryAwareRelationalNode {
             }
         }
 
+        if (!compiled) {
+        	this.compiledExpressions = compile(this.expressions, this.elementMap);
+        	compiled = true;
+        } else if (this.compiledExpressions != null) {
+        	//ensure the evaluator has the current context
+        	getEvaluator(this.elementMap);
+        }
+
         while (currentRow <= currentBatch.getEndRow() && !isBatchFull()) {
     		List<?> tuple = currentBatch.getTuple(currentRow);
 
@@ -186,6 +198,8 @@ public class ProjectNode extends SubqueryAwareRelationalNode {
         int index = this.projectionIndexes[projectionIndex];
         if(index != -1) {
 			tuple.add(values.get(index));
+        } else if (this.compiledExpressions != null) {
+        	tuple.add(this.compiledExpressions[projectionIndex].evaluate(values));
         } else { 
 			tuple.add(getEvaluator(this.elementMap).evaluate(symbol, values));
 		}
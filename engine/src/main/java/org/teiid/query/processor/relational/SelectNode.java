@@ -32,6 +32,8 @@ import org.teiid.common.buffer.TupleBatch;
 import org.teiid.core.TeiidComponentException;
 import org.teiid.core.TeiidProcessingException;
 import org.teiid.query.analysis.AnalysisRecord;
+import org.teiid.query.eval.Evaluator;
+import org.teiid.query.eval.ExpressionCompiler.CompiledCriteria;
 import org.teiid.query.processor.ProcessorDataManager;
 import org.teiid.query.sql.LanguageObject;
 import org.teiid.query.sql.lang.Criteria;
@@ -51,6 +53,9 @@ public class SelectNode extends SubqueryAwareRelationalNode {
     // State if blocked on evaluating a criteria
     private TupleBatch currentBatch;
     private int currentRow = 1;
+    
+    private CompiledCriteria compiledCriteria;
+    private boolean compiled;
 
 	protected SelectNode() {
 		super();
@@ -99,11 +104,18 @@ public class SelectNode extends SubqueryAwareRelationalNode {
         if(currentBatch == null) {
         	currentBatch = this.getChildren()[0].nextBatch();
         }
+        
+        if (!compiled) {
+        	this.compiledCriteria = compile(this.criteria, this.elementMap);
+        	compiled = true;
+        }
+        
+        Evaluator eval = getEvaluator(this.elementMap);
 
         while (currentRow <= currentBatch.getEndRow() && !isBatchFull()) {
     		List<?> tuple = currentBatch.getTuple(currentRow);
 
-            if(getEvaluator(this.elementMap).evaluate(this.criteria, tuple)) {
+            if(this.compiledCriteria != null?Boolean.TRUE.equals(this.compiledCriteria.evaluateTVL(tuple)):eval.evaluate(this.criteria, tuple)) {
                 addBatchRow(projectTuple(this.projectionIndexes, tuple));
             }
             currentRow++;
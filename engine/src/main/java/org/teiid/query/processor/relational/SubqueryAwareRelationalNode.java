@@ -27,8 +27,12 @@ import org.teiid.api.exception.query.ExpressionEvaluationException;
 import org.teiid.common.buffer.BlockedException;
 import org.teiid.core.TeiidComponentException;
 import org.teiid.query.eval.Evaluator;
+import org.teiid.query.eval.ExpressionCompiler;
+import org.teiid.query.eval.ExpressionCompiler.CompiledCriteria;
+import org.teiid.query.eval.ExpressionCompiler.CompiledExpression;
 import org.teiid.query.processor.ProcessorPlan;
 import org.teiid.query.sql.LanguageObject;
+import org.teiid.query.sql.lang.Criteria;
 import org.teiid.query.sql.lang.SubqueryContainer;
 import org.teiid.query.sql.lang.TableFunctionReference;
 import org.teiid.query.sql.symbol.ElementSymbol;
@@ -56,6 +60,37 @@ public abstract class SubqueryAwareRelationalNode extends RelationalNode {
 		return this.evaluator;
 	}
 	
+	/**
+	 * Compile the criteria if expression compilation is enabled.
+	 * @return the compiled criteria or null if compilation is not enabled
+	 */
+	protected CompiledCriteria compile(Criteria criteria, Map elementMap) {
+		if (!isCompileExpressions()) {
+			return null;
+		}
+		return new ExpressionCompiler(getEvaluator(elementMap), elementMap).compile(criteria);
+	}
+	
+	/**
+	 * Compile the expressions if expression compilation is enabled.
+	 * @return the compiled expressions or null if compilation is not enabled
+	 */
+	protected CompiledExpression[] compile(List<? extends Expression> expressions, Map elementMap) {
+		if (!isCompileExpressions()) {
+			return null;
+		}
+		ExpressionCompiler compiler = new ExpressionCompiler(getEvaluator(elementMap), elementMap);
+		CompiledExpression[] result = new CompiledExpression[expressions.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = compiler.compile(expressions.get(i));
+		}
+		return result;
+	}
+
+	private boolean isCompileExpressions() {
+		return getContext() != null && getContext().getOptions().isCompileExpressions();
+	}
+	
 	@Override
 	public void reset() {
 		super.reset();
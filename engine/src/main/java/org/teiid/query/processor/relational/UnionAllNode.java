@@ -19,6 +19,7 @@
 package org.teiid.query.processor.relational;
 
 import java.util.Collections;
+import java.util.LinkedList;
 
 import org.teiid.common.buffer.BlockedException;
 import org.teiid.common.buffer.BufferManager;
@@ -27,19 +28,152 @@ import org.teiid.common.buffer.TupleBatch;
 import org.teiid.common.buffer.impl.BufferManagerImpl;
 import org.teiid.core.TeiidComponentException;
 import org.teiid.core.TeiidProcessingException;
+import org.teiid.core.TeiidRuntimeException;
+import org.teiid.dqp.internal.process.DQPWorkContext;
+import org.teiid.dqp.internal.process.RequestWorkItem;
 import org.teiid.query.processor.ProcessorDataManager;
+import org.teiid.query.sql.visitor.ValueIteratorProviderCollectorVisitor;
 import org.teiid.query.util.CommandContext;
 
 
 public class UnionAllNode extends RelationalNode {
+	
+	/**
+	 * Pulls batches from a child on an executor thread.  The child is only accessed 
+	 * by one thread at a time - either the producer while running or the 
+	 * union after all producers have stopped.
+	 * <br>
+	 * A producer runs until its queue is full, the child blocks, or the child is done.
+	 * It is resubmitted by the union as needed.  A blocked child signals more work itself, 
+	 * so the producer only signals when it has made progress or may have missed a signal 
+	 * while it was running.
+	 * <br>
+	 * Each producer uses its own {@link CommandContext} for the child nodes.  
+	 */
+	private final class ChildProducer implements Runnable {
+		private final RelationalNode child;
+		private final CommandContext context;
+		private LinkedList<TupleBatch> batches = new LinkedList<TupleBatch>();
+		private volatile boolean running;
+		private boolean done;
+		private boolean missedWork;
+		private Throwable exception;
+		private DQPWorkContext workContext;
+		
+		public ChildProducer(RelationalNode child) {
+			this.child = child;
+			this.context = getContext().clone();
+			setContext(child, this.context);
+		}
+		
+		@Override
+		public void run() {
+			if (workContext != null) {
+				workContext.runInContext(new Runnable() {
+					@Override
+					public void run() {
+						produce();
+					}
+				});
+			} else {
+				produce();
+			}
+		}
+
+		private void produce() {
+			CommandContext.pushThreadLocalContext(context);
+			boolean progress = false;
+			try {
+				while (!closing) {
+					synchronized (this) {
+						if (batches.size() >= MAX_QUEUED_BATCHES) {
+							break;
+						}
+					}
+					TupleBatch batch = child.nextBatch();
+					synchronized (this) {
+						batches.add(batch);
+						progress = true;
+						if (batch.getTerminationFlag()) {
+							done = true;
+							break;
+						}
+					}
+				}
+			} catch (BlockedException e) {
+				//the child will signal more work when it is no longer blocked
+			} catch (Throwable e) {
+				synchronized (this) {
+					exception = e;
+					progress = true;
+				}
+			} finally {
+				CommandContext.popThreadLocalContext();
+				getContext().releaseParallelWorker();
+				synchronized (this) {
+					running = false;
+					//the union may have been unable to submit a producer while this one was running
+					progress |= missedWork || waitingForWorker;
+					missedWork = false;
+				}
+				RequestWorkItem workItem = getContext().getWorkItem();
+				if (progress && workItem != null) {
+					workItem.moreWork();
+				}
+				synchronized (UnionAllNode.this) {
+					UnionAllNode.this.notifyAll();
+				}
+			}
+		}
+		
+		synchronized TupleBatch poll() throws TeiidComponentException, TeiidProcessingException {
+			if (exception != null) {
+				if (exception instanceof TeiidComponentException) {
+					throw (TeiidComponentException)exception;
+				}
+				if (exception instanceof TeiidProcessingException) {
+					throw (TeiidProcessingException)exception;
+				}
+				if (exception instanceof RuntimeException) {
+					throw (RuntimeException)exception;
+				}
+				throw new TeiidRuntimeException(exception);
+			}
+			return batches.poll();
+		}
+		
+		synchronized boolean needsWork() {
+			if (running) {
+				missedWork = true;
+				return false;
+			}
+			return !done && exception == null && batches.size() < MAX_QUEUED_BATCHES;
+		}
+		
+		synchronized void start(DQPWorkContext workContext) {
+			this.running = true;
+			this.missedWork = false;
+			this.workContext = workContext;
+		}
+		
+		synchronized boolean hasResults() {
+			return !batches.isEmpty() || exception != null;
+		}
+	}
 
     private static final int SMALL_LIMIT = 10;
+    private static final int MAX_QUEUED_BATCHES = 2;
 	private boolean[] sourceDone;
     private boolean[] sourceOpen;
     
     private int outputRow = 1;
     private int reserved;
     private int schemaSize;
+    
+    private ChildProducer[] producers;
+    private int nextChild;
+    private volatile boolean closing;
+    private volatile boolean waitingForWorker;
 	
 	public UnionAllNode(int nodeID) {
 		super(nodeID);
@@ -51,6 +185,10 @@ public class UnionAllNode extends RelationalNode {
         sourceDone = null;
         sourceOpen = null;
         outputRow = 1;   
+        producers = null;
+        nextChild = 0;
+        closing = false;
+        waitingForWorker = false;
     }    
     
     @Override
@@ -117,10 +255,69 @@ public class UnionAllNode extends RelationalNode {
     	
         // Open the children
         super.open();
+        
+        int parallelism = getContext().getOptions().getUnionParallelism();
+        if (parallelism > 1 && getChildCount() > 1 && canProduceInParallel()) {
+        	producers = new ChildProducer[getChildCount()];
+        	RelationalNode[] children = getChildren();
+        	for (int i = 0; i < producers.length; i++) {
+        		producers[i] = new ChildProducer(children[i]);
+        	}
+        	//account for the queued batches
+        	int queued = getChildCount() * MAX_QUEUED_BATCHES * schemaSize;
+        	reserved += getBufferManager().reserveBuffers(queued, BufferReserveMode.FORCE);
+        }
+	}
+	
+	/**
+	 * Parallel production is limited to children that are simple projections and 
+	 * filters over access nodes.  Other nodes may rely upon shared context state that 
+	 * is not expected to be used concurrently.
+	 */
+	private boolean canProduceInParallel() {
+		for (RelationalNode child : getChildren()) {
+			if (child != null && !canProduceInParallel(child)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static void setContext(RelationalNode node, CommandContext context) {
+		node.setContext(context);
+		for (RelationalNode child : node.getChildren()) {
+			if (child != null) {
+				setContext(child, context);
+			}
+		}
+	}
+
+	private static boolean canProduceInParallel(RelationalNode node) {
+		if (node instanceof AccessNode) {
+			return !(node instanceof DependentAccessNode) 
+					&& ValueIteratorProviderCollectorVisitor.getValueIteratorProviders(((AccessNode)node).getObjects()).isEmpty();
+		}
+		if (node instanceof ProjectNode || node instanceof SelectNode) {
+			if (!ValueIteratorProviderCollectorVisitor.getValueIteratorProviders(((SubqueryAwareRelationalNode)node).getObjects()).isEmpty()) {
+				return false;
+			}
+		} else if (!(node instanceof LimitNode)) {
+			return false;
+		}
+		for (RelationalNode child : node.getChildren()) {
+			if (child != null && !canProduceInParallel(child)) {
+				return false;
+			}
+		}
+		return true;
 	}
 
     public TupleBatch nextBatchDirect() 
         throws BlockedException, TeiidComponentException, TeiidProcessingException {
+    	
+    	if (producers != null) {
+    		return nextBatchParallel();
+    	}
 
         // Walk through all children and for each one that isn't done, try to retrieve a batch
         // When all sources are done, set the termination flag on that batch
@@ -214,8 +411,115 @@ public class UnionAllNode extends RelationalNode {
         return outputBatch;
     }    
     
+    private TupleBatch nextBatchParallel() throws TeiidComponentException, TeiidProcessingException {
+    	int childCount = getChildCount();
+    	boolean active = false;
+    	for (int j = 0; j < childCount; j++) {
+    		int i = (nextChild + j) % childCount;
+    		if (sourceDone[i]) {
+    			continue;
+    		}
+    		active = true;
+    		TupleBatch batch = producers[i].poll();
+    		if (batch == null) {
+    			continue;
+    		}
+    		nextChild = i + 1;
+    		if (batch.getTerminationFlag()) {
+    			sourceDone[i] = true;
+    			if (reserved > 0) {
+                	getBufferManager().releaseBuffers(schemaSize);
+                	reserved-=schemaSize;
+                }
+    		}
+    		boolean last = true;
+    		for (boolean done : sourceDone) {
+    			last &= done;
+    		}
+    		TupleBatch outputBatch = new TupleBatch(outputRow, batch.getTuples());
+    		outputBatch.setTerminationFlag(last);
+    		outputRow += outputBatch.getRowCount();
+    		if (!last) {
+    			schedule();
+    		}
+    		return outputBatch;
+    	}
+    	if (!active) {
+    		TupleBatch outputBatch = new TupleBatch(outputRow, Collections.EMPTY_LIST);
+            outputBatch.setTerminationFlag(true);
+            return outputBatch;
+    	}
+    	schedule();
+    	if (this.getContext().getWorkItem() == null) {
+			//this is for compatibility with engine tests that are below the level of using the work item
+			synchronized (this) {
+				while (isRunning() && !hasResults()) {
+					try {
+						this.wait();
+					} catch (InterruptedException e) {
+						throw new TeiidRuntimeException(e);
+					}
+				}
+			}
+		}
+    	throw BlockedException.block(getContext().getRequestId(), "Blocking on parallel union sources.", getID()); //$NON-NLS-1$
+    }
+    
+    /**
+     * Submit the producers that need work, up to the parallelism allowed for the request 
+     */
+    private void schedule() {
+    	int parallelism = getContext().getOptions().getUnionParallelism();
+    	DQPWorkContext workContext = DQPWorkContext.getWorkContext();
+    	for (int i = 0; i < producers.length; i++) {
+    		ChildProducer producer = producers[i];
+    		if (sourceDone[i] || !producer.needsWork()) {
+    			continue;
+    		}
+    		//set before acquiring, so that a producer releasing its worker will see it and signal
+    		waitingForWorker = true;
+    		if (!getContext().acquireParallelWorker(parallelism)) {
+    			return;
+    		}
+    		waitingForWorker = false;
+    		producer.start(workContext);
+    		getContext().getExecutor().execute(producer);
+    	}
+    }
+    
+    private boolean isRunning() {
+    	for (ChildProducer producer : producers) {
+    		if (producer != null && producer.running) {
+    			return true;
+    		}
+    	}
+    	return false;
+    }
+    
+    private boolean hasResults() {
+    	for (ChildProducer producer : producers) {
+    		if (producer != null && producer.hasResults()) {
+    			return true;
+    		}
+    	}
+    	return false;
+    }
+    
     @Override
     public void closeDirect() {
+    	if (producers != null) {
+    		closing = true;
+    		//the children cannot be closed until the producers have stopped
+    		synchronized (this) {
+    			while (isRunning()) {
+					try {
+						this.wait();
+					} catch (InterruptedException e) {
+						throw new TeiidRuntimeException(e);
+					}
+    			}
+    		}
+    	}
     	if (reserved > 0) {
 	    	getBufferManager().releaseBuffers(reserved);
 	    	reserved = 0;
@@ -361,6 +361,22 @@ public class SimpleQueryResolver implements CommandResolver {
 			postTableFunctionReference(obj, saved);
         }
         
+        @Override
+        public void visit(JSONTable obj) {
+        	LinkedHashSet<GroupSymbol> saved = preTableFunctionReference(obj);
+        	this.visitNode(obj.getJson());
+        	try {
+        		//blobs are read with encoding detection, everything else is treated as character data
+        		if (obj.getJson().getType() != DataTypeManager.DefaultDataClasses.BLOB) {
+        			obj.setJson(ResolverUtil.convertExpression(obj.getJson(), DataTypeManager.DefaultDataTypes.CLOB, metadata));
+        		}
+        		obj.compilePaths();
+			} catch (QueryResolverException e) {
+				 throw new TeiidRuntimeException(e);
+			}
+			postTableFunctionReference(obj, saved);
+        }
+        
         @Override
         public void visit(XMLTable obj) {
         	LinkedHashSet<GroupSymbol> saved = preTableFunctionReference(obj);
@@ -0,0 +1,181 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.teiid.query.sql.lang;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.teiid.api.exception.query.QueryResolverException;
+import org.teiid.core.types.DataTypeManager;
+import org.teiid.core.util.EquivalenceUtil;
+import org.teiid.query.sql.LanguageVisitor;
+import org.teiid.query.sql.symbol.Expression;
+import org.teiid.query.util.JSONPath;
+
+/**
+ * Represents the JSONTABLE table function.
+ */
+public class JSONTable extends TableFunctionReference {
+	
+	public static class JSONColumn extends ProjectedColumn {
+		private boolean ordinal;
+		private String path;
+		
+		private JSONPath pathExpression;
+		
+		public JSONColumn(String name) {
+			super(name, DataTypeManager.DefaultDataTypes.INTEGER);
+			this.ordinal = true;
+		}
+		
+		public JSONColumn(String name, String type, String path) {
+			super(name, type);
+			this.path = path;
+		}
+		
+		protected JSONColumn() {
+			
+		}
+		
+		public String getPath() {
+			return path;
+		}
+		
+		public void setPath(String path) {
+			this.path = path;
+		}
+		
+		public boolean isOrdinal() {
+			return ordinal;
+		}
+		
+		public JSONPath getPathExpression() {
+			return pathExpression;
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if (obj == this) {
+				return true;
+			}
+			if (!super.equals(obj) || !(obj instanceof JSONColumn)) {
+				return false;
+			}
+			JSONColumn other = (JSONColumn)obj;
+			return this.ordinal == other.ordinal 
+				&& EquivalenceUtil.areEqual(this.path, other.path);
+		}
+		
+		@Override
+		public JSONColumn clone() {
+			JSONColumn clone = new JSONColumn();
+			super.copyTo(clone);
+			clone.ordinal = this.ordinal;
+			clone.path = this.path;
+			clone.pathExpression = this.pathExpression;
+			return clone;
+		}
+	}
+	
+	private Expression json;
+	private String rowPath;
+	private List<JSONColumn> columns = new ArrayList<JSONColumn>();
+	
+	private JSONPath rowPathExpression;
+	
+	public Expression getJson() {
+		return json;
+	}
+	
+	public void setJson(Expression json) {
+		this.json = json;
+	}
+	
+	public String getRowPath() {
+		return rowPath;
+	}
+	
+	public void setRowPath(String rowPath) {
+		this.rowPath = rowPath;
+	}
+	
+	public List<JSONColumn> getColumns() {
+		return columns;
+	}
+	
+	public void setColumns(List<JSONColumn> columns) {
+		this.columns = columns;
+	}
+	
+	public JSONPath getRowPathExpression() {
+		return rowPathExpression;
+	}
+	
+	/**
+	 * Compile the row and column paths.  A column without a path
+	 * selects the member of the row object with the same name.
+	 */
+	public void compilePaths() throws QueryResolverException {
+		this.rowPathExpression = JSONPath.compile(rowPath);
+		for (JSONColumn column : columns) {
+			if (column.isOrdinal()) {
+				continue;
+			}
+			if (column.path == null) {
+				column.pathExpression = JSONPath.compile("$['" + column.getName().replace("'", "\\'") + "']"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+			} else {
+				column.pathExpression = JSONPath.compile(column.path);
+			}
+		}
+	}
+
+	@Override
+	public void acceptVisitor(LanguageVisitor visitor) {
+		visitor.visit(this);
+	}
+
+	@Override
+	protected JSONTable cloneDirect() {
+		JSONTable clone = new JSONTable();
+		this.copy(clone);
+		clone.setJson((Expression)this.json.clone());
+		clone.rowPath = this.rowPath;
+		clone.rowPathExpression = this.rowPathExpression;
+		for (JSONColumn column : columns) {
+			clone.getColumns().add(column.clone());
+		}
+		return clone;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this) {
+			return true;
+		}
+		if (!super.equals(obj) || !(obj instanceof JSONTable)) {
+			return false;
+		}
+		JSONTable other = (JSONTable)obj;
+		return this.columns.equals(other.columns) 
+			&& EquivalenceUtil.areEqual(json, other.json)
+			&& EquivalenceUtil.areEqual(rowPath, other.rowPath);
+	}
+	
+}
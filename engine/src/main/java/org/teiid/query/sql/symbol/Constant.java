@@ -113,6 +113,47 @@ public class Constant implements Expression, Comparable<Constant> {
 			}
 		};
 	}
+	
+	/**
+	 * Compute a hash code that is consistent with the comparator used for equality
+	 */
+	public static int hashValue(Object value) {
+		if (value == null) {
+			return 0;
+		}
+		if (value instanceof BigDecimal) {
+			BigDecimal bd = (BigDecimal)value;
+			if (bd.signum() == 0) {
+				return 0;
+			}
+			return bd.stripTrailingZeros().hashCode();
+		}
+		if (DataTypeManager.PAD_SPACE && value instanceof String) {
+			return FunctionMethods.rightTrim((String)value, ' ', false).hashCode();
+		}
+		return value.hashCode();
+	}
+	
+	/**
+	 * Character values may compare as equal under a collation or pad space comparison
+	 * while having different hash codes, so hashing is only safe without them.
+	 * @return true if {@link #hashValue(Object)} is consistent with the {@link #COMPARATOR} for all of the expressions
+	 */
+	public static boolean isHashConsistent(List<? extends Expression> expressions) {
+		if (DataTypeManager.COLLATION_LOCALE == null && !DataTypeManager.PAD_SPACE) {
+			return true;
+		}
+		for (Expression ex : expressions) {
+			Class<?> type = ex.getType();
+			if (type == DataTypeManager.DefaultDataClasses.STRING 
+					|| type == DataTypeManager.DefaultDataClasses.CHAR
+					|| type == DataTypeManager.DefaultDataClasses.CLOB) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
 	/**
 	 * Construct a typed constant.  The specified value is not verified to be a value
 	 * of the specified type.  If this is not true, stuff probably won't work later on.
@@ -44,6 +44,7 @@ import org.teiid.query.sql.LanguageVisitor;
 import org.teiid.query.sql.lang.*;
 import org.teiid.query.sql.lang.Create.CommitAction;
 import org.teiid.query.sql.lang.ExistsCriteria.SubqueryHint;
+import org.teiid.query.sql.lang.JSONTable.JSONColumn;
 import org.teiid.query.sql.lang.ObjectTable.ObjectColumn;
 import org.teiid.query.sql.lang.Option.MakeDep;
 import org.teiid.query.sql.lang.SourceHint.SpecificHint;
@@ -2448,6 +2449,45 @@ public class SQLStringVisitor extends LanguageVisitor {
         outputDisplayName(obj.getName());
     }
     
+    @Override
+    public void visit(JSONTable obj) {
+        addHintComment(obj);
+    	append("JSONTABLE("); //$NON-NLS-1$
+        visitNode(obj.getJson());
+        append(","); //$NON-NLS-1$
+        append(SPACE);
+        visitNode(new Constant(obj.getRowPath()));
+        append(SPACE);
+        append(NonReserved.COLUMNS);
+        for (Iterator<JSONColumn> cols = obj.getColumns().iterator(); cols.hasNext();) {
+        	JSONColumn col = cols.next();
+            append(SPACE);
+            outputDisplayName(col.getName());
+            append(SPACE);
+            if (col.isOrdinal()) {
+                append(FOR);
+                append(SPACE);
+                append(NonReserved.ORDINALITY);
+            } else {
+                append(col.getType());
+                if (col.getPath() != null) {
+                    append(SPACE);
+                    append(NonReserved.PATH);
+                    append(SPACE);
+                    visitNode(new Constant(col.getPath()));
+                }
+            }
+            if (cols.hasNext()) {
+                append(","); //$NON-NLS-1$
+            }
+        }
+        append(")");//$NON-NLS-1$
+        append(SPACE);
+        append(AS);
+        append(SPACE);
+        outputDisplayName(obj.getName());
+    }
+    
     private void addMakeDep(FromClause obj) {
 		MakeDep makeDep = obj.getMakeDep();
 		if (makeDep != null && !makeDep.isSimple()) {
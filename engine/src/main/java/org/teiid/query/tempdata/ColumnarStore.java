@@ -0,0 +1,597 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.teiid.query.tempdata;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.teiid.client.BatchSerializer;
+import org.teiid.common.buffer.BufferManager;
+import org.teiid.common.buffer.BufferManager.TupleSourceType;
+import org.teiid.common.buffer.TupleBuffer;
+import org.teiid.common.buffer.TupleSource;
+import org.teiid.core.TeiidComponentException;
+import org.teiid.core.TeiidProcessingException;
+import org.teiid.core.types.BinaryType;
+import org.teiid.core.types.DataTypeManager;
+import org.teiid.query.sql.lang.CompareCriteria;
+import org.teiid.query.sql.lang.Criteria;
+import org.teiid.query.sql.lang.IsNullCriteria;
+import org.teiid.query.sql.lang.SetCriteria;
+import org.teiid.query.sql.symbol.Constant;
+import org.teiid.query.sql.symbol.ElementSymbol;
+import org.teiid.query.sql.symbol.Expression;
+
+/**
+ * A read-only columnar form of the rows of a {@link TempTable}.
+ * <br>
+ * Rows are grouped into pages.  Each column of a page is encoded separately - run-length,
+ * dictionary, frame-of-reference for integral types, or plain - and the encoded pages are held
+ * in a {@link TupleBuffer} so that they are managed by the {@link BufferManager}.  A zone map 
+ * of the min/max values and null presence for each page column is kept on heap so that pages 
+ * can be skipped based upon the criteria, and a scan only decodes the columns it needs.
+ */
+class ColumnarStore {
+	
+	static final int DEFAULT_PAGE_SIZE = 1024;
+	
+	private static final byte PLAIN = 0;
+	private static final byte DICTIONARY = 1;
+	private static final byte RUN_LENGTH = 2;
+	private static final byte FRAME_OF_REFERENCE = 3;
+	
+	private static final int IS_NULL = -1;
+	private static final int IS_NOT_NULL = -2;
+	private static final int IN = -3;
+	
+	private static class ZoneMap {
+		int rowCount;
+		Object[] min;
+		Object[] max;
+		boolean[] hasNull;
+		
+		ZoneMap(int rowCount, int columns) {
+			this.rowCount = rowCount;
+			this.min = new Object[columns];
+			this.max = new Object[columns];
+			this.hasNull = new boolean[columns];
+		}
+	}
+	
+	/**
+	 * A conjunct that can be checked against a {@link ZoneMap} 
+	 */
+	static class ZonePredicate {
+		int column;
+		int operator;
+		Object[] values;
+		
+		ZonePredicate(int column, int operator, Object... values) {
+			this.column = column;
+			this.operator = operator;
+			this.values = values;
+		}
+		
+		boolean canMatch(ZoneMap zone) {
+			Object min = zone.min[column];
+			Object max = zone.max[column];
+			switch (operator) {
+			case IS_NULL:
+				return zone.hasNull[column];
+			case IS_NOT_NULL:
+				return min != null;
+			}
+			if (min == null) {
+				//only nulls
+				return false;
+			}
+			try {
+				switch (operator) {
+				case IN:
+					for (Object value : values) {
+						if (Constant.COMPARATOR.compare(value, min) >= 0 && Constant.COMPARATOR.compare(value, max) <= 0) {
+							return true;
+						}
+					}
+					return false;
+				case CompareCriteria.EQ:
+					return Constant.COMPARATOR.compare(values[0], min) >= 0 && Constant.COMPARATOR.compare(values[0], max) <= 0;
+				case CompareCriteria.LT:
+					return Constant.COMPARATOR.compare(min, values[0]) < 0;
+				case CompareCriteria.LE:
+					return Constant.COMPARATOR.compare(min, values[0]) <= 0;
+				case CompareCriteria.GT:
+					return Constant.COMPARATOR.compare(max, values[0]) > 0;
+				case CompareCriteria.GE:
+					return Constant.COMPARATOR.compare(max, values[0]) >= 0;
+				}
+			} catch (ClassCastException e) {
+				//mismatched types, just scan the page
+			}
+			return true;
+		}
+	}
+	
+	private String[] types;
+	private Class<?>[] classes;
+	private TupleBuffer pages;
+	private List<ZoneMap> zoneMaps = new ArrayList<ZoneMap>();
+	private long rowCount;
+	private int pageSize;
+	
+	ColumnarStore(List<ElementSymbol> columns, int pageSize, BufferManager bm, String sessionID) throws TeiidComponentException {
+		this.pageSize = pageSize;
+		this.types = new String[columns.size()];
+		this.classes = new Class<?>[columns.size()];
+		List<ElementSymbol> pageSchema = new ArrayList<ElementSymbol>(columns.size());
+		for (int i = 0; i < columns.size(); i++) {
+			classes[i] = columns.get(i).getType();
+			types[i] = DataTypeManager.getDataTypeName(classes[i]);
+			ElementSymbol es = new ElementSymbol("c" + i); //$NON-NLS-1$
+			es.setType(DataTypeManager.DefaultDataClasses.VARBINARY);
+			pageSchema.add(es);
+		}
+		this.pages = bm.createTupleBuffer(pageSchema, sessionID, TupleSourceType.FINAL);
+		//each page is managed separately so that skipped pages need not be read
+		this.pages.setBatchSize(1);
+	}
+	
+	/**
+	 * @return true if all of the column types can be stored 
+	 */
+	static boolean isSupported(List<ElementSymbol> columns) {
+		for (ElementSymbol es : columns) {
+			Class<?> type = es.getType();
+			if (DataTypeManager.isLOB(type) || type == DataTypeManager.DefaultDataClasses.OBJECT || type.isArray()) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	void load(TupleSource ts) throws TeiidComponentException, TeiidProcessingException {
+		List<List<?>> rows = new ArrayList<List<?>>(pageSize);
+		List<?> tuple = null;
+		while ((tuple = ts.nextTuple()) != null) {
+			rows.add(tuple);
+			if (rows.size() == pageSize) {
+				addPage(rows);
+				rows.clear();
+			}
+		}
+		if (!rows.isEmpty()) {
+			addPage(rows);
+		}
+		pages.close();
+	}
+	
+	private void addPage(List<List<?>> rows) throws TeiidComponentException {
+		ZoneMap zone = new ZoneMap(rows.size(), types.length);
+		List<BinaryType> page = new ArrayList<BinaryType>(types.length);
+		Object[] values = new Object[rows.size()];
+		for (int col = 0; col < types.length; col++) {
+			for (int row = 0; row < values.length; row++) {
+				Object value = rows.get(row).get(col);
+				values[row] = value;
+				if (value == null) {
+					zone.hasNull[col] = true;
+					continue;
+				}
+				if (zone.min[col] == null || Constant.COMPARATOR.compare(value, zone.min[col]) < 0) {
+					zone.min[col] = value;
+				}
+				if (zone.max[col] == null || Constant.COMPARATOR.compare(value, zone.max[col]) > 0) {
+					zone.max[col] = value;
+				}
+			}
+			try {
+				page.add(new BinaryType(encode(col, values)));
+			} catch (IOException e) {
+				throw new TeiidComponentException(e);
+			}
+		}
+		pages.addTuple(page);
+		zoneMaps.add(zone);
+		rowCount += rows.size();
+	}
+	
+	private byte[] encode(int col, Object[] values) throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		ObjectOutputStream oos = new ObjectOutputStream(baos);
+		int runs = 1;
+		for (int i = 1; i < values.length; i++) {
+			if (!equals(values[i], values[i - 1])) {
+				runs++;
+			}
+		}
+		if (runs <= values.length / 4) {
+			oos.writeByte(RUN_LENGTH);
+			List<Object> runValues = new ArrayList<Object>(runs);
+			int[] runLengths = new int[runs];
+			int run = -1;
+			for (int i = 0; i < values.length; i++) {
+				if (i == 0 || !equals(values[i], values[i - 1])) {
+					runValues.add(values[i]);
+					run++;
+				}
+				runLengths[run]++;
+			}
+			writeValues(oos, col, runValues);
+			for (int length : runLengths) {
+				oos.writeInt(length);
+			}
+		} else if (!writeFrameOfReference(oos, col, values)) {
+			Map<Object, Integer> dictionary = new HashMap<Object, Integer>();
+			for (Object value : values) {
+				if (!dictionary.containsKey(value)) {
+					dictionary.put(value, dictionary.size());
+				}
+				if (dictionary.size() > values.length / 2) {
+					break;
+				}
+			}
+			if (dictionary.size() <= values.length / 2) {
+				oos.writeByte(DICTIONARY);
+				Object[] entries = new Object[dictionary.size()];
+				for (Map.Entry<Object, Integer> entry : dictionary.entrySet()) {
+					entries[entry.getValue()] = entry.getKey();
+				}
+				writeValues(oos, col, Arrays.asList(entries));
+				int width = getWidth(entries.length - 1);
+				oos.writeByte(width);
+				for (Object value : values) {
+					writeFixed(oos, width, dictionary.get(value));
+				}
+			} else {
+				oos.writeByte(PLAIN);
+				writeValues(oos, col, Arrays.asList(values));
+			}
+		}
+		oos.close();
+		return baos.toByteArray();
+	}
+	
+	/**
+	 * Write integral values as offsets from the minimum value using the least number of bytes
+	 * @return false if frame-of-reference encoding is not applicable
+	 */
+	private boolean writeFrameOfReference(ObjectOutputStream oos, int col, Object[] values) throws IOException {
+		Class<?> type = classes[col];
+		if (type != DataTypeManager.DefaultDataClasses.INTEGER && type != DataTypeManager.DefaultDataClasses.LONG 
+				&& type != DataTypeManager.DefaultDataClasses.SHORT && type != DataTypeManager.DefaultDataClasses.BYTE) {
+			return false;
+		}
+		long min = Long.MAX_VALUE;
+		long max = Long.MIN_VALUE;
+		BitSet nulls = new BitSet(values.length);
+		for (int i = 0; i < values.length; i++) {
+			if (values[i] == null) {
+				nulls.set(i);
+				continue;
+			}
+			long value = ((Number)values[i]).longValue();
+			min = Math.min(min, value);
+			max = Math.max(max, value);
+		}
+		long range = max - min;
+		if (nulls.cardinality() == values.length) {
+			min = 0;
+			range = 0;
+		} else if (range < 0) {
+			//overflow
+			return false;
+		}
+		oos.writeByte(FRAME_OF_REFERENCE);
+		long[] nullWords = nulls.toLongArray();
+		oos.writeInt(nullWords.length);
+		for (long word : nullWords) {
+			oos.writeLong(word);
+		}
+		oos.writeLong(min);
+		int width = getWidth(range);
+		oos.writeByte(width);
+		for (int i = 0; i < values.length; i++) {
+			writeFixed(oos, width, values[i] == null?0:((Number)values[i]).longValue() - min);
+		}
+		return true;
+	}
+	
+	private static int getWidth(long maxValue) {
+		if (maxValue < 1 << 8) {
+			return 1;
+		}
+		if (maxValue < 1 << 16) {
+			return 2;
+		}
+		if (maxValue < 1l << 32) {
+			return 4;
+		}
+		return 8;
+	}
+	
+	private static void writeFixed(ObjectOutputStream oos, int width, long value) throws IOException {
+		switch (width) {
+		case 1:
+			oos.writeByte((int)value);
+			break;
+		case 2:
+			oos.writeShort((int)value);
+			break;
+		case 4:
+			oos.writeInt((int)value);
+			break;
+		default:
+			oos.writeLong(value);
+		}
+	}
+	
+	private static long readFixed(ObjectInputStream ois, int width) throws IOException {
+		switch (width) {
+		case 1:
+			return ois.readUnsignedByte();
+		case 2:
+			return ois.readUnsignedShort();
+		case 4:
+			return ois.readInt() & 0xffffffffl;
+		default:
+			return ois.readLong();
+		}
+	}
+	
+	private void writeValues(ObjectOutputStream oos, int col, List<Object> values) throws IOException {
+		List<List<Object>> batch = new ArrayList<List<Object>>(values.size());
+		for (Object value : values) {
+			batch.add(Collections.singletonList(value));
+		}
+		BatchSerializer.writeBatch(oos, new String[] {types[col]}, batch);
+	}
+	
+	private List<Object> readValues(ObjectInputStream ois, int col) throws IOException, ClassNotFoundException {
+		List<List<Object>> batch = BatchSerializer.readBatch(ois, new String[] {types[col]});
+		List<Object> result = new ArrayList<Object>(batch.size());
+		for (List<Object> row : batch) {
+			result.add(row.get(0));
+		}
+		return result;
+	}
+	
+	private Object[] decode(int col, BinaryType encoded, int count) throws TeiidComponentException {
+		Object[] result = new Object[count];
+		try {
+			ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(encoded.getBytesDirect()));
+			byte encoding = ois.readByte();
+			switch (encoding) {
+			case RUN_LENGTH: {
+				List<Object> runValues = readValues(ois, col);
+				int index = 0;
+				for (Object value : runValues) {
+					int length = ois.readInt();
+					Arrays.fill(result, index, index + length, value);
+					index += length;
+				}
+				break;
+			}
+			case DICTIONARY: {
+				List<Object> entries = readValues(ois, col);
+				int width = ois.readByte();
+				for (int i = 0; i < count; i++) {
+					result[i] = entries.get((int)readFixed(ois, width));
+				}
+				break;
+			}
+			case FRAME_OF_REFERENCE: {
+				long[] nullWords = new long[ois.readInt()];
+				for (int i = 0; i < nullWords.length; i++) {
+					nullWords[i] = ois.readLong();
+				}
+				BitSet nulls = BitSet.valueOf(nullWords);
+				long min = ois.readLong();
+				int width = ois.readByte();
+				Class<?> type = classes[col];
+				for (int i = 0; i < count; i++) {
+					long value = readFixed(ois, width) + min;
+					if (nulls.get(i)) {
+						continue;
+					}
+					if (type == DataTypeManager.DefaultDataClasses.INTEGER) {
+						result[i] = (int)value;
+					} else if (type == DataTypeManager.DefaultDataClasses.LONG) {
+						result[i] = value;
+					} else if (type == DataTypeManager.DefaultDataClasses.SHORT) {
+						result[i] = (short)value;
+					} else {
+						result[i] = (byte)value;
+					}
+				}
+				break;
+			}
+			default:
+				readValues(ois, col).toArray(result);
+			}
+		} catch (IOException e) {
+			throw new TeiidComponentException(e);
+		} catch (ClassNotFoundException e) {
+			throw new TeiidComponentException(e);
+		}
+		return result;
+	}
+	
+	private static boolean equals(Object value, Object other) {
+		if (value == null) {
+			return other == null;
+		}
+		return value.equals(other);
+	}
+	
+	/**
+	 * Get the conjuncts that can be used to skip pages
+	 */
+	static List<ZonePredicate> getZonePredicates(Criteria condition, Map<Expression, Integer> columnMap) {
+		if (condition == null) {
+			return Collections.emptyList();
+		}
+		List<ZonePredicate> result = new ArrayList<ZonePredicate>();
+		for (Criteria crit : Criteria.separateCriteriaByAnd(condition)) {
+			if (crit instanceof CompareCriteria) {
+				CompareCriteria cc = (CompareCriteria)crit;
+				Integer index = columnMap.get(cc.getLeftExpression());
+				if (index == null || !(cc.getRightExpression() instanceof Constant) || cc.getOperator() == CompareCriteria.NE) {
+					continue;
+				}
+				Constant c = (Constant)cc.getRightExpression();
+				if (c.isMultiValued() || c.getValue() == null) {
+					continue;
+				}
+				result.add(new ZonePredicate(index, cc.getOperator(), c.getValue()));
+			} else if (crit instanceof IsNullCriteria) {
+				IsNullCriteria inc = (IsNullCriteria)crit;
+				Integer index = columnMap.get(inc.getExpression());
+				if (index != null) {
+					result.add(new ZonePredicate(index, inc.isNegated()?IS_NOT_NULL:IS_NULL));
+				}
+			} else if (crit instanceof SetCriteria) {
+				SetCriteria sc = (SetCriteria)crit;
+				Integer index = columnMap.get(sc.getExpression());
+				if (index == null || sc.isNegated()) {
+					continue;
+				}
+				List<Object> values = new ArrayList<Object>(sc.getNumberOfValues());
+				for (Object value : sc.getValues()) {
+					if (!(value instanceof Constant) || ((Constant)value).isMultiValued()) {
+						values = null;
+						break;
+					}
+					if (((Constant)value).getValue() != null) {
+						values.add(((Constant)value).getValue());
+					}
+				}
+				if (values != null) {
+					result.add(new ZonePredicate(index, IN, values.toArray()));
+				}
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * Scan the pages that may match the predicates.  The rows have the full width of the table, 
+	 * but only the needed columns are populated.
+	 */
+	TupleSource createTupleSource(final int[] neededColumns, final List<ZonePredicate> predicates) {
+		return new TupleSource() {
+			int page = -1;
+			Object[][] columns = new Object[types.length][];
+			int row;
+			int count;
+			
+			@Override
+			public List<?> nextTuple() throws TeiidComponentException,
+					TeiidProcessingException {
+				while (row >= count) {
+					if (!nextPage()) {
+						return null;
+					}
+				}
+				Object[] result = new Object[types.length];
+				for (int col : neededColumns) {
+					result[col] = columns[col][row];
+				}
+				row++;
+				return Arrays.asList(result);
+			}
+			
+			private boolean nextPage() throws TeiidComponentException {
+				outer: while (++page < zoneMaps.size()) {
+					ZoneMap zone = zoneMaps.get(page);
+					for (ZonePredicate predicate : predicates) {
+						if (!predicate.canMatch(zone)) {
+							continue outer;
+						}
+					}
+					List<?> encoded = pages.getBatch(page + 1).getTuple(page + 1);
+					for (int col : neededColumns) {
+						columns[col] = decode(col, (BinaryType)encoded.get(col), zone.rowCount);
+					}
+					row = 0;
+					count = zone.rowCount;
+					return true;
+				}
+				return false;
+			}
+			
+			@Override
+			public void closeSource() {
+				columns = null;
+			}
+		};
+	}
+	
+	/**
+	 * Write the rows in the same form as {@link org.teiid.common.buffer.STree#writeValuesTo(ObjectOutputStream)}
+	 */
+	void writeValuesTo(ObjectOutputStream oos) throws TeiidComponentException, IOException {
+		oos.writeLong(rowCount);
+		int[] allColumns = new int[types.length];
+		for (int i = 0; i < allColumns.length; i++) {
+			allColumns[i] = i;
+		}
+		TupleSource ts = createTupleSource(allColumns, Collections.<ZonePredicate>emptyList());
+		try {
+			List<List<?>> batch = new ArrayList<List<?>>(pageSize);
+			List<?> tuple = null;
+			while ((tuple = ts.nextTuple()) != null) {
+				batch.add(tuple);
+				if (batch.size() == pageSize) {
+					BatchSerializer.writeBatch(oos, types, batch);
+					batch.clear();
+				}
+			}
+			if (!batch.isEmpty() || rowCount == 0) {
+				BatchSerializer.writeBatch(oos, types, batch);
+			}
+		} catch (TeiidProcessingException e) {
+			throw new TeiidComponentException(e);
+		} finally {
+			ts.closeSource();
+		}
+	}
+	
+	long getRowCount() {
+		return rowCount;
+	}
+	
+	int getPageSize() {
+		return pageSize;
+	}
+	
+	void remove() {
+		pages.remove();
+	}
+
+}
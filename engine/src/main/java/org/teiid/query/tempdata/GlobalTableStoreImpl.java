@@ -22,6 +22,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.OptionalDataException;
 import java.io.OutputStream;
 import java.io.Serializable;
 import java.lang.ref.WeakReference;
@@ -82,6 +83,10 @@ import org.teiid.query.tempdata.TempTableStore.TransactionMode;
 public class GlobalTableStoreImpl implements GlobalTableStore, ReplicatedObject<String> {
 	
 	private static final String TEIID_FBI = "teiid:fbi"; //$NON-NLS-1$
+	/**
+	 * The version of the table state, written before each table.  Version 1 adds value indexes and columnar storage.
+	 */
+	private static final Integer STATE_VERSION = 1;
 
 	public enum MatState {
 		NEEDS_LOADING,
@@ -396,6 +401,9 @@ public class GlobalTableStoreImpl implements GlobalTableStore, ReplicatedObject<
 		String updatableString = metadata.getExtensionProperty(viewId, MaterializationMetadataRepository.MATVIEW_UPDATABLE, false);
 		if (updatableString != null) {
 			hint.setUpdatable(Boolean.valueOf(updatableString));
+		} else if (Boolean.valueOf(metadata.getExtensionProperty(viewId, MaterializationMetadataRepository.MATVIEW_INCREMENTAL, false))) {
+			//incremental maintenance requires row updates
+			hint.setUpdatable(true);
 		}
 		String scope = metadata.getExtensionProperty(viewId, MaterializationMetadataRepository.MATVIEW_SCOPE, false);
 		if (scope != null) {
@@ -423,7 +431,10 @@ public class GlobalTableStoreImpl implements GlobalTableStore, ReplicatedObject<
 	}
 	
 	private void swapTempTable(String tempTableName, TempTable tempTable) {
-    	this.tableStore.getTempTables().put(tempTableName, tempTable);
+    	TempTable old = this.tableStore.getTempTables().put(tempTableName, tempTable);
+    	if (old != null && old != tempTable) {
+    		old.releaseValueIndexBuffers();
+    	}
     }
 
 	@Override
@@ -435,7 +446,9 @@ public class GlobalTableStoreImpl implements GlobalTableStore, ReplicatedObject<
 			synchronized (id) {
 				boolean clone = tempTable.getActive().get() != 0;
 				if (clone) {
+					TempTable replaced = tempTable;
 					tempTable = tempTable.clone();
+					tempTable.transferValueIndexBuffers(replaced);
 				}
 				List<?> result = tempTable.updateTuple(tuple, delete);
 				if (clone) {
@@ -580,6 +593,7 @@ public class GlobalTableStoreImpl implements GlobalTableStore, ReplicatedObject<
 		if (writeName) {
 			oos.writeObject(stateId);
 		}
+		oos.writeObject(STATE_VERSION);
 		oos.writeLong(info.updateTime);
 		oos.writeObject(info.loadingAddress);
 		oos.writeObject(info.state);
@@ -606,6 +620,12 @@ public class GlobalTableStoreImpl implements GlobalTableStore, ReplicatedObject<
 			IOException,
 			ClassNotFoundException, TeiidProcessingException {
 		LogManager.logDetail(LogConstants.CTX_DQP, "loading table from remote stream", stateId); //$NON-NLS-1$
+		int version = 0;
+		try {
+			version = (Integer)ois.readObject();
+		} catch (OptionalDataException e) {
+			//a stream from a node without versioning starts with the update time
+		}
 		long updateTime = ois.readLong();
 		Serializable loadingAddress = (Serializable) ois.readObject();
 		MatState state = (MatState)ois.readObject();
@@ -625,7 +645,7 @@ public class GlobalTableStoreImpl implements GlobalTableStore, ReplicatedObject<
 			group.setMetadataID(getCodeTableMetadataId(viewName, returnElementName, keyElementName, stateId));
 		}
 		TempTable tempTable = this.createMatTable(stateId, group);
-		tempTable.readFrom(ois);
+		tempTable.readFrom(ois, version);
 		MatTableInfo info = this.getMatTableInfo(stateId);
 		synchronized (info) {
 			swapTempTable(stateId, tempTable);
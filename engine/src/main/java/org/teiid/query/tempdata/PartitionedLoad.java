@@ -0,0 +1,453 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.teiid.query.tempdata;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.teiid.api.exception.query.QueryMetadataException;
+import org.teiid.common.buffer.BlockedException;
+import org.teiid.common.buffer.BufferManager;
+import org.teiid.common.buffer.BufferManager.TupleSourceType;
+import org.teiid.common.buffer.TupleBuffer;
+import org.teiid.common.buffer.TupleSource;
+import org.teiid.core.TeiidComponentException;
+import org.teiid.core.TeiidProcessingException;
+import org.teiid.core.types.DataTypeManager;
+import org.teiid.logging.LogConstants;
+import org.teiid.logging.LogManager;
+import org.teiid.metadata.FunctionMethod.Determinism;
+import org.teiid.metadata.Table;
+import org.teiid.query.QueryPlugin;
+import org.teiid.query.metadata.MaterializationMetadataRepository;
+import org.teiid.query.metadata.QueryMetadataInterface;
+import org.teiid.query.parser.QueryParser;
+import org.teiid.query.processor.BatchCollector;
+import org.teiid.query.processor.ProcessorPlan;
+import org.teiid.query.processor.QueryProcessor;
+import org.teiid.query.processor.relational.ListNestedSortComparator;
+import org.teiid.query.processor.relational.RelationalNode;
+import org.teiid.query.processor.relational.RelationalPlan;
+import org.teiid.query.processor.relational.SelectNode;
+import org.teiid.query.processor.relational.SortUtility;
+import org.teiid.query.processor.relational.SortUtility.Mode;
+import org.teiid.query.resolver.QueryResolver;
+import org.teiid.query.sql.lang.Command;
+import org.teiid.query.sql.lang.CompareCriteria;
+import org.teiid.query.sql.lang.CompoundCriteria;
+import org.teiid.query.sql.lang.Criteria;
+import org.teiid.query.sql.lang.IsNullCriteria;
+import org.teiid.query.sql.lang.OrderBy;
+import org.teiid.query.sql.lang.Query;
+import org.teiid.query.sql.lang.QueryCommand;
+import org.teiid.query.sql.lang.SetQuery;
+import org.teiid.query.sql.symbol.Constant;
+import org.teiid.query.sql.symbol.ElementSymbol;
+import org.teiid.query.sql.symbol.Expression;
+import org.teiid.query.sql.symbol.Function;
+import org.teiid.query.sql.symbol.GroupSymbol;
+import org.teiid.query.sql.visitor.FunctionCollectorVisitor;
+import org.teiid.query.util.CommandContext;
+import org.teiid.translator.SourceSystemFunctions;
+
+/**
+ * Loads an internal materialized view from several partitions of its source query.
+ * <br>
+ * Each partition has its own {@link QueryProcessor}.  The partitions are read cooperatively - 
+ * a partition blocked on its source yields to the others - so the source queries for all of the 
+ * partitions execute concurrently.  Each partition is sorted on the primary key into sorted runs
+ * and the runs of all of the partitions are merged and appended to the table with the ordered bulk insert path.
+ */
+class PartitionedLoad {
+	
+	private static final int DEFAULT_PARTITIONS = 4;
+	
+	private class Partition {
+		QueryProcessor qp;
+		TupleSource source;
+		SortUtility sort;
+		TupleBuffer buffer;
+		List<TupleBuffer> runs;
+		boolean done;
+		
+		void read() throws TeiidComponentException, TeiidProcessingException {
+			if (sort != null) {
+				//leave the final merge of the runs to the merge of all partitions
+				do {
+					runs = sort.onePassSort(false);
+				} while (!sort.isDoneReading());
+				done = true;
+				return;
+			}
+			List<?> tuple = null;
+			while ((tuple = source.nextTuple()) != null) {
+				buffer.addTuple(tuple);
+			}
+			buffer.close();
+			runs = Collections.singletonList(buffer);
+			done = true;
+		}
+		
+		void close() {
+			if (sort != null) {
+				sort.remove();
+			}
+			if (buffer != null) {
+				buffer.remove();
+			}
+			qp.closeProcessing();
+		}
+	}
+	
+	/**
+	 * Merges the sorted runs, or simply concatenates the runs if there is no comparator
+	 */
+	private static class MergeTupleSource implements TupleSource {
+		
+		private TupleSource[] sources;
+		private List<?>[] heads;
+		private ListNestedSortComparator<?> comparator;
+		private int current;
+		
+		MergeTupleSource(List<TupleBuffer> runs, ListNestedSortComparator<?> comparator) {
+			this.sources = new TupleSource[runs.size()];
+			this.heads = new List<?>[runs.size()];
+			for (int i = 0; i < sources.length; i++) {
+				sources[i] = runs.get(i).createIndexedTupleSource(true);
+			}
+			this.comparator = comparator;
+		}
+		
+		@SuppressWarnings("unchecked")
+		@Override
+		public List<?> nextTuple() throws TeiidComponentException,
+				TeiidProcessingException {
+			if (comparator == null) {
+				for (; current < sources.length; current++) {
+					List<?> tuple = sources[current].nextTuple();
+					if (tuple != null) {
+						return tuple;
+					}
+				}
+				return null;
+			}
+			int min = -1;
+			for (int i = 0; i < sources.length; i++) {
+				if (heads[i] == null && sources[i] != null) {
+					heads[i] = sources[i].nextTuple();
+					if (heads[i] == null) {
+						sources[i].closeSource();
+						sources[i] = null;
+						continue;
+					}
+				}
+				if (heads[i] != null && (min == -1 || ((ListNestedSortComparator)comparator).compare(heads[i], heads[min]) < 0)) {
+					min = i;
+				}
+			}
+			if (min == -1) {
+				return null;
+			}
+			List<?> result = heads[min];
+			heads[min] = null;
+			return result;
+		}
+		
+		@Override
+		public void closeSource() {
+			for (TupleSource ts : sources) {
+				if (ts != null) {
+					ts.closeSource();
+				}
+			}
+		}
+	}
+	
+	private TempTable table;
+	private List<ElementSymbol> allColumns;
+	private List<Partition> partitions = new ArrayList<Partition>();
+	private ListNestedSortComparator<?> comparator;
+	
+	private PartitionedLoad(TempTable table, List<ElementSymbol> allColumns, List<String> queries, CommandContext context, BufferManager bm) throws TeiidComponentException, TeiidProcessingException {
+		this.table = table;
+		this.allColumns = allColumns;
+		int[] keyIndexes = new int[table.getPkLength()];
+		for (int i = 0; i < keyIndexes.length; i++) {
+			keyIndexes[i] = allColumns.indexOf(table.getColumns().get(i));
+		}
+		if (keyIndexes.length > 0) {
+			this.comparator = new ListNestedSortComparator(keyIndexes).defaultNullOrder(bm.getOptions().getDefaultNullOrder());
+		}
+		boolean success = false;
+		try {
+			for (String query : queries) {
+				Partition partition = new Partition();
+				partition.qp = context.getQueryProcessorFactory().createQueryProcessor(query, null, context);
+				partitions.add(partition);
+				partition.source = new BatchCollector.BatchProducerTupleSource(partition.qp);
+				if (comparator != null) {
+					partition.sort = new SortUtility(partition.source, Mode.SORT, bm, context.getConnectionId(), allColumns, 
+							Collections.nCopies(keyIndexes.length, OrderBy.ASC), null, keyIndexes);
+				} else {
+					partition.buffer = bm.createTupleBuffer(allColumns, context.getConnectionId(), TupleSourceType.PROCESSOR);
+				}
+			}
+			success = true;
+		} finally {
+			if (!success) {
+				close();
+			}
+		}
+	}
+	
+	/**
+	 * Read all of the partitions then load the table.
+	 * @return the row count
+	 * @throws BlockedException if all of the remaining partitions are blocked
+	 */
+	long load() throws TeiidComponentException, TeiidProcessingException {
+		BlockedException blocked = null;
+		for (Partition partition : partitions) {
+			if (partition.done) {
+				continue;
+			}
+			try {
+				partition.read();
+			} catch (BlockedException e) {
+				blocked = e;
+			}
+		}
+		if (blocked != null) {
+			throw blocked;
+		}
+		List<TupleBuffer> runs = new ArrayList<TupleBuffer>(partitions.size());
+		for (Partition partition : partitions) {
+			runs.addAll(partition.runs);
+		}
+		MergeTupleSource merge = new MergeTupleSource(runs, comparator);
+		try {
+			return table.insertOrdered(merge, allColumns);
+		} finally {
+			merge.closeSource();
+		}
+	}
+	
+	/**
+	 * @return the least deterministic level of the partition queries
+	 */
+	Determinism getDeterminismLevel() {
+		Determinism result = Determinism.DETERMINISTIC;
+		for (Partition partition : partitions) {
+			Determinism d = partition.qp.getContext().getDeterminismLevel();
+			if (d.compareTo(result) < 0) {
+				result = d;
+			}
+		}
+		return result;
+	}
+	
+	int getPartitionCount() {
+		return partitions.size();
+	}
+	
+	void close() {
+		for (Partition partition : partitions) {
+			partition.close();
+		}
+	}
+	
+	/**
+	 * Create the partitioned load of the view, or return null if the load should not be partitioned.
+	 * <br>
+	 * Partitioned loading is enabled by {@link MaterializationMetadataRepository#MATVIEW_LOAD_PARTITIONS}. 
+	 * With a {@link MaterializationMetadataRepository#MATVIEW_LOAD_PARTITION_COLUMN} the rows are split
+	 * by the value of the column modulo the number of partitions, otherwise the branches of a UNION ALL
+	 * transformation are assigned to the partitions.  Splitting by column is only used if the planned 
+	 * partition criteria is pushed to the source, as otherwise each partition would read all of the rows.
+	 */
+	static PartitionedLoad create(TempTable table, List<ElementSymbol> allColumns, QueryMetadataInterface metadata, Object viewId, 
+			String transformation, CommandContext context, BufferManager bm) throws TeiidComponentException, TeiidProcessingException {
+		String partitionsValue = metadata.getExtensionProperty(viewId, MaterializationMetadataRepository.MATVIEW_LOAD_PARTITIONS, false);
+		if (partitionsValue == null) {
+			return null;
+		}
+		String viewName = metadata.getFullName(viewId);
+		int partitionCount = DEFAULT_PARTITIONS;
+		try {
+			partitionCount = Integer.parseInt(partitionsValue.trim());
+		} catch (NumberFormatException e) {
+			LogManager.logWarning(LogConstants.CTX_MATVIEWS, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID31270, partitionsValue, viewName));
+		}
+		if (partitionCount < 2) {
+			return null;
+		}
+		boolean hasFunctionBasedIndexes = viewId instanceof Table && !((Table)viewId).getFunctionBasedIndexes().isEmpty();
+		String column = metadata.getExtensionProperty(viewId, MaterializationMetadataRepository.MATVIEW_LOAD_PARTITION_COLUMN, false);
+		List<String> queries = null;
+		if (column != null) {
+			queries = getColumnPartitions(metadata, viewName, column, transformation, hasFunctionBasedIndexes, partitionCount);
+		} else if (!hasFunctionBasedIndexes) {
+			queries = getUnionPartitions(metadata, transformation, allColumns, partitionCount);
+		}
+		if (queries == null) {
+			return null;
+		}
+		PartitionedLoad load = new PartitionedLoad(table, allColumns, queries, context, bm);
+		if (column != null && !load.isPartitionCriteriaPushed(partitionCount)) {
+			LogManager.logDetail(LogConstants.CTX_MATVIEWS, "Not partitioning the load of", viewName, "as the partition criteria is not pushed to the source"); //$NON-NLS-1$ //$NON-NLS-2$
+			load.close();
+			return null;
+		}
+		return load;
+	}
+	
+	/**
+	 * @return true if none of the partition plans evaluate the partition criteria in the engine
+	 */
+	private boolean isPartitionCriteriaPushed(int partitionCount) {
+		for (Partition partition : partitions) {
+			ProcessorPlan plan = partition.qp.getProcessorPlan();
+			if (!(plan instanceof RelationalPlan) || !isPartitionCriteriaPushed(((RelationalPlan)plan).getRootNode(), partitionCount)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	private static boolean isPartitionCriteriaPushed(RelationalNode node, int partitionCount) {
+		if (node instanceof SelectNode) {
+			for (Function function : FunctionCollectorVisitor.getFunctions(((SelectNode)node).getCriteria(), false)) {
+				if (function.getName().equalsIgnoreCase(SourceSystemFunctions.MOD) && function.getArg(1) instanceof Constant 
+						&& Integer.valueOf(partitionCount).equals(((Constant)function.getArg(1)).getValue())) {
+					return false;
+				}
+			}
+		}
+		for (RelationalNode child : node.getChildren()) {
+			if (child == null) {
+				break;
+			}
+			if (!isPartitionCriteriaPushed(child, partitionCount)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static List<String> getColumnPartitions(QueryMetadataInterface metadata, String viewName, String column, 
+			String transformation, boolean hasFunctionBasedIndexes, int partitionCount) throws TeiidComponentException, TeiidProcessingException {
+		String columnName = viewName + ElementSymbol.SEPARATOR + column;
+		Class<?> type = null;
+		try {
+			type = DataTypeManager.getDataTypeClass(metadata.getElementRuntimeTypeName(metadata.getElementID(columnName)));
+		} catch (QueryMetadataException e) {
+			//not found
+		}
+		if (type != DataTypeManager.DefaultDataClasses.INTEGER && type != DataTypeManager.DefaultDataClasses.LONG
+				&& type != DataTypeManager.DefaultDataClasses.SHORT && type != DataTypeManager.DefaultDataClasses.BYTE 
+				&& type != DataTypeManager.DefaultDataClasses.BIG_INTEGER) {
+			LogManager.logWarning(LogConstants.CTX_MATVIEWS, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID31271, column, viewName));
+			return null;
+		}
+		String baseQuery = transformation;
+		if (!hasFunctionBasedIndexes) {
+			//select from the view itself so that the criteria can use the view column name
+			GroupSymbol group = new GroupSymbol(viewName);
+			StringBuilder query = new StringBuilder("SELECT "); //$NON-NLS-1$
+			query.append(group).append(".* FROM ").append(group).append(" option nocache ").append(group); //$NON-NLS-1$ //$NON-NLS-2$
+			baseQuery = query.toString();
+		}
+		List<String> result = new ArrayList<String>(partitionCount);
+		ElementSymbol partitionColumn = new ElementSymbol(columnName);
+		for (int i = 0; i < partitionCount; i++) {
+			Query query = (Query)QueryParser.getQueryParser().parseCommand(baseQuery);
+			Expression mod = new Function(SourceSystemFunctions.ABS, new Expression[] {
+					new Function(SourceSystemFunctions.MOD, new Expression[] {partitionColumn.clone(), new Constant(partitionCount)})});
+			Criteria crit = new CompareCriteria(mod, CompareCriteria.EQ, new Constant(i));
+			if (i == 0) {
+				crit = new CompoundCriteria(CompoundCriteria.OR, crit, new IsNullCriteria(partitionColumn.clone()));
+			}
+			query.setCriteria(Criteria.combineCriteria(query.getCriteria(), crit));
+			result.add(query.toString());
+		}
+		return result;
+	}
+
+	private static List<String> getUnionPartitions(QueryMetadataInterface metadata, String transformation, 
+			List<ElementSymbol> allColumns, int partitionCount) throws TeiidComponentException, TeiidProcessingException {
+		Command command = QueryParser.getQueryParser().parseCommand(transformation);
+		List<QueryCommand> branches = new ArrayList<QueryCommand>();
+		if (!(command instanceof SetQuery) || ((SetQuery)command).getWith() != null || !getUnionAllBranches((SetQuery)command, branches)) {
+			return null;
+		}
+		//the branches must not rely upon implicit conversion by the union
+		Command resolved = QueryParser.getQueryParser().parseCommand(transformation);
+		QueryResolver.resolveCommand(resolved, metadata);
+		List<QueryCommand> resolvedBranches = new ArrayList<QueryCommand>();
+		getUnionAllBranches((SetQuery)resolved, resolvedBranches);
+		for (QueryCommand branch : resolvedBranches) {
+			List<Expression> projected = branch.getProjectedSymbols();
+			for (int i = 0; i < projected.size(); i++) {
+				if (projected.get(i).getType() != allColumns.get(i).getType()) {
+					LogManager.logDetail(LogConstants.CTX_MATVIEWS, "Not partitioning the load as the union requires type conversion", branch); //$NON-NLS-1$
+					return null;
+				}
+			}
+		}
+		partitionCount = Math.min(partitionCount, branches.size());
+		List<String> result = new ArrayList<String>(partitionCount);
+		for (int i = 0; i < partitionCount; i++) {
+			StringBuilder query = new StringBuilder();
+			for (int j = i; j < branches.size(); j += partitionCount) {
+				if (query.length() > 0) {
+					query.append(" UNION ALL "); //$NON-NLS-1$
+				}
+				query.append(branches.get(j));
+			}
+			if (command.getOption() != null) {
+				query.append(' ').append(command.getOption());
+			}
+			result.add(query.toString());
+		}
+		return result;
+	}
+
+	/**
+	 * Collect the branches of nested UNION ALLs
+	 * @return false if the set query is not a simple UNION ALL
+	 */
+	private static boolean getUnionAllBranches(SetQuery setQuery, List<QueryCommand> branches) {
+		if (setQuery.getOperation() != SetQuery.Operation.UNION || !setQuery.isAll() 
+				|| setQuery.getOrderBy() != null || setQuery.getLimit() != null) {
+			return false;
+		}
+		for (QueryCommand queryCommand : setQuery.getQueryCommands()) {
+			if (queryCommand instanceof SetQuery) {
+				if (!getUnionAllBranches((SetQuery)queryCommand, branches)) {
+					return false;
+				}
+			} else {
+				branches.add(queryCommand);
+			}
+		}
+		return true;
+	}
+
+}
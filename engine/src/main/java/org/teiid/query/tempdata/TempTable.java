@@ -31,6 +31,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -69,6 +70,7 @@ import org.teiid.query.sql.symbol.Array;
 import org.teiid.query.sql.symbol.ElementSymbol;
 import org.teiid.query.sql.symbol.Expression;
 import org.teiid.query.sql.symbol.ExpressionSymbol;
+import org.teiid.query.sql.visitor.ElementCollectorVisitor;
 import org.teiid.query.util.CommandContext;
 import org.teiid.query.util.GeneratedKeysImpl;
 
@@ -86,6 +88,8 @@ public class TempTable implements Cloneable, SearchableTable {
 		private GeneratedKeysImpl keys;
 		private boolean upsert;
         private TupleBuffer upsertUndoLog;
+        private boolean ordered;
+        private List<?> lastOrdered;
 		
 		private InsertUpdateProcessor(TupleSource ts, boolean addRowId, int[] indexes, boolean canUndo, boolean upsert)
 				throws TeiidComponentException {
@@ -104,7 +108,7 @@ public class TempTable implements Cloneable, SearchableTable {
 		@Override
 		long process() throws ExpressionEvaluationException,
 				TeiidComponentException, TeiidProcessingException {
-			tree.setBatchInsert(addRowId);
+			tree.setBatchInsert(addRowId || ordered);
 			return super.process();
 		}
 		
@@ -186,7 +190,11 @@ public class TempTable implements Cloneable, SearchableTable {
 			    currentTuple = null;
 			    return;
 			}
-			insertTuple(tuple, addRowId, true);
+			if (ordered) {
+				insertOrderedTuple(tuple);
+			} else {
+				insertTuple(tuple, addRowId, true);
+			}
 			if (generatedKey != null) {
 				this.keys.addKey(generatedKey);
 			}
@@ -198,10 +206,32 @@ public class TempTable implements Cloneable, SearchableTable {
 			deleteTuple(tuple);
 		}
 
+		/**
+		 * Append tuples that are greater than the last appended key, otherwise 
+		 * fall back to a normal insert
+		 */
+		private void insertOrderedTuple(List<?> tuple) throws TeiidComponentException, TeiidProcessingException {
+			if (lastOrdered == null || tree.getComparator().compare(tuple, lastOrdered) > 0) {
+				insertTuple(tuple, true, true);
+				lastOrdered = tuple;
+				return;
+			}
+			tree.setBatchInsert(false);
+			try {
+				insertTuple(tuple, false, true);
+			} finally {
+				tree.setBatchInsert(true);
+			}
+		}
+
 		public void setGeneratedKeys(GeneratedKeysImpl keys) {
 			this.keys = keys;
 		}
 		
+		void setOrdered(boolean ordered) {
+			this.ordered = ordered;
+		}
+		
 		@Override
 		public void close() {
 		    super.close();
@@ -364,6 +394,7 @@ public class TempTable implements Cloneable, SearchableTable {
 		
 	}
 	private static AtomicLong ID_GENERATOR = new AtomicLong();
+	private static final int VALUE_INDEX_RESERVE_CHUNK = 1 << 16;
 	
 	private Long id = ID_GENERATOR.getAndIncrement();
 	private STree tree;
@@ -375,6 +406,16 @@ public class TempTable implements Cloneable, SearchableTable {
 	private ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
 	private boolean updatable = true;
 	private LinkedHashMap<List<ElementSymbol>, TempTable> indexTables;
+	private ValueIndexes valueIndexes;
+	/**
+	 * Buffer space reserved for the on heap value indexes.  It is held by the table rather than a command. 
+	 */
+	private AtomicLong valueIndexReserved = new AtomicLong();
+	/**
+	 * The number of reads that were answered from the value indexes
+	 */
+	private AtomicLong valueIndexReads = new AtomicLong();
+	private ColumnarStore columnar;
 	
 	private int keyBatchSize;
 	private int leafBatchSize;
@@ -455,6 +496,12 @@ public class TempTable implements Cloneable, SearchableTable {
 					entry.setValue(indexClone);
 				}
 			}
+			if (clone.valueIndexes != null) {
+				clone.valueIndexes = clone.valueIndexes.clone();
+			}
+			//the structures are shared, see transferValueIndexBuffers
+			clone.valueIndexReserved = new AtomicLong();
+			clone.valueIndexReads = new AtomicLong();
 			clone.tree = tree.clone();
 			clone.activeReaders = new AtomicInteger();
 			return clone;
@@ -470,6 +517,20 @@ public class TempTable implements Cloneable, SearchableTable {
 	}
 	
 	void addIndex(List<ElementSymbol> indexColumns, boolean unique) throws TeiidComponentException, TeiidProcessingException {
+		addIndex(indexColumns, unique, ValueIndexes.Type.TREE);
+	}
+	
+	void addIndex(List<ElementSymbol> indexColumns, boolean unique, ValueIndexes.Type type) throws TeiidComponentException, TeiidProcessingException {
+		if (type != ValueIndexes.Type.TREE && !ValueIndexes.isConsistentWithComparator(indexColumns)) {
+			LogManager.logWarning(LogConstants.CTX_DQP, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID31275, type, indexColumns, tid.getID()));
+			type = ValueIndexes.Type.TREE;
+		}
+		if (type != ValueIndexes.Type.TREE) {
+			if (valueIndexes == null || !valueIndexes.contains(indexColumns)) {
+				addValueIndex(new ValueIndexes.ValueIndex(type, indexColumns, RelationalNode.getProjectionIndexes(columnMap, indexColumns)));
+			}
+			return;
+		}
 		List<ElementSymbol> keyColumns = columns.subList(0, tree.getKeyLength());
 		if (keyColumns.equals(indexColumns) || (indexTables != null && indexTables.containsKey(indexColumns))) {
 			return;
@@ -481,6 +542,89 @@ public class TempTable implements Cloneable, SearchableTable {
 		indexTable.getTree().compact();
 	}
 
+	private void addValueIndex(ValueIndexes.ValueIndex index) throws TeiidComponentException, TeiidProcessingException {
+		if (valueIndexes == null) {
+			valueIndexes = new ValueIndexes(tree.getKeyLength(), tree.getComparator());
+		}
+		valueIndexes.addIndex(index);
+		buildValueIndexes();
+	}
+	
+	/**
+	 * Build the value indexes and reserve buffer space for them.  If the space
+	 * is not available the value indexes are dropped, since the tree still provides access. 
+	 */
+	private void buildValueIndexes() throws TeiidComponentException, TeiidProcessingException {
+		valueIndexes.build(new TupleBrowser(this.tree, null, null, OrderBy.ASC, true), tree.getRowCount());
+		long size = valueIndexes.getSizeEstimate();
+		if (size > valueIndexReserved.get()) {
+			int needed = (int)Math.min(Integer.MAX_VALUE, size - valueIndexReserved.get());
+			int reserved = reserveValueIndexBuffers(needed, BufferReserveMode.NO_WAIT);
+			if (reserved < needed) {
+				releaseValueIndexBuffers();
+				LogManager.logWarning(LogConstants.CTX_DQP, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID31274, tid.getID(), size));
+				valueIndexes = null;
+			}
+		} else {
+			trimValueIndexBuffers(size);
+		}
+	}
+	
+	/**
+	 * Keep the reservation in line with the value indexes after a row change.
+	 * Growth is forced, since the change has already been made.
+	 */
+	private void maintainValueIndexes() throws TeiidComponentException {
+		if (valueIndexes.needsCompaction()) {
+			try {
+				valueIndexes.build(new TupleBrowser(this.tree, null, null, OrderBy.ASC, true), tree.getRowCount());
+			} catch (TeiidProcessingException e) {
+				throw new TeiidComponentException(e);
+			}
+		}
+		long size = valueIndexes.getSizeEstimate();
+		long reserved = valueIndexReserved.get();
+		if (size > reserved) {
+			reserveValueIndexBuffers((int)Math.min(Integer.MAX_VALUE, Math.max(size - reserved, VALUE_INDEX_RESERVE_CHUNK)), BufferReserveMode.FORCE);
+		} else {
+			trimValueIndexBuffers(size);
+		}
+	}
+
+	private int reserveValueIndexBuffers(int count, BufferReserveMode mode) {
+		int reserved = bm.reserveBuffers(count, mode);
+		//held by the table, not the current command
+		CommandContext cc = CommandContext.getThreadLocalContext();
+		if (cc != null) {
+			cc.addAndGetReservedBuffers(-reserved);
+		}
+		valueIndexReserved.addAndGet(reserved);
+		return reserved;
+	}
+	
+	private void trimValueIndexBuffers(long size) {
+		long excess = valueIndexReserved.get() - size - VALUE_INDEX_RESERVE_CHUNK;
+		if (excess > VALUE_INDEX_RESERVE_CHUNK) {
+			valueIndexReserved.addAndGet(-excess);
+			bm.releaseOrphanedBuffers(excess);
+		}
+	}
+	
+	/**
+	 * Release the buffer space held for the value indexes, called when
+	 * the table is removed or replaced. 
+	 */
+	void releaseValueIndexBuffers() {
+		bm.releaseOrphanedBuffers(valueIndexReserved.getAndSet(0));
+	}
+	
+	/**
+	 * Take over the value index reservation of a table that this clone replaces
+	 */
+	void transferValueIndexBuffers(TempTable replaced) {
+		this.valueIndexReserved.addAndGet(replaced.valueIndexReserved.getAndSet(0));
+	}
+
 	private TempTable createIndexTable(List<ElementSymbol> indexColumns,
 			boolean unique) {
 		List<ElementSymbol> allColumns = new ArrayList<ElementSymbol>(indexColumns);
@@ -497,8 +641,8 @@ public class TempTable implements Cloneable, SearchableTable {
 		}
 		if (indexTables == null) {
 			indexTables = new LinkedHashMap<List<ElementSymbol>, TempTable>();
-			indexTables.put(indexColumns, indexTable);
 		}
+		indexTables.put(indexColumns, indexTable);
 		indexTable.setUpdatable(this.updatable);
 		return indexTable;
 	}
@@ -523,8 +667,21 @@ public class TempTable implements Cloneable, SearchableTable {
 			}
 			orderBy = null;
 		}
+		if (columnar != null) {
+			return createColumnarTupleSource(projectedCols, condition, orderBy, agg);
+		}
 		IndexInfo primary = new IndexInfo(this, projectedCols, condition, orderBy, true);
 		IndexInfo ii = primary;
+		if (valueIndexes != null && condition != null && ii.valueSet.isEmpty()) {
+			List<List<?>> keys = lookupValueIndexes(condition, ii.ordering == null?OrderBy.ASC:ii.ordering);
+			long rowCost = this.tree.getRowCount();
+			//the value index result is exact, so it just needs to be cheaper than the tree lookup
+			if (keys != null && keys.size() * (64 - Long.numberOfLeadingZeros(rowCost - 1)) < estimateCost(orderBy, ii, rowCost)) {
+				primary.valueTs = new CollectionTupleSource(keys.iterator());
+				valueIndexReads.incrementAndGet();
+				return createTupleSource(projectedCols, condition, orderBy, primary, agg);
+			}
+		}
 		if (indexTables != null && (condition != null || orderBy != null) && ii.valueSet.size() != 1) {
 			LogManager.logDetail(LogConstants.CTX_DQP, "Considering indexes on table", this, "for query", projectedCols, condition, orderBy); //$NON-NLS-1$ //$NON-NLS-2$
 			long rowCost = this.tree.getRowCount();
@@ -608,6 +765,103 @@ public class TempTable implements Cloneable, SearchableTable {
 		}
 	}
 
+	/**
+	 * Scan only the needed columns of the pages that may match the condition, then 
+	 * filter, project, and sort as needed.
+	 */
+	private TupleSource createColumnarTupleSource(
+			final List<? extends Expression> projectedCols,
+			final Criteria condition, OrderBy orderBy, boolean agg)
+			throws TeiidComponentException, TeiidProcessingException {
+		final int[] indexes = agg?null:RelationalNode.getProjectionIndexes(columnMap, projectedCols);
+		Set<Integer> needed = new TreeSet<Integer>();
+		if (indexes != null) {
+			for (int index : indexes) {
+				needed.add(index);
+			}
+		}
+		if (condition != null) {
+			for (ElementSymbol es : ElementCollectorVisitor.getElements(condition, true)) {
+				needed.add(columnMap.get(es));
+			}
+		}
+		int[] neededColumns = new int[needed.size()];
+		int i = 0;
+		for (Integer index : needed) {
+			neededColumns[i++] = index;
+		}
+		final TupleSource scan = columnar.createTupleSource(neededColumns, ColumnarStore.getZonePredicates(condition, columnMap));
+		final Evaluator eval = new Evaluator(columnMap, null, null);
+		TupleSource ts = new TupleSource() {
+			
+			@Override
+			public List<?> nextTuple() throws TeiidComponentException,
+					TeiidProcessingException {
+				for (;;) {
+					List<?> next = scan.nextTuple();
+					if (next == null) {
+						return null;
+					}
+					if (condition != null && !eval.evaluate(condition, next)) {
+						continue;
+					}
+					if (indexes != null) {
+						next = RelationalNode.projectTuple(indexes, next);
+					}
+					return next;
+				}
+			}
+			
+			@Override
+			public void closeSource() {
+				scan.closeSource();
+			}
+		};
+		if (agg) {
+			try {
+				int count = 0;
+				while (ts.nextTuple() != null) {
+					count++;
+				}
+				return new CollectionTupleSource(Arrays.asList(Collections.nCopies(projectedCols.size(), count)).iterator());
+			} finally {
+				ts.closeSource();
+			}
+		}
+		//the pages are in primary key order
+		if (orderBy != null && !Boolean.TRUE.equals(new IndexInfo(this, projectedCols, condition, orderBy, true).ordering)) {
+			SortUtility sort = new SortUtility(ts, orderBy.getOrderByItems(), Mode.SORT, bm, sessionID, projectedCols);
+			sort.setNonBlocking(true);
+			TupleBuffer tb = null;
+			boolean success = false;
+			try {
+				tb = sort.sort();
+				tb.close();
+				success = true;
+				return tb.createIndexedTupleSource(true);
+			} finally {
+				if (!success && tb != null) {
+					tb.remove();
+				}
+				ts.closeSource();
+			}
+		}
+		return ts;
+	}
+
+	private List<List<?>> lookupValueIndexes(Criteria condition, boolean direction) {
+		if (updatable) {
+			lock.readLock().lock();
+		}
+		try {
+			return valueIndexes.lookup(condition, direction);
+		} finally {
+			if (updatable) {
+				lock.readLock().unlock();
+			}
+		}
+	}
+
 	/**
 	 * TODO: this could easily use statistics - the tree level 1 would be an ideal place
 	 * to compute them, since it minimizes page loads, and is a random sample.
@@ -653,25 +907,74 @@ public class TempTable implements Cloneable, SearchableTable {
 		return ii.createTupleBrowser(bm.getOptions().getDefaultNullOrder(), false);
 	}
 	
+	/**
+	 * @return the number of reads that were answered from the hash or bitmap indexes
+	 */
+	public long getValueIndexReads() {
+		return valueIndexReads.get();
+	}
+	
 	public long getRowCount() {
+		if (columnar != null) {
+			return columnar.getRowCount();
+		}
 		return tree.getRowCount();
 	}
 	
 	public long truncate(boolean force) {
-		this.tid.getTableData().dataModified(tree.getRowCount());
+		this.tid.getTableData().dataModified(getRowCount());
+		if (columnar != null) {
+			long result = columnar.getRowCount();
+			columnar.remove();
+			columnar = null;
+			return result;
+		}
 		return tree.truncate(force);
 	}
 	
+	/**
+	 * Convert a read-only table without indexes to columnar storage.  The row storage is released.
+	 * @return false if the table cannot use columnar storage
+	 */
+	boolean setColumnar(int pageSize) throws TeiidComponentException, TeiidProcessingException {
+		if (updatable || indexTables != null || valueIndexes != null || !ColumnarStore.isSupported(columns)) {
+			return false;
+		}
+		ColumnarStore store = new ColumnarStore(columns, pageSize, bm, sessionID);
+		try {
+			store.load(new TupleBrowser(this.tree, null, null, OrderBy.ASC, true));
+		} catch (TeiidComponentException e) {
+			store.remove();
+			throw e;
+		} catch (TeiidProcessingException e) {
+			store.remove();
+			throw e;
+		}
+		this.columnar = store;
+		this.tree.truncate(true);
+		return true;
+	}
+	
+	boolean isColumnar() {
+		return columnar != null;
+	}
+	
 	public void remove() {
 		lock.writeLock().lock();
 		try {
 			tid.getTableData().removed();
 			tree.remove();
+			if (this.columnar != null) {
+				this.columnar.remove();
+				this.columnar = null;
+			}
 			if (this.indexTables != null) {
 				for (TempTable indexTable : this.indexTables.values()) {
 					indexTable.remove();
 				}
 			}
+			this.valueIndexes = null;
+			releaseValueIndexBuffers();
 		} finally {
 			lock.writeLock().unlock();
 		}
@@ -716,20 +1019,14 @@ public class TempTable implements Cloneable, SearchableTable {
 	}
 	
 	public TupleSource insert(TupleSource tuples, final List<ElementSymbol> variables, boolean canUndo, boolean upsert, CommandContext context) throws TeiidComponentException, ExpressionEvaluationException, TeiidProcessingException {
-		List<ElementSymbol> cols = getColumns();
-		final int[] indexes = new int[cols.size()];
-		boolean shouldProject = false;
-		for (int i = 0; i < cols.size(); i++) {
-			indexes[i] = variables.indexOf(cols.get(i));
-			shouldProject |= (indexes[i] != i);
-		}
-		InsertUpdateProcessor up = new InsertUpdateProcessor(tuples, rowId != null, shouldProject?indexes:null, canUndo, upsert);
+		final int[] indexes = getInsertIndexes(variables);
+		InsertUpdateProcessor up = new InsertUpdateProcessor(tuples, rowId != null, indexes, canUndo, upsert);
 		if (context != null && context.isReturnAutoGeneratedKeys() && rowId == null) {
 			List<String> colNames = null;
 			List<Class<?>> colTypes = null;
 			for (int i = 0; i < tree.getKeyLength(); i++) {
 				TempMetadataID col = tid.getElements().get(i);
-				if (col.isAutoIncrement() && indexes[i] == -1) {
+				if (col.isAutoIncrement() && indexes != null && indexes[i] == -1) {
 					if (colNames == null) {
 						colNames = new ArrayList<String>();
 						colTypes = new ArrayList<Class<?>>();
@@ -750,6 +1047,34 @@ public class TempTable implements Cloneable, SearchableTable {
         return CollectionTupleSource.createUpdateCountArrayTupleSource(updateCount);
     }
 	
+	/**
+	 * Insert tuples expected to be in primary key order using the ordered bulk insert
+	 * path of the tree.  Out of order tuples are still accepted, but with a normal insert.
+	 * @return the insert count
+	 */
+	long insertOrdered(TupleSource tuples, final List<ElementSymbol> variables) throws TeiidComponentException, ExpressionEvaluationException, TeiidProcessingException {
+		InsertUpdateProcessor up = new InsertUpdateProcessor(tuples, rowId != null, getInsertIndexes(variables), false, false);
+		up.setOrdered(rowId == null);
+		long updateCount = up.process();
+		tid.setCardinality(tree.getRowCount());
+		tid.getTableData().dataModified(updateCount);
+		return updateCount;
+	}
+
+	/**
+	 * @return the positions of the table columns in the variables or null if no projection is needed 
+	 */
+	private int[] getInsertIndexes(final List<ElementSymbol> variables) {
+		List<ElementSymbol> cols = getColumns();
+		int[] indexes = new int[cols.size()];
+		boolean shouldProject = false;
+		for (int i = 0; i < cols.size(); i++) {
+			indexes[i] = variables.indexOf(cols.get(i));
+			shouldProject |= (indexes[i] != i);
+		}
+		return shouldProject?indexes:null;
+	}
+	
 	public TupleSource update(Criteria crit, final SetClauseList update) throws TeiidComponentException, ExpressionEvaluationException, TeiidProcessingException {
 		final boolean primaryKeyChangePossible = canChangePrimaryKey(update);
 		final TupleBrowser browser = createTupleBrower(crit, OrderBy.ASC);
@@ -868,7 +1193,11 @@ public class TempTable implements Cloneable, SearchableTable {
 	void writeTo(ObjectOutputStream oos) throws TeiidComponentException, IOException {
 		this.lock.readLock().lock();
 		try {
-			this.tree.writeValuesTo(oos);
+			if (this.columnar != null) {
+				this.columnar.writeValuesTo(oos);
+			} else {
+				this.tree.writeValuesTo(oos);
+			}
 			if (this.indexTables == null) {
 				oos.writeInt(0);
 			} else {
@@ -882,12 +1211,29 @@ public class TempTable implements Cloneable, SearchableTable {
 					entry.getValue().writeTo(oos);
 				}
 			}
+			if (this.valueIndexes == null) {
+				oos.writeInt(0);
+			} else {
+				oos.writeInt(this.valueIndexes.getIndexes().size());
+				for (ValueIndexes.ValueIndex index : this.valueIndexes.getIndexes()) {
+					oos.writeInt(index.getType().ordinal());
+					oos.writeInt(index.getColumns().size());
+					for (ElementSymbol es : index.getColumns()) {
+						oos.writeInt(this.columnMap.get(es));
+					}
+				}
+			}
+			oos.writeInt(this.columnar == null?0:this.columnar.getPageSize());
 		} finally {
 			this.lock.readLock().unlock();
 		}
 	}
 	
-	void readFrom(ObjectInputStream ois) throws TeiidComponentException, IOException, ClassNotFoundException {
+	/**
+	 * @param version the state version from {@link #writeTo(ObjectOutputStream)} callers, 
+	 * 0 for streams without value indexes or columnar storage
+	 */
+	void readFrom(ObjectInputStream ois, int version) throws TeiidComponentException, IOException, ClassNotFoundException {
 		this.tree.readValuesFrom(ois);
 		int numIdx = ois.readInt();
 		for (int i = 0; i < numIdx; i++) {
@@ -899,7 +1245,49 @@ public class TempTable implements Cloneable, SearchableTable {
 				indexColumns.add(this.columns.get(colIndex));
 			}
 			TempTable tt = this.createIndexTable(indexColumns, unique);
-			tt.readFrom(ois);
+			tt.readFrom(ois, version);
+		}
+		if (version < 1) {
+			return;
+		}
+		int numValueIdx = ois.readInt();
+		List<ValueIndexes.ValueIndex> treeIndexes = null;
+		for (int i = 0; i < numValueIdx; i++) {
+			ValueIndexes.Type type = ValueIndexes.Type.values()[ois.readInt()];
+			int numCols = ois.readInt();
+			ArrayList<ElementSymbol> indexColumns = new ArrayList<ElementSymbol>(numCols);
+			for (int j = 0; j < numCols; j++) {
+				indexColumns.add(this.columns.get(ois.readInt()));
+			}
+			ValueIndexes.ValueIndex index = new ValueIndexes.ValueIndex(type, indexColumns, RelationalNode.getProjectionIndexes(columnMap, indexColumns));
+			if (!ValueIndexes.isConsistentWithComparator(indexColumns)) {
+				//the sending node may have different comparison settings
+				if (treeIndexes == null) {
+					treeIndexes = new ArrayList<ValueIndexes.ValueIndex>(2);
+				}
+				treeIndexes.add(index);
+				continue;
+			}
+			if (this.valueIndexes == null) {
+				this.valueIndexes = new ValueIndexes(tree.getKeyLength(), tree.getComparator());
+			}
+			this.valueIndexes.addIndex(index);
+		}
+		int pageSize = ois.readInt();
+		try {
+			if (this.valueIndexes != null) {
+				buildValueIndexes();
+			}
+			if (treeIndexes != null) {
+				for (ValueIndexes.ValueIndex index : treeIndexes) {
+					addIndex(index.getColumns(), false, index.getType());
+				}
+			}
+			if (pageSize > 0) {
+				this.setColumnar(pageSize);
+			}
+		} catch (TeiidProcessingException e) {
+			throw new TeiidComponentException(e);
 		}
 	}
 	
@@ -913,18 +1301,26 @@ public class TempTable implements Cloneable, SearchableTable {
 				}
 				if (indexTables != null) {
 					for (TempTable index : this.indexTables.values()) {
-						tuple = RelationalNode.projectTuple(RelationalNode.getProjectionIndexes(index.getColumnMap(), index.columns), result);
-						index.tree.remove(tuple);
+						List<?> indexTuple = RelationalNode.projectTuple(RelationalNode.getProjectionIndexes(index.getColumnMap(), index.columns), result);
+						index.tree.remove(indexTuple);
 					}
 				}
+				if (valueIndexes != null) {
+					valueIndexes.remove(result);
+					maintainValueIndexes();
+				}
 				tid.getTableData().dataModified(1);
 				return result;
 			} 
 			List<?> result = tree.insert(tuple, InsertMode.UPDATE, -1);
+			if (valueIndexes != null) {
+				valueIndexes.insert(tuple, result);
+				maintainValueIndexes();
+			}
 			if (indexTables != null) {
 				for (TempTable index : this.indexTables.values()) {
-					tuple = RelationalNode.projectTuple(RelationalNode.getProjectionIndexes(index.getColumnMap(), index.columns), tuple);
-					index.tree.insert(tuple, InsertMode.UPDATE, -1);
+					List<?> indexTuple = RelationalNode.projectTuple(RelationalNode.getProjectionIndexes(index.getColumnMap(), index.columns), tuple);
+					index.tree.insert(indexTuple, InsertMode.UPDATE, -1);
 				}
 			}
 			tid.getTableData().dataModified(1);
@@ -63,6 +63,7 @@ import org.teiid.logging.LogManager;
 import org.teiid.metadata.FunctionMethod.Determinism;
 import org.teiid.query.QueryPlugin;
 import org.teiid.query.eval.Evaluator;
+import org.teiid.query.metadata.MaterializationMetadataRepository;
 import org.teiid.query.metadata.QueryMetadataInterface;
 import org.teiid.query.metadata.TempMetadataAdapter;
 import org.teiid.query.metadata.TempMetadataID;
@@ -707,6 +708,7 @@ public class TempTableDataManager implements ProcessorDataManager {
 		table.setUpdatable(false);
 		return new ProxyTupleSource() {
 			TupleSource insertTupleSource;
+			PartitionedLoad partitionedLoad;
 			boolean success;
 			QueryProcessor qp;
 			boolean closed;
@@ -717,29 +719,56 @@ public class TempTableDataManager implements ProcessorDataManager {
 					TeiidProcessingException {
 				long rowCount = -1;
 				try {
-					if (insertTupleSource == null) {
+					if (insertTupleSource == null && partitionedLoad == null) {
 						String fullName = metadata.getFullName(group.getMetadataID());
 						String transformation = metadata.getVirtualPlan(group.getMetadataID()).getQuery();
-						qp = context.getQueryProcessorFactory().createQueryProcessor(transformation, fullName, context);
-						insertTupleSource = new BatchCollector.BatchProducerTupleSource(qp);
+						Object viewId = ((TempMetadataID)group.getMetadataID()).getOriginalMetadataID();
+						if (viewId != null) {
+							partitionedLoad = PartitionedLoad.create(table, allColumns, metadata, viewId, transformation, context, bufferManager);
+						}
+						if (partitionedLoad != null) {
+							LogManager.logDetail(LogConstants.CTX_MATVIEWS, "Loading", tableName, "with", partitionedLoad.getPartitionCount(), "partitions"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+						} else {
+							qp = context.getQueryProcessorFactory().createQueryProcessor(transformation, fullName, context);
+							insertTupleSource = new BatchCollector.BatchProducerTupleSource(qp);
+						}
+					}
+					Determinism determinism = null;
+					if (partitionedLoad != null) {
+						partitionedLoad.load();
+						determinism = partitionedLoad.getDeterminismLevel();
+					} else {
+						table.insert(insertTupleSource, allColumns, false, false, null);
+						determinism = qp.getContext().getDeterminismLevel();
 					}
-					table.insert(insertTupleSource, allColumns, false, false, null);
 					table.getTree().compact();
 					rowCount = table.getRowCount();
-					Determinism determinism = qp.getContext().getDeterminismLevel();
 					context.setDeterminismLevel(determinism);
-					//TODO: could pre-process indexes to remove overlap
-					for (Object index : metadata.getIndexesInGroup(group.getMetadataID())) {
-						List<ElementSymbol> columns = GlobalTableStoreImpl.resolveIndex(metadata, allColumns, index);
-						table.addIndex(columns, false);
+					CacheHint hint = table.getCacheHint();
+					boolean updatable = hint != null && table.getPkLength() > 0 && hint.isUpdatable(false);
+					Object viewId = ((TempMetadataID)group.getMetadataID()).getOriginalMetadataID();
+					int pageSize = 0;
+					if (!updatable && viewId != null) {
+						pageSize = getColumnarPageSize(metadata, viewId);
 					}
-					for (Object key : metadata.getUniqueKeysInGroup(group.getMetadataID())) {
-						List<ElementSymbol> columns = GlobalTableStoreImpl.resolveIndex(metadata, allColumns, key);
-						table.addIndex(columns, true);
+					if (pageSize > 0) {
+						LogManager.logDetail(LogConstants.CTX_MATVIEWS, "Using columnar storage for", tableName, "indexes will not be created"); //$NON-NLS-1$ //$NON-NLS-2$
+					} else {
+						//TODO: could pre-process indexes to remove overlap
+						for (Object index : metadata.getIndexesInGroup(group.getMetadataID())) {
+							List<ElementSymbol> columns = GlobalTableStoreImpl.resolveIndex(metadata, allColumns, index);
+							table.addIndex(columns, false, getIndexType(metadata, index));
+						}
+						for (Object key : metadata.getUniqueKeysInGroup(group.getMetadataID())) {
+							List<ElementSymbol> columns = GlobalTableStoreImpl.resolveIndex(metadata, allColumns, key);
+							table.addIndex(columns, true, getIndexType(metadata, key));
+						}
 					}
-					CacheHint hint = table.getCacheHint();
 					if (hint != null && table.getPkLength() > 0) {
-						table.setUpdatable(hint.isUpdatable(false));
+						table.setUpdatable(updatable);
+					}
+					if (pageSize > 0 && !table.setColumnar(pageSize)) {
+						LogManager.logWarning(LogConstants.CTX_MATVIEWS, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID31273, tableName));
 					}
 					if (determinism.compareTo(Determinism.VDB_DETERMINISTIC) < 0 && (hint == null || hint.getScope() == null || Scope.VDB.compareTo(hint.getScope()) <= 0)) {
 						LogManager.logInfo(LogConstants.CTX_DQP, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID31143, determinism, tableName)); //$NON-NLS-1$
@@ -778,6 +807,9 @@ public class TempTableDataManager implements ProcessorDataManager {
 				if (qp != null) {
 					qp.closeProcessing();
 				}
+				if (partitionedLoad != null) {
+					partitionedLoad.close();
+				}
 				super.closeSource();
 			}
 		};
@@ -851,6 +883,40 @@ public class TempTableDataManager implements ProcessorDataManager {
 		return newSession;
 	}
 	
+	private static ValueIndexes.Type getIndexType(QueryMetadataInterface metadata, Object index) throws TeiidComponentException, QueryMetadataException {
+		String type = metadata.getExtensionProperty(index, MaterializationMetadataRepository.MATVIEW_INDEX_TYPE, false);
+		if (type == null) {
+			return ValueIndexes.Type.TREE;
+		}
+		return ValueIndexes.getType(type, metadata.getName(index));
+	}
+	
+	/**
+	 * @return the page size to use for columnar storage, or 0 if row storage should be used
+	 */
+	private static int getColumnarPageSize(QueryMetadataInterface metadata, Object viewId) throws TeiidComponentException, QueryMetadataException {
+		String storage = metadata.getExtensionProperty(viewId, MaterializationMetadataRepository.MATVIEW_STORAGE, false);
+		if (storage == null || storage.trim().equalsIgnoreCase("ROW")) { //$NON-NLS-1$
+			return 0;
+		}
+		if (!storage.trim().equalsIgnoreCase("COLUMNAR")) { //$NON-NLS-1$
+			LogManager.logWarning(LogConstants.CTX_MATVIEWS, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID31272, storage, metadata.getFullName(viewId)));
+			return 0;
+		}
+		String pageSize = metadata.getExtensionProperty(viewId, MaterializationMetadataRepository.MATVIEW_STORAGE_PAGE_SIZE, false);
+		if (pageSize != null) {
+			try {
+				int result = Integer.parseInt(pageSize.trim());
+				if (result > 0) {
+					return result;
+				}
+			} catch (NumberFormatException e) {
+				//use the default
+			}
+		}
+		return ColumnarStore.DEFAULT_PAGE_SIZE;
+	}
+	
 	private static void rethrow(Throwable e)
 			throws TeiidComponentException,
 			TeiidProcessingException {
@@ -0,0 +1,960 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.teiid.query.tempdata;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.teiid.common.buffer.TupleBrowser;
+import org.teiid.core.TeiidComponentException;
+import org.teiid.core.TeiidProcessingException;
+import org.teiid.logging.LogConstants;
+import org.teiid.logging.LogManager;
+import org.teiid.query.QueryPlugin;
+import org.teiid.query.processor.relational.ListNestedSortComparator;
+import org.teiid.query.sql.lang.CompareCriteria;
+import org.teiid.query.sql.lang.Criteria;
+import org.teiid.query.sql.lang.IsNullCriteria;
+import org.teiid.query.sql.lang.OrderBy;
+import org.teiid.query.sql.lang.SetCriteria;
+import org.teiid.query.sql.symbol.Constant;
+import org.teiid.query.sql.symbol.ElementSymbol;
+import org.teiid.query.sql.symbol.Expression;
+
+/**
+ * Hash and bitmap secondary indexes for a {@link TempTable}.
+ * <br>
+ * Rather than an STree ordered by the index columns, each index maps column values
+ * directly to row ordinals.  Ordinals are assigned in primary key order when the indexes
+ * are built, so the primary keys for a lookup can usually be fed to a value based
+ * {@link TupleBrowser} without sorting.
+ * <br>
+ * Hash indexes are intended for point lookups against high cardinality columns, bitmap
+ * indexes for low cardinality columns that are combined with other conjuncts.  The
+ * structures are held on heap, see {@link #getSizeEstimate()}.
+ * <br>
+ * Like the STree, a clone shares its structures with the original.  The primary keys are held 
+ * in pages and the maps in segments, which are copied on the first write by the owning instance, 
+ * so that a single row update after a clone does not copy the whole index.
+ */
+class ValueIndexes implements Cloneable {
+	
+	enum Type {
+		TREE,
+		HASH,
+		BITMAP
+	}
+	
+	/**
+	 * The maximum number of keys that the values for a multi-column index will be expanded to 
+	 */
+	private static final int MAX_KEYS = 1 << 12;
+	
+	/**
+	 * The number of keys in a page and the target number of entries in a map segment
+	 */
+	private static final int PAGE_SIZE = 1 << 10;
+	
+	private static final int BITMAP_PAGE_BITS = 1 << 16;
+	
+	/**
+	 * Rough per entry and per value heap sizes used for the size estimate
+	 */
+	private static final int ENTRY_BYTES = 48;
+	private static final int VALUE_BYTES = 24;
+	
+	/**
+	 * A hash map split into segments by the high bits of a fibonacci hash.
+	 * Segments not created by the current owner are copied before they are modified.
+	 */
+	static final class SegmentedMap<K, V> implements Cloneable {
+		
+		private static final class Segment<K, V> {
+			final Object owner;
+			final HashMap<K, V> map;
+			
+			Segment(Object owner, HashMap<K, V> map) {
+				this.owner = owner;
+				this.map = map;
+			}
+		}
+		
+		private Segment<K, V>[] segments;
+		private int shift;
+		private int size;
+		
+		SegmentedMap(int expectedSize) {
+			init(expectedSize);
+		}
+
+		@SuppressWarnings("unchecked")
+		private void init(int expectedSize) {
+			int count = 1;
+			int bits = 0;
+			while ((long)count * PAGE_SIZE < expectedSize && bits < 20) {
+				count <<= 1;
+				bits++;
+			}
+			this.segments = new Segment[count];
+			this.shift = 32 - bits;
+			this.size = 0;
+		}
+		
+		private int segment(Object key) {
+			if (segments.length == 1) {
+				return 0;
+			}
+			int h = (key == null ? 0 : key.hashCode()) * 0x9E3779B9;
+			return h >>> shift;
+		}
+		
+		V get(Object key) {
+			Segment<K, V> segment = segments[segment(key)];
+			if (segment == null) {
+				return null;
+			}
+			return segment.map.get(key);
+		}
+		
+		private HashMap<K, V> getWritable(int index, Object owner) {
+			Segment<K, V> segment = segments[index];
+			if (segment == null) {
+				segment = new Segment<K, V>(owner, new HashMap<K, V>());
+				segments[index] = segment;
+			} else if (segment.owner != owner) {
+				segment = new Segment<K, V>(owner, new HashMap<K, V>(segment.map));
+				segments[index] = segment;
+			}
+			return segment.map;
+		}
+		
+		void put(K key, V value, Object owner) {
+			if (getWritable(segment(key), owner).put(key, value) == null) {
+				size++;
+				if (size > segments.length * PAGE_SIZE * 4 && shift > 12) {
+					resize(owner);
+				}
+			}
+		}
+		
+		V remove(Object key, Object owner) {
+			int index = segment(key);
+			if (segments[index] == null || !segments[index].map.containsKey(key)) {
+				return null;
+			}
+			V result = getWritable(index, owner).remove(key);
+			size--;
+			return result;
+		}
+		
+		private void resize(Object owner) {
+			Segment<K, V>[] old = this.segments;
+			init(size * 2);
+			for (Segment<K, V> segment : old) {
+				if (segment == null) {
+					continue;
+				}
+				for (Map.Entry<K, V> entry : segment.map.entrySet()) {
+					put(entry.getKey(), entry.getValue(), owner);
+				}
+			}
+		}
+		
+		int size() {
+			return size;
+		}
+		
+		@SuppressWarnings("unchecked")
+		@Override
+		public SegmentedMap<K, V> clone() {
+			try {
+				SegmentedMap<K, V> clone = (SegmentedMap<K, V>) super.clone();
+				clone.segments = segments.clone();
+				return clone;
+			} catch (CloneNotSupportedException e) {
+				throw new AssertionError(e);
+			}
+		}
+	}
+	
+	/**
+	 * The ordinals for a hash key with more than one row
+	 */
+	static final class Ordinals {
+		final Object owner;
+		int[] values;
+		int size;
+		
+		Ordinals(Object owner, int[] values, int size) {
+			this.owner = owner;
+			this.values = values;
+			this.size = size;
+		}
+		
+		Ordinals getWritable(Object newOwner) {
+			if (newOwner == owner) {
+				return this;
+			}
+			return new Ordinals(newOwner, values.clone(), size);
+		}
+		
+		void add(int ordinal) {
+			if (size == values.length) {
+				values = Arrays.copyOf(values, size << 1);
+			}
+			values[size++] = ordinal;
+		}
+		
+		boolean remove(int ordinal) {
+			for (int i = 0; i < size; i++) {
+				if (values[i] == ordinal) {
+					values[i] = values[--size];
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+	
+	/**
+	 * A bitmap split into pages that are copied on write
+	 */
+	static final class Bitmap {
+		final Object owner;
+		private BitSet[] pages;
+		private Object[] pageOwners;
+		private int cardinality;
+		
+		Bitmap(Object owner) {
+			this.owner = owner;
+			this.pages = new BitSet[0];
+			this.pageOwners = new Object[0];
+		}
+		
+		private Bitmap(Object owner, Bitmap bitmap) {
+			this.owner = owner;
+			this.pages = bitmap.pages.clone();
+			this.pageOwners = new Object[pages.length];
+			this.cardinality = bitmap.cardinality;
+		}
+		
+		Bitmap getWritable(Object newOwner) {
+			if (newOwner == owner) {
+				return this;
+			}
+			return new Bitmap(newOwner, this);
+		}
+		
+		private BitSet getWritablePage(int index) {
+			if (index >= pages.length) {
+				pages = Arrays.copyOf(pages, index + 1);
+				pageOwners = Arrays.copyOf(pageOwners, index + 1);
+			}
+			BitSet page = pages[index];
+			if (page == null) {
+				page = new BitSet();
+			} else if (pageOwners[index] != owner) {
+				page = (BitSet)page.clone();
+			} else {
+				return page;
+			}
+			pages[index] = page;
+			pageOwners[index] = owner;
+			return page;
+		}
+		
+		void set(int bit) {
+			BitSet page = getWritablePage(bit / BITMAP_PAGE_BITS);
+			int pageBit = bit % BITMAP_PAGE_BITS;
+			if (!page.get(pageBit)) {
+				page.set(pageBit);
+				cardinality++;
+			}
+		}
+		
+		void clear(int bit) {
+			int index = bit / BITMAP_PAGE_BITS;
+			int pageBit = bit % BITMAP_PAGE_BITS;
+			if (index >= pages.length || pages[index] == null || !pages[index].get(pageBit)) {
+				return;
+			}
+			getWritablePage(index).clear(pageBit);
+			cardinality--;
+		}
+		
+		boolean isEmpty() {
+			return cardinality == 0;
+		}
+		
+		void or(BitSet result) {
+			for (int i = 0; i < pages.length; i++) {
+				BitSet page = pages[i];
+				if (page == null) {
+					continue;
+				}
+				int offset = i * BITMAP_PAGE_BITS;
+				for (int bit = page.nextSetBit(0); bit >= 0; bit = page.nextSetBit(bit + 1)) {
+					result.set(offset + bit);
+				}
+			}
+		}
+		
+		long getSizeEstimate() {
+			long result = ENTRY_BYTES + pages.length * 8;
+			for (BitSet page : pages) {
+				if (page != null) {
+					result += VALUE_BYTES + page.size() / 8;
+				}
+			}
+			return result;
+		}
+	}
+	
+	static class ValueIndex implements Cloneable {
+		
+		private Type type;
+		private List<ElementSymbol> columns;
+		private int[] indexes;
+		/**
+		 * For a hash index the values are either an Integer or {@link Ordinals}, 
+		 * for a bitmap index the values are {@link Bitmap}s
+		 */
+		private SegmentedMap<Object, Object> entries = new SegmentedMap<Object, Object>(0);
+		private long ordinalCount;
+		
+		ValueIndex(Type type, List<ElementSymbol> columns, int[] indexes) {
+			this.type = type;
+			this.columns = columns;
+			this.indexes = indexes;
+		}
+		
+		Type getType() {
+			return type;
+		}
+		
+		List<ElementSymbol> getColumns() {
+			return columns;
+		}
+		
+		Object getKey(List<?> tuple) {
+			if (indexes.length == 1) {
+				return normalize(tuple.get(indexes[0]));
+			}
+			ArrayList<Object> key = new ArrayList<Object>(indexes.length);
+			for (int index : indexes) {
+				key.add(normalize(tuple.get(index)));
+			}
+			return key;
+		}
+		
+		void add(Object key, int ordinal, Object owner) {
+			Object existing = entries.get(key);
+			ordinalCount++;
+			if (type == Type.BITMAP) {
+				Bitmap bits = existing == null ? new Bitmap(owner) : ((Bitmap)existing).getWritable(owner);
+				bits.set(ordinal);
+				if (bits != existing) {
+					entries.put(key, bits, owner);
+				}
+				return;
+			}
+			if (existing == null) {
+				entries.put(key, ordinal, owner);
+			} else if (existing instanceof Integer) {
+				entries.put(key, new Ordinals(owner, new int[] {(Integer)existing, ordinal, 0, 0}, 2), owner);
+			} else {
+				Ordinals ordinals = ((Ordinals)existing).getWritable(owner);
+				ordinals.add(ordinal);
+				if (ordinals != existing) {
+					entries.put(key, ordinals, owner);
+				}
+			}
+		}
+		
+		void remove(Object key, int ordinal, Object owner) {
+			Object existing = entries.get(key);
+			if (existing == null) {
+				return;
+			}
+			if (type == Type.BITMAP) {
+				Bitmap bits = ((Bitmap)existing).getWritable(owner);
+				bits.clear(ordinal);
+				if (bits.isEmpty()) {
+					entries.remove(key, owner);
+				} else if (bits != existing) {
+					entries.put(key, bits, owner);
+				}
+				ordinalCount--;
+			} else if (existing instanceof Integer) {
+				if (((Integer)existing).intValue() == ordinal) {
+					entries.remove(key, owner);
+					ordinalCount--;
+				}
+			} else {
+				Ordinals ordinals = ((Ordinals)existing).getWritable(owner);
+				if (!ordinals.remove(ordinal)) {
+					return;
+				}
+				ordinalCount--;
+				if (ordinals.size == 1) {
+					entries.put(key, ordinals.values[0], owner);
+				} else if (ordinals != existing) {
+					entries.put(key, ordinals, owner);
+				}
+			}
+		}
+		
+		/**
+		 * Add the ordinals for the given keys to the hash result or bitmap result
+		 * @return the bitmap result
+		 */
+		BitSet lookup(Collection<Object> keys, IntList hashResult) {
+			BitSet result = null;
+			if (type == Type.BITMAP) {
+				result = new BitSet();
+			}
+			for (Object key : keys) {
+				Object existing = entries.get(key);
+				if (existing == null) {
+					continue;
+				}
+				if (type == Type.BITMAP) {
+					((Bitmap)existing).or(result);
+				} else if (existing instanceof Integer) {
+					hashResult.add((Integer)existing);
+				} else {
+					Ordinals ordinals = (Ordinals)existing;
+					for (int i = 0; i < ordinals.size; i++) {
+						hashResult.add(ordinals.values[i]);
+					}
+				}
+			}
+			return result;
+		}
+		
+		void clear(int expectedSize) {
+			entries = new SegmentedMap<Object, Object>(type == Type.BITMAP ? 0 : expectedSize);
+			ordinalCount = 0;
+		}
+		
+		long getSizeEstimate() {
+			long result = (long)entries.size() * (ENTRY_BYTES + VALUE_BYTES);
+			if (type == Type.HASH) {
+				return result + ordinalCount * 4;
+			}
+			//bitmaps are expected to have few entries
+			for (SegmentedMap.Segment<Object, Object> segment : entries.segments) {
+				if (segment == null) {
+					continue;
+				}
+				for (Object value : segment.map.values()) {
+					result += ((Bitmap)value).getSizeEstimate();
+				}
+			}
+			return result;
+		}
+		
+		@Override
+		public String toString() {
+			return type + " " + columns; //$NON-NLS-1$
+		}
+		
+		@Override
+		public ValueIndex clone() {
+			try {
+				ValueIndex clone = (ValueIndex) super.clone();
+				clone.entries = entries.clone();
+				return clone;
+			} catch (CloneNotSupportedException e) {
+				throw new AssertionError(e);
+			}
+		}
+		
+	}
+	
+	/**
+	 * Minimal growable int list for collecting hash index ordinals 
+	 */
+	static class IntList {
+		private int[] values = new int[8];
+		private int size;
+		
+		void add(int value) {
+			if (size == values.length) {
+				values = Arrays.copyOf(values, size << 1);
+			}
+			values[size++] = value;
+		}
+		
+		int[] toSortedArray() {
+			int[] result = Arrays.copyOf(values, size);
+			Arrays.sort(result);
+			return result;
+		}
+	}
+	
+	private List<ValueIndex> indexes = new ArrayList<ValueIndex>(2);
+	private int keyLength;
+	private ListNestedSortComparator<?> comparator;
+	/**
+	 * ordinal to primary key in pages of {@link #PAGE_SIZE}, null entries are removed rows 
+	 */
+	private List<?>[][] keyPages = new List<?>[0][];
+	private Object[] keyPageOwners = new Object[0];
+	private int keyCount;
+	private int removedCount;
+	/**
+	 * primary key to ordinal, built on demand for maintenance
+	 */
+	private SegmentedMap<List<?>, Integer> ordinals;
+	private boolean ordered = true;
+	/**
+	 * The token for structures that this instance may modify in place
+	 */
+	private Object owner = new Object();
+	
+	ValueIndexes(int keyLength, ListNestedSortComparator<?> comparator) {
+		this.keyLength = keyLength;
+		this.comparator = comparator;
+	}
+	
+	/**
+	 * Get the {@link Type} for a metadata value, defaulting to {@link Type#TREE}
+	 */
+	static Type getType(String value, Object indexName) {
+		if (value == null) {
+			return Type.TREE;
+		}
+		try {
+			return Type.valueOf(value.trim().toUpperCase());
+		} catch (IllegalArgumentException e) {
+			LogManager.logWarning(LogConstants.CTX_DQP, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID31269, value, indexName));
+			return Type.TREE;
+		}
+	}
+	
+	/**
+	 * Value equality is only consistent with the table comparator for 
+	 * string columns if neither a collation nor pad space comparison is in effect.
+	 */
+	static boolean isConsistentWithComparator(List<? extends Expression> columns) {
+		return Constant.isHashConsistent(columns);
+	}
+	
+	boolean contains(List<ElementSymbol> columns) {
+		for (ValueIndex index : indexes) {
+			if (index.getColumns().equals(columns)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	void addIndex(ValueIndex index) {
+		this.indexes.add(index);
+	}
+	
+	List<ValueIndex> getIndexes() {
+		return indexes;
+	}
+	
+	/**
+	 * Rebuild all of the indexes, assigning ordinals in primary key order
+	 * @param browser an ascending browser over the full table
+	 * @param rowCount the expected number of rows
+	 */
+	void build(TupleBrowser browser, long rowCount) throws TeiidComponentException, TeiidProcessingException {
+		int expected = (int)Math.min(Integer.MAX_VALUE, rowCount);
+		this.keyPages = new List<?>[0][];
+		this.keyPageOwners = new Object[0];
+		this.keyCount = 0;
+		this.removedCount = 0;
+		this.ordinals = null;
+		this.ordered = true;
+		for (ValueIndex index : indexes) {
+			index.clear(expected);
+		}
+		List<?> tuple = null;
+		while ((tuple = browser.nextTuple()) != null) {
+			int ordinal = addKey(getPrimaryKey(tuple));
+			for (ValueIndex index : indexes) {
+				index.add(index.getKey(tuple), ordinal, owner);
+			}
+		}
+	}
+	
+	/**
+	 * Maintain the indexes for an insert or update
+	 * @param tuple the new row
+	 * @param old the existing row or null if this is an insert
+	 */
+	void insert(List<?> tuple, List<?> old) {
+		if (old != null) {
+			Integer ordinal = getOrdinals().get(getPrimaryKey(old));
+			if (ordinal != null) {
+				for (ValueIndex index : indexes) {
+					index.remove(index.getKey(old), ordinal, owner);
+					index.add(index.getKey(tuple), ordinal, owner);
+				}
+				return;
+			}
+		}
+		List<?> pk = getPrimaryKey(tuple);
+		if (ordered && keyCount > 0) {
+			List<?> last = getKey(keyCount - 1);
+			ordered = last != null && compare(pk, last) > 0;
+		}
+		int ordinal = addKey(pk);
+		getOrdinals().put(pk, ordinal, owner);
+		for (ValueIndex index : indexes) {
+			index.add(index.getKey(tuple), ordinal, owner);
+		}
+	}
+	
+	/**
+	 * Maintain the indexes for a delete
+	 * @param old the removed row
+	 */
+	void remove(List<?> old) {
+		Integer ordinal = getOrdinals().remove(getPrimaryKey(old), owner);
+		if (ordinal == null) {
+			return;
+		}
+		setKey(ordinal, null);
+		removedCount++;
+		for (ValueIndex index : indexes) {
+			index.remove(index.getKey(old), ordinal, owner);
+		}
+	}
+	
+	/**
+	 * @return true if enough rows have been removed that the indexes should be rebuilt
+	 */
+	boolean needsCompaction() {
+		return removedCount > PAGE_SIZE && removedCount > keyCount / 2;
+	}
+	
+	/**
+	 * A rough estimate of the heap held by the indexes in bytes  
+	 */
+	long getSizeEstimate() {
+		long result = keyPages.length * (long)(PAGE_SIZE * 8 + ENTRY_BYTES);
+		result += (long)(keyCount - removedCount) * (ENTRY_BYTES + keyLength * VALUE_BYTES);
+		if (ordinals != null) {
+			result += (long)ordinals.size() * ENTRY_BYTES;
+		}
+		for (ValueIndex index : indexes) {
+			result += index.getSizeEstimate();
+		}
+		return result;
+	}
+	
+	private int addKey(List<?> key) {
+		int ordinal = keyCount++;
+		int page = ordinal / PAGE_SIZE;
+		if (page == keyPages.length) {
+			keyPages = Arrays.copyOf(keyPages, Math.max(4, page << 1));
+			keyPageOwners = Arrays.copyOf(keyPageOwners, keyPages.length);
+		}
+		if (keyPages[page] == null) {
+			keyPages[page] = new List<?>[PAGE_SIZE];
+			keyPageOwners[page] = owner;
+		}
+		setKey(ordinal, key);
+		return ordinal;
+	}
+	
+	private void setKey(int ordinal, List<?> key) {
+		int page = ordinal / PAGE_SIZE;
+		if (keyPageOwners[page] != owner) {
+			keyPages[page] = keyPages[page].clone();
+			keyPageOwners[page] = owner;
+		}
+		keyPages[page][ordinal % PAGE_SIZE] = key;
+	}
+	
+	private List<?> getKey(int ordinal) {
+		return keyPages[ordinal / PAGE_SIZE][ordinal % PAGE_SIZE];
+	}
+	
+	/**
+	 * Return the primary keys of the rows that may match the condition in the
+	 * given direction, or null if none of the indexes apply.
+	 * <br>
+	 * Only the equality, IN, and IS NULL conjuncts against indexed columns are 
+	 * used, so the condition must still be evaluated against each row.
+	 */
+	List<List<?>> lookup(Criteria condition, boolean direction) {
+		Map<Expression, Collection<Object>> values = getValues(condition);
+		if (values.isEmpty()) {
+			return null;
+		}
+		int[] hashResult = null;
+		List<int[]> otherHashResults = null;
+		BitSet bitmapResult = null;
+		List<ValueIndex> used = null;
+		for (ValueIndex index : indexes) {
+			Collection<Object> indexKeys = getKeys(index, values);
+			if (indexKeys == null) {
+				continue;
+			}
+			if (used == null) {
+				used = new ArrayList<ValueIndex>(2);
+			}
+			used.add(index);
+			IntList ints = new IntList();
+			BitSet bits = index.lookup(indexKeys, ints);
+			if (bits != null) {
+				if (bitmapResult == null) {
+					bitmapResult = bits;
+				} else {
+					bitmapResult.and(bits);
+				}
+				continue;
+			}
+			int[] result = ints.toSortedArray();
+			if (hashResult == null) {
+				hashResult = result;
+				continue;
+			}
+			if (otherHashResults == null) {
+				otherHashResults = new ArrayList<int[]>(2);
+			}
+			//drive from the smallest
+			if (result.length < hashResult.length) {
+				otherHashResults.add(hashResult);
+				hashResult = result;
+			} else {
+				otherHashResults.add(result);
+			}
+		}
+		if (used == null) {
+			return null;
+		}
+		LogManager.logDetail(LogConstants.CTX_DQP, "Using value indexes", used, "for", condition); //$NON-NLS-1$ //$NON-NLS-2$
+		ArrayList<List<?>> result = new ArrayList<List<?>>();
+		if (hashResult != null) {
+			int last = -1;
+			outer: for (int ordinal : hashResult) {
+				if (ordinal == last) {
+					continue;
+				}
+				last = ordinal;
+				if (bitmapResult != null && !bitmapResult.get(ordinal)) {
+					continue;
+				}
+				if (otherHashResults != null) {
+					for (int[] other : otherHashResults) {
+						if (Arrays.binarySearch(other, ordinal) < 0) {
+							continue outer;
+						}
+					}
+				}
+				addKey(result, ordinal);
+			}
+		} else {
+			for (int ordinal = bitmapResult.nextSetBit(0); ordinal >= 0; ordinal = bitmapResult.nextSetBit(ordinal + 1)) {
+				addKey(result, ordinal);
+			}
+		}
+		if (!ordered) {
+			Collections.sort(result, new java.util.Comparator<List<?>>() {
+				@Override
+				public int compare(List<?> o1, List<?> o2) {
+					return ValueIndexes.this.compare(o1, o2);
+				}
+			});
+		}
+		if (direction == OrderBy.DESC) {
+			Collections.reverse(result);
+		}
+		return result;
+	}
+
+	private void addKey(ArrayList<List<?>> result, int ordinal) {
+		List<?> key = getKey(ordinal);
+		if (key != null) {
+			result.add(key);
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	private int compare(List<?> o1, List<?> o2) {
+		return ((ListNestedSortComparator)comparator).compare(o1, o2);
+	}
+	
+	/**
+	 * Collect the values for the columns restricted by equality, IN, or IS NULL conjuncts 
+	 */
+	private static Map<Expression, Collection<Object>> getValues(Criteria condition) {
+		Map<Expression, Collection<Object>> values = new HashMap<Expression, Collection<Object>>();
+		for (Criteria crit : Criteria.separateCriteriaByAnd(condition)) {
+			Expression expr = null;
+			Collection<Object> critValues = null;
+			if (crit instanceof CompareCriteria) {
+				CompareCriteria cc = (CompareCriteria)crit;
+				if (cc.getOperator() != CompareCriteria.EQ || !(cc.getRightExpression() instanceof Constant)) {
+					continue;
+				}
+				Constant c = (Constant)cc.getRightExpression();
+				if (c.isMultiValued()) {
+					continue;
+				}
+				expr = cc.getLeftExpression();
+				if (c.getValue() == null) {
+					//null never matches
+					critValues = Collections.emptySet();
+				} else {
+					critValues = Collections.singleton(normalize(c.getValue()));
+				}
+			} else if (crit instanceof IsNullCriteria) {
+				IsNullCriteria inc = (IsNullCriteria)crit;
+				if (inc.isNegated()) {
+					continue;
+				}
+				expr = inc.getExpression();
+				critValues = Collections.singleton(null);
+			} else if (crit instanceof SetCriteria) {
+				SetCriteria sc = (SetCriteria)crit;
+				if (sc.isNegated()) {
+					continue;
+				}
+				critValues = new HashSet<Object>();
+				for (Object value : sc.getValues()) {
+					if (!(value instanceof Constant) || ((Constant)value).isMultiValued()) {
+						critValues = null;
+						break;
+					}
+					Object val = ((Constant)value).getValue();
+					if (val != null) {
+						critValues.add(normalize(val));
+					}
+				}
+				if (critValues == null) {
+					continue;
+				}
+				expr = sc.getExpression();
+			}
+			if (!(expr instanceof ElementSymbol)) {
+				continue;
+			}
+			Collection<Object> existing = values.get(expr);
+			if (existing == null || existing.size() > critValues.size()) {
+				values.put(expr, critValues);
+			}
+		}
+		return values;
+	}
+	
+	/**
+	 * Get the keys to lookup for the index or null if the index does not apply 
+	 */
+	private static Collection<Object> getKeys(ValueIndex index, Map<Expression, Collection<Object>> values) {
+		List<ElementSymbol> columns = index.getColumns();
+		if (columns.size() == 1) {
+			return values.get(columns.get(0));
+		}
+		List<List<Object>> keys = new ArrayList<List<Object>>();
+		keys.add(new ArrayList<Object>(columns.size()));
+		for (ElementSymbol es : columns) {
+			Collection<Object> colValues = values.get(es);
+			if (colValues == null || (long)keys.size() * colValues.size() > MAX_KEYS) {
+				return null;
+			}
+			List<List<Object>> expanded = new ArrayList<List<Object>>(keys.size() * colValues.size());
+			for (List<Object> key : keys) {
+				for (Object value : colValues) {
+					List<Object> newKey = new ArrayList<Object>(columns.size());
+					newKey.addAll(key);
+					newKey.add(value);
+					expanded.add(newKey);
+				}
+			}
+			keys = expanded;
+		}
+		return new ArrayList<Object>(keys);
+	}
+	
+	private List<?> getPrimaryKey(List<?> tuple) {
+		ArrayList<Object> key = new ArrayList<Object>(keyLength);
+		for (int i = 0; i < keyLength; i++) {
+			key.add(normalize(tuple.get(i)));
+		}
+		return key;
+	}
+	
+	private SegmentedMap<List<?>, Integer> getOrdinals() {
+		if (ordinals == null) {
+			ordinals = new SegmentedMap<List<?>, Integer>(keyCount);
+			for (int i = 0; i < keyCount; i++) {
+				List<?> key = getKey(i);
+				if (key != null) {
+					ordinals.put(key, i, owner);
+				}
+			}
+		}
+		return ordinals;
+	}
+	
+	private static Object normalize(Object value) {
+		if (value instanceof BigDecimal) {
+			//equals considers scale, comparison does not
+			BigDecimal bd = (BigDecimal)value;
+			if (bd.signum() == 0) {
+				return BigDecimal.ZERO;
+			}
+			return bd.stripTrailingZeros();
+		}
+		return value;
+	}
+	
+	/**
+	 * Shares the structures with the clone.  Both this instance and the
+	 * clone take new owner tokens, so neither modifies the shared structures in place.
+	 */
+	@Override
+	public ValueIndexes clone() {
+		try {
+			ValueIndexes clone = (ValueIndexes) super.clone();
+			clone.indexes = new ArrayList<ValueIndex>(indexes.size());
+			for (ValueIndex index : indexes) {
+				clone.indexes.add(index.clone());
+			}
+			clone.keyPages = keyPages.clone();
+			clone.keyPageOwners = keyPageOwners.clone();
+			if (ordinals != null) {
+				clone.ordinals = ordinals.clone();
+			}
+			clone.owner = new Object();
+			this.owner = new Object();
+			return clone;
+		} catch (CloneNotSupportedException e) {
+			throw new AssertionError(e);
+		}
+	}
+	
+}
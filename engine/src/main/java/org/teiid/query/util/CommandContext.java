@@ -196,6 +196,8 @@ public class CommandContext implements Cloneable, org.teiid.CommandContext {
 		private LRUCache<AbstractMetadataRecord, Boolean> accessible;
 
 		private Throwable batchUpdateException;
+		
+		private int parallelWorkers;
 	}
 	
 	private GlobalState globalState = new GlobalState();
@@ -718,6 +720,27 @@ public class CommandContext implements Cloneable, org.teiid.CommandContext {
 		return this.globalState.executor;
 	}
 	
+	/**
+	 * Acquire one of the parallel workers available to this request
+	 * @param max the maximum number of workers for the request
+	 * @return true if the worker was acquired
+	 */
+	public boolean acquireParallelWorker(int max) {
+		synchronized (this.globalState) {
+			if (this.globalState.parallelWorkers >= max) {
+				return false;
+			}
+			this.globalState.parallelWorkers++;
+			return true;
+		}
+	}
+	
+	public void releaseParallelWorker() {
+		synchronized (this.globalState) {
+			this.globalState.parallelWorkers--;
+		}
+	}
+	
 	public void setExecutor(Executor e) {
 		this.globalState.executor = e;
 	}
@@ -1005,7 +1028,9 @@ public class CommandContext implements Cloneable, org.teiid.CommandContext {
 	}
 
 	public long addAndGetReservedBuffers(int i) {
-		return globalState.reservedBuffers += i;
+		synchronized (this.globalState) {
+			return globalState.reservedBuffers += i;
+		}
 	}
 
 	@Override
@@ -0,0 +1,178 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.teiid.query.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.teiid.api.exception.query.QueryResolverException;
+import org.teiid.query.QueryPlugin;
+
+/**
+ * A simple JSONPath subset used for streaming row and column selection.
+ * <br>
+ * Supported are the root <code>$</code> followed by any number of steps:
+ * <ul>
+ * <li><code>.name</code> or <code>['name']</code> - an object member
+ * <li><code>.*</code> - any object member
+ * <li><code>[n]</code> - a zero based array element
+ * <li><code>[*]</code> - any array element
+ * </ul>
+ * Since the path is matched against parser events only definite positions 
+ * are supported - there are no filters or recursive descent.
+ */
+public class JSONPath {
+	
+	public static class Step {
+		private boolean array;
+		private String name;
+		private int index = -1;
+		
+		public boolean isArray() {
+			return array;
+		}
+		
+		/**
+		 * @return the member name or null if any member
+		 */
+		public String getName() {
+			return name;
+		}
+		
+		/**
+		 * @return the element index or -1 if any element 
+		 */
+		public int getIndex() {
+			return index;
+		}
+		
+		public boolean isWildcard() {
+			return array?index < 0:name == null;
+		}
+		
+		public boolean matches(boolean isArray, String key, int position) {
+			if (isArray != this.array) {
+				return false;
+			}
+			if (isArray) {
+				return index < 0 || index == position;
+			}
+			return name == null || name.equals(key);
+		}
+	}
+	
+	private String path;
+	private List<Step> steps;
+	
+	private JSONPath(String path, List<Step> steps) {
+		this.path = path;
+		this.steps = steps;
+	}
+	
+	public static JSONPath compile(String path) throws QueryResolverException {
+		String trimmed = path.trim();
+		if (!trimmed.startsWith("$")) { //$NON-NLS-1$
+			throw invalid(path);
+		}
+		List<Step> steps = new ArrayList<Step>();
+		int i = 1;
+		int length = trimmed.length();
+		while (i < length) {
+			char c = trimmed.charAt(i++);
+			Step step = new Step();
+			if (c == '.') {
+				int start = i;
+				while (i < length && trimmed.charAt(i) != '.' && trimmed.charAt(i) != '[') {
+					i++;
+				}
+				String name = trimmed.substring(start, i).trim();
+				if (name.isEmpty()) {
+					throw invalid(path);
+				}
+				if (!name.equals("*")) { //$NON-NLS-1$
+					step.name = name;
+				}
+			} else if (c == '[') {
+				int end = trimmed.indexOf(']', i);
+				if (end < 0) {
+					throw invalid(path);
+				}
+				String value = trimmed.substring(i, end).trim();
+				i = end + 1;
+				if (value.length() > 1 && (value.charAt(0) == '\'' || value.charAt(0) == '"')) {
+					char quote = value.charAt(0);
+					if (value.charAt(value.length() - 1) != quote) {
+						throw invalid(path);
+					}
+					step.name = value.substring(1, value.length() - 1).replace("\\" + quote, String.valueOf(quote)); //$NON-NLS-1$
+				} else {
+					step.array = true;
+					if (!value.equals("*")) { //$NON-NLS-1$
+						try {
+							step.index = Integer.parseInt(value);
+						} catch (NumberFormatException e) {
+							throw invalid(path);
+						}
+						if (step.index < 0) {
+							throw invalid(path);
+						}
+					}
+				}
+			} else if (!Character.isWhitespace(c)) {
+				throw invalid(path);
+			} else {
+				continue;
+			}
+			steps.add(step);
+		}
+		return new JSONPath(path, Collections.unmodifiableList(steps));
+	}
+
+	private static QueryResolverException invalid(String path) {
+		return new QueryResolverException(QueryPlugin.Event.TEIID31265, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID31265, path));
+	}
+	
+	public List<Step> getSteps() {
+		return steps;
+	}
+	
+	/**
+	 * @return true if the path can match at most a single value
+	 */
+	public boolean isDefinite() {
+		for (Step step : steps) {
+			if (step.isWildcard()) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	public String getPath() {
+		return path;
+	}
+	
+	@Override
+	public String toString() {
+		return path;
+	}
+
+}
@@ -37,6 +37,15 @@ public class Options {
 	public static final String ASSUME_MATCHING_COLLATION = "org.teiid.assumeMatchingCollation"; //$NON-NLS-1$
 	public static final String AGGRESSIVE_JOIN_GROUPING = "org.teiid.aggressiveJoinGrouping"; //$NON-NLS-1$
 	public static final String MAX_SESSION_BUFFER_SIZE_ESTIMATE = "org.teiid.maxSessionBufferSizeEstimate"; //$NON-NLS-1$
+	public static final String HASH_JOIN = "org.teiid.hashJoin"; //$NON-NLS-1$
+	public static final String COMPILE_EXPRESSIONS = "org.teiid.compileExpressions"; //$NON-NLS-1$
+	public static final String COLUMNAR_BATCHES = "org.teiid.columnarBatches"; //$NON-NLS-1$
+	public static final String UNION_PARALLELISM = "org.teiid.unionParallelism"; //$NON-NLS-1$
+	public static final String DEPENDENT_JOIN_BLOOM_FILTER = "org.teiid.dependentJoinBloomFilter"; //$NON-NLS-1$
+	public static final String HASH_AGGREGATION = "org.teiid.hashAggregation"; //$NON-NLS-1$
+	public static final String RESULT_SET_CACHE_SUBSUMPTION = "org.teiid.resultSetCacheSubsumption"; //$NON-NLS-1$
+	public static final String AUTO_PARAMETERIZE = "org.teiid.autoParameterize"; //$NON-NLS-1$
+	public static final String ADAPTIVE_JOIN_FACTOR = "org.teiid.adaptiveJoinFactor"; //$NON-NLS-1$
 
 	private Properties properties;
 	private boolean subqueryUnnestDefault = false;
@@ -49,6 +58,15 @@ public class Options {
 	private boolean assumeMatchingCollation = true;
 	private boolean aggressiveJoinGrouping = true;
 	private long maxSessionBufferSizeEstimate = Long.MAX_VALUE;
+	private boolean hashJoin;
+	private boolean compileExpressions;
+	private boolean columnarBatches;
+	private int unionParallelism;
+	private boolean dependentJoinBloomFilter;
+	private boolean hashAggregation;
+	private boolean resultSetCacheSubsumption;
+	private boolean autoParameterize;
+	private int adaptiveJoinFactor;
 	
 	public Properties getProperties() {
 		return properties;
@@ -189,4 +207,121 @@ public class Options {
 	public long getMaxSessionBufferSizeEstimate() {
         return maxSessionBufferSizeEstimate;
     }
+
+	public boolean isHashJoin() {
+		return hashJoin;
+	}
+	
+	public void setHashJoin(boolean hashJoin) {
+		this.hashJoin = hashJoin;
+	}
+	
+	public Options hashJoin(boolean b) {
+		this.hashJoin = b;
+		return this;
+	}
+
+	public boolean isCompileExpressions() {
+		return compileExpressions;
+	}
+	
+	public void setCompileExpressions(boolean compileExpressions) {
+		this.compileExpressions = compileExpressions;
+	}
+	
+	public Options compileExpressions(boolean b) {
+		this.compileExpressions = b;
+		return this;
+	}
+	
+	public boolean isColumnarBatches() {
+		return columnarBatches;
+	}
+	
+	public void setColumnarBatches(boolean columnarBatches) {
+		this.columnarBatches = columnarBatches;
+	}
+	
+	public Options columnarBatches(boolean b) {
+		this.columnarBatches = b;
+		return this;
+	}
+	
+	public int getUnionParallelism() {
+		return unionParallelism;
+	}
+	
+	public void setUnionParallelism(int unionParallelism) {
+		this.unionParallelism = unionParallelism;
+	}
+	
+	public Options unionParallelism(int i) {
+		this.unionParallelism = i;
+		return this;
+	}
+	
+	public boolean isDependentJoinBloomFilter() {
+		return dependentJoinBloomFilter;
+	}
+	
+	public void setDependentJoinBloomFilter(boolean dependentJoinBloomFilter) {
+		this.dependentJoinBloomFilter = dependentJoinBloomFilter;
+	}
+	
+	public Options dependentJoinBloomFilter(boolean b) {
+		this.dependentJoinBloomFilter = b;
+		return this;
+	}
+	
+	public boolean isHashAggregation() {
+		return hashAggregation;
+	}
+	
+	public void setHashAggregation(boolean hashAggregation) {
+		this.hashAggregation = hashAggregation;
+	}
+	
+	public Options hashAggregation(boolean b) {
+		this.hashAggregation = b;
+		return this;
+	}
+	
+	public boolean isResultSetCacheSubsumption() {
+		return resultSetCacheSubsumption;
+	}
+	
+	public void setResultSetCacheSubsumption(boolean resultSetCacheSubsumption) {
+		this.resultSetCacheSubsumption = resultSetCacheSubsumption;
+	}
+	
+	public Options resultSetCacheSubsumption(boolean b) {
+		this.resultSetCacheSubsumption = b;
+		return this;
+	}
+	
+	public boolean isAutoParameterize() {
+		return autoParameterize;
+	}
+	
+	public void setAutoParameterize(boolean autoParameterize) {
+		this.autoParameterize = autoParameterize;
+	}
+	
+	public Options autoParameterize(boolean b) {
+		this.autoParameterize = b;
+		return this;
+	}
+	
+	public int getAdaptiveJoinFactor() {
+		return adaptiveJoinFactor;
+	}
+	
+	public void setAdaptiveJoinFactor(int adaptiveJoinFactor) {
+		this.adaptiveJoinFactor = adaptiveJoinFactor;
+	}
+	
+	public Options adaptiveJoinFactor(int i) {
+		this.adaptiveJoinFactor = i;
+		return this;
+	}
 }
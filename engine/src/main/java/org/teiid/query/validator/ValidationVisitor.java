@@ -1295,6 +1295,18 @@ public class ValidationVisitor extends AbstractValidationVisitor {
     		handleValidationError(QueryPlugin.Util.getString("ValidationVisitor.text_table_selector_required"), obj); //$NON-NLS-1$
     	}
     }
+    
+    @Override
+    public void visit(JSONTable obj) {
+    	for (JSONTable.JSONColumn column : obj.getColumns()) {
+    		if (column.isOrdinal()) {
+    			continue;
+    		}
+    		if (!column.getPathExpression().isDefinite()) {
+    			handleValidationError(QueryPlugin.Util.gs(QueryPlugin.Event.TEIID31268, column.getName(), column.getPathExpression()), obj);
+    		}
+    	}
+    }
 
 	private void validateTextOptions(LanguageObject obj, Character delimiter,
 			Character quote, Character newLine) {
@@ -28,6 +28,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.regex.Pattern;
 
 import javax.xml.stream.XMLStreamException;
 import javax.xml.transform.ErrorListener;
@@ -60,6 +61,7 @@ import net.sf.saxon.sxpath.XPathEvaluator;
 import net.sf.saxon.sxpath.XPathExpression;
 import net.sf.saxon.trace.ExpressionPresenter;
 import net.sf.saxon.trans.XPathException;
+import net.sf.saxon.type.BuiltInAtomicType;
 import net.sf.saxon.type.ItemType;
 import net.sf.saxon.type.TypeHierarchy;
 import net.sf.saxon.value.EmptySequence;
@@ -172,12 +174,16 @@ public class SaxonXQueryExpression {
         }       
     };
 
+	private static final Pattern POSITIONAL_FUNCTION = Pattern.compile("(position|last)\\s*\\("); //$NON-NLS-1$
+	
 	XQueryExpression xQuery;
 	String xQueryString;
 	Map<String, String> namespaceMap = new HashMap<String, String>();
 	Configuration config = new Configuration();
 	PathMapRoot contextRoot;
 	String streamingPath;
+	XPathExpression streamingFilter;
+	String streamingFilterPath;
 
     public SaxonXQueryExpression(String xQueryString, XMLNamespaces namespaces, List<DerivedColumn> passing, List<XMLTable.XMLColumn> columns) 
     throws QueryResolverException {
@@ -217,6 +223,7 @@ public class SaxonXQueryExpression {
 		}
         
     	processColumns(columns, ic);	    	
+    	processStreamingPredicates(ic);
     
         try {
 			this.xQuery = context.compileQuery(xQueryString);
@@ -237,6 +244,8 @@ public class SaxonXQueryExpression {
     	clone.contextRoot = contextRoot;
     	clone.namespaceMap = namespaceMap;
     	clone.streamingPath = streamingPath;
+    	clone.streamingFilter = streamingFilter;
+    	clone.streamingFilterPath = streamingFilterPath;
     	return clone;
     }
     
@@ -246,12 +255,15 @@ public class SaxonXQueryExpression {
     
 	public void useDocumentProjection(List<XMLTable.XMLColumn> columns, AnalysisRecord record) {
 		try {
-			streamingPath = StreamingUtils.getStreamingPath(xQueryString, namespaceMap);
+			streamingPath = StreamingUtils.getStreamingPath(streamingFilter != null?streamingFilterPath:xQueryString, namespaceMap);
 		} catch (IllegalArgumentException e) {
 			if (record.recordAnnotations()) {
 				record.addAnnotation(XQUERY_PLANNING, "Invalid streaming path " + xQueryString + " "+ e.getMessage(), "Document streaming will not be used", Priority.MEDIUM); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
 			}
 		}
+		if (streamingPath != null && streamingFilter != null && !validateFilterForStreaming(record)) {
+			streamingPath = null;
+		}
 		this.contextRoot = null;
 		//we'll use a new pathmap, since we don't want to modify the one associated with the xquery.
 		PathMap map = null;
@@ -361,7 +373,7 @@ public class SaxonXQueryExpression {
     			continue;
     		}
 	    	for (PathMapArc arc : subContextRoot.getArcs()) {
-	    		if (streamingPath != null && !validateColumnForStreaming(record, xmlColumn, arc)) {
+	    		if (streamingPath != null && !validateColumnForStreaming(record, xmlColumn.getPath(), arc)) {
 	    			streamingPath = null;
 	    		}
 				finalNode.createArc(arc.getAxis(), arc.getNodeTest(), arc.getTarget());
@@ -390,8 +402,33 @@ public class SaxonXQueryExpression {
 		return newMap.reduceToDownwardsAxes(newRoot);
 	}
 
+	/**
+	 * The row predicates are evaluated against each streamed row, so they have the
+	 * same restrictions as the column paths.
+	 */
+	private boolean validateFilterForStreaming(AnalysisRecord record) {
+		PathMap filterMap = new PathMap(streamingFilter.getInternalExpression());
+		for (PathMapRoot root : filterMap.getPathMapRoots()) {
+			if (root.getRootExpression() instanceof RootExpression) {
+				if (record.recordAnnotations()) {
+					record.addAnnotation(XQUERY_PLANNING, "The row predicate may not reference the document root " + xQueryString, "Document streaming will not be used", Priority.MEDIUM); //$NON-NLS-1$ //$NON-NLS-2$
+				}
+				return false;
+			}
+			if (!(root.getRootExpression() instanceof ContextItemExpression)) {
+				continue;
+			}
+			for (PathMapArc arc : root.getArcs()) {
+				if (!validateColumnForStreaming(record, xQueryString, arc)) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
 	private boolean validateColumnForStreaming(AnalysisRecord record,
-			XMLColumn xmlColumn, PathMapArc arc) {
+			String path, PathMapArc arc) {
 		boolean ancestor = false;
 		LinkedList<PathMapArc> arcStack = new LinkedList<PathMapArc>();
 		arcStack.add(arc);
@@ -402,14 +439,14 @@ public class SaxonXQueryExpression {
 				if (current.getTarget().isReturnable()) {
 					if (axis != AxisInfo.NAMESPACE && axis != AxisInfo.ATTRIBUTE) {
 						if (record.recordAnnotations()) {
-							record.addAnnotation(XQUERY_PLANNING, "The column path contains an invalid reverse axis " + xmlColumn.getPath(), "Document streaming will not be used", Priority.MEDIUM); //$NON-NLS-1$ //$NON-NLS-2$
+							record.addAnnotation(XQUERY_PLANNING, "The column path contains an invalid reverse axis " + path, "Document streaming will not be used", Priority.MEDIUM); //$NON-NLS-1$ //$NON-NLS-2$
 						}
 						return false;
 					}
 				}
 				if (!isValidAncestorAxis[axis]) {
 					if (record.recordAnnotations()) {
-						record.addAnnotation(XQUERY_PLANNING, "The column path contains an invalid reverse axis " + xmlColumn.getPath(), "Document streaming will not be used", Priority.MEDIUM); //$NON-NLS-1$ //$NON-NLS-2$
+						record.addAnnotation(XQUERY_PLANNING, "The column path contains an invalid reverse axis " + path, "Document streaming will not be used", Priority.MEDIUM); //$NON-NLS-1$ //$NON-NLS-2$
 					}
 					return false;
 				}
@@ -419,14 +456,14 @@ public class SaxonXQueryExpression {
 						|| axis == AxisInfo.ANCESTOR_OR_SELF) {
 					if (current.getTarget().isReturnable()) {
 						if (record.recordAnnotations()) {
-							record.addAnnotation(XQUERY_PLANNING, "The column path contains an invalid reverse axis " + xmlColumn.getPath(), "Document streaming will not be used", Priority.MEDIUM); //$NON-NLS-1$ //$NON-NLS-2$
+							record.addAnnotation(XQUERY_PLANNING, "The column path contains an invalid reverse axis " + path, "Document streaming will not be used", Priority.MEDIUM); //$NON-NLS-1$ //$NON-NLS-2$
 						}
 						return false;
 					}
 					ancestor = true; 
 				} else {
 					if (record.recordAnnotations()) {
-						record.addAnnotation(XQUERY_PLANNING, "The column path may not reference an ancestor or subtree " + xmlColumn.getPath(), "Document streaming will not be used", Priority.MEDIUM); //$NON-NLS-1$ //$NON-NLS-2$
+						record.addAnnotation(XQUERY_PLANNING, "The column path may not reference an ancestor or subtree " + path, "Document streaming will not be used", Priority.MEDIUM); //$NON-NLS-1$ //$NON-NLS-2$
 					}
 					return false;
 				}
@@ -490,6 +527,40 @@ public class SaxonXQueryExpression {
 		}
 	}
 	
+	/**
+	 * Compile the predicates of the last step so that the rest of the path may still be 
+	 * streamed with the predicates evaluated against each row.  Positional predicates
+	 * are not supported as the sibling rows are not retained.
+	 */
+	private void processStreamingPredicates(IndependentContext ic) {
+		List<String> parts = StreamingUtils.getTrailingPredicates(xQueryString);
+		if (parts == null) {
+			return;
+		}
+        XPathEvaluator eval = new XPathEvaluator(config);
+    	eval.setStaticContext(ic);
+    	TypeHierarchy th = config.getTypeHierarchy();
+    	StringBuilder filter = new StringBuilder("self::node()"); //$NON-NLS-1$
+		try {
+			for (String predicate : parts.subList(1, parts.size())) {
+				if (POSITIONAL_FUNCTION.matcher(predicate).find()) {
+					return;
+				}
+				ItemType type = eval.createExpression(predicate).getInternalExpression().getItemType(th);
+				if (th.relationship(type, BuiltInAtomicType.NUMERIC) != TypeHierarchy.DISJOINT) {
+					//a numeric predicate is positional
+					return;
+				}
+				filter.append('[').append(predicate).append(']');
+			}
+			this.streamingFilter = eval.createExpression(filter.toString());
+		} catch (XPathException e) {
+			//most likely a reference to a passing variable, streaming will not be used
+			return;
+		}
+		this.streamingFilterPath = parts.get(0);
+	}
+	
     public XMLType createXMLType(final SequenceIterator iter, BufferManager bufferManager, boolean emptyOnEmpty, CommandContext context) throws XPathException, TeiidComponentException, TeiidProcessingException {
 		Item item = iter.next();
 		if (item == null && !emptyOnEmpty) {
@@ -19,6 +19,8 @@
 package org.teiid.query.xquery.saxon;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 import net.sf.saxon.Configuration;
@@ -100,6 +102,69 @@ final class StreamingUtils {
 		}
 		return fixedPath;
 	}
+	
+	/**
+	 * Split the predicates from the last step of the location path so that the
+	 * rest of the path may be streamed with the predicates applied to each row.
+	 * 
+	 * @param locationPath
+	 * @return the path without the trailing predicates followed by each predicate expression,
+	 * or null if the last step does not end with predicates
+	 */
+	public static List<String> getTrailingPredicates(String locationPath) {
+		String path = locationPath.trim();
+		List<String> predicates = new ArrayList<String>();
+		int depth = 0;
+		char quote = 0;
+		int start = -1;
+		int firstPredicate = -1;
+		for (int i = 0; i < path.length(); i++) {
+			char c = path.charAt(i);
+			if (quote != 0) {
+				if (c == quote) {
+					quote = 0;
+				}
+				continue;
+			}
+			switch (c) {
+			case '\'':
+			case '"':
+				quote = c;
+				break;
+			case '[':
+				if (depth++ == 0) {
+					start = i + 1;
+					if (firstPredicate == -1) {
+						firstPredicate = i;
+					}
+				}
+				break;
+			case ']':
+				if (--depth == 0) {
+					predicates.add(path.substring(start, i));
+				} else if (depth < 0) {
+					return null;
+				}
+				break;
+			case '/':
+				if (depth == 0) {
+					//predicates are only expected on the last step
+					firstPredicate = -1;
+					predicates.clear();
+				}
+				break;
+			default:
+				if (depth == 0 && firstPredicate != -1 && !Character.isWhitespace(c)) {
+					return null;
+				}
+			}
+		}
+		if (depth != 0 || quote != 0 || predicates.isEmpty()) {
+			return null;
+		}
+		predicates.add(0, path.substring(0, firstPredicate));
+		return predicates;
+	}
 
 }
 
@@ -145,7 +145,17 @@ public class XQueryEvaluator {
 						
 						final StreamingTransform myTransform = new StreamingTransform() {
 							public Nodes transform(Element elem) {
-								processor.processRow(XQueryEvaluator.wrap(elem, xquery.config));
+								NodeInfo row = XQueryEvaluator.wrap(elem, xquery.config);
+								if (xquery.streamingFilter != null) {
+									try {
+										if (!xquery.streamingFilter.effectiveBooleanValue(xquery.streamingFilter.createDynamicContext(row))) {
+											return NONE;
+										}
+									} catch (XPathException e) {
+										throw new TeiidRuntimeException(e);
+									}
+								}
+								processor.processRow(row);
 								return NONE;
 							}
 						};
@@ -20,6 +20,7 @@ package org.teiid.common.buffer;
 
 import static org.junit.Assert.*;
 
+import java.sql.Date;
 import java.util.Arrays;
 import java.util.List;
 
@@ -28,9 +29,12 @@ import javax.sql.rowset.serial.SerialClob;
 import org.junit.Test;
 import org.teiid.common.buffer.BufferManager.TupleSourceType;
 import org.teiid.common.buffer.TupleBuffer.TupleBufferTupleSource;
+import org.teiid.common.buffer.impl.BufferManagerImpl;
 import org.teiid.core.types.ClobType;
 import org.teiid.core.types.DataTypeManager;
+import org.teiid.core.util.TimestampWithTimezone;
 import org.teiid.query.sql.symbol.ElementSymbol;
+import org.teiid.query.util.Options;
 
 public class TestTupleBuffer {
 
@@ -57,6 +61,56 @@ public class TestTupleBuffer {
 		assertEquals(2, batch.getBeginRow());
 	}
 	
+	@Test public void testColumnarBatches() throws Exception {
+		ElementSymbol x = new ElementSymbol("x"); //$NON-NLS-1$
+		x.setType(DataTypeManager.DefaultDataClasses.INTEGER);
+		ElementSymbol y = new ElementSymbol("y"); //$NON-NLS-1$
+		y.setType(DataTypeManager.DefaultDataClasses.STRING);
+		ElementSymbol z = new ElementSymbol("z"); //$NON-NLS-1$
+		z.setType(DataTypeManager.DefaultDataClasses.DATE);
+		List<ElementSymbol> schema = Arrays.asList(x, y, z);
+		BufferManagerImpl bm = BufferManagerFactory.createBufferManager();
+		bm.setOptions(new Options().columnarBatches(true));
+		TupleBuffer tb = bm.createTupleBuffer(schema, "x", TupleSourceType.PROCESSOR); //$NON-NLS-1$
+		tb.setBatchSize(2);
+		Date d = TimestampWithTimezone.createDate(new java.util.Date(0));
+		tb.addTuple(Arrays.asList(1, "a", d)); //$NON-NLS-1$
+		tb.addTuple(Arrays.asList(null, null, null));
+		tb.addTuple(Arrays.asList(3, "c", d)); //$NON-NLS-1$
+		tb.close();
+		TupleBatch batch = tb.getBatch(1);
+		assertEquals(Arrays.asList(1, "a", d), batch.getTuple(1)); //$NON-NLS-1$
+		assertEquals(Arrays.asList(null, null, null), batch.getTuple(2));
+		assertEquals(Arrays.asList(3, "c", d), tb.getBatch(3).getTuple(3)); //$NON-NLS-1$
+	}
+	
+	@Test public void testColumnarTupleList() throws Exception {
+		List<?>[] rows = new List<?>[] {Arrays.asList(1, true), Arrays.asList(null, false)};
+		ColumnarTupleList list = new ColumnarTupleList(new Class<?>[] {DataTypeManager.DefaultDataClasses.INTEGER, DataTypeManager.DefaultDataClasses.BOOLEAN}, Arrays.asList(rows));
+		assertEquals(Arrays.asList(rows), list);
+		assertTrue(list.getColumn(0) instanceof int[]);
+		((List<Object>)list.get(1)).set(0, "x"); //$NON-NLS-1$
+		assertTrue(list.getColumn(0) instanceof Object[]);
+		assertEquals(Arrays.asList("x", false), list.get(1)); //$NON-NLS-1$
+		assertEquals(Arrays.asList(1, true), list.get(0));
+	}
+	
+	@Test public void testColumnarTupleListReuse() throws Exception {
+		Date d = new Date(0);
+		List<?>[] rows = new List<?>[] {Arrays.asList(1000L, d), Arrays.asList(null, null)};
+		ColumnarTupleList list = new ColumnarTupleList(new Class<?>[] {DataTypeManager.DefaultDataClasses.LONG, DataTypeManager.DefaultDataClasses.DATE}, Arrays.asList(rows));
+		assertEquals(Arrays.asList(rows), list);
+		assertTrue(list.getColumn(0) instanceof long[]);
+		assertSame(list.get(0), list.get(0));
+		assertSame(list.get(0).get(0), list.get(0).get(0));
+		//dates are held as is
+		assertSame(d, list.get(0).get(1));
+		((List<Object>)list.get(1)).set(0, 2000L);
+		assertEquals(2000L, list.get(1).get(0));
+		((List<Object>)list.get(0)).set(0, 3000L);
+		assertEquals(3000L, list.get(0).get(0));
+	}
+	
 	@Test public void testReverseIteration() throws Exception {
 		ElementSymbol x = new ElementSymbol("x"); //$NON-NLS-1$
 		x.setType(DataTypeManager.DefaultDataClasses.INTEGER);
@@ -105,6 +105,78 @@ public class TestFileStorageManager {
         }
     }
     
+    @Test public void testMemoryMapped() throws Exception {
+        FileStorageManager sm = getStorageManager(null, null);
+        sm.setMemoryMapped(true);
+        FileStore store = sm.createFileStore("0");
+        assertEquals(-1, store.read(0, new byte[1], 0, 1));
+        byte[] expectedBytes = writeBytes(store, 2048);
+        assertEquals(4096, sm.getUsedBufferSpace());
+        
+        byte[] bytesRead = new byte[2048];        
+        store.readFully(2048, bytesRead, 0, bytesRead.length);
+        assertArrayEquals(expectedBytes, bytesRead);
+        assertEquals(1, sm.getMappedSegments());
+        
+        //overwrite and extend past the mapped region
+        expectedBytes = writeBytes(store, 3072);
+        assertEquals(5120, sm.getUsedBufferSpace());
+        store.readFully(3072, bytesRead, 0, bytesRead.length);
+        assertArrayEquals(expectedBytes, bytesRead);
+        assertEquals(1, sm.getMappedSegments());
+        
+        store.setLength(100);
+        assertEquals(100, sm.getUsedBufferSpace());
+        assertEquals(0, sm.getMappedSegments());
+        assertEquals(-1, store.read(100, new byte[1], 0, 1));
+        
+        store.read(0, new byte[1], 0, 1);
+        assertEquals(1, sm.getMappedSegments());
+        store.remove();
+        assertEquals(0, sm.getUsedBufferSpace());
+        assertEquals(0, sm.getMappedSegments());
+    }
+    
+    @Test public void testMemoryMappedLimit() throws Exception {
+        FileStorageManager sm = getStorageManager(null, null);
+        sm.setMemoryMapped(true);
+        sm.setMaxMappedSegments(1);
+        FileStore store = sm.createFileStore("0");
+        FileStore store1 = sm.createFileStore("1");
+        byte[] expectedBytes = writeBytes(store, 0);
+        byte[] expectedBytes1 = writeBytes(store1, 0);
+        
+        byte[] bytesRead = new byte[2048];        
+        store.readFully(0, bytesRead, 0, bytesRead.length);
+        assertArrayEquals(expectedBytes, bytesRead);
+        assertEquals(1, sm.getMappedSegments());
+        
+        //over the limit, so read through the file
+        store1.readFully(0, bytesRead, 0, bytesRead.length);
+        assertArrayEquals(expectedBytes1, bytesRead);
+        assertEquals(1, sm.getMappedSegments());
+        
+        store.remove();
+        assertEquals(0, sm.getMappedSegments());
+        store1.readFully(0, bytesRead, 0, bytesRead.length);
+        assertArrayEquals(expectedBytes1, bytesRead);
+        assertEquals(1, sm.getMappedSegments());
+        store1.remove();
+    }
+    
+    @Test(expected=IOException.class) public void testMemoryMappedMaxSpaceSplit() throws Exception {
+    	FileStorageManager sm = getStorageManager(null, null); 
+    	sm.setMemoryMapped(true);
+    	sm.setMaxBufferSpace(1);
+        SplittableStorageManager ssm = new SplittableStorageManager(sm);
+        FileStore store = ssm.createFileStore("0");
+        try {
+        	writeBytes(store);
+        } finally {
+        	assertEquals(0, sm.getUsedBufferSpace());
+        }
+    }
+    
     @Test public void testSetLength() throws Exception {
     	FileStorageManager sm = getStorageManager(null, null); 
         
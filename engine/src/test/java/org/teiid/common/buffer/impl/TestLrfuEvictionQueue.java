@@ -60,4 +60,24 @@ public class TestLrfuEvictionQueue {
         assertNotNull(q.firstEntry(true));
     }
 	
+	@Test public void testSharded() {
+		ShardedLrfuEvictionQueue<BaseCacheEntry> q = new ShardedLrfuEvictionQueue<BaseCacheEntry>(new AtomicLong(), 4);
+		assertEquals(4, q.getShardCount());
+		for (long i = 0; i < 100; i++) {
+			assertTrue(q.add(new BaseCacheEntry(new CacheKey(i, 0l, 100 - i))));
+		}
+		assertEquals(100, q.getSize());
+		long last = -1;
+		for (BaseCacheEntry entry : q.getEvictionQueue()) {
+			assertTrue(entry.getKey().getOrderingValue() > last);
+			last = entry.getKey().getOrderingValue();
+		}
+		BaseCacheEntry first = q.firstEntry(false);
+		assertEquals(Long.valueOf(99), first.getKey().getId());
+		assertTrue(q.remove(first));
+		assertEquals(Long.valueOf(98), q.firstEntry(true).getKey().getId());
+		assertEquals(98, q.getSize());
+		assertEquals(98, q.getEvictionQueue().size());
+	}
+	
 }
@@ -31,6 +31,7 @@ import java.util.Arrays;
 import java.util.List;
 
 import org.junit.Test;
+import org.teiid.common.buffer.ColumnarTupleList;
 import org.teiid.core.types.BinaryType;
 import org.teiid.core.types.DataTypeManager;
 
@@ -183,4 +184,23 @@ public class TestSizeUtility {
         assertEquals("Got unexpected size: ", 2667, actualSize); //$NON-NLS-1$        
     }
     
-}
\ No newline at end of file
+    /**
+     * The row views and boxed values are cached as a columnar batch is read, so they must be part of the estimate
+     */
+    @Test public void testColumnarBatchIncludesReadCaches() {
+    	List<List<?>> rows = new ArrayList<List<?>>();
+    	for (int i = 0; i < 100; i++) {
+    		rows.add(Arrays.asList(Long.valueOf(i)));
+    	}
+    	Class<?>[] types = {DataTypeManager.DefaultDataClasses.LONG};
+    	ColumnarTupleList list = new ColumnarTupleList(types, rows);
+    	long size = new SizeUtility(types).getBatchSize(false, list);
+    	//primitive values, row views and boxed values 
+    	assertTrue(size >= 100 * (8 + 24 + 16));
+    	for (List<?> row : list) {
+    		row.get(0);
+    	}
+    	assertEquals(size, new SizeUtility(types).getBatchSize(false, list));
+    }
+    
+}
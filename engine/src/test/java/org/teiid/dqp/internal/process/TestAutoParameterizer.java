@@ -0,0 +1,81 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.teiid.dqp.internal.process;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.teiid.query.metadata.TransformationMetadata;
+import org.teiid.query.parser.QueryParser;
+import org.teiid.query.unittest.RealMetadataFactory;
+
+@SuppressWarnings("nls")
+public class TestAutoParameterizer {
+
+	private static TransformationMetadata metadata;
+
+	@BeforeClass public static void oneTimeSetup() throws Exception {
+		metadata = RealMetadataFactory.fromDDL("create foreign table t (x integer, y string); "
+				+ "create view v1 as select x, y from t union all select x, y from t; "
+				+ "create view v2 as select x, y from v1; "
+				+ "create view v3 as select x, y from t where y <> 'union'", "x", "y");
+	}
+
+	private String helpParameterize(String sql, Object... expectedValues) throws Exception {
+		List<Object> values = new ArrayList<Object>();
+		String result = AutoParameterizer.parameterize(QueryParser.getQueryParser().parseCommand(sql), metadata, values);
+		assertEquals(Arrays.asList(expectedValues), values);
+		return result;
+	}
+
+	@Test public void testParameterize() throws Exception {
+		assertEquals("SELECT x FROM t WHERE (x = ?) AND (y IN (?, ?))", helpParameterize("select x from t where x = 1 and y in ('a', 'b')", 1, "a", "b"));
+	}
+
+	/**
+	 * Range and inequality literals are needed for cost estimation
+	 */
+	@Test public void testRangeLiteralsRetained() throws Exception {
+		assertEquals("SELECT x FROM t WHERE (x > 1) AND (x <= 5) AND (x <> 3) AND (y NOT IN ('a', 'b')) AND (y = ?)", 
+				helpParameterize("select x from t where x > 1 and x <= 5 and x <> 3 and y not in ('a', 'b') and y = 'c'", "c"));
+		assertNull(helpParameterize("select x from t where x >= 1"));
+	}
+
+	@Test public void testUnionView() throws Exception {
+		assertNull(helpParameterize("select x from v1 where x = 1"));
+	}
+
+	@Test public void testNestedUnionView() throws Exception {
+		assertNull(helpParameterize("select x from v2 where x = 1"));
+	}
+
+	@Test public void testViewWithoutUnion() throws Exception {
+		assertEquals("SELECT x FROM v3 WHERE x = ?", helpParameterize("select x from v3 where x = 1", 1));
+	}
+
+	@Test public void testInlineUnionView() throws Exception {
+		assertNull(helpParameterize("select x from (select x from t union all select x from t) as a where x = 1"));
+	}
+
+}
@@ -21,6 +21,7 @@ package org.teiid.dqp.internal.process;
 import static org.junit.Assert.*;
 
 import java.sql.ResultSet;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
@@ -383,6 +384,41 @@ public class TestDQPCore {
     	assertEquals(100, item.resultsBuffer.getRowCount());
     }
     
+    @Test public void testFetchRowLimit() {
+    	//small fetches are unaffected
+    	assertEquals(100, RequestWorkItem.getFetchRowLimit(100, 512, 0));
+    	//bounded by a multiple of the output buffer
+    	assertEquals(2048, RequestWorkItem.getFetchRowLimit(100000, 512, 0));
+    	//bounded by the byte estimate
+    	assertEquals(1024, RequestWorkItem.getFetchRowLimit(100000, 512, 1 << 13));
+    	assertEquals(0, RequestWorkItem.getFetchRowLimit(100000, 512, Integer.MAX_VALUE));
+    }
+    
+    @Test public void testLargeFetchSizeBounded() throws Exception {
+    	//the sql should return 10000 rows
+        String sql = "SELECT A.IntKey FROM BQT1.SmallA as A, BQT1.SmallA as B, BQT1.SmallA as C, BQT1.SmallA as D"; //$NON-NLS-1$
+        String userName = "1"; //$NON-NLS-1$
+        String sessionid = "1"; //$NON-NLS-1$
+        
+        RequestMessage reqMsg = exampleRequestMessage(sql);
+        reqMsg.setCursorType(ResultSet.TYPE_FORWARD_ONLY);
+        reqMsg.setFetchSize(10000);
+        DQPWorkContext.getWorkContext().getSession().setSessionId(sessionid);
+        DQPWorkContext.getWorkContext().getSession().setUserName(userName);
+        ((BufferManagerImpl)core.getBufferManager()).setProcessorBatchSize(1);
+        Future<ResultsMessage> message = core.executeRequest(reqMsg.getExecutionId(), reqMsg);
+        ResultsMessage rm = message.get(500000, TimeUnit.MILLISECONDS);
+        assertNull(rm.getException());
+        RequestWorkItem item = core.getRequestWorkItem(DQPWorkContext.getWorkContext().getRequestID(reqMsg.getExecutionId()));
+        int batchSize = item.resultsBuffer.getBatchSize();
+        assertTrue(rm.getResultsList().size() <= 32 * batchSize);
+        while(item.isProcessing());
+        synchronized (item) {
+        	//the server should not buffer the whole result for the client fetch
+        	assertTrue(item.resultsBuffer.getRowCount() < 10000);
+        }
+    }
+    
     @Test public void testFinalRow() throws Exception {
         String sql = "SELECT A.IntKey FROM BQT1.SmallA as A"; //$NON-NLS-1$
         String userName = "1"; //$NON-NLS-1$
@@ -625,6 +661,30 @@ public class TestDQPCore {
         assertEquals(0, rm.getResultsList().size()); //$NON-NLS-1$
 	}
     
+    @Test public void testAutoParameterize() throws Exception {
+    	core.getBufferManager().getOptions().autoParameterize(true);
+        String userName = "1"; //$NON-NLS-1$
+        int sessionid = 1; //$NON-NLS-1$
+        ResultsMessage rm = execute(userName, sessionid, exampleRequestMessage("SELECT IntKey FROM BQT1.SmallA WHERE IntKey = 1")); //$NON-NLS-1$
+        assertNull(rm.getException());
+        assertEquals(0, this.core.getPrepPlanCache().getCacheHitCount());
+        
+        rm = execute(userName, sessionid, exampleRequestMessage("SELECT IntKey FROM BQT1.SmallA WHERE IntKey = 2")); //$NON-NLS-1$
+        assertNull(rm.getException());
+        assertEquals(10, rm.getResultsList().size());
+        assertEquals(1, this.core.getPrepPlanCache().getCacheHitCount());
+        
+        //the limit is retained as a literal
+        rm = execute(userName, sessionid, exampleRequestMessage("SELECT IntKey FROM BQT1.SmallA WHERE IntKey = 2 LIMIT 1")); //$NON-NLS-1$
+        assertEquals(1, rm.getResultsList().size());
+        assertEquals(1, this.core.getPrepPlanCache().getCacheHitCount());
+        
+        //no literals to replace
+        rm = execute(userName, sessionid, exampleRequestMessage("SELECT IntKey FROM BQT1.SmallA")); //$NON-NLS-1$
+        assertEquals(10, rm.getResultsList().size());
+        assertEquals(1, this.core.getPrepPlanCache().getCacheHitCount());
+    }
+    
     @Test public void testRsCacheInvalidation() throws Exception {
         String sql = "select * FROM vqt.SmallB"; //$NON-NLS-1$
         String userName = "1"; //$NON-NLS-1$
@@ -659,6 +719,71 @@ public class TestDQPCore {
         assertEquals(1, this.core.getRsCache().getCacheHitCount());
     }
     
+    @Test public void testRsCacheSubsumption() throws Exception {
+    	core.getBufferManager().getOptions().resultSetCacheSubsumption(true);
+    	agds.setUseIntCounter(true);
+        String userName = "1"; //$NON-NLS-1$
+        int sessionid = 1; //$NON-NLS-1$
+        RequestMessage reqMsg = exampleRequestMessage("select intkey, stringkey FROM bqt1.smalla where intkey > 1"); //$NON-NLS-1$
+        reqMsg.setUseResultSetCache(true);
+        ResultsMessage rm = execute(userName, sessionid, reqMsg);
+        assertEquals(10, rm.getResultsList().size());
+        assertEquals(1, agds.getExecuteCount().get());
+        
+        //more restrictive criteria, projection, ordering, and limit applied to the cached results
+        reqMsg = exampleRequestMessage("select intkey FROM bqt1.smalla where intkey >= 5 and intkey in (5, 7, 9) order by intkey desc limit 1, 2"); //$NON-NLS-1$
+        reqMsg.setUseResultSetCache(true);
+        rm = execute(userName, sessionid, reqMsg);
+        assertEquals(Arrays.asList(Arrays.asList(7), Arrays.asList(5)), rm.getResultsList());
+        assertEquals(1, agds.getExecuteCount().get());
+        assertEquals(1, this.core.getRsCache().getCacheHitCount());
+        
+        //less restrictive criteria cannot use the cached results
+        reqMsg = exampleRequestMessage("select intkey FROM bqt1.smalla where intkey > 0"); //$NON-NLS-1$
+        reqMsg.setUseResultSetCache(true);
+        rm = execute(userName, sessionid, reqMsg);
+        assertEquals(10, rm.getResultsList().size());
+        assertEquals(2, agds.getExecuteCount().get());
+    }
+    
+    @Test public void testRsCacheSubsumptionSelectStar() throws Exception {
+    	core.getBufferManager().getOptions().resultSetCacheSubsumption(true);
+    	agds.setUseIntCounter(true);
+        String userName = "1"; //$NON-NLS-1$
+        int sessionid = 1; //$NON-NLS-1$
+        RequestMessage reqMsg = exampleRequestMessage("select * FROM bqt1.smalla where intkey > 1"); //$NON-NLS-1$
+        reqMsg.setUseResultSetCache(true);
+        ResultsMessage rm = execute(userName, sessionid, reqMsg);
+        assertEquals(10, rm.getResultsList().size());
+        assertEquals(1, agds.getExecuteCount().get());
+        
+        //the cached select * projects every column
+        reqMsg = exampleRequestMessage("select intkey FROM bqt1.smalla where intkey >= 5 and intkey in (5, 7, 9) order by intkey desc limit 1, 2"); //$NON-NLS-1$
+        reqMsg.setUseResultSetCache(true);
+        rm = execute(userName, sessionid, reqMsg);
+        assertEquals(Arrays.asList(Arrays.asList(7), Arrays.asList(5)), rm.getResultsList());
+        assertEquals(1, agds.getExecuteCount().get());
+    }
+    
+    @Test public void testRsCacheSubsumptionTargetSelectStar() throws Exception {
+    	core.getBufferManager().getOptions().resultSetCacheSubsumption(true);
+    	agds.setUseIntCounter(true);
+        String userName = "1"; //$NON-NLS-1$
+        int sessionid = 1; //$NON-NLS-1$
+        RequestMessage reqMsg = exampleRequestMessage("select intkey, stringkey FROM bqt1.smalla where intkey > 1"); //$NON-NLS-1$
+        reqMsg.setUseResultSetCache(true);
+        ResultsMessage rm = execute(userName, sessionid, reqMsg);
+        assertEquals(10, rm.getResultsList().size());
+        assertEquals(1, agds.getExecuteCount().get());
+        
+        //the cached results do not have every column, so the source is queried
+        reqMsg = exampleRequestMessage("select * FROM bqt1.smalla where intkey = 5"); //$NON-NLS-1$
+        reqMsg.setUseResultSetCache(true);
+        rm = execute(userName, sessionid, reqMsg);
+        assertNull(rm.getException());
+        assertEquals(2, agds.getExecuteCount().get());
+    }
+    
     @Test public void testLobConcurrency() throws Exception {
     	RequestMessage reqMsg = exampleRequestMessage("select to_bytes(stringkey, 'utf-8') FROM BQT1.SmallA"); 
         reqMsg.setTxnAutoWrapMode(RequestMessage.TXN_WRAP_OFF);
@@ -719,6 +844,18 @@ public class TestDQPCore {
         }
     }
     
+    @Test public void testParallelUnionAllBlocked() throws Exception {
+    	core.getBufferManager().getOptions().unionParallelism(2);
+    	//the sources block, so the producers rely on the work item to resume
+    	agds.dataNotAvailable = 20;
+    	agds.setSleep(20);
+    	RequestMessage reqMsg = exampleRequestMessage("select intkey FROM BQT1.SmallA union all select intkey FROM BQT1.SmallB"); //$NON-NLS-1$
+        ResultsMessage results = execute("A", 1, reqMsg);
+        assertNull(results.getException());
+        assertEquals(20, results.getResultsList().size());
+        assertEquals(2, agds.getExecuteCount().get());
+    }
+    
     @Test public void testXmlTableStreamingWithLimit() throws Exception {
         String sql = "select * from xmltable('/a/b' passing xmlparse(document '<a x=''1''><b>foo</b><b>bar</b><b>zed</b></a>') columns y string path '.') as x limit 2"; //$NON-NLS-1$
         
@@ -0,0 +1,79 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.teiid.dqp.internal.process;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.teiid.common.buffer.BufferManager;
+import org.teiid.common.buffer.BufferManager.TupleSourceType;
+import org.teiid.common.buffer.BufferManagerFactory;
+import org.teiid.common.buffer.TupleBuffer;
+import org.teiid.query.metadata.TransformationMetadata;
+import org.teiid.query.resolver.TestResolver;
+import org.teiid.query.sql.lang.Query;
+import org.teiid.query.unittest.RealMetadataFactory;
+import org.teiid.query.util.CommandContext;
+
+@SuppressWarnings("nls")
+public class TestResultSetSubsumption {
+	
+	private static TransformationMetadata metadata;
+	
+	@BeforeClass public static void oneTimeSetup() throws Exception {
+		metadata = RealMetadataFactory.fromDDL("create foreign function func (param integer) returns integer; "
+				+ "create foreign table g1 (e1 integer, e2 string)", "x", "y");
+	}
+	
+	private TupleBuffer helpGetResults(String baseSql, String targetSql) throws Exception {
+		Query base = (Query)TestResolver.helpResolve(baseSql, metadata);
+		Query target = (Query)TestResolver.helpResolve(targetSql, metadata);
+		assertEquals(ResultSetSubsumption.getKey(base), ResultSetSubsumption.getKey(target));
+		BufferManager bm = BufferManagerFactory.getStandaloneBufferManager();
+		TupleBuffer cached = bm.createTupleBuffer(base.getProjectedSymbols(), "x", TupleSourceType.PROCESSOR);
+		for (int i = 0; i < 5; i++) {
+			cached.addTuple(Arrays.asList(i, String.valueOf(i)));
+		}
+		cached.close();
+		return ResultSetSubsumption.getResults(base, cached, target, bm, new CommandContext());
+	}
+	
+	@Test public void testSubsumed() throws Exception {
+		TupleBuffer tb = helpGetResults("select e1, e2 from g1 where e1 > 0", "select abs(e1) from g1 where e1 > 2");
+		assertNotNull(tb);
+		assertEquals(2, tb.getRowCount());
+		assertEquals(Arrays.asList(3), tb.getBatch(1).getTuple(1));
+	}
+	
+	@Test public void testPushdownFunctionInSelect() throws Exception {
+		assertNull(helpGetResults("select e1, e2 from g1 where e1 > 0", "select func(e1) from g1 where e1 > 2"));
+	}
+	
+	@Test public void testPushdownFunctionInCriteria() throws Exception {
+		assertNull(helpGetResults("select e1, e2 from g1 where e1 > 0", "select e1 from g1 where e1 > 2 and func(e1) = 3"));
+	}
+	
+	@Test public void testPushdownFunctionInOrderBy() throws Exception {
+		assertNull(helpGetResults("select e1, e2 from g1 where e1 > 0", "select e1 from g1 where e1 > 2 order by func(e1)"));
+	}
+
+}
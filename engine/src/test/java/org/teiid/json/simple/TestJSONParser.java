@@ -0,0 +1,106 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.teiid.json.simple;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+@SuppressWarnings("nls")
+public class TestJSONParser {
+	
+	private static final class RecordingHandler implements ContentHandler {
+		List<String> events = new ArrayList<String>();
+		boolean pause;
+		boolean done;
+		
+		@Override
+		public void startJSON() throws ParseException, IOException {
+		}
+		
+		@Override
+		public void endJSON() throws ParseException, IOException {
+			done = true;
+		}
+		
+		@Override
+		public boolean startObject() throws ParseException, IOException {
+			return add("{");
+		}
+		
+		@Override
+		public boolean endObject() throws ParseException, IOException {
+			return add("}");
+		}
+		
+		@Override
+		public boolean startObjectEntry(String key) throws ParseException, IOException {
+			return add(key + ":");
+		}
+		
+		@Override
+		public boolean endObjectEntry() throws ParseException, IOException {
+			return add(";");
+		}
+		
+		@Override
+		public boolean startArray() throws ParseException, IOException {
+			return add("[");
+		}
+		
+		@Override
+		public boolean endArray() throws ParseException, IOException {
+			return add("]");
+		}
+		
+		@Override
+		public boolean primitive(Object value) throws ParseException, IOException {
+			return add(String.valueOf(value));
+		}
+		
+		private boolean add(String event) {
+			events.add(event);
+			return !pause;
+		}
+	}
+
+	private List<String> parse(String json, boolean pause) throws Exception {
+		JSONParser parser = new JSONParser();
+		RecordingHandler handler = new RecordingHandler();
+		handler.pause = pause;
+		StringReader reader = new StringReader(json);
+		while (!handler.done) {
+			parser.parse(reader, handler, true);
+		}
+		return handler.events;
+	}
+	
+	@Test public void testResumeAfterPrimitiveEntry() throws Exception {
+		String json = "{\"a\":1, \"b\":[true, \"x\"], \"c\":{\"d\":null}}";
+		List<String> expected = parse(json, false);
+		assertEquals("[{, a:, 1, ;, b:, [, true, x, ], ;, c:, {, d:, null, ;, }, ;, }]", expected.toString());
+		assertEquals(expected, parse(json, true));
+	}
+
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.teiid.query.eval;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.teiid.core.TeiidComponentException;
+import org.teiid.core.TeiidProcessingException;
+import org.teiid.core.types.DataTypeManager;
+import org.teiid.query.eval.ExpressionCompiler.CompiledCriteria;
+import org.teiid.query.eval.ExpressionCompiler.CompiledExpression;
+import org.teiid.query.function.FunctionDescriptor;
+import org.teiid.query.function.FunctionLibrary;
+import org.teiid.query.function.FunctionTree;
+import org.teiid.query.optimizer.FakeFunctionMetadataSource;
+import org.teiid.query.processor.FakeDataManager;
+import org.teiid.query.processor.ProcessorDataManager;
+import org.teiid.query.sql.lang.CompareCriteria;
+import org.teiid.query.sql.lang.CompoundCriteria;
+import org.teiid.query.sql.lang.Criteria;
+import org.teiid.query.sql.lang.IsNullCriteria;
+import org.teiid.query.sql.lang.NotCriteria;
+import org.teiid.query.sql.symbol.Constant;
+import org.teiid.query.sql.symbol.ElementSymbol;
+import org.teiid.query.sql.symbol.Expression;
+import org.teiid.query.sql.symbol.ExpressionSymbol;
+import org.teiid.query.sql.symbol.Function;
+import org.teiid.query.unittest.RealMetadataFactory;
+import org.teiid.query.util.CommandContext;
+
+@SuppressWarnings("nls")
+public class TestExpressionCompiler {
+
+	private static final List<?>[] TUPLES = new List<?>[] {
+		Arrays.asList(1, "a"),
+		Arrays.asList(2, "b"),
+		Arrays.asList(null, "a"),
+		Arrays.asList(1, null),
+		Arrays.asList(null, null),
+	};
+
+	private ElementSymbol e1 = new ElementSymbol("e1");
+	private ElementSymbol e2 = new ElementSymbol("e2");
+	private Map<ElementSymbol, Integer> elements = new HashMap<ElementSymbol, Integer>();
+
+	{
+		e1.setType(DataTypeManager.DefaultDataClasses.INTEGER);
+		e2.setType(DataTypeManager.DefaultDataClasses.STRING);
+		elements.put(e1, 0);
+		elements.put(e2, 1);
+	}
+
+	private Function helpFunction(FunctionLibrary library, String name, Expression... args) {
+		Class<?>[] types = new Class<?>[args.length];
+		for (int i = 0; i < args.length; i++) {
+			types[i] = args[i].getType();
+		}
+		Function func = new Function(name, args);
+		FunctionDescriptor fd = library.findFunction(name, types);
+		func.setFunctionDescriptor(fd);
+		func.setType(fd.getReturnType());
+		return func;
+	}
+
+	private Function helpFunction(String name, Expression... args) {
+		return helpFunction(RealMetadataFactory.SFM.getSystemFunctionLibrary(), name, args);
+	}
+
+	/**
+	 * Check that the compiled form produces the same results as the interpreted form for all tuples
+	 */
+	private CompiledExpression helpCompare(Evaluator eval, Expression expr) throws TeiidComponentException, TeiidProcessingException {
+		CompiledExpression compiled = new ExpressionCompiler(eval, elements).compile(expr);
+		for (List<?> tuple : TUPLES) {
+			assertEquals(tuple.toString(), eval.evaluate(expr, tuple), compiled.evaluate(tuple));
+		}
+		return compiled;
+	}
+
+	private CompiledCriteria helpCompare(Criteria crit) throws TeiidComponentException, TeiidProcessingException {
+		Evaluator eval = new Evaluator(elements, null, new CommandContext());
+		CompiledCriteria compiled = new ExpressionCompiler(eval, elements).compile(crit);
+		for (List<?> tuple : TUPLES) {
+			assertEquals(tuple.toString(), eval.evaluateTVL(crit, tuple), compiled.evaluateTVL(tuple));
+		}
+		return compiled;
+	}
+
+	@Test public void testFunctionNullArgument() throws Exception {
+		Evaluator eval = new Evaluator(elements, null, new CommandContext());
+		CompiledExpression compiled = helpCompare(eval, helpFunction("concat", e2, new Constant("x")));
+		assertNull(compiled.evaluate(TUPLES[3]));
+
+		//null dependent functions are passed the null argument
+		compiled = helpCompare(eval, new ExpressionSymbol("expr", helpFunction("ifnull", e2, new Constant("x"))));
+		assertEquals("x", compiled.evaluate(TUPLES[3]));
+		assertEquals("a", compiled.evaluate(TUPLES[0]));
+
+		Function convert = helpFunction("convert", e1, new Constant("string"));
+		convert.setType(DataTypeManager.DefaultDataClasses.STRING);
+		helpCompare(eval, helpFunction("concat", helpFunction("ifnull", e2, new Constant("x")), convert));
+	}
+
+	@Test public void testCompoundCriteriaUnknown() throws Exception {
+		CompareCriteria e1Eq1 = new CompareCriteria(e1, CompareCriteria.EQ, new Constant(1));
+		CompareCriteria e2EqA = new CompareCriteria(e2, CompareCriteria.EQ, new Constant("a"));
+
+		CompiledCriteria compiled = helpCompare(new CompoundCriteria(CompoundCriteria.AND, e1Eq1, e2EqA));
+		assertNull(compiled.evaluateTVL(TUPLES[2]));
+		assertEquals(Boolean.FALSE, compiled.evaluateTVL(TUPLES[1]));
+
+		compiled = helpCompare(new CompoundCriteria(CompoundCriteria.OR, e1Eq1, e2EqA));
+		assertEquals(Boolean.TRUE, compiled.evaluateTVL(TUPLES[2]));
+		assertNull(compiled.evaluateTVL(TUPLES[4]));
+
+		compiled = helpCompare(new CompoundCriteria(CompoundCriteria.OR,
+				new CompareCriteria(e1, CompareCriteria.GT, new Constant(1)), new IsNullCriteria(e2)));
+		assertNull(compiled.evaluateTVL(TUPLES[2]));
+	}
+
+	@Test public void testNotCriteriaUnknown() throws Exception {
+		CompareCriteria e1Eq1 = new CompareCriteria(e1, CompareCriteria.EQ, new Constant(1));
+		CompareCriteria e2EqA = new CompareCriteria(e2, CompareCriteria.EQ, new Constant("a"));
+
+		CompiledCriteria compiled = helpCompare(new NotCriteria(e1Eq1));
+		assertNull(compiled.evaluateTVL(TUPLES[2]));
+		assertEquals(Boolean.TRUE, compiled.evaluateTVL(TUPLES[1]));
+
+		compiled = helpCompare(new NotCriteria(new CompoundCriteria(CompoundCriteria.AND, e1Eq1, e2EqA)));
+		assertNull(compiled.evaluateTVL(TUPLES[2]));
+		assertEquals(Boolean.FALSE, compiled.evaluateTVL(TUPLES[0]));
+
+		compiled = helpCompare(new NotCriteria(new NotCriteria(new CompoundCriteria(CompoundCriteria.OR, e1Eq1, e2EqA))));
+		assertNull(compiled.evaluateTVL(TUPLES[4]));
+
+		compiled = helpCompare(new NotCriteria(new IsNullCriteria(e1)));
+		assertEquals(Boolean.FALSE, compiled.evaluateTVL(TUPLES[4]));
+	}
+
+	@Test public void testLookupIsInterpreted() throws Exception {
+		FakeDataManager dataMgr = new FakeDataManager();
+		Map<Integer, String> valueMap = new HashMap<Integer, String>();
+		valueMap.put(1, "one");
+		valueMap.put(2, "two");
+		dataMgr.defineCodeTable("pm1.g1", "e1", "e2", valueMap);
+
+		Function func = new Function("lookup", new Expression[] { new Constant("pm1.g1"), new Constant("e2"), new Constant("e1"), e1 });
+		FunctionDescriptor desc = RealMetadataFactory.SFM.getSystemFunctionLibrary().findFunction("lookup", new Class[] { String.class, String.class, String.class, Integer.class });
+		func.setFunctionDescriptor(desc);
+		func.setType(DataTypeManager.DefaultDataClasses.STRING);
+
+		Evaluator eval = new Evaluator(elements, dataMgr, new CommandContext());
+		CompiledExpression compiled = helpCompare(eval, helpFunction("concat", func, e2));
+		assertEquals("onea", compiled.evaluate(TUPLES[0]));
+	}
+
+	@Test public void testPushdownFunctionIsInterpreted() throws Exception {
+		FunctionLibrary library = new FunctionLibrary(RealMetadataFactory.SFM.getSystemFunctions(), new FunctionTree("foo", new FakeFunctionMetadataSource(), true));
+		final int[] pushdownCount = new int[1];
+		Evaluator eval = new Evaluator(elements, (ProcessorDataManager)null, new CommandContext()) {
+			@Override
+			protected Object evaluatePushdown(Function function, List<?> tuple, Object[] values) {
+				pushdownCount[0]++;
+				return 3;
+			}
+		};
+		//the invocation method of xyz returns null, so a direct invocation would not produce 3
+		Function func = helpFunction(library, "xyz");
+		CompiledExpression compiled = helpCompare(eval, helpFunction("abs", func));
+		assertEquals(3, compiled.evaluate(TUPLES[0]));
+		assertEquals(TUPLES.length * 2 + 1, pushdownCount[0]);
+	}
+
+}
@@ -1469,6 +1469,40 @@ public class TestFunctionLibrary {
         assertEquals("<?xml version=\"1.0\" encoding=\"UTF-8\"?><Catalogs xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"><Catalog><Items><Item ItemID=\"001\">"
         		+ "<Name>Lamp</Name><Quantity>5</Quantity></Item></Items></Catalog></Catalogs><?xml version=\"1.0\" encoding=\"UTF-8\"?><xsl:stylesheet version=\"1.0\" xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">"
         		+ "<xsl:template match=\"@*|node()\"><xsl:copy><xsl:apply-templates select=\"@*|node()\"/></xsl:copy></xsl:template><xsl:template match=\"Quantity\"/></xsl:stylesheet>", xml);
+    }    
+    @Test public void testInvokeWithHandle() throws Exception {
+    	FunctionDescriptor fd = library.findFunction("abs", new Class<?>[] {DataTypeManager.DefaultDataClasses.INTEGER}); //$NON-NLS-1$
+    	assertEquals(1, fd.invokeFunction(new Object[] {-1}, null, null, true));
+    	assertEquals(2, fd.invokeFunction(new Object[] {2}, null, null, true));
+    	fd = library.findFunction("concat", new Class<?>[] {DataTypeManager.DefaultDataClasses.STRING, DataTypeManager.DefaultDataClasses.STRING}); //$NON-NLS-1$
+    	assertEquals("ab", fd.invokeFunction(new Object[] {"a", "b"}, null, null, true)); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+    }
+    
+    @Test public void testInvokeWithHandleFunctionException() throws Exception {
+    	FunctionDescriptor fd = library.findFunction("abs", new Class<?>[] {DataTypeManager.DefaultDataClasses.INTEGER}); //$NON-NLS-1$
+    	for (boolean useHandle : new boolean[] {false, true}) {
+	    	try {
+	    		fd.invokeFunction(new Object[] {Integer.MIN_VALUE}, null, null, useHandle);
+	    		fail();
+	    	} catch (FunctionExecutionException e) {
+	    		assertTrue(e.getCause() instanceof FunctionExecutionException);
+	    	}
+    	}
+    }
+    
+    /**
+     * Mismatched arguments should be reported by reflection rather than as a cast exception from the handle
+     */
+    @Test public void testInvokeWithHandleArgumentMismatch() throws Exception {
+    	FunctionDescriptor fd = library.findFunction("abs", new Class<?>[] {DataTypeManager.DefaultDataClasses.INTEGER}); //$NON-NLS-1$
+    	for (boolean useHandle : new boolean[] {false, true}) {
+	    	try {
+	    		fd.invokeFunction(new Object[] {"a"}, null, null, useHandle); //$NON-NLS-1$
+	    		fail();
+	    	} catch (IllegalArgumentException e) {
+	    		//expected
+	    	}
+    	}
     }
 
 }
@@ -0,0 +1,83 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.teiid.query.optimizer;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.teiid.metadata.Schema;
+import org.teiid.query.metadata.TransformationMetadata;
+import org.teiid.query.parser.QueryParser;
+import org.teiid.query.sql.lang.Command;
+import org.teiid.query.unittest.RealMetadataFactory;
+
+@SuppressWarnings("nls")
+public class TestIncrementalMatViewPlanner {
+	
+	private static final String DDL = "create foreign table t (a integer primary key, b string); "
+			+ "create foreign table u (c integer primary key, a integer); "
+			+ "create view v (a integer primary key, b string) options (materialized true) as select a, b from t; "
+			+ "create view v1 (c integer primary key, b string, a integer) options (materialized true) as select u.c, t.b, u.a from u inner join t on u.a = t.a; "
+			+ "create view v2 (b string, c integer) options (materialized true) as select b, count(*) from t group by b; "
+			+ "create view v3 (c integer primary key, b string) options (materialized true) as select u.c, t.b from u, t where u.a = t.a; "
+			+ "create view v4 (a integer primary key, b string) options (materialized true) as select t.a, t1.b from t, t as t1 where t.a = t1.a; ";
+
+	@Test public void testDirect() throws Exception {
+		TransformationMetadata tm = RealMetadataFactory.fromDDL(DDL, "x", "y");
+		Schema s = tm.getMetadataStore().getSchema("y");
+		assertEquals("FOR EACH ROW BEGIN ATOMIC\nEXECUTE SYSADMIN.refreshMatViewRow('y.v', NEW.a);\nEND", 
+				IncrementalMatViewPlanner.createAction(s.getTable("v"), s.getTable("t"), Command.TYPE_INSERT, tm));
+		assertEquals("FOR EACH ROW BEGIN ATOMIC\nEXECUTE SYSADMIN.refreshMatViewRow('y.v', OLD.a);\nEND", 
+				IncrementalMatViewPlanner.createAction(s.getTable("v"), s.getTable("t"), Command.TYPE_DELETE, tm));
+		String action = IncrementalMatViewPlanner.createAction(s.getTable("v"), s.getTable("t"), Command.TYPE_UPDATE, tm);
+		assertEquals("FOR EACH ROW BEGIN ATOMIC\nEXECUTE SYSADMIN.refreshMatViewRow('y.v', OLD.a);\nIF (CHANGING.a)\nBEGIN\nEXECUTE SYSADMIN.refreshMatViewRow('y.v', NEW.a);\nEND\nEND", action);
+		QueryParser.getQueryParser().parseProcedure(action, true);
+	}
+	
+	@Test public void testDirectThroughJoin() throws Exception {
+		TransformationMetadata tm = RealMetadataFactory.fromDDL(DDL, "x", "y");
+		Schema s = tm.getMetadataStore().getSchema("y");
+		assertEquals("FOR EACH ROW BEGIN ATOMIC\nEXECUTE SYSADMIN.refreshMatViewRow('y.v3', NEW.c);\nEND", 
+				IncrementalMatViewPlanner.createAction(s.getTable("v3"), s.getTable("u"), Command.TYPE_INSERT, tm));
+	}
+	
+	@Test public void testLookup() throws Exception {
+		TransformationMetadata tm = RealMetadataFactory.fromDDL(DDL, "x", "y");
+		Schema s = tm.getMetadataStore().getSchema("y");
+		String action = IncrementalMatViewPlanner.createAction(s.getTable("v1"), s.getTable("t"), Command.TYPE_UPDATE, tm);
+		assertEquals("FOR EACH ROW BEGIN ATOMIC\nSELECT c INTO #keys FROM y.v1 WHERE a = OLD.a;\n"
+				+ "INSERT INTO #keys (c) SELECT c FROM y.v1 WHERE a = NEW.a OPTION NOCACHE y.v1;\n"
+				+ "LOOP ON (SELECT DISTINCT c FROM #keys) AS x\nBEGIN\nEXECUTE SYSADMIN.refreshMatViewRow('y.v1', x.c);\nEND\nEND", action);
+		QueryParser.getQueryParser().parseProcedure(action, true);
+	}
+	
+	@Test public void testNotMaintainable() throws Exception {
+		TransformationMetadata tm = RealMetadataFactory.fromDDL(DDL, "x", "y");
+		Schema s = tm.getMetadataStore().getSchema("y");
+		//no primary key
+		assertNull(IncrementalMatViewPlanner.createAction(s.getTable("v2"), s.getTable("t"), Command.TYPE_INSERT, tm));
+		//no key relationship 
+		assertNull(IncrementalMatViewPlanner.createAction(s.getTable("v3"), s.getTable("t"), Command.TYPE_INSERT, tm));
+		//not referenced
+		assertNull(IncrementalMatViewPlanner.createAction(s.getTable("v"), s.getTable("u"), Command.TYPE_INSERT, tm));
+		//self join
+		assertNull(IncrementalMatViewPlanner.createAction(s.getTable("v4"), s.getTable("t"), Command.TYPE_INSERT, tm));
+	}
+
+}
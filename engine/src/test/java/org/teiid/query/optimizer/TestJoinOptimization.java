@@ -50,7 +50,9 @@ import org.teiid.query.processor.FakeDataManager;
 import org.teiid.query.processor.HardcodedDataManager;
 import org.teiid.query.processor.ProcessorPlan;
 import org.teiid.query.processor.TestProcessor;
+import org.teiid.query.processor.relational.HashJoinStrategy;
 import org.teiid.query.processor.relational.JoinNode;
+import org.teiid.query.processor.relational.MergeJoinStrategy;
 import org.teiid.query.processor.relational.RelationalNode;
 import org.teiid.query.processor.relational.RelationalPlan;
 import org.teiid.query.resolver.QueryResolver;
@@ -61,6 +63,7 @@ import org.teiid.query.sql.symbol.Expression;
 import org.teiid.query.sql.symbol.GroupSymbol;
 import org.teiid.query.unittest.RealMetadataFactory;
 import org.teiid.query.util.CommandContext;
+import org.teiid.query.util.Options;
 import org.teiid.translator.ExecutionFactory.SupportedJoinCriteria;
 import org.teiid.translator.SourceSystemFunctions;
 
@@ -1524,4 +1527,51 @@ public class TestJoinOptimization {
         TestOptimizer.checkNodeTypes(plan, TestOptimizer.FULL_PUSHDOWN);
     }
 	
+	@Test public void testHashJoinPlanning() throws Exception {
+		TransformationMetadata metadata = RealMetadataFactory.exampleBQT();
+		RealMetadataFactory.setCardinality("bqt1.smalla", 100000, metadata);
+		RealMetadataFactory.setCardinality("bqt2.smallb", 200000, metadata);
+		String sql = "SELECT bqt1.smalla.stringkey, bqt2.smallb.stringkey FROM bqt1.smalla, bqt2.smallb WHERE bqt1.smalla.intkey = bqt2.smallb.intkey";
+		
+		CommandContext cc = new CommandContext();
+		cc.setOptions(new Options().hashJoin(true));
+		ProcessorPlan plan = TestOptimizer.getPlan(TestOptimizer.helpGetCommand(sql, metadata, null), metadata, TestOptimizer.getGenericFinder(), null, true, cc);
+		assertTrue(findJoinNode(((RelationalPlan)plan).getRootNode()).getJoinStrategy() instanceof HashJoinStrategy);
+		
+		//the option is required
+		plan = TestOptimizer.getPlan(TestOptimizer.helpGetCommand(sql, metadata, null), metadata, TestOptimizer.getGenericFinder(), null, true, new CommandContext());
+		assertTrue(findJoinNode(((RelationalPlan)plan).getRootNode()).getJoinStrategy() instanceof MergeJoinStrategy);
+	}
+	
+	/**
+	 * A build side that fits in a batch is left to the merge join
+	 */
+	@Test public void testHashJoinPlanningSmallBuild() throws Exception {
+		TransformationMetadata metadata = RealMetadataFactory.exampleBQT();
+		RealMetadataFactory.setCardinality("bqt1.smalla", 10, metadata);
+		RealMetadataFactory.setCardinality("bqt2.smallb", 200000, metadata);
+		String sql = "SELECT bqt1.smalla.stringkey, bqt2.smallb.stringkey FROM bqt1.smalla, bqt2.smallb WHERE bqt1.smalla.intkey = bqt2.smallb.intkey";
+		
+		CommandContext cc = new CommandContext();
+		cc.setOptions(new Options().hashJoin(true));
+		ProcessorPlan plan = TestOptimizer.getPlan(TestOptimizer.helpGetCommand(sql, metadata, null), metadata, TestOptimizer.getGenericFinder(), null, true, cc);
+		assertFalse(findJoinNode(((RelationalPlan)plan).getRootNode()).getJoinStrategy() instanceof HashJoinStrategy);
+	}
+	
+	private static JoinNode findJoinNode(RelationalNode node) {
+		if (node instanceof JoinNode) {
+			return (JoinNode)node;
+		}
+		for (RelationalNode child : node.getChildren()) {
+			if (child == null) {
+				continue;
+			}
+			JoinNode result = findJoinNode(child);
+			if (result != null) {
+				return result;
+			}
+		}
+		return null;
+	}
+	
 }
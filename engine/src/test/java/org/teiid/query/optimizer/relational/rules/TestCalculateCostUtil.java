@@ -561,6 +561,23 @@ public class TestCalculateCostUtil {
         helpTestEstimateCost(critString, 100, 33, metadata);
     }
 
+    @Test public void testEstimateCostOfCriteriaHistogram() throws Exception {
+        TransformationMetadata metadata = RealMetadataFactory.example1();
+        Column e2 = metadata.getElementID("pm1.g1.e2"); //$NON-NLS-1$
+        e2.setMinimumValue("0"); //$NON-NLS-1$
+        e2.setMaximumValue("100"); //$NON-NLS-1$
+        String critString = "pm1.g1.e2 <= 5"; //$NON-NLS-1$
+        
+        helpTestEstimateCost(critString, 100, 5, metadata);
+        
+        //most of the values are clustered at the low end
+        e2.setProperty(Column.HISTOGRAM, "1,2,3,4,5,6,7,8,9,100"); //$NON-NLS-1$
+        helpTestEstimateCost(critString, 100, 50, metadata);
+        
+        critString = "pm1.g1.e2 > 9"; //$NON-NLS-1$
+        helpTestEstimateCost(critString, 100, 10, metadata);
+    }
+
     /**
      *  Time Criteria - case using valid max and min time strings.
      */
@@ -5146,6 +5146,22 @@ public class TestParser {
         helpTest(sql, "SELECT * FROM ARRAYTABLE(null COLUMNS x string, y date) AS x", query);
     }
     
+    @Test public void testJSONTable() throws Exception {
+    	String sql = "SELECT * from jsontable(e1, '$.a[*]' columns x for ordinality, y date path '$.b') as x"; //$NON-NLS-1$
+        Query query = new Query();
+        query.setSelect(new Select(Arrays.asList(new MultipleElementSymbol())));
+        JSONTable jt = new JSONTable();
+        jt.setJson(new ElementSymbol("e1"));
+        jt.setRowPath("$.a[*]");
+        List<JSONTable.JSONColumn> columns = new ArrayList<JSONTable.JSONColumn>();
+        columns.add(new JSONTable.JSONColumn("x"));
+        columns.add(new JSONTable.JSONColumn("y", "date", "$.b"));
+        jt.setColumns(columns);
+        jt.setName("x");
+        query.setFrom(new From(Arrays.asList(jt)));
+        helpTest(sql, "SELECT * FROM JSONTABLE(e1, '$.a[*]' COLUMNS x FOR ORDINALITY, y date PATH '$.b') AS x", query);
+    }
+    
     @Test public void testPositionalReference() throws Exception {
     	String sql = "select $1";
     	Query query = new Query();
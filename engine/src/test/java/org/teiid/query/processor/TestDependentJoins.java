@@ -46,6 +46,7 @@ import org.teiid.query.optimizer.capabilities.DefaultCapabilitiesFinder;
 import org.teiid.query.optimizer.capabilities.FakeCapabilitiesFinder;
 import org.teiid.query.optimizer.capabilities.SourceCapabilities.Capability;
 import org.teiid.query.parser.QueryParser;
+import org.teiid.query.processor.relational.DependentAccessNode;
 import org.teiid.query.processor.relational.JoinNode;
 import org.teiid.query.processor.relational.RelationalNode;
 import org.teiid.query.processor.relational.RelationalPlan;
@@ -720,6 +721,108 @@ public class TestDependentJoins {
         TestProcessor.helpProcess(plan, dataManager, expected);
     }
 
+    @Test public void testLargeSetInDepAccessBloomFilter() throws Exception {
+    	//only b passes the filter
+    	helpTestLargeSetInDepAccessBloomFilter(true, 1);
+    }
+    
+    @Test public void testLargeSetInDepAccessBloomFilterDisabled() throws Exception {
+    	helpTestLargeSetInDepAccessBloomFilter(false, 3);
+    }
+    
+    private void helpTestLargeSetInDepAccessBloomFilter(boolean bloomFilter, long expectedDependentRows) throws Exception {
+        String sql = "SELECT pm1.g1.e1 FROM pm1.g1, pm6.g1 MAKEDEP(max:1) WHERE pm1.g1.e1=pm6.g1.e1"; //$NON-NLS-1$
+
+        FakeDataManager dataManager = new FakeDataManager();
+        sampleData4(dataManager);
+
+        FakeCapabilitiesFinder capFinder = new FakeCapabilitiesFinder();
+        BasicSourceCapabilities depcaps = new BasicSourceCapabilities();
+        depcaps.setCapabilitySupport(Capability.CRITERIA_IN, true);
+        depcaps.setSourceProperty(Capability.MAX_IN_CRITERIA_SIZE, 1);
+        depcaps.setCapabilitySupport(Capability.QUERY_ORDERBY, true);
+
+        BasicSourceCapabilities caps = new BasicSourceCapabilities();
+        caps.setCapabilitySupport(Capability.CRITERIA_IN, true);
+
+        capFinder.addCapabilities("pm1", caps); //$NON-NLS-1$
+        capFinder.addCapabilities("pm6", depcaps); //$NON-NLS-1$
+
+        List[] expected = new List[] {
+            Arrays.asList(new Object[] {
+                new String("b")})}; //$NON-NLS-1$
+
+        Command command = TestProcessor.helpParse(sql);
+        ProcessorPlan plan = TestProcessor.helpGetPlan(command, RealMetadataFactory.example1Cached(), capFinder);
+        CommandContext cc = TestProcessor.createCommandContext();
+        cc.getOptions().dependentJoinBloomFilter(bloomFilter);
+        cc.setCollectNodeStatistics(true);
+
+        TestProcessor.helpProcess(plan, cc, dataManager, expected);
+        
+        //the independent values exceed the max, so they are filtered in the engine rather than pushed
+        assertEquals(2, dataManager.getQueries().size());
+        for (String query : dataManager.getQueries()) {
+        	assertFalse(query, query.contains("WHERE")); //$NON-NLS-1$
+        }
+        //all of the source rows are read, but only the rows passing the filter are output
+        RelationalNode dependentNode = findDependentAccessNode(((RelationalPlan)plan).getRootNode());
+        assertEquals(Long.valueOf(expectedDependentRows), dependentNode.getNodeStatistics().getNodeOutputRows());
+    }
+    
+    private static RelationalNode findDependentAccessNode(RelationalNode node) {
+    	if (node instanceof DependentAccessNode) {
+    		return node;
+    	}
+    	for (RelationalNode child : node.getChildren()) {
+    		if (child == null) {
+    			break;
+    		}
+    		RelationalNode result = findDependentAccessNode(child);
+    		if (result != null) {
+    			return result;
+    		}
+    	}
+    	return null;
+    }
+    
+    @Test public void testLargeSetInDepAccessBloomFilterNotUsed() throws Exception {
+        String sql = "SELECT pm1.g1.e1 FROM pm1.g1, pm6.g1 WHERE pm1.g1.e1=pm6.g1.e1 OPTION MAKEDEP pm6.g1"; //$NON-NLS-1$
+
+        FakeDataManager dataManager = new FakeDataManager();
+        sampleData4(dataManager);
+
+        FakeCapabilitiesFinder capFinder = new FakeCapabilitiesFinder();
+        BasicSourceCapabilities depcaps = new BasicSourceCapabilities();
+        depcaps.setCapabilitySupport(Capability.CRITERIA_IN, true);
+        depcaps.setSourceProperty(Capability.MAX_IN_CRITERIA_SIZE, 1);
+        depcaps.setCapabilitySupport(Capability.QUERY_ORDERBY, true);
+
+        BasicSourceCapabilities caps = new BasicSourceCapabilities();
+        caps.setCapabilitySupport(Capability.CRITERIA_IN, true);
+
+        capFinder.addCapabilities("pm1", caps); //$NON-NLS-1$
+        capFinder.addCapabilities("pm6", depcaps); //$NON-NLS-1$
+
+        List[] expected = new List[] {
+            Arrays.asList(new Object[] {
+                new String("b")})}; //$NON-NLS-1$
+
+        Command command = TestProcessor.helpParse(sql);
+        ProcessorPlan plan = TestProcessor.helpGetPlan(command, RealMetadataFactory.example1Cached(), capFinder);
+        CommandContext cc = TestProcessor.createCommandContext();
+        cc.getOptions().dependentJoinBloomFilter(true);
+
+        TestProcessor.helpProcess(plan, cc, dataManager, expected);
+        
+        //the values can be pushed, so the bloom filter does not replace the source predicates
+        boolean pushed = false;
+        for (String query : dataManager.getQueries()) {
+        	pushed |= query.contains("WHERE"); //$NON-NLS-1$
+        }
+        assertTrue(pushed);
+    }
+    
     @Test public void testLargeSetInDepAccessMultiJoinCriteria() throws Exception {
     	helpTestLargeSetInDepAccessMultiJoinCriteria(1, -1, 1, 2);
     }
@@ -1040,6 +1143,66 @@ public class TestDependentJoins {
 		return dataManager;
 	}
     
+    @Test public void testAdaptiveKeepsDependentJoin() throws Exception {
+        String sql = "SELECT pm1.g1.e1 FROM pm1.g1, pm6.g1 WHERE pm1.g1.e1=pm6.g1.e1 and pm1.g1.e2=pm6.g1.e2"; //$NON-NLS-1$
+        //the independent side is estimated at 1 row, but will produce 4 - which is still much smaller than the dependent side
+        FakeDataManager dataManager = helpTestAdaptive(sql, 1000);
+        
+        //the values are still pushed
+        for (String query : dataManager.getQueries()) {
+        	if (query.contains("pm6")) { //$NON-NLS-1$
+        		assertTrue(query, query.contains("WHERE")); //$NON-NLS-1$
+        	}
+        }
+    }
+    
+    @Test public void testAdaptiveAbandonsDependentJoin() throws Exception {
+        String sql = "SELECT pm1.g1.e1 FROM pm1.g1, pm6.g1 MAKEDEP WHERE pm1.g1.e1=pm6.g1.e1 and pm1.g1.e2=pm6.g1.e2"; //$NON-NLS-1$
+        //the independent side is estimated at 1 row, but will produce 4 - which is more than the dependent side
+        FakeDataManager dataManager = helpTestAdaptive(sql, 2);
+        
+        //the dependent side is read once without the independent values
+        assertEquals(2, dataManager.getQueries().size());
+        for (String query : dataManager.getQueries()) {
+        	assertFalse(query, query.contains("WHERE")); //$NON-NLS-1$
+        }
+    }
+
+	private FakeDataManager helpTestAdaptive(String sql, int dependentCardinality) throws Exception {
+		FakeDataManager dataManager = new FakeDataManager();
+        sampleData4(dataManager);
+
+        TransformationMetadata fakeMetadata = RealMetadataFactory.example1();
+        RealMetadataFactory.setCardinality("pm1.g1", 1, fakeMetadata);
+        RealMetadataFactory.setCardinality("pm6.g1", dependentCardinality, fakeMetadata);
+
+        FakeCapabilitiesFinder capFinder = new FakeCapabilitiesFinder();
+        BasicSourceCapabilities depcaps = new BasicSourceCapabilities();
+        depcaps.setCapabilitySupport(Capability.CRITERIA_IN, true);
+        depcaps.setSourceProperty(Capability.MAX_IN_CRITERIA_SIZE, 1);
+        depcaps.setCapabilitySupport(Capability.QUERY_ORDERBY, true);
+
+        BasicSourceCapabilities caps = new BasicSourceCapabilities();
+        caps.setCapabilitySupport(Capability.CRITERIA_IN, true);
+
+        capFinder.addCapabilities("pm1", caps); //$NON-NLS-1$
+        capFinder.addCapabilities("pm6", depcaps); //$NON-NLS-1$
+
+        List[] expected = new List[] {
+            Arrays.asList(new Object[] {
+                new String("b")})}; //$NON-NLS-1$
+
+        ProcessorPlan plan = TestOptimizer.helpPlan(sql, fakeMetadata, new String[] {
+        		"SELECT pm6.g1.e1, pm6.g1.e2 FROM pm6.g1 WHERE (pm6.g1.e1 IN (<dependent values>)) AND (pm6.g1.e2 IN (<dependent values>)) ORDER BY pm6.g1.e1, pm6.g1.e2", 
+        		"SELECT pm1.g1.e1, pm1.g1.e2 FROM pm1.g1"
+        }, capFinder, ComparisonMode.EXACT_COMMAND_STRING);
+
+        CommandContext cc = TestProcessor.createCommandContext();
+        cc.getOptions().adaptiveJoinFactor(2);
+        TestProcessor.helpProcess(plan, cc, dataManager, expected);
+		return dataManager;
+	}
+    
     @Test public void testDjHint() { 
         // Create query 
         String sql = "SELECT pm1.g1.e1 FROM pm1.g1 WHERE e1 IN /*+ DJ */ (select e1 from pm2.g1) order by pm1.g1.e1"; //$NON-NLS-1$
@@ -0,0 +1,133 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.teiid.query.processor;
+
+import static org.teiid.query.processor.TestTextTable.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.teiid.api.exception.query.QueryResolverException;
+import org.teiid.core.TeiidProcessingException;
+import org.teiid.query.parser.QueryParser;
+import org.teiid.query.resolver.QueryResolver;
+import org.teiid.query.sql.lang.Command;
+import org.teiid.query.unittest.RealMetadataFactory;
+import org.teiid.query.validator.TestValidator;
+
+@SuppressWarnings({"nls"})
+public class TestJSONTable {
+	
+	@Test public void testRows() throws Exception {
+		String sql = "select * from jsontable('{\"a\":[{\"b\":1, \"c\":\"x\"}, {\"c\":\"y\", \"b\":2.0, \"d\":{\"e\":[1,2]}}, {}]}', '$.a[*]' "
+				+ "columns o for ordinality, b integer, c string path '$.c', d string path '$.d', e integer path '$.d.e[1]') x";
+		
+		List<?>[] expected = new List<?>[] {
+				Arrays.asList(1, 1, "x", null, null),
+				Arrays.asList(2, 2, "y", "{\"e\":[1,2]}", 2),
+				Arrays.asList(3, null, null, null, null),
+		};
+		
+		process(sql, expected);
+	}
+	
+	@Test public void testPrimitiveRows() throws Exception {
+		String sql = "select * from jsontable('[[\"a\", \"b\"], [], [\"c\"]]', '$[*][*]' columns x string path '$', y for ordinality) x";
+		
+		List<?>[] expected = new List<?>[] {
+				Arrays.asList("a", 1),
+				Arrays.asList("b", 2),
+				Arrays.asList("c", 3),
+		};
+		
+		process(sql, expected);
+	}
+	
+	@Test public void testPrimitiveEntryRows() throws Exception {
+		String sql = "select * from jsontable('[{\"a\":1, \"b\":\"x\"}, {\"b\":\"y\", \"a\":2}, {\"a\":3}]', '$[*].a' columns v integer path '$', o for ordinality) x";
+		
+		List<?>[] expected = new List<?>[] {
+				Arrays.asList(1, 1),
+				Arrays.asList(2, 2),
+				Arrays.asList(3, 3),
+		};
+		
+		process(sql, expected);
+	}
+	
+	@Test public void testRowSelection() throws Exception {
+		String sql = "select x.* from jsontable('{\"x\":{\"a\":[1, 2]}, \"y\":{\"a\":[3]}, \"z\":[{\"a\":[4]}]}', '$.*.a[0]' columns v integer path '$') x";
+		
+		List<?>[] expected = new List<?>[] {
+				Arrays.asList(1),
+				Arrays.asList(3),
+		};
+		
+		process(sql, expected);
+	}
+	
+	@Test public void testCorrelatedJSONTable() throws Exception {
+    	String sql = "select x.* from pm1.g1, jsontable('{\"v\":\"' || e1 || '\"}', '$' COLUMNS v string) x"; //$NON-NLS-1$
+    	
+        List<?>[] expected = new List<?>[] {
+        		Arrays.asList("a"),
+        		Arrays.asList("a"),
+        		Arrays.asList("c"),
+        		Arrays.asList("b"),
+        		Arrays.asList("a"),
+        };    
+
+        process(sql, expected);
+    }
+	
+	@Test public void testLimit() throws Exception {
+		StringBuilder json = new StringBuilder("[");
+		for (int i = 0; i < 5000; i++) {
+			if (i > 0) {
+				json.append(',');
+			}
+			json.append("{\"a\":").append(i).append('}');
+		}
+		json.append("]");
+		String sql = "select * from jsontable('" + json + "', '$[*]' columns a integer) x limit 2";
+		
+		List<?>[] expected = new List<?>[] {
+				Arrays.asList(0),
+				Arrays.asList(1),
+		};
+		
+		process(sql, expected);
+	}
+	
+	@Test(expected=TeiidProcessingException.class) public void testInvalidJSON() throws Exception {
+		process("select * from jsontable('{\"a\":', '$' columns a integer) x", new List<?>[0]);
+	}
+	
+	@Test public void testWildcardColumnPath() throws Exception {
+		TestValidator.helpValidate("select * from jsontable('{}', '$' columns a integer path '$.b[*]') x", new String[] {"JSONTABLE('{}', '$' COLUMNS a integer PATH '$.b[*]') AS x"}, RealMetadataFactory.example1Cached());
+	}
+	
+	@Test(expected=QueryResolverException.class) public void testInvalidPath() throws Exception {
+		Command command = QueryParser.getQueryParser().parseCommand("select * from jsontable('{}', '$.[' columns a integer) x");
+		QueryResolver.resolveCommand(command, RealMetadataFactory.example1Cached());
+	}
+
+}
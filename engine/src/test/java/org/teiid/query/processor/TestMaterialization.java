@@ -22,31 +22,52 @@ import static org.junit.Assert.*;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.teiid.cache.DefaultCacheFactory;
 import org.teiid.common.buffer.BufferManager;
 import org.teiid.common.buffer.BufferManagerFactory;
+import org.teiid.common.buffer.TupleSource;
+import org.teiid.core.TeiidComponentException;
+import org.teiid.core.TeiidException;
 import org.teiid.core.TeiidProcessingException;
 import org.teiid.dqp.internal.process.CachedResults;
 import org.teiid.dqp.internal.process.QueryProcessorFactoryImpl;
 import org.teiid.dqp.internal.process.SessionAwareCache;
+import org.teiid.query.eval.Evaluator;
 import org.teiid.query.metadata.TempMetadataAdapter;
 import org.teiid.query.metadata.TempMetadataID;
 import org.teiid.query.metadata.TransformationMetadata;
+import org.teiid.query.optimizer.TestOptimizer;
+import org.teiid.query.optimizer.capabilities.BasicSourceCapabilities;
 import org.teiid.query.optimizer.capabilities.CapabilitiesFinder;
 import org.teiid.query.optimizer.capabilities.DefaultCapabilitiesFinder;
 import org.teiid.query.optimizer.relational.RelationalPlanner;
+import org.teiid.query.sql.lang.Command;
+import org.teiid.query.sql.lang.Criteria;
+import org.teiid.query.sql.lang.Query;
+import org.teiid.query.sql.symbol.Constant;
+import org.teiid.query.sql.symbol.ElementSymbol;
+import org.teiid.query.sql.symbol.Expression;
+import org.teiid.query.sql.symbol.Function;
+import org.teiid.query.sql.util.SymbolMap;
+import org.teiid.query.sql.visitor.ElementCollectorVisitor;
+import org.teiid.query.sql.visitor.FunctionCollectorVisitor;
 import org.teiid.query.tempdata.GlobalTableStoreImpl;
 import org.teiid.query.tempdata.GlobalTableStoreImpl.MatTableInfo;
+import org.teiid.query.tempdata.TempTable;
 import org.teiid.query.tempdata.TempTableDataManager;
 import org.teiid.query.tempdata.TempTableStore;
 import org.teiid.query.tempdata.TempTableStore.TransactionMode;
 import org.teiid.query.unittest.RealMetadataFactory;
 import org.teiid.query.util.CommandContext;
+import org.teiid.translator.SourceSystemFunctions;
 
 @SuppressWarnings({"nls", "unchecked"})
 public class TestMaterialization {
@@ -57,6 +78,48 @@ public class TestMaterialization {
 	private GlobalTableStoreImpl globalStore;
 	private ProcessorPlan previousPlan;
 	private HardcodedDataManager hdm;
+	private CapabilitiesFinder finder = new DefaultCapabilitiesFinder();
+	
+	/**
+	 * Returns the rows of a single source table that satisfy the criteria of the source query
+	 */
+	private static class FilteringDataManager extends HardcodedDataManager {
+		private List<String> columns;
+		private List<?>[] rows;
+		
+		public FilteringDataManager(List<String> columns, List<?>... rows) {
+			this.columns = columns;
+			this.rows = rows;
+		}
+		
+		@Override
+		public TupleSource registerRequest(CommandContext context, Command command, String modelName,
+				RegisterRequestParameter parameterObject) throws TeiidComponentException {
+			this.commandHistory.add(command);
+			Query query = (Query)command;
+			Map<ElementSymbol, Integer> elements = new HashMap<ElementSymbol, Integer>();
+			for (ElementSymbol es : ElementCollectorVisitor.getElements(query, true)) {
+				elements.put(es, columns.indexOf(es.getShortName()));
+			}
+			Evaluator eval = new Evaluator(elements, null, context);
+			List<List<?>> result = new ArrayList<List<?>>();
+			try {
+				for (List<?> row : rows) {
+					if (query.getCriteria() != null && !eval.evaluate(query.getCriteria(), row)) {
+						continue;
+					}
+					List<Object> projected = new ArrayList<Object>();
+					for (Expression ex : query.getProjectedSymbols()) {
+						projected.add(eval.evaluate(SymbolMap.getExpression(ex), row));
+					}
+					result.add(projected);
+				}
+			} catch (TeiidException e) {
+				throw new TeiidComponentException(e);
+			}
+			return new FakeTupleSource(command.getProjectedSymbols(), result.toArray(new List<?>[result.size()]));
+		}
+	}
 	
 	@Before public void setUp() {
 		tempStore = new TempTableStore("1", TransactionMode.ISOLATE_WRITES); //$NON-NLS-1$
@@ -64,11 +127,16 @@ public class TestMaterialization {
 	    TransformationMetadata actualMetadata = RealMetadataFactory.exampleMaterializedView();
 	    globalStore = new GlobalTableStoreImpl(bm, actualMetadata.getVdbMetaData(), actualMetadata);
 		metadata = new TempMetadataAdapter(actualMetadata, tempStore.getMetadataStore());
-		hdm = new HardcodedDataManager();
+		HardcodedDataManager hdm = new HardcodedDataManager();
 		hdm.addData("SELECT MatSrc.MatSrc.x FROM MatSrc.MatSrc", new List[] {Arrays.asList((String)null), Arrays.asList("one"), Arrays.asList("two"), Arrays.asList("three")});
 		hdm.addData("SELECT MatTable.info.e1, MatTable.info.e2 FROM MatTable.info", new List[] {Arrays.asList("a", 1), Arrays.asList("a", 2)});
 		hdm.addData("SELECT MatTable.info.e2, MatTable.info.e1 FROM MatTable.info", new List[] {Arrays.asList(1, "a"), Arrays.asList(2, "a")});
-		
+		setDataManager(hdm);
+	}
+	
+	private void setDataManager(HardcodedDataManager hdm) {
+		this.hdm = hdm;
+	    BufferManager bm = BufferManagerFactory.getStandaloneBufferManager();
 	    SessionAwareCache<CachedResults> cache = new SessionAwareCache<CachedResults>("resultset", DefaultCacheFactory.INSTANCE, SessionAwareCache.Type.RESULTSET, 0);
 	    cache.setTupleBufferCache(bm);
 		dataManager = new TempTableDataManager(hdm, bm, cache);
@@ -79,7 +147,6 @@ public class TestMaterialization {
 		cc.setTempTableStore(tempStore);
 		cc.setGlobalTableStore(globalStore);
 		cc.setMetadata(metadata);
-		CapabilitiesFinder finder = new DefaultCapabilitiesFinder();
 		previousPlan = TestProcessor.helpGetPlan(TestProcessor.helpParse(sql), metadata, finder, cc);
 		cc.setQueryProcessorFactory(new QueryProcessorFactoryImpl(BufferManagerFactory.getStandaloneBufferManager(), dataManager, finder, null, metadata));
 		TestProcessor.doProcess(previousPlan, dataManager, expectedResults, cc);
@@ -167,6 +234,96 @@ public class TestMaterialization {
 		execute("SELECT * from vgroup6 where y is null", Arrays.asList((String)null, (String)null));
 	}
 	
+	@Test public void testHashAndBitmapIndexes() throws Exception {
+		execute("SELECT * from vgroup8 where y in ('zwo', 'zne') order by y desc", Arrays.asList("two", "zwo", 1), Arrays.asList("one", "zne", 1));
+		TempTable table = this.globalStore.getTempTable(RelationalPlanner.MAT_PREFIX + "MATVIEW.VGROUP8");
+		//the hash index on y narrows 16 rows to 2
+		assertEquals(1, table.getValueIndexReads());
+		execute("SELECT * from vgroup8 where y is null", Arrays.asList((String)null, (String)null, 1), Arrays.asList(" b", (String)null, 1), Arrays.asList(" c", (String)null, 1), Arrays.asList(" d", (String)null, 1));
+		execute("SELECT x from vgroup8 where y is null and z = 1 and x >= ' c'", Arrays.asList(" c"), Arrays.asList(" d"));
+		long reads = table.getValueIndexReads();
+		//the hash and bitmap intersection is empty
+		execute("SELECT * from vgroup8 where y = 'xne' and z = 2");
+		assertEquals(reads + 1, table.getValueIndexReads());
+		//the bitmap index on z matches every row, so the tree is scanned
+		execute("SELECT x from vgroup8 where z = 1 and x like 'o%' order by x", Arrays.asList("one"), Arrays.asList("oneb"), Arrays.asList("onec"), Arrays.asList("oned"));
+		assertEquals(reads + 1, table.getValueIndexReads());
+	}
+	
+	@Test public void testHashIndexReadWrite() throws Exception {
+		execute("SELECT * from vgroup8 where y = 'zne'", Arrays.asList("one", "zne", 1));
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		String matTableName = RelationalPlanner.MAT_PREFIX + "MATVIEW.VGROUP8";
+		this.globalStore.getState(matTableName, baos);
+		this.globalStore.failedLoad(matTableName);
+		this.globalStore.setState(matTableName, new ByteArrayInputStream(baos.toByteArray()));
+		execute("SELECT * from vgroup8 where y = 'xwo' and z = 1", Arrays.asList("twob", "xwo", 1));
+		//the indexes are restored with the state
+		assertEquals(1, this.globalStore.getTempTable(matTableName).getValueIndexReads());
+	}
+	
+	@Test public void testPartitionedUnionLoad() throws Exception {
+		execute("SELECT count(*) from vgroup9", Arrays.asList(16));
+		//the 4 branches are split among 3 partitions, the identical branch scans within a partition are shared
+		assertEquals(3, hdm.getCommandHistory().size());
+		for (Command command : hdm.getCommandHistory()) {
+			assertEquals("SELECT MatSrc.MatSrc.x FROM MatSrc.MatSrc", command.toString());
+		}
+		execute("SELECT x from vgroup9 where y is null", Arrays.asList((String)null), Arrays.asList(" b"), Arrays.asList(" c"), Arrays.asList(" d"));
+		execute("SELECT x from vgroup9 where x > 'three' order by x", Arrays.asList("threeb"), Arrays.asList("threec"), Arrays.asList("threed"), Arrays.asList("two"), Arrays.asList("twob"), Arrays.asList("twoc"), Arrays.asList("twod"));
+	}
+	
+	@Test public void testPartitionedColumnLoad() throws Exception {
+		setDataManager(new FilteringDataManager(Arrays.asList("e1", "e2"), Arrays.asList("a", 1), Arrays.asList("b", 2), 
+				Arrays.asList("c", 3), Arrays.asList("d", 4), Arrays.asList("e", -5)));
+		BasicSourceCapabilities caps = TestOptimizer.getTypicalCapabilities();
+		caps.setFunctionSupport(SourceSystemFunctions.ABS, true);
+		caps.setFunctionSupport(SourceSystemFunctions.MOD, true);
+		finder = new DefaultCapabilitiesFinder(caps);
+		execute("SELECT count(*) from vgroup10", Arrays.asList(5));
+		execute("SELECT z, x from vgroup10 where z < 3 order by z", Arrays.asList(-5, "e"), Arrays.asList(1, "a"), Arrays.asList(2, "b"));
+		//one source query per partition with the partition predicate pushed
+		assertEquals(2, hdm.getCommandHistory().size());
+		for (int i = 0; i < 2; i++) {
+			Criteria crit = ((Query)hdm.getCommandHistory().get(i)).getCriteria();
+			assertNotNull(crit);
+			String critString = crit.toString();
+			Function mod = null;
+			for (Function function : FunctionCollectorVisitor.getFunctions(crit, true)) {
+				if (function.getName().equalsIgnoreCase(SourceSystemFunctions.MOD)) {
+					mod = function;
+				}
+			}
+			assertNotNull(critString, mod);
+			assertEquals(critString, new Constant(2), mod.getArg(1));
+			assertTrue(critString, critString.contains("= " + i));
+			//nulls are assigned to the first partition
+			assertEquals(critString, i == 0, critString.contains("IS NULL"));
+		}
+	}
+	
+	@Test public void testPartitionedColumnLoadNotPushed() throws Exception {
+		execute("SELECT count(*) from vgroup12", Arrays.asList(4));
+		//a single source query rather than one per partition
+		assertEquals(1, hdm.getCommandHistory().size());
+	}
+	
+	@Test public void testColumnarStorage() throws Exception {
+		execute("SELECT count(*) from vgroup11", Arrays.asList(16));
+		execute("SELECT count(*) from vgroup11 where z = 1", Arrays.asList(16));
+		execute("SELECT * from vgroup11 where y = 'zne'", Arrays.asList("one", "zne", 1));
+		execute("SELECT x from vgroup11 where x > 'three' order by x", Arrays.asList("threeb"), Arrays.asList("threec"), Arrays.asList("threed"), Arrays.asList("two"), Arrays.asList("twob"), Arrays.asList("twoc"), Arrays.asList("twod"));
+		execute("SELECT y from vgroup11 where x in ('oneb', 'twod') order by x desc", Arrays.asList("wwo"), Arrays.asList("xne"));
+		execute("SELECT x from vgroup11 where y is null", Arrays.asList((String)null), Arrays.asList(" b"), Arrays.asList(" c"), Arrays.asList(" d"));
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		String matTableName = RelationalPlanner.MAT_PREFIX + "MATVIEW.VGROUP11";
+		this.globalStore.getState(matTableName, baos);
+		this.globalStore.failedLoad(matTableName);
+		this.globalStore.setState(matTableName, new ByteArrayInputStream(baos.toByteArray()));
+		execute("SELECT * from vgroup11 where y = 'xwo' and z = 1", Arrays.asList("twob", "xwo", 1));
+		execute("SELECT count(*) from vgroup11", Arrays.asList(16));
+	}
+	
 	@Test public void testPrimaryKeyOnOtherColumn() throws Exception {
 		execute("SELECT * from vgroup7 where y is null", Arrays.asList("1", null, 1));
 	}
@@ -642,6 +642,16 @@ public class TestSQLXMLProcessing {
         executeStreaming(sql, expected, 2);
     }
     
+    @Test public void testXmlTableStreamingPredicate() throws Throwable {
+    	String sql = "select x.x, y.x from xmltable('/a/b[@x > 1][c]' passing xmlparse(document '<a><b x=''1''><c/></b><b x=''2''><c/></b><b x=''3''/></a>') columns x integer path '@x') as x, (select 1 as x) as y"; //$NON-NLS-1$
+        
+        final List<?>[] expected = new List<?>[] {
+        		Arrays.asList(2, 1),
+        };    
+    
+        executeStreaming(sql, expected, -1);
+    }
+    
     @Test(expected=TeiidProcessingException.class) public void testXmlTableStreamingTimingWithError() throws Throwable {
     	String sql = "select x.x, y.x from xmltable('/a/b' passing xmlparse(document '<a><b x=''1''/><b x=''2''/></a>') columns x integer path '1 div (@x - 1)') as x, (select 1 as x) as y"; //$NON-NLS-1$
         
@@ -21,13 +21,23 @@ package org.teiid.query.processor;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Test;
+import org.teiid.common.buffer.TupleSource;
+import org.teiid.core.TeiidComponentException;
+import org.teiid.core.TeiidProcessingException;
 import org.teiid.query.metadata.TransformationMetadata;
 import org.teiid.query.optimizer.TestOptimizer;
 import org.teiid.query.optimizer.TestOptimizer.ComparisonMode;
 import org.teiid.query.optimizer.capabilities.DefaultCapabilitiesFinder;
+import org.teiid.query.sql.lang.Command;
 import org.teiid.query.unittest.RealMetadataFactory;
+import org.teiid.query.util.CommandContext;
+import org.teiid.query.util.Options;
 
 @SuppressWarnings("nls")
 public class TestSetProcessing {
@@ -113,6 +123,66 @@ public class TestSetProcessing {
         TestProcessor.helpProcess(plan, manager, expected);
     }
     
+    @Test public void testParallelUnionAll() throws Exception {
+        String sql = "select e2 from pm1.g1 union all select e2 from pm1.g2"; //$NON-NLS-1$
+        
+        ProcessorPlan plan = TestOptimizer.helpPlan(sql, RealMetadataFactory.example1Cached(), null, new DefaultCapabilitiesFinder(), new String[] {"SELECT pm1.g1.e2 FROM pm1.g1", "SELECT pm1.g2.e2 FROM pm1.g2"}, ComparisonMode.EXACT_COMMAND_STRING); //$NON-NLS-1$  //$NON-NLS-2$
+        
+        //each source waits for the other to be read, so the branches must be produced concurrently
+        final CyclicBarrier barrier = new CyclicBarrier(2);
+        FakeDataManager manager = new FakeDataManager() {
+        	@Override
+        	public TupleSource registerRequest(CommandContext context, Command command, String modelName,
+        			RegisterRequestParameter parameterObject) throws TeiidComponentException {
+        		final TupleSource ts = super.registerRequest(context, command, modelName, parameterObject);
+        		return new TupleSource() {
+        			private boolean first = true;
+        			
+        			@Override
+        			public List<?> nextTuple() throws TeiidComponentException, TeiidProcessingException {
+        				if (first) {
+        					first = false;
+        					try {
+        						barrier.await(10, TimeUnit.SECONDS);
+        					} catch (Exception e) {
+        						throw new TeiidComponentException(e, "the union branches were not read concurrently"); //$NON-NLS-1$
+        					}
+        				}
+        				return ts.nextTuple();
+        			}
+        			
+        			@Override
+        			public void closeSource() {
+        				ts.closeSource();
+        			}
+        		};
+        	}
+        };
+        manager.registerTuples(RealMetadataFactory.example1Cached(), "pm1.g1", new List[] {
+        		Arrays.asList("a", 1, true, 1.0), //$NON-NLS-1$
+        		Arrays.asList("b", 2, true, 1.0), //$NON-NLS-1$
+        });
+        manager.registerTuples(RealMetadataFactory.example1Cached(), "pm1.g2", new List[] {
+        		Arrays.asList("c", 3, true, 1.0), //$NON-NLS-1$
+        });
+        
+        List<?>[] expected = new List[] {
+            Arrays.asList(1),
+            Arrays.asList(2),
+            Arrays.asList(3),
+            };
+        
+        CommandContext cc = TestProcessor.createCommandContext();
+        cc.setOptions(new Options().unionParallelism(2));
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        cc.setExecutor(executor);
+        try {
+        	TestProcessor.helpProcess(plan, cc, manager, expected);
+        } finally {
+        	executor.shutdownNow();
+        }
+    }
+    
     @Test public void testUnionArrayNull() throws Exception {
         TransformationMetadata metadata = RealMetadataFactory.fromDDL("create view v (col string[]) as select null union all select null", "x", "y");
         
@@ -24,8 +24,10 @@ import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.junit.Test;
 import org.teiid.client.plan.PlanNode;
@@ -435,6 +437,86 @@ public class TestGroupingNode {
 		return node;
 	}
 	
+	private GroupingNode getHashGroupingNode() {
+		GroupingNode node = new GroupingNode(1);
+        List outputElements = new ArrayList();
+        ElementSymbol col1 = new ElementSymbol("col1"); //$NON-NLS-1$
+        col1.setType(Integer.class);
+        ElementSymbol col2 = new ElementSymbol("col2"); //$NON-NLS-1$
+        col2.setType(Integer.class);
+        outputElements.add(col1);
+        outputElements.add(new AggregateSymbol("COUNT", false, col2)); //$NON-NLS-1$
+        outputElements.add(new AggregateSymbol("SUM", false, col2)); //$NON-NLS-1$
+        node.setElements(outputElements);
+        node.setOrderBy(new OrderBy(Arrays.asList(col1)).getOrderByItems());
+        node.setOrderRequired(false);
+		return node;
+	}
+	
+	private Set<List<?>> helpProcessUnordered(BufferManager mgr, GroupingNode node, FakeTupleSource dataSource) throws TeiidComponentException, TeiidProcessingException {
+		CommandContext context = new CommandContext("pid", "test", null, null, 1);               //$NON-NLS-1$ //$NON-NLS-2$
+		context.getOptions().hashAggregation(true);
+        RelationalNode dataNode = new FakeRelationalNode(0, dataSource, mgr.getProcessorBatchSize());
+        dataNode.setElements(dataSource.getSchema());            
+        node.addChild(dataNode);    
+        node.initialize(context, mgr, null);
+        node.open();
+        Set<List<?>> result = new HashSet<List<?>>();
+        while(true) {
+            try {
+                TupleBatch batch = node.nextBatch();
+                for (List<?> tuple : batch.getTuples()) {
+                	assertTrue("duplicate group " + tuple, result.add(tuple)); //$NON-NLS-1$
+                }
+                if(batch.getTerminationFlag()) {
+                    break;
+                }
+            } catch (BlockedException e) {
+                //ignore
+            }
+        }
+        node.close();
+        return result;
+	}
+	
+	@Test public void testHashAggregation() throws Exception {
+		Set<List<?>> result = helpProcessUnordered(BufferManagerFactory.getStandaloneBufferManager(), getHashGroupingNode(), createTupleSource1());
+		
+		assertEquals(new HashSet<List<?>>(Arrays.asList(
+	            Arrays.asList(null, 1, 3L),
+	            Arrays.asList(0, 1, 4L),
+	            Arrays.asList(1, 1, 2L),
+	            Arrays.asList(2, 4, 5L),
+	            Arrays.asList(3, 1, 0L),
+	            Arrays.asList(4, 2, 5L),
+	            Arrays.asList(5, 1, 3L),
+	            Arrays.asList(6, 2, 7L))), result);
+	}
+	
+	@Test public void testHashAggregationSpill() throws Exception {
+		List<ElementSymbol> symbols = new ArrayList<ElementSymbol>();
+		symbols.add(new ElementSymbol("col1")); //$NON-NLS-1$
+		symbols.get(0).setType(DataTypeManager.DefaultDataClasses.INTEGER);
+		symbols.add(new ElementSymbol("col2")); //$NON-NLS-1$
+		symbols.get(1).setType(DataTypeManager.DefaultDataClasses.INTEGER);
+		int groups = 500;
+		List[] tuples = new List[groups * 3];
+		Set<List<?>> expected = new HashSet<List<?>>();
+		for (int i = 0; i < tuples.length; i++) {
+			tuples[i] = Arrays.asList(i % groups, 1);
+		}
+		for (int i = 0; i < groups; i++) {
+			expected.add(Arrays.asList(i, 3, 3L));
+		}
+		
+		//with almost no memory available new groups will be spilled
+		BufferManagerImpl mgr = BufferManagerFactory.getTestBufferManager(1024, 16);
+		
+		Set<List<?>> result = helpProcessUnordered(mgr, getHashGroupingNode(), new FakeTupleSource(symbols, tuples));
+		
+		assertEquals(expected, result);
+	}
+	
 	@Test public void testDescriptionProperties() {
 		GroupingNode node = getExampleGroupingNode();
 		SymbolMap outputMapping = new SymbolMap();
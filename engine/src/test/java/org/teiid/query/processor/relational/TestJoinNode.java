@@ -22,6 +22,7 @@ import static org.junit.Assert.*;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -46,7 +47,9 @@ import org.teiid.query.processor.TestProcessor;
 import org.teiid.query.processor.relational.MergeJoinStrategy.SortOption;
 import org.teiid.query.sql.lang.Command;
 import org.teiid.query.sql.lang.CompareCriteria;
+import org.teiid.query.sql.lang.CompoundCriteria;
 import org.teiid.query.sql.lang.JoinType;
+import org.teiid.query.sql.lang.NotCriteria;
 import org.teiid.query.sql.symbol.Constant;
 import org.teiid.query.sql.symbol.ElementSymbol;
 import org.teiid.query.sql.symbol.Expression;
@@ -59,8 +62,10 @@ public class TestJoinNode {
     private static final int NO_CRITERIA = 0;
     private static final int EQUAL_CRITERIA = 1;
     private static final int FUNCTION_CRITERIA = 2;
+    private static final int NOT_CRITERIA = 3;
     
     private int criteriaType = EQUAL_CRITERIA;
+    private boolean compileExpressions;
     
     protected JoinType joinType;
     
@@ -224,6 +229,12 @@ public class TestJoinNode {
                 CompareCriteria joinCriteria = new CompareCriteria(es2, CompareCriteria.EQ, func);
                 join.setJoinCriteria(joinCriteria);
                 break;
+                
+            case NOT_CRITERIA :
+            	//not (e1 > e2 and e1 < 5), which is unknown rather than true for null e2 and e1 < 5
+                join.setJoinCriteria(new NotCriteria(new CompoundCriteria(CompoundCriteria.AND, new CompareCriteria(es1, CompareCriteria.GT, es2), 
+                		new CompareCriteria(es1, CompareCriteria.LT, new Constant(5)))));
+                break;
         }
     }
         
@@ -249,6 +260,7 @@ public class TestJoinNode {
         BufferManagerImpl mgr = BufferManagerFactory.getTestBufferManager(processingBytes, batchSize);
         mgr.setTargetBytesPerRow(100);
         CommandContext context = new CommandContext("pid", "test", null, null, 1);               //$NON-NLS-1$ //$NON-NLS-2$
+        context.getOptions().compileExpressions(compileExpressions);
         
         join.addChild(leftNode);
         join.addChild(rightNode);
@@ -263,6 +275,36 @@ public class TestJoinNode {
         
         process(expectedResults);
     }
+    
+    private List<List<?>> helpCollectJoin(boolean compile) throws TeiidComponentException, TeiidProcessingException {
+    	helpCreateJoin();
+        BufferManagerImpl mgr = BufferManagerFactory.getTestBufferManager(100000, 10);
+        CommandContext context = new CommandContext("pid", "test", null, null, 1);               //$NON-NLS-1$ //$NON-NLS-2$
+        context.getOptions().compileExpressions(compile);
+        
+        join.addChild(leftNode);
+        join.addChild(rightNode);
+        
+        leftNode.initialize(context, mgr, dataMgr);
+        rightNode.initialize(context, mgr, dataMgr);
+        join.initialize(context, mgr, dataMgr);
+        
+        join.open();
+        List<List<?>> results = new ArrayList<List<?>>();
+        while(true) {
+            try {
+                TupleBatch batch = join.nextBatch();
+                results.addAll(batch.getTuples());
+                if(batch.getTerminationFlag()) {
+                    break;
+                }
+            } catch(BlockedException e) {
+                // ignore and retry
+            }
+        }
+        join.close();
+        return results;
+    }
 
 	private void process(List[] expectedResults)
 			throws TeiidComponentException, TeiidProcessingException {
@@ -287,6 +329,99 @@ public class TestJoinNode {
         join.close();
 	}
     
+    private void helpTestHashJoinDirect(List[] expectedResults, int batchSize, int processingBytes) throws TeiidComponentException, TeiidProcessingException {
+    	BufferManagerImpl mgr = BufferManagerFactory.getTestBufferManager(processingBytes, batchSize);
+        mgr.setTargetBytesPerRow(100);
+        CommandContext context = new CommandContext("pid", "test", null, null, 1);               //$NON-NLS-1$ //$NON-NLS-2$
+        
+        join.addChild(leftNode);
+        join.addChild(rightNode);
+        
+        leftNode.initialize(context, mgr, dataMgr);
+        rightNode.initialize(context, mgr, dataMgr);
+        join.initialize(context, mgr, dataMgr);
+        
+        for (int i = 0; i < 2; i++) {
+        	join.open();
+        	List<String> results = new ArrayList<String>();
+        	while(true) {
+        		try {
+        			TupleBatch batch = join.nextBatch();
+        			for (List<?> tuple : batch.getTuples()) {
+        				results.add(tuple.toString());
+        			}
+        			if(batch.getTerminationFlag()) {
+        				break;
+        			}
+        		} catch(BlockedException e) {
+        			// ignore and retry
+        		}
+        	}
+        	join.close();
+        	//hash join output is not ordered
+        	List<String> expectedStrings = new ArrayList<String>();
+        	for (List<?> tuple : expectedResults) {
+        		expectedStrings.add(tuple.toString());
+        	}
+        	Collections.sort(expectedStrings);
+        	Collections.sort(results);
+        	assertEquals(expectedStrings, results);
+        	join.reset();
+        }
+    }
+    
+    @Test public void testHashJoin() throws Exception {
+    	helpTestHashJoin(JoinType.JOIN_INNER, 100000);
+    }
+
+    @Test public void testHashJoinPartitioned() throws Exception {
+    	helpTestHashJoin(JoinType.JOIN_INNER, 1);
+    }
+    
+    @Test public void testHashJoinLeftOuter() throws Exception {
+    	helpTestHashJoin(JoinType.JOIN_LEFT_OUTER, 100000);
+    }
+
+    @Test public void testHashJoinLeftOuterPartitioned() throws Exception {
+    	helpTestHashJoin(JoinType.JOIN_LEFT_OUTER, 1);
+    }
+
+	private void helpTestHashJoin(JoinType type, int processingBytes) throws TeiidComponentException, TeiidProcessingException {
+		this.joinType = type;
+		if (type == JoinType.JOIN_INNER) {
+	        expected = new List[] {
+	        	Arrays.asList(1, 1),    
+	            Arrays.asList(2, 2),    
+	            Arrays.asList(2, 2),    
+	            Arrays.asList(4, 4),    
+	            Arrays.asList(4, 4),    
+	            Arrays.asList(4, 4),    
+	            Arrays.asList(4, 4)            
+	        };
+		} else {
+			expected = new List[] {
+	            Arrays.asList(1, 1),    
+	            Arrays.asList(2, 2),    
+	            Arrays.asList(2, 2),    
+	            Arrays.asList(3, null),    
+	            Arrays.asList(4, 4),    
+	            Arrays.asList(4, 4),    
+	            Arrays.asList(4, 4),    
+	            Arrays.asList(4, 4),            
+	            Arrays.asList(5, null),    
+	            Arrays.asList(10, null),            
+	            Arrays.asList(11, null),    
+	            Arrays.asList(11, null)            
+	        };
+		}
+		for (int batchSize : new int[] {1, 2, 100}) {
+			helpCreateJoin();
+			this.joinStrategy = new HashJoinStrategy();
+			this.join.setJoinStrategy(joinStrategy);
+			helpTestHashJoinDirect(expected, batchSize, processingBytes);
+		}
+	}
+
     @Test public void testNoRows() throws Exception {
         leftTuples = new List[0];
         rightTuples = new List[0];
@@ -569,6 +704,20 @@ public class TestJoinNode {
         helpTestJoin();        
     }    
     
+    @Test public void testInnerJoinWithLookupFunctionCompiled() throws Exception {
+    	compileExpressions = true;
+    	testInnerJoinWithLookupFunction();
+    }
+    
+    @Test public void testCompiledJoinCriteria() throws Exception {
+    	criteriaType = NOT_CRITERIA;
+    	joinType = JoinType.JOIN_INNER;
+    	List<List<?>> interpreted = helpCollectJoin(false);
+    	//62 rows with non-null e2 and the 4 rows with a null e2 and e1 >= 5
+    	assertEquals(66, interpreted.size());
+    	assertEquals(interpreted, helpCollectJoin(true));
+    }
+    
     @Test public void testFullOuterJoin() throws Exception {
         this.joinType = JoinType.JOIN_FULL_OUTER;
         this.leftTuples = createTuples3();
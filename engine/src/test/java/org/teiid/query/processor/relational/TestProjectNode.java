@@ -52,8 +52,13 @@ import org.teiid.query.util.CommandContext;
 public class TestProjectNode {
 
 	public ProjectNode helpSetupProject(List elements, List[] data, List childElements, ProcessorDataManager dataMgr) {
+		return helpSetupProject(elements, data, childElements, dataMgr, false);
+	}
+	
+	public ProjectNode helpSetupProject(List elements, List[] data, List childElements, ProcessorDataManager dataMgr, boolean compile) {
         BufferManager mgr = BufferManagerFactory.getStandaloneBufferManager();
         CommandContext context = new CommandContext("pid", "test", null, null, 1);               //$NON-NLS-1$ //$NON-NLS-2$
+        context.getOptions().compileExpressions(compile);
         
         FakeRelationalNode dataNode = new FakeRelationalNode(2, data);
         dataNode.setElements(childElements);
@@ -69,7 +74,19 @@ public class TestProjectNode {
     }
     
     public void helpTestProject(List elements, List[] data, List childElements, List[] expected, ProcessorDataManager dataMgr) throws TeiidComponentException, TeiidProcessingException {
-        ProjectNode projectNode = helpSetupProject(elements, data, childElements, dataMgr);
+    	helpTestProject(elements, data, childElements, expected, dataMgr, false);
+    }
+    
+    /**
+     * Check that the results are the same with interpreted and compiled expressions
+     */
+    public void helpTestProjectCompiled(List elements, List[] data, List childElements, List[] expected, ProcessorDataManager dataMgr) throws TeiidComponentException, TeiidProcessingException {
+    	helpTestProject(elements, data, childElements, expected, dataMgr, false);
+    	helpTestProject(elements, data, childElements, expected, dataMgr, true);
+    }
+    
+    public void helpTestProject(List elements, List[] data, List childElements, List[] expected, ProcessorDataManager dataMgr, boolean compile) throws TeiidComponentException, TeiidProcessingException {
+        ProjectNode projectNode = helpSetupProject(elements, data, childElements, dataMgr, compile);
         
         projectNode.open();
         
@@ -92,7 +109,11 @@ public class TestProjectNode {
     }
 
     public void helpTestProjectFails(List elements, List[] data, List childElements, String expectedError) throws TeiidComponentException, TeiidProcessingException {
-        ProjectNode projectNode = helpSetupProject(elements, data, childElements, null);
+    	helpTestProjectFails(elements, data, childElements, expectedError, false);
+    }
+    
+    public void helpTestProjectFails(List elements, List[] data, List childElements, String expectedError, boolean compile) throws TeiidComponentException, TeiidProcessingException {
+        ProjectNode projectNode = helpSetupProject(elements, data, childElements, null, compile);
                 
         try {
             projectNode.open();
@@ -195,6 +216,14 @@ public class TestProjectNode {
     }
 
     @Test public void testProjectExpression() throws Exception {
+    	helpTestProjectExpression(false);
+    }
+    
+    @Test public void testProjectExpressionCompiled() throws Exception {
+    	helpTestProjectExpression(true);
+    }
+
+    private void helpTestProjectExpression(boolean compile) throws TeiidComponentException, TeiidProcessingException {
         ElementSymbol es1 = new ElementSymbol("e1"); //$NON-NLS-1$
         es1.setType(DataTypeManager.DefaultDataClasses.STRING);       
         List elements = new ArrayList();
@@ -215,10 +244,18 @@ public class TestProjectNode {
             Arrays.asList(new Object[] { "1abc" }),  //$NON-NLS-1$
             Arrays.asList(new Object[] { "2abc" }) }; //$NON-NLS-1$
 
-        helpTestProject(projectElements, data, elements, expected, null);        
+        helpTestProject(projectElements, data, elements, expected, null, compile);        
     }
 
     @Test public void testProjectExpressionFunctionFails() throws Exception {
+    	helpTestProjectExpressionFunctionFails(false);
+    }
+    
+    @Test public void testProjectExpressionFunctionFailsCompiled() throws Exception {
+    	helpTestProjectExpressionFunctionFails(true);
+    }
+
+    private void helpTestProjectExpressionFunctionFails(boolean compile) throws TeiidComponentException, TeiidProcessingException {
         ElementSymbol es1 = new ElementSymbol("e1"); //$NON-NLS-1$
         es1.setType(DataTypeManager.DefaultDataClasses.STRING);       
         List elements = new ArrayList();
@@ -238,10 +275,21 @@ public class TestProjectNode {
 
         String expectedMessage = "TEIID30328 UNABLE TO EVALUATE CONVERT(E1, INTEGER): TEIID30384 ERROR WHILE EVALUATING FUNCTION CONVERT"; //$NON-NLS-1$
 
-        helpTestProjectFails(projectElements, data, elements, expectedMessage);        
+        helpTestProjectFails(projectElements, data, elements, expectedMessage, compile);        
     }
     
     @Test public void testProjectWithLookupFunction() throws Exception {
+    	helpTestProjectWithLookupFunction(false);
+    }
+    
+    /**
+     * The lookup is not compiled, but should still be evaluated correctly when blocked
+     */
+    @Test public void testProjectWithLookupFunctionCompiled() throws Exception {
+    	helpTestProjectWithLookupFunction(true);
+    }
+
+    private void helpTestProjectWithLookupFunction(boolean compile) throws TeiidComponentException, TeiidProcessingException {
         ElementSymbol es1 = new ElementSymbol("e1"); //$NON-NLS-1$
         es1.setType(DataTypeManager.DefaultDataClasses.STRING);       
         List elements = new ArrayList();
@@ -270,6 +318,36 @@ public class TestProjectNode {
         valueMap.put("2", "b"); //$NON-NLS-1$ //$NON-NLS-2$
         dataMgr.defineCodeTable("pm1.g1", "e1", "e2", valueMap); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
          
-        helpTestProject(projectElements, data, elements, expected, dataMgr);        
-    }    
+        helpTestProject(projectElements, data, elements, expected, dataMgr, compile);        
+    }
+    
+    @Test public void testProjectNullArgumentCompiled() throws Exception {
+        ElementSymbol es1 = new ElementSymbol("e1"); //$NON-NLS-1$
+        es1.setType(DataTypeManager.DefaultDataClasses.STRING);       
+        List elements = new ArrayList();
+        elements.add(es1);
+        
+        Function concat = new Function("concat", new Expression[] { es1, new Constant("abc")}); //$NON-NLS-1$ //$NON-NLS-2$
+        FunctionDescriptor fd = RealMetadataFactory.SFM.getSystemFunctionLibrary().findFunction("concat", new Class[] { DataTypeManager.DefaultDataClasses.STRING, DataTypeManager.DefaultDataClasses.STRING }); //$NON-NLS-1$
+        concat.setFunctionDescriptor(fd);
+        concat.setType(DataTypeManager.DefaultDataClasses.STRING);
+        
+        Function ifnull = new Function("ifnull", new Expression[] { es1, new Constant("x")}); //$NON-NLS-1$ //$NON-NLS-2$
+        fd = RealMetadataFactory.SFM.getSystemFunctionLibrary().findFunction("ifnull", new Class[] { DataTypeManager.DefaultDataClasses.STRING, DataTypeManager.DefaultDataClasses.STRING }); //$NON-NLS-1$
+        ifnull.setFunctionDescriptor(fd);
+        ifnull.setType(DataTypeManager.DefaultDataClasses.STRING);
+        
+        List projectElements = new ArrayList();
+        projectElements.add(new ExpressionSymbol("expr1", concat)); //$NON-NLS-1$
+        projectElements.add(new ExpressionSymbol("expr2", ifnull)); //$NON-NLS-1$
+        
+        List[] data = new List[] { 
+            Arrays.asList(new Object[] { "1" }),  //$NON-NLS-1$
+            Arrays.asList(new Object[] { null }) };
+        List[] expected = new List[] { 
+            Arrays.asList(new Object[] { "1abc", "1" }),  //$NON-NLS-1$ //$NON-NLS-2$
+            Arrays.asList(new Object[] { null, "x" }) }; //$NON-NLS-1$
+
+        helpTestProjectCompiled(projectElements, data, elements, expected, null);        
+    }
 }
@@ -42,7 +42,10 @@ import org.teiid.query.processor.FakeDataManager;
 import org.teiid.query.processor.ProcessorDataManager;
 import org.teiid.query.processor.QueryProcessor;
 import org.teiid.query.sql.lang.CompareCriteria;
+import org.teiid.query.sql.lang.CompoundCriteria;
 import org.teiid.query.sql.lang.Criteria;
+import org.teiid.query.sql.lang.IsNullCriteria;
+import org.teiid.query.sql.lang.NotCriteria;
 import org.teiid.query.sql.symbol.Constant;
 import org.teiid.query.sql.symbol.ElementSymbol;
 import org.teiid.query.sql.symbol.Expression;
@@ -229,6 +232,50 @@ public class TestSelectNode {
 
     }
 
+    @Test public void testCompiledSelect() throws TeiidComponentException, TeiidProcessingException {
+        ElementSymbol es1 = new ElementSymbol("e1"); //$NON-NLS-1$
+        es1.setType(DataTypeManager.DefaultDataClasses.INTEGER);
+
+        ElementSymbol es2 = new ElementSymbol("e2"); //$NON-NLS-1$
+        es2.setType(DataTypeManager.DefaultDataClasses.STRING);
+        
+        List elements = new ArrayList();
+        elements.add(es1);
+        
+        Function func = new Function("concat", new Expression[] { es2, new Constant("a") }); //$NON-NLS-1$ //$NON-NLS-2$
+        FunctionDescriptor desc = RealMetadataFactory.SFM.getSystemFunctionLibrary().findFunction("concat", new Class[] { String.class, String.class } ); //$NON-NLS-1$
+        func.setFunctionDescriptor(desc);
+        func.setType(DataTypeManager.DefaultDataClasses.STRING);
+        Criteria crit = new CompoundCriteria(CompoundCriteria.OR, new CompareCriteria(func, CompareCriteria.EQ, new Constant("1a")), //$NON-NLS-1$
+        		new NotCriteria(new IsNullCriteria(es1))); 
+        
+        List[] data = new List[] {
+        	Arrays.asList(null, "1"), //$NON-NLS-1$
+        	Arrays.asList(null, "2"), //$NON-NLS-1$
+        	Arrays.asList(null, null),
+        	Arrays.asList(2, null),
+        };
+        
+        List childElements = new ArrayList();
+        childElements.add(es1);
+        childElements.add(es2);
+
+        List[] expected = new List[] {
+            Arrays.asList(new Object[] { null }),            
+            Arrays.asList(new Object[] { 2 })                      
+        };
+        
+        helpTestSelect(elements, crit, childElements, null, expected, new FakeRelationalNode(2, data), new SelectNode(1) {
+        	@Override
+        	public void initialize(CommandContext context,
+        			BufferManager bufferManager,
+        			ProcessorDataManager dataMgr) {
+        		context.getOptions().compileExpressions(true);
+        		super.initialize(context, bufferManager, dataMgr);
+        	}
+        });
+    }
+
     @Test public void testSelectWithLookup() throws TeiidComponentException, TeiidProcessingException {
         ElementSymbol es1 = new ElementSymbol("e1"); //$NON-NLS-1$
         es1.setType(DataTypeManager.DefaultDataClasses.INTEGER);
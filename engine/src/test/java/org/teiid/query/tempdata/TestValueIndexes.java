@@ -0,0 +1,125 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.teiid.query.tempdata;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.teiid.common.buffer.BufferManagerFactory;
+import org.teiid.common.buffer.TupleSource;
+import org.teiid.core.types.DataTypeManager;
+import org.teiid.query.metadata.TempMetadataID;
+import org.teiid.query.sql.lang.CompareCriteria;
+import org.teiid.query.sql.lang.CompoundCriteria;
+import org.teiid.query.sql.lang.Criteria;
+import org.teiid.query.sql.symbol.Constant;
+import org.teiid.query.sql.symbol.ElementSymbol;
+
+@SuppressWarnings("nls")
+public class TestValueIndexes {
+
+	private ElementSymbol x = new ElementSymbol("x");
+	private ElementSymbol y = new ElementSymbol("y");
+	private ElementSymbol z = new ElementSymbol("z");
+
+	{
+		x.setType(DataTypeManager.DefaultDataClasses.STRING);
+		y.setType(DataTypeManager.DefaultDataClasses.STRING);
+		z.setType(DataTypeManager.DefaultDataClasses.INTEGER);
+	}
+
+	/**
+	 * 64 rows keyed by x with a hash index on y (4 rows per value)
+	 * and a bitmap index on z (32 rows per value)
+	 */
+	private TempTable helpCreateTable() throws Exception {
+		List<ElementSymbol> columns = new ArrayList<ElementSymbol>(Arrays.asList(x, y, z));
+		TempTable table = new TempTable(new TempMetadataID("t", Collections.EMPTY_LIST), BufferManagerFactory.getStandaloneBufferManager(), columns, 1, "1");
+		for (int i = 0; i < 64; i++) {
+			table.updateTuple(Arrays.asList("k" + i, "y" + (i%16), i%2), false);
+		}
+		table.addIndex(Arrays.asList(y), false, ValueIndexes.Type.HASH);
+		table.addIndex(Arrays.asList(z), false, ValueIndexes.Type.BITMAP);
+		return table;
+	}
+
+	private Criteria yEquals(String value) {
+		return new CompareCriteria(y, CompareCriteria.EQ, new Constant(value));
+	}
+
+	/**
+	 * Check the rows returned for the criteria and that they were read from the value indexes
+	 */
+	private void helpLookup(TempTable table, Criteria crit, String... expectedKeys) throws Exception {
+		long reads = table.getValueIndexReads();
+		TupleSource ts = table.createTupleSource(Arrays.asList(x), crit, null);
+		List<Object> keys = new ArrayList<Object>();
+		List<?> tuple = null;
+		while ((tuple = ts.nextTuple()) != null) {
+			keys.add(tuple.get(0));
+		}
+		ts.closeSource();
+		assertEquals(Arrays.asList(expectedKeys), keys);
+		assertEquals(reads + 1, table.getValueIndexReads());
+	}
+
+	@Test public void testIndexMaintenance() throws Exception {
+		TempTable table = helpCreateTable();
+		helpLookup(table, yEquals("y1"), "k1", "k17", "k33", "k49");
+
+		//update the indexed value
+		table.updateTuple(Arrays.asList("k17", "y2", 1), false);
+		helpLookup(table, yEquals("y1"), "k1", "k33", "k49");
+		helpLookup(table, yEquals("y2"), "k17", "k18", "k2", "k34", "k50");
+
+		table.updateTuple(Arrays.asList("k33", "y1", 1), true);
+		helpLookup(table, yEquals("y1"), "k1", "k49");
+
+		//insert a row and use the hash and bitmap indexes together
+		table.updateTuple(Arrays.asList("k64", "y1", 0), false);
+		helpLookup(table, new CompoundCriteria(CompoundCriteria.AND, yEquals("y1"), new CompareCriteria(z, CompareCriteria.EQ, new Constant(0))), "k64");
+		helpLookup(table, yEquals("y1"), "k1", "k49", "k64");
+	}
+
+	@Test public void testCloneCopyOnWrite() throws Exception {
+		TempTable table = helpCreateTable();
+		TempTable clone = table.clone();
+
+		clone.updateTuple(Arrays.asList("k1", "y2", 1), false);
+		clone.updateTuple(Arrays.asList("k100", "y1", 0), false);
+		clone.updateTuple(Arrays.asList("k17", "y1", 1), true);
+		helpLookup(clone, yEquals("y1"), "k100", "k33", "k49");
+		helpLookup(table, yEquals("y1"), "k1", "k17", "k33", "k49");
+		helpLookup(table, yEquals("y2"), "k18", "k2", "k34", "k50");
+
+		//changes to the original are not seen by the clone
+		table.updateTuple(Arrays.asList("k49", "y3", 1), false);
+		helpLookup(table, yEquals("y1"), "k1", "k17", "k33");
+		helpLookup(clone, yEquals("y1"), "k100", "k33", "k49");
+		helpLookup(clone, yEquals("y3"), "k19", "k3", "k35", "k51");
+		helpLookup(table, new CompoundCriteria(CompoundCriteria.AND, yEquals("y1"), new CompareCriteria(z, CompareCriteria.EQ, new Constant(0))));
+		helpLookup(clone, new CompoundCriteria(CompoundCriteria.AND, yEquals("y1"), new CompareCriteria(z, CompareCriteria.EQ, new Constant(0))), "k100");
+	}
+
+}
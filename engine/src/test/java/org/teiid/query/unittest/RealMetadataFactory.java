@@ -530,6 +530,59 @@ public class RealMetadataFactory {
         
         createKey(KeyRecord.Type.Primary, "pk", vGroup7, vElements7.subList(1, 2));
         
+        //hash and bitmap indexes
+        QueryNode vTrans8 = new QueryNode(vTrans5.getQuery());
+        Table vGroup8 = createVirtualGroup("VGroup8", virtModel, vTrans8); //$NON-NLS-1$
+        vGroup8.setMaterialized(true);
+        List<Column> vElements8 = createElements(vGroup8,
+                                      new String[] { "x", "y", "z" }, //$NON-NLS-1$
+                                      new String[] { DataTypeManager.DefaultDataTypes.STRING, DataTypeManager.DefaultDataTypes.STRING, DataTypeManager.DefaultDataTypes.INTEGER});
+        
+        createKey(KeyRecord.Type.Primary, "pk", vGroup8, vElements8.subList(0, 1));
+        KeyRecord hashIdx = createKey(KeyRecord.Type.Index, "idx", vGroup8, vElements8.subList(1, 2));
+        hashIdx.setProperty(MaterializationMetadataRepository.MATVIEW_INDEX_TYPE, "HASH");
+        KeyRecord bitmapIdx = createKey(KeyRecord.Type.Index, "idx1", vGroup8, vElements8.subList(2, 3));
+        bitmapIdx.setProperty(MaterializationMetadataRepository.MATVIEW_INDEX_TYPE, "BITMAP");
+        
+        //partitioned loads
+        Table vGroup9 = createVirtualGroup("VGroup9", virtModel, new QueryNode(vTrans5.getQuery())); //$NON-NLS-1$
+        vGroup9.setMaterialized(true);
+        vGroup9.setProperty(MaterializationMetadataRepository.MATVIEW_LOAD_PARTITIONS, "3");
+        List<Column> vElements9 = createElements(vGroup9,
+                                      new String[] { "x", "y", "z" }, //$NON-NLS-1$
+                                      new String[] { DataTypeManager.DefaultDataTypes.STRING, DataTypeManager.DefaultDataTypes.STRING, DataTypeManager.DefaultDataTypes.INTEGER});
+        createKey(KeyRecord.Type.Primary, "pk", vGroup9, vElements9.subList(0, 1));
+        
+        Table vGroup10 = createVirtualGroup("VGroup10", virtModel, new QueryNode("SELECT e2 as z, e1 as x FROM MatTable.info")); //$NON-NLS-1$
+        vGroup10.setMaterialized(true);
+        vGroup10.setProperty(MaterializationMetadataRepository.MATVIEW_LOAD_PARTITIONS, "2");
+        vGroup10.setProperty(MaterializationMetadataRepository.MATVIEW_LOAD_PARTITION_COLUMN, "z");
+        List<Column> vElements10 = createElements(vGroup10,
+                                      new String[] { "z", "x" }, //$NON-NLS-1$
+                                      new String[] { DataTypeManager.DefaultDataTypes.INTEGER, DataTypeManager.DefaultDataTypes.STRING});
+        createKey(KeyRecord.Type.Primary, "pk", vGroup10, vElements10.subList(0, 1));
+        
+        //columnar storage
+        Table vGroup11 = createVirtualGroup("VGroup11", virtModel, new QueryNode(vTrans5.getQuery())); //$NON-NLS-1$
+        vGroup11.setMaterialized(true);
+        vGroup11.setProperty(MaterializationMetadataRepository.MATVIEW_STORAGE, "COLUMNAR");
+        vGroup11.setProperty(MaterializationMetadataRepository.MATVIEW_STORAGE_PAGE_SIZE, "4");
+        List<Column> vElements11 = createElements(vGroup11,
+                                      new String[] { "x", "y", "z" }, //$NON-NLS-1$
+                                      new String[] { DataTypeManager.DefaultDataTypes.STRING, DataTypeManager.DefaultDataTypes.STRING, DataTypeManager.DefaultDataTypes.INTEGER});
+        createKey(KeyRecord.Type.Primary, "pk", vGroup11, vElements11.subList(0, 1));
+        createKey(KeyRecord.Type.Index, "idx", vGroup11, vElements11.subList(1, 2));
+        
+        //partition criteria that cannot be pushed
+        Table vGroup12 = createVirtualGroup("VGroup12", virtModel, new QueryNode("SELECT x, length(x) as z FROM matsrc")); //$NON-NLS-1$
+        vGroup12.setMaterialized(true);
+        vGroup12.setProperty(MaterializationMetadataRepository.MATVIEW_LOAD_PARTITIONS, "2");
+        vGroup12.setProperty(MaterializationMetadataRepository.MATVIEW_LOAD_PARTITION_COLUMN, "z");
+        List<Column> vElements12 = createElements(vGroup12,
+                                      new String[] { "x", "z" }, //$NON-NLS-1$
+                                      new String[] { DataTypeManager.DefaultDataTypes.STRING, DataTypeManager.DefaultDataTypes.INTEGER});
+        createKey(KeyRecord.Type.Primary, "pk", vGroup12, vElements12.subList(0, 1));
+        
         Schema sp = createVirtualModel("sp", metadataStore); //$NON-NLS-1$
         ColumnSet<Procedure> rs = createResultSet("sp1.vsprs1", new String[] { "StringKey" }, new String[] { DataTypeManager.DefaultDataTypes.STRING }); //$NON-NLS-1$ //$NON-NLS-2$
         ProcedureParameter param = createParameter("param1", ParameterInfo.IN, DataTypeManager.DefaultDataTypes.STRING); //$NON-NLS-1$
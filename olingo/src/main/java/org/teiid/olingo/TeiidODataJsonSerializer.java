@@ -23,10 +23,14 @@ import java.util.List;
 
 import org.apache.olingo.commons.api.Constants;
 import org.apache.olingo.commons.api.data.ContextURL;
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.edm.EdmEntityType;
 import org.apache.olingo.commons.api.format.ContentType;
 import org.apache.olingo.server.api.ServiceMetadata;
 import org.apache.olingo.server.api.serializer.SerializerException;
 import org.apache.olingo.server.api.serializer.SerializerResult;
+import org.apache.olingo.server.api.uri.queryoption.ExpandOption;
+import org.apache.olingo.server.api.uri.queryoption.SelectOption;
 import org.apache.olingo.server.core.serializer.SerializerResultImpl;
 import org.apache.olingo.server.core.serializer.json.ODataJsonSerializer;
 import org.apache.olingo.server.core.serializer.utils.CircleStreamBuffer;
@@ -37,8 +41,12 @@ import com.fasterxml.jackson.core.JsonGenerator;
 
 public class TeiidODataJsonSerializer extends ODataJsonSerializer {
     
+    private final boolean metadataNone;
+    
     public TeiidODataJsonSerializer(ContentType contentType) {
         super(contentType);
+        this.metadataNone = ContentType.VALUE_ODATA_METADATA_NONE.equalsIgnoreCase(
+                contentType.getParameter(ContentType.PARAMETER_ODATA_METADATA));
     }
 
     public SerializerResult complexCollection(final ServiceMetadata metadata,
@@ -78,5 +86,35 @@ public class TeiidODataJsonSerializer extends ODataJsonSerializer {
             throw new SerializerException("An I/O exception occurred.", e, SerializerException.MessageKeys.IO_EXCEPTION);
         }
         return SerializerResultImpl.with().content(buffer.getInputStream()).build();
-    }    
+    }
+    
+    /**
+     * Write the start of an entity collection up to the opening of the value array.
+     * Used with {@link #writeCollectionEntity} and {@link #writeEntityCollectionEnd}
+     * to stream a collection without first building an EntityCollection.
+     */
+    public void writeEntityCollectionStart(final ContextURL contextURL,
+            final JsonGenerator json) throws IOException {
+        json.writeStartObject();
+        if (contextURL != null && !this.metadataNone) {
+            json.writeStringField(Constants.JSON_CONTEXT, ContextURLBuilder.create(contextURL).toASCIIString());
+        }
+        json.writeFieldName(Constants.VALUE);
+        json.writeStartArray();
+    }
+    
+    public void writeCollectionEntity(final ServiceMetadata metadata,
+            final EdmEntityType entityType, final Entity entity,
+            final ExpandOption expand, final SelectOption select, final String name,
+            final JsonGenerator json) throws IOException, SerializerException {
+        writeEntity(metadata, entityType, entity, null, expand, null, select, false, null, name, json);
+    }
+    
+    public void writeEntityCollectionEnd(final URI nextLink, final JsonGenerator json) throws IOException {
+        json.writeEndArray();
+        if (nextLink != null) {
+            json.writeStringField(Constants.JSON_NEXT_LINK, nextLink.toASCIIString());
+        }
+        json.writeEndObject();
+    }
 }
@@ -93,8 +93,16 @@ public class EntityCollectionResponse extends EntityCollection implements QueryR
         Entity entity = createEntity(rs, this.documentNode, this.baseURL, this);
         
     	processExpands(asRow(rs), entity, this.documentNode);
+        addEntity(entity);
+    }
+    
+    protected void addEntity(Entity entity) throws SQLException {
         getEntities().add(entity);
     }
+    
+    protected DocumentNode getDocumentNode() {
+        return this.documentNode;
+    }
 
 	private void processExpands(Row vals, Entity entity, DocumentNode node)
 			throws SQLException {
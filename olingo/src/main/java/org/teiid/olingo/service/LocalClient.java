@@ -282,46 +282,95 @@ public class LocalClient implements Client {
         }
         
         //build the results
-        int i = 0;
-        int nextCount = count;
-        while(true) {            
-            if (!rs.next()) {
-                break;
-            }
-            count++;
-            i++;
-            entityCount++;
-            if (i > size) {
-                break;
+        ResultsPage page = new ResultsPage(rs, response);
+        page.count = count;
+        page.nextCount = count;
+        page.entityCount = entityCount;
+        page.size = size;
+        page.top = top;
+        page.getCount = getCount;
+        page.cache = cache;
+        page.pageSize = pageSize;
+        page.sessionId = sessionId;
+        page.savedEntityCount = savedEntityCount;
+        
+        if (response instanceof StreamingEntityCollectionResponse) {
+            //the rows will be added as the response is written
+            ((StreamingEntityCollectionResponse)response).setRowSource(page);
+        } else {
+            while (page.addNextRow()) {
+                //add the whole page
             }
-            nextCount++;
-            response.addRow(rs);
         }
+    }
+    
+    private class ResultsPage implements StreamingEntityCollectionResponse.RowSource {
+        private final ResultSet rs;
+        private final QueryResponse response;
+        private int count;
+        private int entityCount;
+        private int size;
+        private int top;
+        private boolean getCount;
+        private boolean cache;
+        private int pageSize;
+        private String sessionId;
+        private Integer savedEntityCount;
+        private int i;
+        private int nextCount;
+        private boolean done;
         
-        //set the count
-        if (getCount) {
-            while (rs.next()) {
+        ResultsPage(ResultSet rs, QueryResponse response) {
+            this.rs = rs;
+            this.response = response;
+        }
+        
+        @Override
+        public boolean addNextRow() throws SQLException {
+            if (done) {
+                return false;
+            }
+            if (rs.next()) {
                 count++;
+                i++;
                 entityCount++;
+                if (i <= size) {
+                    nextCount++;
+                    response.addRow(rs);
+                    return true;
+                }
             }
-        }
-        if (savedEntityCount != null) {
-            response.setCount(savedEntityCount);
-        } else {
-            response.setCount(entityCount);
+            done = true;
+            finish();
+            return false;
         }
         
-        //set the skipToken if needed
-        if (cache && response.size() == pageSize) {
-            long end = nextCount;
+        private void finish() throws SQLException {
+            //set the count
             if (getCount) {
-                if (end < Math.min(top, count)) {
-                    response.setNextToken(nextToken(cache, sessionId, end, entityCount));
+                while (rs.next()) {
+                    count++;
+                    entityCount++;
+                }
+            }
+            if (savedEntityCount != null) {
+                response.setCount(savedEntityCount);
+            } else {
+                response.setCount(entityCount);
+            }
+            
+            //set the skipToken if needed
+            if (cache && response.size() == pageSize) {
+                long end = nextCount;
+                if (getCount) {
+                    if (end < Math.min(top, count)) {
+                        response.setNextToken(nextToken(cache, sessionId, end, entityCount));
+                    }
+                } else if (count != nextCount){
+                    response.setNextToken(nextToken(cache, sessionId, end, null));
+                    //will force the entry to cache or is effectively a no-op when already cached
+                    rs.last();    
                 }
-            } else if (count != nextCount){
-                response.setNextToken(nextToken(cache, sessionId, end, null));
-                //will force the entry to cache or is effectively a no-op when already cached
-                rs.last();    
             }
         }
     }
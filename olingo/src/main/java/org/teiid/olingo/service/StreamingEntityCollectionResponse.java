@@ -0,0 +1,172 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.teiid.olingo.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.sql.SQLException;
+
+import org.apache.olingo.commons.api.data.ContextURL;
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.server.api.ServiceMetadata;
+import org.apache.olingo.server.api.serializer.SerializerException;
+import org.apache.olingo.server.api.uri.queryoption.ExpandOption;
+import org.apache.olingo.server.api.uri.queryoption.SelectOption;
+import org.teiid.core.util.AccessibleByteArrayOutputStream;
+import org.teiid.olingo.TeiidODataJsonSerializer;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * An entity collection response that writes each entity as json as the rows are read,
+ * rather than holding the whole page in memory.
+ * <br>
+ * The {@link LocalClient} supplies a {@link RowSource} rather than adding all of the rows, 
+ * and the rows are consumed by reading from {@link #getContent()}. 
+ */
+public class StreamingEntityCollectionResponse extends EntityCollectionResponse {
+    
+    private static final int CHUNK_SIZE = 1 << 13;
+    
+    interface RowSource {
+        /**
+         * Add the next row to the response
+         * @return false if there are no more rows, the count and next token will then be set 
+         */
+        boolean addNextRow() throws SQLException;
+    }
+
+    private final TeiidODataJsonSerializer serializer;
+    private final ServiceMetadata metadata;
+    private final ContextURL contextURL;
+    private final ExpandOption expand;
+    private final SelectOption select;
+    private RowSource rowSource;
+    private JsonGenerator json;
+    private long size;
+
+    public StreamingEntityCollectionResponse(String baseURL, DocumentNode resource, 
+            TeiidODataJsonSerializer serializer, ServiceMetadata metadata,
+            ContextURL contextURL, ExpandOption expand, SelectOption select) {
+        super(baseURL, resource);
+        this.serializer = serializer;
+        this.metadata = metadata;
+        this.contextURL = contextURL;
+        this.expand = expand;
+        this.select = select;
+    }
+    
+    void setRowSource(RowSource rowSource) {
+        this.rowSource = rowSource;
+    }
+    
+    @Override
+    protected void addEntity(Entity entity) throws SQLException {
+        this.size++;
+        if (entity == null) {
+            return;
+        }
+        try {
+            this.serializer.writeCollectionEntity(this.metadata, getDocumentNode().getEdmEntityType(), 
+                    entity, this.expand, this.select, 
+                    this.contextURL == null ? null : this.contextURL.getEntitySetOrSingletonOrType(), this.json);
+        } catch (IOException e) {
+            throw new SQLException(e);
+        } catch (SerializerException e) {
+            throw new SQLException(e);
+        }
+    }
+    
+    @Override
+    public long size() {
+        return this.size;
+    }
+    
+    /**
+     * Get the next link for the given token, which is only known after all of the rows have been written. 
+     * @throws IOException 
+     */
+    protected URI getNextLink(String token) throws IOException {
+        return null;
+    }
+    
+    /**
+     * The serialized collection.  Rows are read from the {@link RowSource} 
+     * only as the content is consumed.
+     */
+    public InputStream getContent() {
+        return new InputStream() {
+            private AccessibleByteArrayOutputStream buffer = new AccessibleByteArrayOutputStream(CHUNK_SIZE);
+            private int pos;
+            private boolean done;
+            
+            @Override
+            public int read() throws IOException {
+                byte[] b = new byte[1];
+                if (read(b, 0, 1) == -1) {
+                    return -1;
+                }
+                return b[0] & 0xff;
+            }
+            
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (len == 0) {
+                    return 0;
+                }
+                while (pos == buffer.getCount()) {
+                    if (done) {
+                        return -1;
+                    }
+                    buffer.reset();
+                    pos = 0;
+                    fill();
+                }
+                int count = Math.min(len, buffer.getCount() - pos);
+                System.arraycopy(buffer.getBuffer(), pos, b, off, count);
+                pos += count;
+                return count;
+            }
+            
+            private void fill() throws IOException {
+                if (json == null) {
+                    json = new JsonFactory().createGenerator(buffer);
+                    serializer.writeEntityCollectionStart(contextURL, json);
+                }
+                try {
+                    while (buffer.getCount() < CHUNK_SIZE) {
+                        if (rowSource == null || !rowSource.addNextRow()) {
+                            serializer.writeEntityCollectionEnd(getNextLink(getNextToken()), json);
+                            json.close();
+                            done = true;
+                            return;
+                        }
+                        json.flush();
+                    }
+                } catch (SQLException e) {
+                    done = true;
+                    throw new IOException(e);
+                }
+            }
+        };
+    }
+    
+}
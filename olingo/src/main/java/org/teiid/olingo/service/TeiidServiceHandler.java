@@ -18,6 +18,7 @@
 package org.teiid.olingo.service;
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URI;
@@ -56,6 +57,9 @@ import org.apache.olingo.server.api.serializer.SerializerException;
 import org.apache.olingo.server.api.uri.UriInfo;
 import org.apache.olingo.server.api.uri.UriInfoResource;
 import org.apache.olingo.server.api.uri.UriParameter;
+import org.apache.olingo.server.api.uri.UriResource;
+import org.apache.olingo.server.api.uri.UriResourceKind;
+import org.apache.olingo.server.core.ContentNegotiatorException;
 import org.apache.olingo.server.core.ServiceHandler;
 import org.apache.olingo.server.core.ServiceRequest;
 import org.apache.olingo.server.core.requests.ActionRequest;
@@ -83,6 +87,7 @@ import org.teiid.odata.api.QueryResponse;
 import org.teiid.odata.api.UpdateResponse;
 import org.teiid.olingo.EdmComplexResponse;
 import org.teiid.olingo.ODataPlugin;
+import org.teiid.olingo.TeiidODataJsonSerializer;
 import org.teiid.olingo.service.ProcedureSQLBuilder.ActionParameterValueProvider;
 import org.teiid.olingo.service.ProcedureSQLBuilder.FunctionParameterValueProvider;
 import org.teiid.olingo.service.ProcedureSQLBuilder.ProcedureReturn;
@@ -165,7 +170,12 @@ public class TeiidServiceHandler implements ServiceHandler {
         final BaseResponse queryResponse;
         try {
             Query query = visitor.selectQuery();
-            queryResponse = executeQuery(request, request.isCountRequest(), visitor, query);
+            if (response instanceof EntitySetResponse && isStreamable(request, visitor)) {
+                queryResponse = executeQuery(request, visitor, query, 
+                        createStreamingResponse(request, visitor));
+            } else {
+                queryResponse = executeQuery(request, request.isCountRequest(), visitor, query);
+            }
         } catch (Throwable e) {
             throw new ODataApplicationException(e.getMessage(),
                     HttpStatusCode.INTERNAL_SERVER_ERROR.getStatusCode(),
@@ -264,14 +274,20 @@ public class TeiidServiceHandler implements ServiceHandler {
             response.writeHeader(PREFERENCE_APPLIED,
                     ODATA_MAXPAGESIZE+"="+ request.getPreference(ODATA_MAXPAGESIZE)); //$NON-NLS-1$
         }
+        if (queryResponse instanceof StreamingEntityCollectionResponse) {
+            StreamingEntityCollectionResponse result = (StreamingEntityCollectionResponse)queryResponse;
+            try {
+                response.writeContent(result.getContent(), HttpStatusCode.OK.getStatusCode(), false);
+                response.writeOK(request.getResponseContentType());
+            } catch (ContentNegotiatorException e) {
+                throw new ODataApplicationException(e.getMessage(), 500, Locale.getDefault(), e);
+            }
+            return;
+        }
         EntityCollectionResponse result = (EntityCollectionResponse)queryResponse;
         if (result.getNextToken() != null) {
             try {
-                String nextUri = request.getODataRequest().getRawBaseUri()
-                        +request.getODataRequest().getRawODataPath()
-                        + "?"
-                        +buildNextToken(request.getODataRequest().getRawQueryPath(), result.getNextToken());
-                result.setNext(new URI(nextUri));
+                result.setNext(buildNextLink(request, result.getNextToken()));
             } catch (URISyntaxException e) {
                 throw new ODataApplicationException(e.getMessage(), 500, Locale.getDefault(), e);
             } catch (MalformedURLException e) {
@@ -280,6 +296,52 @@ public class TeiidServiceHandler implements ServiceHandler {
         }
         response.writeReadEntitySet(visitor.getContext().getEdmEntityType(), result);
     }
+    
+    URI buildNextLink(final ServiceRequest request, String nextToken)
+            throws URISyntaxException, MalformedURLException {
+        String nextUri = request.getODataRequest().getRawBaseUri()
+                +request.getODataRequest().getRawODataPath()
+                + "?"
+                +buildNextToken(request.getODataRequest().getRawQueryPath(), nextToken);
+        return new URI(nextUri);
+    }
+    
+    /**
+     * Entity sets are streamed when the json can be written in row order, so
+     * an inline count, which must precede the values, is not supported. 
+     */
+    private boolean isStreamable(final DataRequest request, final ODataSQLBuilder visitor) throws ContentNegotiatorException {
+        if (visitor.includeTotalSize() 
+                || visitor.getContext() instanceof CrossJoinNode
+                || visitor.getContext() instanceof ComplexDocumentNode
+                || !request.getResponseContentType().isCompatible(ContentType.APPLICATION_JSON)) {
+            return false;
+        }
+        List<UriResource> parts = request.getUriInfo().getUriResourceParts();
+        return parts.isEmpty() || parts.get(parts.size() - 1).getKind() != UriResourceKind.ref;
+    }
+    
+    private StreamingEntityCollectionResponse createStreamingResponse(
+            final DataRequest request, final ODataSQLBuilder visitor)
+            throws ContentNegotiatorException, SerializerException {
+        return new StreamingEntityCollectionResponse(request.getODataRequest().getRawBaseUri(), 
+                visitor.getContext(), 
+                new TeiidODataJsonSerializer(request.getResponseContentType()), 
+                this.serviceMetadata, request.getContextURL(this.odata), 
+                request.getUriInfo().getExpandOption(), request.getUriInfo().getSelectOption()) {
+            @Override
+            protected URI getNextLink(String token) throws IOException {
+                if (token == null) {
+                    return null;
+                }
+                try {
+                    return buildNextLink(request, token);
+                } catch (URISyntaxException e) {
+                    throw new IOException(e);
+                }
+            }
+        };
+    }
 
     String buildNextToken(final String queryPath, String nextToken)
             throws URISyntaxException, MalformedURLException {
@@ -333,8 +395,6 @@ public class TeiidServiceHandler implements ServiceHandler {
             return getClient().executeCount(query, visitor.getParameters());
         }
         else {
-            String pageSize = getPageSize(request);
-
             QueryResponse result = new EntityCollectionResponse(request
                     .getODataRequest().getRawBaseUri(),
                     visitor.getContext());
@@ -347,13 +407,20 @@ public class TeiidServiceHandler implements ServiceHandler {
                 result = new OperationResponseImpl(cdn.getProcedureReturn());
             }
             
-            getClient().executeSQL(query, visitor.getParameters(),
-                    visitor.includeTotalSize(), visitor.getSkip(),
-                    visitor.getTop(), visitor.getNextToken(), Integer.parseInt(pageSize), result);
-            
-            return result;
+            return executeQuery(request, visitor, query, result);
         }
     }
+    
+    private QueryResponse executeQuery(final ServiceRequest request, 
+            final ODataSQLBuilder visitor, Query query, QueryResponse result) throws SQLException {
+        String pageSize = getPageSize(request);
+        
+        getClient().executeSQL(query, visitor.getParameters(),
+                visitor.includeTotalSize(), visitor.getSkip(),
+                visitor.getTop(), visitor.getNextToken(), Integer.parseInt(pageSize), result);
+        
+        return result;
+    }
 
     private String getPageSize(final ServiceRequest request) {
         String pageSize = request.getPreference(ODATA_MAXPAGESIZE);
@@ -72,13 +72,16 @@ import org.teiid.metadata.RuntimeMetadata;
 import org.teiid.metadata.Schema;
 import org.teiid.metadata.Table;
 import org.teiid.odata.api.Client;
+import org.teiid.odata.api.QueryResponse;
 import org.teiid.odata.api.SQLParameter;
 import org.teiid.odata.api.UpdateResponse;
 import org.teiid.olingo.service.LocalClient;
+import org.teiid.olingo.service.StreamingEntityCollectionResponse;
 import org.teiid.olingo.web.ODataFilter;
 import org.teiid.olingo.web.ODataServlet;
 import org.teiid.query.metadata.DDLStringVisitor;
 import org.teiid.query.sql.lang.Command;
+import org.teiid.query.sql.lang.Query;
 import org.teiid.query.sql.symbol.ElementSymbol;
 import org.teiid.query.sql.symbol.Expression;
 import org.teiid.query.unittest.RealMetadataFactory;
@@ -109,6 +112,8 @@ public class TestODataIntegration {
 		ConnectionImpl conn;
 		private boolean throwUpdateException;
 		private boolean rollback;
+		QueryResponse queryResponse;
+		long rowsAddedOnExecute;
 
 		private UnitTestLocalClient(String vdbName, String vdbVersion,
 				Properties properties, Properties properties2,
@@ -151,6 +156,17 @@ public class TestODataIntegration {
 			return super.executeUpdate(query, parameters);
 		}
 		
+		@Override
+		public void executeSQL(Query query, List<SQLParameter> parameters,
+				boolean calculateTotalSize, Integer skipOption, Integer topOption,
+				String nextOption, int pageSize, QueryResponse response)
+				throws SQLException {
+			super.executeSQL(query, parameters, calculateTotalSize, skipOption,
+					topOption, nextOption, pageSize, response);
+			this.queryResponse = response;
+			this.rowsAddedOnExecute = response.size();
+		}
+		
 		public void setThrowUpdateException(boolean throwUpdateException) {
 			this.throwUpdateException = throwUpdateException;
 		}
@@ -1013,6 +1029,116 @@ public class TestODataIntegration {
         }
     }
     
+    @Test 
+    public void testStreamedEntitySet() throws Exception {
+        try {
+            ModelMetaData mmd = new ModelMetaData();
+            mmd.setName("vw");
+            mmd.addSourceMetadata("ddl", "create view d (i integer) as select 0 union all select 1 union all select 2 "
+                    + "union all select 3 union all select 4 union all select 5 union all select 6 "
+                    + "union all select 7 union all select 8 union all select 9;"
+                    + "create view x (a integer primary key, b string) "
+                    + "as select d1.i * 100 + d2.i * 10 + d3.i, repeat('x', 100) from d as d1, d as d2, d as d3;");
+            mmd.setModelType(Model.Type.VIRTUAL);
+            teiid.deployVDB("northwind", mmd);
+
+            Properties props = new Properties();
+            props.setProperty("batch-size", "2000");
+            localClient = getClient(teiid.getDriver(), "northwind", props);
+            
+            ContentResponse response = http.GET(baseURL + "/northwind/vw/x?$format=json&$orderby=a");
+            assertEquals(200, response.getStatus());
+            JsonNode node = getJSONNode(response);
+            assertNull(node.get("@odata.nextLink"));
+            assertEquals(1000, node.get("value").size());
+            assertEquals(999, node.get("value").get(999).get("a").asInt());
+            //no rows were read until the response was written
+            assertTrue(localClient.queryResponse instanceof StreamingEntityCollectionResponse);
+            assertEquals(0, localClient.rowsAddedOnExecute);
+            assertEquals(1000, localClient.queryResponse.size());
+            
+            props.setProperty("batch-size", "600");
+            localClient = getClient(teiid.getDriver(), "northwind", props);
+            
+            response = http.GET(baseURL + "/northwind/vw/x?$format=json&$orderby=a");
+            assertEquals(200, response.getStatus());
+            node = getJSONNode(response);
+            assertEquals(600, node.get("value").size());
+            
+            response = http.GET(node.get("@odata.nextLink").asText());
+            assertEquals(200, response.getStatus());
+            node = getJSONNode(response);
+            assertNull(node.get("@odata.nextLink"));
+            assertEquals(400, node.get("value").size());
+            assertEquals(600, node.get("value").get(0).get("a").asInt());
+            assertTrue(localClient.queryResponse instanceof StreamingEntityCollectionResponse);
+            assertEquals(0, localClient.rowsAddedOnExecute);
+            
+            //an inline count is not streamed
+            response = http.GET(baseURL + "/northwind/vw/x?$format=json&$orderby=a&$count=true");
+            assertEquals(200, response.getStatus());
+            assertEquals(1000, getJSONNode(response).get("@odata.count").asInt());
+            assertFalse(localClient.queryResponse instanceof StreamingEntityCollectionResponse);
+        } finally {
+            localClient = null;
+            teiid.undeployVDB("northwind");
+        }
+    }
+    
+    @Test 
+    public void testStreamedEntitySetExpand() throws Exception {
+        try {
+            ModelMetaData mmd = new ModelMetaData();
+            mmd.setName("vw");
+            mmd.addSourceMetadata("ddl", "create view d (i integer) as select 0 union all select 1 union all select 2 "
+                    + "union all select 3 union all select 4 union all select 5 union all select 6 "
+                    + "union all select 7 union all select 8 union all select 9;"
+                    + "create view x (a integer primary key, b string) "
+                    + "as select d1.i * 10 + d2.i, repeat('x', 100) from d as d1, d as d2;"
+                    + "create view y (a integer primary key, b integer, "
+                    + "CONSTRAINT FKX FOREIGN KEY (b) REFERENCES x(a)) "
+                    + "as select d1.i * 10 + d2.i, d2.i * 10 from d as d1, d as d2;");
+            mmd.setModelType(Model.Type.VIRTUAL);
+            teiid.deployVDB("northwind", mmd);
+
+            Properties props = new Properties();
+            props.setProperty("batch-size", "60");
+            localClient = getClient(teiid.getDriver(), "northwind", props);
+            
+            ContentResponse response = http.GET(baseURL + "/northwind/vw/x?$format=json&$orderby=a&$expand=y_FKX($orderby=a)");
+            assertEquals(200, response.getStatus());
+            assertTrue(localClient.queryResponse instanceof StreamingEntityCollectionResponse);
+            assertEquals(0, localClient.rowsAddedOnExecute);
+            JsonNode node = getJSONNode(response);
+            assertEquals(60, node.get("value").size());
+            assertEquals(60, localClient.queryResponse.size());
+            //each multiple of 10 has 10 children, all other rows have none
+            for (int i = 0; i < 60; i++) {
+                JsonNode row = node.get("value").get(i);
+                assertEquals(i, row.get("a").asInt());
+                JsonNode children = row.get("y_FKX");
+                assertEquals(i % 10 == 0 ? 10 : 0, children.size());
+                for (int j = 0; j < children.size(); j++) {
+                    assertEquals(j * 10 + i / 10, children.get(j).get("a").asInt());
+                    assertEquals(i, children.get(j).get("b").asInt());
+                }
+            }
+            
+            response = http.GET(node.get("@odata.nextLink").asText());
+            assertEquals(200, response.getStatus());
+            node = getJSONNode(response);
+            assertNull(node.get("@odata.nextLink"));
+            assertEquals(40, node.get("value").size());
+            assertEquals(60, node.get("value").get(0).get("a").asInt());
+            assertEquals(10, node.get("value").get(0).get("y_FKX").size());
+            assertEquals(0, node.get("value").get(1).get("y_FKX").size());
+            assertTrue(localClient.queryResponse instanceof StreamingEntityCollectionResponse);
+        } finally {
+            localClient = null;
+            teiid.undeployVDB("northwind");
+        }
+    }
+    
     @Test 
     public void testSkipTokenNoSystemOptions() throws Exception {
         try {
@@ -17,8 +17,11 @@
  */
 package org.teiid.deployers;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -41,6 +44,7 @@ import org.teiid.metadata.Schema;
 import org.teiid.metadata.Table;
 import org.teiid.metadata.Table.TriggerEvent;
 import org.teiid.metadata.TableStats;
+import org.teiid.query.metadata.MaterializationMetadataRepository;
 import org.teiid.query.metadata.TransformationMetadata;
 import org.teiid.query.optimizer.SourceTriggerActionPlanner.SourceEventCommand;
 import org.teiid.query.optimizer.relational.RelationalPlanner;
@@ -49,6 +53,47 @@ import org.teiid.query.tempdata.GlobalTableStore;
 import org.teiid.runtime.RuntimePlugin;
 
 public abstract class EventDistributorImpl implements EventDistributor {
+	
+	/**
+	 * The incremental materialized views by source table, computed once per vdb metadata
+	 */
+	static final class IncrementalMatViews {
+		private TransformationMetadata metadata;
+		private Map<Table, List<Table>> views = new HashMap<Table, List<Table>>();
+		
+		IncrementalMatViews(TransformationMetadata metadata) {
+			this.metadata = metadata;
+			for (Schema schema : metadata.getMetadataStore().getSchemaList()) {
+				for (Table view : schema.getTables().values()) {
+					if (!view.isMaterialized() || view.getMaterializedTable() != null 
+							|| !Boolean.valueOf(view.getProperty(MaterializationMetadataRepository.MATVIEW_INCREMENTAL, false))
+							|| view.getIncomingObjects() == null) {
+						continue;
+					}
+					for (AbstractMetadataRecord record : view.getIncomingObjects()) {
+						if (!(record instanceof Table)) {
+							continue;
+						}
+						List<Table> result = views.get(record);
+						if (result == null) {
+							result = new ArrayList<Table>(2);
+							views.put((Table)record, result);
+						}
+						result.add(view);
+					}
+				}
+			}
+		}
+		
+		List<Table> getViews(Table t) {
+			List<Table> result = views.get(t);
+			if (result == null) {
+				return Collections.emptyList();
+			}
+			return result;
+		}
+	}
+	
 	private Set<EventListener> listeners = Collections.newSetFromMap(new ConcurrentHashMap<EventListener, Boolean>());
 
 	public abstract VDBRepository getVdbRepository();
@@ -260,7 +305,9 @@ public abstract class EventDistributorImpl implements EventDistributor {
 		if (t == null) {
 			return;
 		}
-		DdlPlan.alterView(getVdbRepository().getLiveVDB(vdbName, vdbVersion), t, definition, true);
+		VDBMetaData vdb = getVdbRepository().getLiveVDB(vdbName, vdbVersion);
+		DdlPlan.alterView(vdb, t, definition, true);
+		vdb.removeAttachment(IncrementalMatViews.class);
 	}
 	
 	@Override
@@ -283,6 +330,7 @@ public abstract class EventDistributorImpl implements EventDistributor {
 		AbstractMetadataRecord record = DataTierManagerImpl.getByUuid(tm.getMetadataStore(), uuid);
 		if (record != null) {
 		    DdlPlan.setProperty(vdb, record, name, value);
+		    vdb.removeAttachment(IncrementalMatViews.class);
 		}
 	}
 	
@@ -308,7 +356,8 @@ public abstract class EventDistributorImpl implements EventDistributor {
 	    if (oldValues == null && newValues == null) {
 	        return null;
 	    }
-	    if (!t.getTriggers().isEmpty()) {
+	    List<Table> materializedViews = getIncrementalMaterializedViews(vdb, tm, t);
+	    if (!t.getTriggers().isEmpty() || !materializedViews.isEmpty()) {
 	        if (columnNames != null) {
 	            if ((oldValues != null && oldValues.length != columnNames.length) 
                         || (newValues != null && newValues.length != columnNames.length)) {
@@ -322,7 +371,7 @@ public abstract class EventDistributorImpl implements EventDistributor {
 	        }
 	        
     	    //create command
-	        SourceEventCommand sec = new SourceEventCommand(t, oldValues, newValues, columnNames);
+	        SourceEventCommand sec = new SourceEventCommand(t, oldValues, newValues, columnNames, materializedViews);
 	        try {
                 return DQPCore.executeQuery(sec, vdb, "admin", "event-distributor", -1, getDQPCore(), new DQPCore.ResultsListener() { //$NON-NLS-1$ //$NON-NLS-2$
                     @Override
@@ -337,6 +386,19 @@ public abstract class EventDistributorImpl implements EventDistributor {
 	    return null;
 	}
 	
+	/**
+	 * @return the internal materialized views directly dependent upon the table that have
+	 * requested incremental maintenance
+	 */
+	private List<Table> getIncrementalMaterializedViews(VDBMetaData vdb, TransformationMetadata tm, Table t) {
+		IncrementalMatViews views = vdb.getAttachment(IncrementalMatViews.class);
+		if (views == null || views.metadata != tm) {
+			views = new IncrementalMatViews(tm);
+			vdb.addAttchment(IncrementalMatViews.class, views);
+		}
+		return views.getViews(t);
+	}
+	
 	@Override
 	public void register(EventListener listener) {
 		this.listeners.add(listener);
@@ -0,0 +1,335 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.teiid.odbc;
+
+import java.nio.charset.Charset;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.teiid.jdbc.TeiidSQLException;
+import org.teiid.odbc.PGUtil.CopyOptions;
+import org.teiid.odbc.PGUtil.PgColInfo;
+import org.teiid.runtime.RuntimePlugin;
+
+/**
+ * Splits the CopyData of a COPY FROM STDIN into rows.
+ * <br>
+ * Text and csv values are returned as strings to be implicitly converted
+ * to the target column types.  Binary values are converted based upon the column types.
+ * <br>
+ * Rows may span CopyData messages, so the unprocessed bytes are retained until 
+ * a complete row is available.
+ */
+public class CopyDataReader {
+	
+	private static final byte[] BINARY_SIGNATURE = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte)0xff, '\r', '\n', 0};
+	private static final int BINARY_HEADER_LENGTH = BINARY_SIGNATURE.length + 8;
+	
+	private CopyOptions options;
+	private List<PgColInfo> cols;
+	private Charset encoding;
+	
+	private byte[] buffer = new byte[1 << 13];
+	private int start;
+	private int end;
+	private int scan;
+	private boolean inQuote;
+	private boolean headerProcessed;
+	private boolean ended;
+	private boolean finished;
+	
+	public CopyDataReader(CopyOptions options, List<PgColInfo> cols) {
+		this.options = options;
+		this.cols = cols;
+	}
+	
+	public void addData(byte[] data, Charset charset) {
+		this.encoding = charset;
+		if (end + data.length > buffer.length) {
+			int length = end - start;
+			if (length + data.length > buffer.length) {
+				buffer = Arrays.copyOfRange(buffer, start, start + Math.max(buffer.length * 2, length + data.length));
+			} else {
+				System.arraycopy(buffer, start, buffer, 0, length);
+			}
+			scan -= start;
+			end = length;
+			start = 0;
+		}
+		System.arraycopy(data, 0, buffer, end, data.length);
+		end += data.length;
+	}
+	
+	/**
+	 * Called once all of the data has been received.
+	 */
+	public void end() {
+		this.ended = true;
+	}
+	
+	public boolean isEnded() {
+		return ended;
+	}
+	
+	/**
+	 * @return the next row or null if more data is needed or there are no more rows
+	 * @throws SQLException
+	 */
+	public List<Object> nextRow() throws SQLException {
+		if (finished) {
+			return null;
+		}
+		if (options.binary) {
+			return nextBinaryRow();
+		}
+		while (true) {
+			String line = nextLine();
+			if (line == null) {
+				return null;
+			}
+			if (!headerProcessed) {
+				headerProcessed = true;
+				if (options.header) {
+					continue;
+				}
+			}
+			if (line.equals("\\.")) { //$NON-NLS-1$
+				finished = true;
+				return null;
+			}
+			List<Object> row = options.csv?parseCsv(line):parseText(line);
+			if (row.size() != cols.size()) {
+				throw new TeiidSQLException(RuntimePlugin.Util.gs(RuntimePlugin.Event.TEIID40170, row.size(), cols.size()));
+			}
+			return row;
+		}
+	}
+
+	private String nextLine() {
+		byte quote = (byte)options.quote;
+		byte escape = (byte)options.escape;
+		for (; scan < end; scan++) {
+			byte b = buffer[scan];
+			if (options.csv) {
+				if (inQuote && b == escape && escape != quote) {
+					if (scan + 1 == end) {
+						if (!ended) {
+							return null;
+						}
+					} else if (buffer[scan + 1] == quote) {
+						scan++;
+					}
+					continue;
+				}
+				if (b == quote) {
+					inQuote = !inQuote;
+					continue;
+				}
+			}
+			if (b == '\n' && !inQuote) {
+				String line = getLine(scan);
+				start = ++scan;
+				return line;
+			}
+		}
+		if (ended && start < end) {
+			String line = getLine(end);
+			start = end;
+			return line;
+		}
+		return null;
+	}
+
+	private String getLine(int lineEnd) {
+		if (lineEnd > start && buffer[lineEnd - 1] == '\r') {
+			lineEnd--;
+		}
+		return new String(buffer, start, lineEnd - start, encoding);
+	}
+	
+	private List<Object> parseText(String line) {
+		List<Object> row = new ArrayList<Object>(cols.size());
+		StringBuilder value = new StringBuilder();
+		int fieldStart = 0;
+		for (int i = 0; i <= line.length(); i++) {
+			if (i == line.length() || line.charAt(i) == options.delimiter) {
+				if (line.regionMatches(fieldStart, options.nullString, 0, i - fieldStart) && options.nullString.length() == i - fieldStart) {
+					row.add(null);
+				} else {
+					row.add(value.toString());
+				}
+				value.setLength(0);
+				fieldStart = i + 1;
+				continue;
+			}
+			char c = line.charAt(i);
+			if (c != '\\' || i + 1 == line.length()) {
+				value.append(c);
+				continue;
+			}
+			c = line.charAt(++i);
+			switch (c) {
+			case 'b':
+				value.append('\b');
+				break;
+			case 'f':
+				value.append('\f');
+				break;
+			case 'n':
+				value.append('\n');
+				break;
+			case 'r':
+				value.append('\r');
+				break;
+			case 't':
+				value.append('\t');
+				break;
+			case 'v':
+				value.append('\u000b');
+				break;
+			case 'x':
+				int hexEnd = i + 1;
+				while (hexEnd < line.length() && hexEnd < i + 3 && Character.digit(line.charAt(hexEnd), 16) >= 0) {
+					hexEnd++;
+				}
+				if (hexEnd == i + 1) {
+					value.append(c);
+				} else {
+					value.append((char)Integer.parseInt(line.substring(i + 1, hexEnd), 16));
+					i = hexEnd - 1;
+				}
+				break;
+			default:
+				if (c >= '0' && c <= '7') {
+					int octalEnd = i + 1;
+					while (octalEnd < line.length() && octalEnd < i + 3 && line.charAt(octalEnd) >= '0' && line.charAt(octalEnd) <= '7') {
+						octalEnd++;
+					}
+					value.append((char)Integer.parseInt(line.substring(i, octalEnd), 8));
+					i = octalEnd - 1;
+				} else {
+					value.append(c);
+				}
+			}
+		}
+		return row;
+	}
+	
+	private List<Object> parseCsv(String line) {
+		List<Object> row = new ArrayList<Object>(cols.size());
+		StringBuilder value = new StringBuilder();
+		boolean quoted = false;
+		boolean quoting = false;
+		for (int i = 0; i <= line.length(); i++) {
+			if (i == line.length() || (!quoting && line.charAt(i) == options.delimiter)) {
+				String string = value.toString();
+				if (!quoted && string.equals(options.nullString)) {
+					row.add(null);
+				} else {
+					row.add(string);
+				}
+				value.setLength(0);
+				quoted = false;
+				continue;
+			}
+			char c = line.charAt(i);
+			if (quoting && c == options.escape && i + 1 < line.length() && line.charAt(i + 1) == options.quote) {
+				value.append(options.quote);
+				i++;
+			} else if (c == options.quote) {
+				quoting = !quoting;
+				quoted = true;
+			} else {
+				value.append(c);
+			}
+		}
+		return row;
+	}
+	
+	private List<Object> nextBinaryRow() throws SQLException {
+		if (!headerProcessed) {
+			if (end - start < BINARY_HEADER_LENGTH) {
+				return checkIncomplete();
+			}
+			for (int i = 0; i < BINARY_SIGNATURE.length; i++) {
+				if (buffer[start + i] != BINARY_SIGNATURE[i]) {
+					throw new TeiidSQLException(RuntimePlugin.Util.gs(RuntimePlugin.Event.TEIID40171));
+				}
+			}
+			int extensionLength = (int)PGUtil.readLong(buffer, start + BINARY_HEADER_LENGTH - 4, 4);
+			if (end - start < BINARY_HEADER_LENGTH + extensionLength) {
+				return checkIncomplete();
+			}
+			start += BINARY_HEADER_LENGTH + extensionLength;
+			headerProcessed = true;
+		}
+		if (end - start < 2) {
+			return checkIncomplete();
+		}
+		short count = (short)PGUtil.readLong(buffer, start, 2);
+		if (count == -1) {
+			finished = true;
+			start += 2;
+			return null;
+		}
+		if (count != cols.size()) {
+			throw new TeiidSQLException(RuntimePlugin.Util.gs(RuntimePlugin.Event.TEIID40170, count, cols.size()));
+		}
+		//make sure the whole tuple is available before converting
+		int pos = start + 2;
+		for (int i = 0; i < count; i++) {
+			if (end - pos < 4) {
+				return checkIncomplete();
+			}
+			int length = (int)PGUtil.readLong(buffer, pos, 4);
+			pos += 4;
+			if (length > 0) {
+				if (end - pos < length) {
+					return checkIncomplete();
+				}
+				pos += length;
+			}
+		}
+		List<Object> row = new ArrayList<Object>(count);
+		pos = start + 2;
+		for (int i = 0; i < count; i++) {
+			int length = (int)PGUtil.readLong(buffer, pos, 4);
+			pos += 4;
+			if (length < 0) {
+				row.add(null);
+				continue;
+			}
+			row.add(PGUtil.decodeBinary(Arrays.copyOfRange(buffer, pos, pos + length), cols.get(i).type, encoding));
+			pos += length;
+		}
+		start = pos;
+		return row;
+	}
+
+	private List<Object> checkIncomplete() throws SQLException {
+		if (ended && end > start) {
+			throw new TeiidSQLException(RuntimePlugin.Util.gs(RuntimePlugin.Event.TEIID40171));
+		}
+		return null;
+	}
+	
+}
@@ -22,6 +22,7 @@ import java.util.Properties;
 
 import org.teiid.client.util.ResultsFuture;
 import org.teiid.jdbc.ResultSetImpl;
+import org.teiid.odbc.PGUtil.CopyOptions;
 import org.teiid.odbc.PGUtil.PgColInfo;
 
 public interface ODBCClientRemote {
@@ -98,6 +99,21 @@ public interface ODBCClientRemote {
 	
 	void sendSslResponse();
 	
+	//	CopyOutResponse (B)
+	//	CopyData (F & B)
+	//	CopyDone (F & B)
+	//	CommandComplete (B)
+	void sendCopyOut(ResultSetImpl rs, List<PgColInfo> cols, CopyOptions options, ResultsFuture<Integer> result);
+	
+	//	CopyInResponse (B)
+	void sendCopyInResponse(int columnCount, boolean binary);
+	
+	/**
+	 * Stop or resume reading from the client, used to apply back pressure 
+	 * while COPY data is being processed.
+	 */
+	void setReadingEnabled(boolean enabled);
+	
 	// unimplemented backend messages
 	
 	//	AuthenticationKerberosV5 (B)
@@ -107,11 +123,6 @@ public interface ODBCClientRemote {
 	
 	//	CloseComplete (B)
 
-	//	CopyData (F & B)
-	//	CopyDone (F & B)
-	//	CopyInResponse (B)
-	//	CopyOutResponse (B)
-	
 	//	NoticeResponse (B)
 	//	NotificationResponse (B)
 	
@@ -49,7 +49,6 @@ import org.teiid.core.TeiidProcessingException;
 import org.teiid.core.util.EquivalenceUtil;
 import org.teiid.core.util.PropertiesUtils;
 import org.teiid.core.util.StringUtil;
-import org.teiid.core.util.TimestampWithTimezone;
 import org.teiid.deployers.PgCatalogMetadataStore;
 import org.teiid.dqp.service.SessionService;
 import org.teiid.jdbc.ConnectionImpl;
@@ -64,6 +63,7 @@ import org.teiid.net.TeiidURL;
 import org.teiid.net.socket.AuthenticationType;
 import org.teiid.net.socket.SocketServerConnection;
 import org.teiid.odbc.ODBCClientRemote.CursorDirection;
+import org.teiid.odbc.PGUtil.CopyOptions;
 import org.teiid.odbc.PGUtil.PgColInfo;
 import org.teiid.runtime.RuntimePlugin;
 import org.teiid.security.GSSResult;
@@ -72,7 +72,6 @@ import org.teiid.transport.LogonImpl;
 import org.teiid.transport.ODBCClientInstance;
 import org.teiid.transport.PgBackendProtocol;
 import org.teiid.transport.PgFrontendProtocol.NullTerminatedStringDataInputStream;
-import org.teiid.transport.pg.TimestampUtils;
 
 /**
  * While executing the multiple prepared statements I see this bug currently
@@ -81,6 +80,7 @@ import org.teiid.transport.pg.TimestampUtils;
 public class ODBCServerRemoteImpl implements ODBCServerRemote {
 	
     private static final boolean HONOR_DECLARE_FETCH_TXN = PropertiesUtils.getBooleanProperty(System.getProperties(), "org.teiid.honorDeclareFetchTxn", false); //$NON-NLS-1$
+    private static final int COPY_BATCH_SIZE = PropertiesUtils.getIntProperty(System.getProperties(), "org.teiid.odbcCopyBatchSize", 4096); //$NON-NLS-1$
     
 	public static final String CONNECTION_PROPERTY_PREFIX = "connection."; //$NON-NLS-1$
 	private static final String UNNAMED = ""; //$NON-NLS-1$
@@ -177,6 +177,9 @@ public class ODBCServerRemoteImpl implements ODBCServerRemote {
 	private static Pattern savepointPattern = Pattern.compile("SAVEPOINT\\s+(\\w+\\d?_*)", Pattern.DOTALL|Pattern.CASE_INSENSITIVE); //$NON-NLS-1$
 	private static Pattern rollbackPattern = Pattern.compile("ROLLBACK(\\s+to)?\\s+(\\w+\\d+_*)", Pattern.DOTALL|Pattern.CASE_INSENSITIVE); //$NON-NLS-1$
 	
+	private static Pattern copyToPattern = Pattern.compile("COPY\\s+(?:\\((.*)\\)|([^\\s(]+)(?:\\s*\\(([^)]*)\\))?)\\s+TO\\s+STDOUT(?:\\s+(.*))?", Pattern.DOTALL|Pattern.CASE_INSENSITIVE); //$NON-NLS-1$
+	private static Pattern copyFromPattern = Pattern.compile("COPY\\s+([^\\s(]+)(?:\\s*\\(([^)]*)\\))?\\s+FROM\\s+STDIN(?:\\s+(.*))?", Pattern.DOTALL|Pattern.CASE_INSENSITIVE); //$NON-NLS-1$
+	
 	private static Pattern txnPattern = Pattern.compile("(BEGIN(?:\\s+READ\\s+ONLY)?|COMMIT|ROLLBACK)(\\s+(WORK|TRANSACTION))?", Pattern.DOTALL|Pattern.CASE_INSENSITIVE); //$NON-NLS-1$
 	
 	private TeiidDriver driver;
@@ -193,6 +196,7 @@ public class ODBCServerRemoteImpl implements ODBCServerRemote {
 	private Map<String, Portal> portalMap = Collections.synchronizedMap(new HashMap<String, Portal>());
 	private Map<String, Cursor> cursorMap = Collections.synchronizedMap(new HashMap<String, Cursor>());
 	private	LogonImpl logon;
+	private volatile CopyIn copyIn;
 	
 	public ODBCServerRemoteImpl(ODBCClientInstance client, TeiidDriver driver, LogonImpl logon) {
 		this.driver = driver;
@@ -461,7 +465,10 @@ public class ODBCServerRemoteImpl implements ODBCServerRemote {
 	}	
 	
     private void sqlExecute(final String sql, final ResultsFuture<Integer> completion) throws SQLException {
-    	String modfiedSQL = fixSQL(sql); 
+    	sqlExecute(sql, fixSQL(sql), null, completion);
+    }
+    
+    private void sqlExecute(final String sql, String modfiedSQL, final CopyOptions copyOptions, final ResultsFuture<Integer> completion) throws SQLException {
     	final StatementImpl stmt = connection.createStatement();
         executionFuture = stmt.submitExecute(modfiedSQL, null);
         completion.addCompletionListener(new ResultsFuture.CompletionListener<Integer>() {
@@ -478,7 +485,13 @@ public class ODBCServerRemoteImpl implements ODBCServerRemote {
     		public void onCompletion(ResultsFuture<Boolean> future) {
     			executionFuture = null;
     			try {
-	                if (future.get()) {
+	                if (copyOptions != null) {
+	                	if (!future.get()) {
+	                		throw new TeiidSQLException(RuntimePlugin.Util.gs(RuntimePlugin.Event.TEIID40168, "TO STDOUT")); //$NON-NLS-1$
+	                	}
+	                	List<PgColInfo> cols = getPgColInfo(stmt.getResultSet().getMetaData());
+	                	client.sendCopyOut(stmt.getResultSet(), cols, copyOptions, completion);
+	                } else if (future.get()) {
                 		List<PgColInfo> cols = getPgColInfo(stmt.getResultSet().getMetaData());
                 		String tag = PgBackendProtocol.getCompletionTag(sql, null);
                         client.sendResults(sql, stmt.getResultSet(), cols, completion, CursorDirection.FORWARD, -1, tag.equals("SELECT") || tag.equals("SHOW"), null); //$NON-NLS-1$ //$NON-NLS-2$
@@ -496,6 +509,192 @@ public class ODBCServerRemoteImpl implements ODBCServerRemote {
 		});    	
     }	
 	
+    private void copyIn(String table, String columns, CopyOptions options, ResultsFuture<Integer> completion) throws SQLException {
+    	List<PgColInfo> cols = null;
+    	PreparedStatementImpl select = this.connection.prepareStatement("SELECT " + (columns == null?"*":columns) + " FROM " + table); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+    	try {
+    		cols = getPgColInfo(select.getMetaData());
+    	} finally {
+    		select.close();
+    	}
+    	if (options.binary) {
+    		for (PgColInfo col : cols) {
+    			if (!isBinaryDecodable(col.type)) {
+    				throw new TeiidSQLException(RuntimePlugin.Util.gs(RuntimePlugin.Event.TEIID40169, col.name, col.type));
+    			}
+    		}
+    	}
+    	StringBuilder insert = new StringBuilder("INSERT INTO ").append(table).append(" ("); //$NON-NLS-1$ //$NON-NLS-2$
+    	StringBuilder values = new StringBuilder(") VALUES ("); //$NON-NLS-1$
+    	for (int i = 0; i < cols.size(); i++) {
+    		if (i > 0) {
+    			insert.append(", "); //$NON-NLS-1$
+    			values.append(", "); //$NON-NLS-1$
+    		}
+    		insert.append('"').append(StringUtil.replaceAll(cols.get(i).name, "\"", "\"\"")).append('"'); //$NON-NLS-1$ //$NON-NLS-2$
+    		values.append('?');
+    	}
+    	insert.append(values).append(')');
+    	PreparedStatementImpl stmt = this.connection.prepareStatement(insert.toString());
+    	//under autocommit the batches should not commit separately
+    	boolean localTxn = this.connection.getAutoCommit();
+    	if (localTxn) {
+    		this.connection.setAutoCommit(false);
+    	}
+    	this.copyIn = new CopyIn(stmt, new CopyDataReader(options, cols), completion, localTxn);
+    	this.client.sendCopyInResponse(cols.size(), options.binary);
+    }
+    
+    /**
+     * Feeds COPY FROM STDIN rows to the engine as batched inserts.  While a batch is executing
+     * reading from the client is suspended so that the copy data does not accumulate.
+     * <br>
+     * If the copy was started under autocommit, all of the batches run in a single local transaction
+     * that is committed when the copy is done and rolled back on failure.
+     */
+    private final class CopyIn implements ResultsFuture.CompletionListener<Boolean> {
+    	private final PreparedStatementImpl stmt;
+    	private final CopyDataReader reader;
+    	private final ResultsFuture<Integer> completion;
+    	private final boolean localTxn;
+    	private ResultsFuture<Boolean> pending;
+    	private int batchRows;
+    	private int pendingRows;
+    	private int rows;
+    	
+    	private CopyIn(PreparedStatementImpl stmt, CopyDataReader reader, ResultsFuture<Integer> completion, boolean localTxn) {
+    		this.stmt = stmt;
+    		this.reader = reader;
+    		this.completion = completion;
+    		this.localTxn = localTxn;
+		}
+    	
+    	synchronized void process() {
+    		try {
+	    		while (pending == null) {
+	    			List<Object> row = reader.nextRow();
+	    			if (row != null) {
+	    				for (int i = 0; i < row.size(); i++) {
+	    					stmt.setObject(i + 1, row.get(i));
+	    				}
+	    				stmt.addBatch();
+	    				if (++batchRows < COPY_BATCH_SIZE) {
+	    					continue;
+	    				}
+	    			} else if (!reader.isEnded()) {
+	    				return; //wait for more data
+	    			} else if (batchRows == 0) {
+	    				finish();
+	    				return;
+	    			}
+	    			pendingRows = batchRows;
+	    			batchRows = 0;
+	    			pending = stmt.submitExecuteBatch();
+	    			if (!pending.isDone()) {
+	    				client.setReadingEnabled(false);
+	    				pending.addCompletionListener(this);
+	    				return;
+	    			}
+	    			batchCompleted();
+	    		}
+    		} catch (Throwable t) {
+    			fail(t);
+    		}
+    	}
+    	
+    	@Override
+    	public void onCompletion(ResultsFuture<Boolean> future) {
+    		client.setReadingEnabled(true);
+    		synchronized (this) {
+    			try {
+    				batchCompleted();
+    			} catch (Throwable t) {
+    				fail(t);
+    				return;
+    			}
+			}
+    		process();
+    	}
+    	
+    	private void batchCompleted() throws InterruptedException, ExecutionException {
+    		ResultsFuture<Boolean> future = pending;
+    		pending = null;
+    		future.get();
+    		rows += pendingRows;
+    	}
+    	
+    	private void finish() throws SQLException {
+    		if (localTxn) {
+    			connection.setAutoCommit(true);
+    		}
+    		copyIn = null;
+    		close();
+    		client.sendCommandComplete("COPY", rows); //$NON-NLS-1$
+    		completion.getResultsReceiver().receiveResults(rows);
+    	}
+    	
+    	void fail(Throwable t) {
+    		if (copyIn != this) {
+    			return;
+    		}
+    		copyIn = null;
+    		close();
+    		if (localTxn) {
+    			try {
+    				connection.rollback(false);
+    			} catch (SQLException e) {
+    				LogManager.logDetail(LogConstants.CTX_ODBC, e, "Error rolling back copy"); //$NON-NLS-1$
+    			}
+    		}
+    		client.setReadingEnabled(true);
+    		completion.getResultsReceiver().exceptionOccurred(t);
+    	}
+
+		private void close() {
+			try {
+				stmt.close();
+			} catch (SQLException e) {
+				LogManager.logDetail(LogConstants.CTX_ODBC, e, "Error closing statement"); //$NON-NLS-1$
+			}
+		}
+    }
+    
+    @Override
+    public void copyData(byte[] data, Charset encoding) {
+    	CopyIn copy = this.copyIn;
+    	if (copy == null) {
+    		//discard the remaining data after an error
+    		return;
+    	}
+    	synchronized (copy) {
+    		copy.reader.addData(data, encoding);
+		}
+    	copy.process();
+    }
+    
+    @Override
+    public void copyDone() {
+    	CopyIn copy = this.copyIn;
+    	if (copy == null) {
+    		return;
+    	}
+    	synchronized (copy) {
+    		copy.reader.end();
+		}
+    	copy.process();
+    }
+    
+    @Override
+    public void copyFail(String msg) {
+    	CopyIn copy = this.copyIn;
+    	if (copy == null) {
+    		return;
+    	}
+    	synchronized (copy) {
+    		copy.fail(new TeiidSQLException(msg));
+		}
+    }
+	
 	@Override
 	public void prepare(String prepareName, String sql, int[] paramType) {
 		if (prepareName == null || prepareName.length() == 0) {
@@ -538,14 +737,6 @@ public class ODBCServerRemoteImpl implements ODBCServerRemote {
 		}
 	}	
 	
-	private long readLong(byte[] bytes, int length) {
-		long val = 0;
-		for (int k = 0; k < length; k++) {
-			val += ((bytes[k] & 255) << ((length - k - 1)*8));
-		}
-		return val;
-	}
-	
 	@Override
 	public void bindParameters(String bindName, String prepareName, Object[] params, int resultCodeCount, short[] resultColumnFormat, Charset encoding) {
 		// An unnamed portal is destroyed at the end of the transaction, or as soon as 
@@ -576,36 +767,7 @@ public class ODBCServerRemoteImpl implements ODBCServerRemote {
 			for (int i = 0; i < params.length; i++) {
 				Object param = params[i];
 				if (param instanceof byte[] && prepared.paramType.length > i) {
-					int oid = prepared.paramType[i];
-					switch (oid) {
-					case PGUtil.PG_TYPE_UNSPECIFIED:
-						//TODO: should infer type from the parameter metadata from the parse message
-						break;
-					case PGUtil.PG_TYPE_BYTEA:
-						break;
-					case PGUtil.PG_TYPE_INT2:
-						param = (short)readLong((byte[])param, 2);
-						break;
-					case PGUtil.PG_TYPE_INT4:
-						param = (int)readLong((byte[])param, 4);
-						break;
-					case PGUtil.PG_TYPE_INT8:
-						param = readLong((byte[])param, 8);
-						break;
-					case PGUtil.PG_TYPE_FLOAT4:
-						param = Float.intBitsToFloat((int)readLong((byte[])param, 4));
-						break;
-					case PGUtil.PG_TYPE_FLOAT8:
-						param = Double.longBitsToDouble(readLong((byte[])param, 8));
-						break;
-					case PGUtil.PG_TYPE_DATE:
-					    param = TimestampUtils.toDate(TimestampWithTimezone.getCalendar().getTimeZone(), (int)readLong((byte[])param, 4));
-						break;
-					default:
-					    //start with the string conversion
-					    param = new String((byte[])param, encoding);
-					    break;
-					}
+					param = decodeBinary((byte[])param, prepared.paramType[i], encoding);
 				}
 				stmt.setObject(i+1, param);
 			}
@@ -1170,6 +1332,17 @@ public class ODBCServerRemoteImpl implements ODBCServerRemote {
 		    				cursorClose(normalizeName(m.group(1)));
 		    				results.getResultsReceiver().receiveResults(1);
 		    			}
+		    			else if ((m = copyToPattern.matcher(sql)).matches()) {
+		    				CopyOptions options = CopyOptions.parse(m.group(4));
+		    				String query = m.group(1);
+		    				if (query == null) {
+		    					query = "SELECT " + (m.group(3) == null?"*":m.group(3)) + " FROM " + m.group(2); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		    				}
+		    				sqlExecute("COPY", fixSQL(query), options, results); //$NON-NLS-1$
+		    			}
+		    			else if ((m = copyFromPattern.matcher(sql)).matches()) {
+		    				copyIn(m.group(1), m.group(2), CopyOptions.parse(m.group(3)), results);
+		    			}
 		    			else if ((m = deallocatePattern.matcher(sql)).matches()) { 
 		    				String plan_name = m.group(1);
 		    				plan_name = normalizeName(plan_name);
@@ -17,7 +17,24 @@
  */
 package org.teiid.odbc;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.nio.charset.Charset;
+import java.sql.SQLException;
+import java.sql.Time;
 import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.teiid.core.util.StringUtil;
+import org.teiid.core.util.TimestampWithTimezone;
+import org.teiid.jdbc.TeiidSQLException;
+import org.teiid.runtime.RuntimePlugin;
+import org.teiid.transport.pg.TimestampUtils;
 
 public class PGUtil {
 
@@ -33,7 +50,7 @@ public class PGUtil {
 	public static final int PG_TYPE_INT4 = 23;
 	public static final int PG_TYPE_TEXT = 25;
 	public static final int PG_TYPE_XML = 142;
-    //private static final int PG_TYPE_OID = 26;
+    public static final int PG_TYPE_OID = 26;
 	public static final int PG_TYPE_FLOAT4 = 700;
 	public static final int PG_TYPE_FLOAT8 = 701;
 	public static final int PG_TYPE_UNKNOWN = 705;
@@ -66,6 +83,9 @@ public class PGUtil {
     public static final int PG_TYPE_XMLARRAY = 143;
     //private static final int PG_TYPE_LO = 14939;
     
+    public static final int NUMERIC_POS = 0x0000;
+    public static final int NUMERIC_NEG = 0x4000;
+    
 	public static class PgColInfo {
 		public String name;
 		public int reloid;
@@ -75,6 +95,232 @@ public class PGUtil {
 		public int mod = -1;
 	}
 	
+	/**
+	 * The format options of a COPY TO STDOUT or COPY FROM STDIN statement.
+	 * Both the option list and the pre-9.0 syntax are accepted.
+	 */
+	public static class CopyOptions {
+		private static Pattern tokenPattern = Pattern.compile("[eE]?'(?:[^']|'')*'|[^\\s,()]+"); //$NON-NLS-1$
+		
+		public boolean binary;
+		public boolean csv;
+		public char delimiter = '\t';
+		public String nullString = "\\N"; //$NON-NLS-1$
+		public boolean header;
+		public char quote = '"';
+		public char escape = '"';
+		
+		public static CopyOptions parse(String options) throws SQLException {
+			CopyOptions result = new CopyOptions();
+			if (options == null) {
+				return result;
+			}
+			List<String> tokens = new ArrayList<String>();
+			Matcher m = tokenPattern.matcher(options);
+			while (m.find()) {
+				tokens.add(m.group());
+			}
+			String delimiter = null;
+			String nullString = null;
+			String quote = null;
+			String escape = null;
+			for (int i = 0; i < tokens.size(); i++) {
+				String token = tokens.get(i).toUpperCase();
+				switch (token) {
+				case "WITH": //$NON-NLS-1$
+					break;
+				case "BINARY": //$NON-NLS-1$
+					result.binary = true;
+					break;
+				case "CSV": //$NON-NLS-1$
+					result.csv = true;
+					break;
+				case "FORMAT": //$NON-NLS-1$
+					String format = getValue(tokens, ++i, token).toUpperCase();
+					if (format.equals("CSV")) { //$NON-NLS-1$
+						result.csv = true;
+					} else if (format.equals("BINARY")) { //$NON-NLS-1$
+						result.binary = true;
+					} else if (!format.equals("TEXT")) { //$NON-NLS-1$
+						throw invalidOption(format);
+					}
+					break;
+				case "HEADER": //$NON-NLS-1$
+					result.header = true;
+					if (i + 1 < tokens.size()) {
+						String value = tokens.get(i + 1).toUpperCase();
+						if (value.equals("FALSE") || value.equals("OFF") || value.equals("0")) { //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+							result.header = false;
+							i++;
+						} else if (value.equals("TRUE") || value.equals("ON") || value.equals("1")) { //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+							i++;
+						}
+					}
+					break;
+				case "DELIMITER": //$NON-NLS-1$
+				case "NULL": //$NON-NLS-1$
+				case "QUOTE": //$NON-NLS-1$
+				case "ESCAPE": //$NON-NLS-1$
+					if (i + 1 < tokens.size() && tokens.get(i + 1).equalsIgnoreCase("AS")) { //$NON-NLS-1$
+						i++;
+					}
+					String value = getValue(tokens, ++i, token);
+					if (token.equals("DELIMITER")) { //$NON-NLS-1$
+						delimiter = value;
+					} else if (token.equals("NULL")) { //$NON-NLS-1$
+						nullString = value;
+					} else if (token.equals("QUOTE")) { //$NON-NLS-1$
+						quote = value;
+					} else {
+						escape = value;
+					}
+					break;
+				default:
+					throw invalidOption(tokens.get(i));
+				}
+			}
+			if (result.csv && result.binary) {
+				throw invalidOption("BINARY"); //$NON-NLS-1$
+			}
+			if (result.csv) {
+				result.delimiter = ',';
+				result.nullString = ""; //$NON-NLS-1$
+			}
+			if (delimiter != null) {
+				result.delimiter = getChar(delimiter);
+			}
+			if (nullString != null) {
+				result.nullString = nullString;
+			}
+			if (quote != null) {
+				result.quote = getChar(quote);
+				result.escape = result.quote;
+			}
+			if (escape != null) {
+				result.escape = getChar(escape);
+			}
+			return result;
+		}
+
+		private static String getValue(List<String> tokens, int index, String option) throws SQLException {
+			if (index >= tokens.size()) {
+				throw invalidOption(option);
+			}
+			String value = tokens.get(index);
+			boolean escaped = value.startsWith("E'") || value.startsWith("e'"); //$NON-NLS-1$ //$NON-NLS-2$
+			if (escaped) {
+				value = value.substring(1);
+			}
+			if (!value.startsWith("'")) { //$NON-NLS-1$
+				return value;
+			}
+			value = StringUtil.replaceAll(value.substring(1, value.length() - 1), "''", "'"); //$NON-NLS-1$ //$NON-NLS-2$
+			if (escaped) {
+				value = StringUtil.replaceAll(value, "\\t", "\t"); //$NON-NLS-1$ //$NON-NLS-2$
+				value = StringUtil.replaceAll(value, "\\n", "\n"); //$NON-NLS-1$ //$NON-NLS-2$
+				value = StringUtil.replaceAll(value, "\\r", "\r"); //$NON-NLS-1$ //$NON-NLS-2$
+				value = StringUtil.replaceAll(value, "\\\\", "\\"); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			return value;
+		}
+		
+		private static char getChar(String value) throws SQLException {
+			if (value.length() != 1) {
+				throw invalidOption(value);
+			}
+			return value.charAt(0);
+		}
+		
+		private static SQLException invalidOption(String option) {
+			return new TeiidSQLException(RuntimePlugin.Util.gs(RuntimePlugin.Event.TEIID40168, option));
+		}
+	}
+	
+	public static long readLong(byte[] bytes, int offset, int length) {
+		long val = 0;
+		for (int k = 0; k < length; k++) {
+			val = (val << 8) + (bytes[offset + k] & 255);
+		}
+		return val;
+	}
+	
+	/**
+	 * @return true if the binary format of the type is understood by {@link #decodeBinary(byte[], int, Charset)}
+	 */
+	public static boolean isBinaryDecodable(int oid) {
+		switch (oid) {
+		case PG_TYPE_BYTEA:
+		case PG_TYPE_BOOL:
+		case PG_TYPE_INT2:
+		case PG_TYPE_INT4:
+		case PG_TYPE_INT8:
+		case PG_TYPE_FLOAT4:
+		case PG_TYPE_FLOAT8:
+		case PG_TYPE_DATE:
+		case PG_TYPE_TIME:
+		case PG_TYPE_TIMESTAMP_NO_TMZONE:
+		case PG_TYPE_NUMERIC:
+		case PG_TYPE_VARCHAR:
+		case PG_TYPE_BPCHAR:
+		case PG_TYPE_TEXT:
+		case PG_TYPE_XML:
+			return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * Convert a binary format value.  Types without a binary conversion are converted from 
+	 * the string form.
+	 */
+	public static Object decodeBinary(byte[] bytes, int oid, Charset encoding) {
+		TimeZone tz = TimestampWithTimezone.getCalendar().getTimeZone();
+		switch (oid) {
+		case PG_TYPE_UNSPECIFIED:
+			//TODO: should infer type from the parameter metadata from the parse message
+		case PG_TYPE_BYTEA:
+			return bytes;
+		case PG_TYPE_BOOL:
+			return bytes[0] != 0;
+		case PG_TYPE_INT2:
+			return (short)readLong(bytes, 0, 2);
+		case PG_TYPE_INT4:
+			return (int)readLong(bytes, 0, 4);
+		case PG_TYPE_INT8:
+			return readLong(bytes, 0, 8);
+		case PG_TYPE_FLOAT4:
+			return Float.intBitsToFloat((int)readLong(bytes, 0, 4));
+		case PG_TYPE_FLOAT8:
+			return Double.longBitsToDouble(readLong(bytes, 0, 8));
+		case PG_TYPE_DATE:
+		    return TimestampUtils.toDate(tz, (int)readLong(bytes, 0, 4));
+		case PG_TYPE_TIME:
+		{
+			long millis = Math.round(Double.longBitsToDouble(readLong(bytes, 0, 8)) * 1000);
+			return new Time(millis - tz.getOffset(millis));
+		}
+		case PG_TYPE_TIMESTAMP_NO_TMZONE:
+			return TimestampUtils.toTimestamp(tz, Double.longBitsToDouble(readLong(bytes, 0, 8)));
+		case PG_TYPE_NUMERIC:
+		{
+			int digits = (short)readLong(bytes, 0, 2);
+			int weight = (short)readLong(bytes, 2, 2);
+			int sign = (int)readLong(bytes, 4, 2);
+			int scale = (int)readLong(bytes, 6, 2);
+			BigInteger unscaled = BigInteger.ZERO;
+			BigInteger base = BigInteger.valueOf(10000);
+			for (int i = 0; i < digits; i++) {
+				unscaled = unscaled.multiply(base).add(BigInteger.valueOf(readLong(bytes, 8 + 2*i, 2)));
+			}
+			BigDecimal result = new BigDecimal(unscaled).scaleByPowerOfTen(4*(weight - digits + 1)).setScale(scale, RoundingMode.DOWN);
+			return sign == NUMERIC_NEG?result.negate():result;
+		}
+		default:
+		    //start with the string conversion
+		    return new String(bytes, encoding);
+		}
+	}
+	
 	/**
 	 * Types.ARRAY is not supported
 	 */
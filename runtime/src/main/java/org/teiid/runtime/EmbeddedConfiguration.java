@@ -72,6 +72,8 @@ public class EmbeddedConfiguration extends DQPConfiguration {
 	private int maxStorageObjectSize ;
 	private boolean memoryBufferOffHeap = false;
 	private int memoryBufferSpace ;
+	private boolean shardedEvictionQueue = false;
+	private boolean memoryMappedStorage = false;
 	private String nodeName;
 	
     private DefaultCacheManager cacheManager;
@@ -329,6 +331,22 @@ public class EmbeddedConfiguration extends DQPConfiguration {
 	public void setMemoryBufferOffHeap(boolean memoryBufferOffHeap) {
 		this.memoryBufferOffHeap = memoryBufferOffHeap;
 	}
+	
+	public boolean isShardedEvictionQueue() {
+		return shardedEvictionQueue;
+	}
+	
+	public void setShardedEvictionQueue(boolean shardedEvictionQueue) {
+		this.shardedEvictionQueue = shardedEvictionQueue;
+	}
+	
+	public boolean isMemoryMappedStorage() {
+		return memoryMappedStorage;
+	}
+	
+	public void setMemoryMappedStorage(boolean memoryMappedStorage) {
+		this.memoryMappedStorage = memoryMappedStorage;
+	}
 
 	public int getMemoryBufferSpace() {
 		return memoryBufferSpace;
@@ -492,6 +492,8 @@ public class EmbeddedServer extends AbstractVDBDeployer implements EventDistribu
 			this.bufferService.setMaxStorageObjectSize(config.getMaxStorageObjectSize());
 		}
 		this.bufferService.setMemoryBufferOffHeap(config.isMemoryBufferOffHeap());
+		this.bufferService.setShardedEvictionQueue(config.isShardedEvictionQueue());
+		this.bufferService.setMemoryMappedStorage(config.isMemoryMappedStorage());
 		if(config.getMemoryBufferSpace() != -1)
 			this.bufferService.setMemoryBufferSpace(config.getMemoryBufferSpace());
 		
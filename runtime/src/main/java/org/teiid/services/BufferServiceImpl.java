@@ -65,6 +65,8 @@ public class BufferServiceImpl implements BufferService, Serializable {
     private long memoryBufferSpace = -1;
     private int maxStorageObjectSize = BufferFrontedFileStoreCache.DEFAuLT_MAX_OBJECT_SIZE;
     private boolean memoryBufferOffHeap;
+    private boolean shardedEvictionQueue;
+    private boolean memoryMappedStorage;
 	private FileStorageManager fsm;
 	private BufferFrontedFileStoreCache fsc;
 	private int workingMaxReserveKb;
@@ -86,6 +88,7 @@ public class BufferServiceImpl implements BufferService, Serializable {
             this.bufferMgr.setMaxReserveKB(this.maxReserveKb);
             this.bufferMgr.setMaxProcessingKB(this.maxProcessingKb);
             this.bufferMgr.setInlineLobs(inlineLobs);
+            this.bufferMgr.setShardedEvictionQueue(shardedEvictionQueue);
             this.bufferMgr.initialize();
             
             // If necessary, add disk storage manager
@@ -102,6 +105,7 @@ public class BufferServiceImpl implements BufferService, Serializable {
                 fsm.setStorageDirectory(bufferDir.getCanonicalPath());
                 fsm.setMaxOpenFiles(maxOpenFiles);
                 fsm.setMaxBufferSpace(maxBufferSpace*MB);
+                fsm.setMemoryMapped(memoryMappedStorage);
                 SplittableStorageManager ssm = new SplittableStorageManager(fsm);
                 ssm.setMaxFileSize(maxFileSize);
                 StorageManager sm = ssm;
@@ -112,6 +116,7 @@ public class BufferServiceImpl implements BufferService, Serializable {
                 fsc.setBufferManager(this.bufferMgr);
                 fsc.setMaxStorageObjectSize(maxStorageObjectSize);
                 fsc.setDirect(memoryBufferOffHeap);
+                fsc.setShardedEvictionQueue(shardedEvictionQueue);
                 //use approximately 40% of what's set aside for the reserved accounting for conversion from kb to bytes
                 long autoMaxBufferSpace = 4*(((long)this.bufferMgr.getMaxReserveKB())<<10)/10; 
                 //estimate inode/batch overhead
@@ -321,4 +326,20 @@ public class BufferServiceImpl implements BufferService, Serializable {
     public void setEncryptFiles(boolean encryptFiles) {
 		this.encryptFiles = encryptFiles;
 	}
+    
+    public boolean isShardedEvictionQueue() {
+		return shardedEvictionQueue;
+	}
+    
+    public void setShardedEvictionQueue(boolean shardedEvictionQueue) {
+		this.shardedEvictionQueue = shardedEvictionQueue;
+	}
+    
+    public boolean isMemoryMappedStorage() {
+		return memoryMappedStorage;
+	}
+    
+    public void setMemoryMappedStorage(boolean memoryMappedStorage) {
+		this.memoryMappedStorage = memoryMappedStorage;
+	}
 }
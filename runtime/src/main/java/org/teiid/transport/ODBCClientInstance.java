@@ -99,7 +99,8 @@ public class ODBCClientInstance implements ChannelListener{
         if (msg instanceof PGRequest) {
         	PGRequest request = (PGRequest)msg;
         	synchronized (server) {
-        		if (server.isExecuting()) {
+        		//copy data is expected while the copy statement is still executing
+        		if (server.isExecuting() && !request.struct.methodName.startsWith("copy")) { //$NON-NLS-1$
         			//queue until done
         			messageQueue.add(request);
         			return;
@@ -38,12 +38,13 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.nio.ByteOrder;
 import java.nio.charset.Charset;
+import java.math.BigDecimal;
 import java.security.GeneralSecurityException;
 import java.sql.Array;
 import java.sql.Blob;
-import java.sql.Date;
-import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Date;
 import java.util.List;
 import java.util.Properties;
 
@@ -65,6 +66,7 @@ import org.teiid.logging.LogManager;
 import org.teiid.logging.MessageLevel;
 import org.teiid.net.socket.ServiceInvocationStruct;
 import org.teiid.odbc.ODBCClientRemote;
+import org.teiid.odbc.PGUtil.CopyOptions;
 import org.teiid.odbc.PGUtil.PgColInfo;
 import org.teiid.query.function.GeometryUtils;
 import org.teiid.runtime.RuntimePlugin;
@@ -81,6 +83,8 @@ public class PgBackendProtocol extends ChannelOutboundHandlerAdapter implements
     public static final String DEFAULT_APPLICATION_NAME = "ODBC"; //$NON-NLS-1$
 
 	public static final String SSL_HANDLER_KEY = "sslHandler";
+	
+	private static final byte[] COPY_BINARY_SIGNATURE = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte)0xff, '\r', '\n', 0};
 
     private final class SSLEnabler implements ChannelFutureListener {
     	
@@ -104,6 +108,7 @@ public class PgBackendProtocol extends ChannelOutboundHandlerAdapter implements
 		private final ResultSetImpl rs;
 		private final ResultsFuture<Integer> result;
 		private final short[] resultColumnFormat;
+		private CopyOptions copyOptions;
 		private int rows2Send;
 		private int rowsSent = 0;
 		private int rowsInBuffer = 0;
@@ -152,12 +157,16 @@ public class PgBackendProtocol extends ChannelOutboundHandlerAdapter implements
 			boolean processNext = true;
 			try {
     			if (future.get()) {
-    				sendDataRow(rs, cols, resultColumnFormat);
+    				if (copyOptions != null) {
+    					sendCopyData(rs, cols, copyOptions);
+    				} else {
+    					sendDataRow(rs, cols, resultColumnFormat);
+    				}
     				rowsSent++;
     				rowsInBuffer++;
     				boolean done = rowsSent == rows2Send;
-    				flushResults(done);
-    				processNext = !done;
+    				boolean paused = flushResults(done);
+    				processNext = !done && !paused;
     				if (done) {
     					if (sql != null) {
     						sendCommandComplete(sql, rowsSent);
@@ -165,6 +174,9 @@ public class PgBackendProtocol extends ChannelOutboundHandlerAdapter implements
     					result.getResultsReceiver().receiveResults(rowsSent);
     				}
     			} else {
+    				if (copyOptions != null) {
+    					sendCopyDone(copyOptions);
+    				}
     				sendContents();
     				if (sql != null) {
 		    			sendCommandComplete(sql, rowsSent);
@@ -179,13 +191,31 @@ public class PgBackendProtocol extends ChannelOutboundHandlerAdapter implements
 			return processNext;
 		}
 		
-		private void flushResults(boolean force) {
+		/**
+		 * @return true if processing should wait for the pending write 
+		 */
+		private boolean flushResults(boolean force) {
 			int avgRowsize = dataOut.writerIndex()/rowsInBuffer;
 			if (force || (maxBufferSize - dataOut.writerIndex()) < (avgRowsize*2)) {
-				sendContents();
+				ChannelFuture writeFuture = sendContents();
 				initBuffer(maxBufferSize / 8);
 				rowsInBuffer = 0;
-			}			
+				if (!force && !ctx.channel().isWritable()) {
+					//don't buffer more than the channel can accept, resume once the write completes
+					writeFuture.addListener(new ChannelFutureListener() {
+						@Override
+						public void operationComplete(ChannelFuture f) throws Exception {
+							if (f.isSuccess()) {
+								ResultsWorkItem.this.run();
+							} else {
+								result.getResultsReceiver().exceptionOccurred(f.cause());
+							}
+						}
+					});
+					return true;
+				}
+			}
+			return false;
 		}
 	}
 
@@ -397,6 +427,55 @@ public class PgBackendProtocol extends ChannelOutboundHandlerAdapter implements
 		}
 	}
 
+	@Override
+	public void sendCopyOut(ResultSetImpl rs, List<PgColInfo> cols,
+			CopyOptions options, ResultsFuture<Integer> result) {
+		if (nextFuture != null) {
+			sendErrorResponse(new IllegalStateException("Pending results have not been sent")); //$NON-NLS-1$
+		}
+		if (options.binary) {
+			for (PgColInfo col : cols) {
+				if (!isBinary(col.type)) {
+					result.getResultsReceiver().exceptionOccurred(new TeiidSQLException(RuntimePlugin.Util.gs(RuntimePlugin.Event.TEIID40169, col.name, col.type)));
+					return;
+				}
+			}
+		}
+		startMessage('H');
+		write(options.binary?1:0);
+		writeShort(cols.size());
+		for (int i = 0; i < cols.size(); i++) {
+			writeShort(options.binary?1:0);
+		}
+		sendMessage();
+		ResultsWorkItem r = new ResultsWorkItem(cols, rs, result, -1, null);
+		r.sql = "COPY";
+		r.copyOptions = options;
+		try {
+			sendCopyHeader(cols, options);
+		} catch (IOException e) {
+			result.getResultsReceiver().exceptionOccurred(e);
+			return;
+		}
+		r.run();
+	}
+	
+	@Override
+	public void sendCopyInResponse(int columnCount, boolean binary) {
+		startMessage('G');
+		write(binary?1:0);
+		writeShort(columnCount);
+		for (int i = 0; i < columnCount; i++) {
+			writeShort(binary?1:0);
+		}
+		sendMessage();
+	}
+	
+	@Override
+	public void setReadingEnabled(boolean enabled) {
+		this.ctx.channel().config().setAutoRead(enabled);
+	}
+
 	@Override
 	public void sendUpdateCount(String sql, int updateCount) {
 		sendCommandComplete(sql, updateCount);
@@ -469,60 +548,205 @@ public class PgBackendProtocol extends ChannelOutboundHandlerAdapter implements
 		return tag;
 	}
 
-	private void sendDataRow(ResultSet rs, List<PgColInfo> cols, short[] resultColumnFormat) throws SQLException, IOException {
+	/**
+	 * Encode the current row directly from the batch values.  A null is detected from the raw 
+	 * row value, so the per cell getter and wasNull calls are only needed for the types that 
+	 * require a conversion (lobs and the temporal types). 
+	 */
+	private void sendDataRow(ResultSetImpl rs, List<PgColInfo> cols, short[] resultColumnFormat) throws SQLException, IOException {
 		startMessage('D', -1);
 		int lengthIndex = this.dataOut.writerIndex() - 4;
 		writeShort(cols.size());
+		List<?> row = rs.getCurrentRecord();
 		for (int i = 0; i < cols.size(); i++) {
 			int dataBytesIndex = this.dataOut.writerIndex();
 			writeInt(-1);
+			Object value = row.get(i);
+			if (value == null) {
+				continue;
+			}
 			if (!isBinary(cols.get(i).type)
 			        || (resultColumnFormat==null || (resultColumnFormat.length==1?resultColumnFormat[0]==0:resultColumnFormat[i]==0))) {
-	            getContent(rs, cols.get(i), i+1);
+	            getContent(rs, cols.get(i), i+1, value, writer);
 			} else {
-                getBinaryContent(rs, cols.get(i), i+1);
+                getBinaryContent(rs, cols.get(i), i+1, value);
 			}
 			writer.flush();
-			if (!rs.wasNull()) {
-				int bytes = this.dataOut.writerIndex() - dataBytesIndex - 4;
-				this.dataOut.setInt(dataBytesIndex, bytes);
+			int bytes = this.dataOut.writerIndex() - dataBytesIndex - 4;
+			this.dataOut.setInt(dataBytesIndex, bytes);
+		}
+		this.dataOut.setInt(lengthIndex, this.dataOut.writerIndex() - lengthIndex);
+	}
+	
+	private void sendCopyHeader(List<PgColInfo> cols, CopyOptions options) throws IOException {
+		if (!options.binary && !options.header) {
+			return;
+		}
+		startMessage('d', -1);
+		int lengthIndex = this.dataOut.writerIndex() - 4;
+		if (options.binary) {
+			write(COPY_BINARY_SIGNATURE);
+			//flags and the header extension length
+			writeInt(0);
+			writeInt(0);
+		} else {
+			Writer escaped = options.csv?new CsvValueWriter(options):new TextValueWriter(options.delimiter);
+			for (int i = 0; i < cols.size(); i++) {
+				if (i > 0) {
+					writer.write(options.delimiter);
+				}
+				if (options.csv) {
+					writer.write(options.quote);
+				}
+				escaped.write(cols.get(i).name);
+				if (options.csv) {
+					writer.write(options.quote);
+				}
+			}
+			writer.write('\n');
+			writer.flush();
+		}
+		this.dataOut.setInt(lengthIndex, this.dataOut.writerIndex() - lengthIndex);
+	}
+	
+	/**
+	 * Write the current row as a CopyData message.  Values are written using the 
+	 * text and binary DataRow forms, with text values escaped for the copy format.
+	 */
+	private void sendCopyData(ResultSetImpl rs, List<PgColInfo> cols, CopyOptions options) throws SQLException, IOException {
+		startMessage('d', -1);
+		int lengthIndex = this.dataOut.writerIndex() - 4;
+		List<?> row = rs.getCurrentRecord();
+		if (options.binary) {
+			writeShort(cols.size());
+			for (int i = 0; i < cols.size(); i++) {
+				int dataBytesIndex = this.dataOut.writerIndex();
+				writeInt(-1);
+				Object value = row.get(i);
+				if (value == null) {
+					continue;
+				}
+				getBinaryContent(rs, cols.get(i), i+1, value);
+				writer.flush();
+				this.dataOut.setInt(dataBytesIndex, this.dataOut.writerIndex() - dataBytesIndex - 4);
+			}
+		} else {
+			Writer escaped = options.csv?new CsvValueWriter(options):new TextValueWriter(options.delimiter);
+			for (int i = 0; i < cols.size(); i++) {
+				if (i > 0) {
+					writer.write(options.delimiter);
+				}
+				Object value = row.get(i);
+				if (value == null) {
+					writer.write(options.nullString);
+					continue;
+				}
+				if (options.csv) {
+					//always quote so that empty strings are distinguished from null 
+					writer.write(options.quote);
+					getContent(rs, cols.get(i), i+1, value, escaped);
+					writer.write(options.quote);
+				} else {
+					getContent(rs, cols.get(i), i+1, value, escaped);
+				}
 			}
+			writer.write('\n');
 		}
+		writer.flush();
 		this.dataOut.setInt(lengthIndex, this.dataOut.writerIndex() - lengthIndex);
 	}
 	
-    private void getBinaryContent(ResultSet rs, PgColInfo col, int column) throws SQLException, TeiidSQLException, IOException {
+	private void sendCopyDone(CopyOptions options) {
+		if (options.binary) {
+			//file trailer
+			startMessage('d', -1);
+			int lengthIndex = this.dataOut.writerIndex() - 4;
+			writeShort(-1);
+			this.dataOut.setInt(lengthIndex, this.dataOut.writerIndex() - lengthIndex);
+		}
+		startMessage('c', -1);
+		this.dataOut.setInt(this.dataOut.writerIndex() - 4, 4);
+	}
+	
+	/**
+	 * Escapes text copy values as they are written
+	 */
+	private final class TextValueWriter extends Writer {
+		private char delimiter;
+		
+		private TextValueWriter(char delimiter) {
+			this.delimiter = delimiter;
+		}
+
+		@Override
+		public void write(char[] cbuf, int off, int len) throws IOException {
+			for (int i = off; i < off + len; i++) {
+				char c = cbuf[i];
+				switch (c) {
+				case '\\':
+					writer.write("\\\\");
+					break;
+				case '\n':
+					writer.write("\\n");
+					break;
+				case '\r':
+					writer.write("\\r");
+					break;
+				case '\t':
+					writer.write("\\t");
+					break;
+				default:
+					if (c == delimiter) {
+						writer.write('\\');
+					}
+					writer.write(c);
+				}
+			}
+		}
+		
+		@Override
+		public void flush() throws IOException {
+			writer.flush();
+		}
+		
+		@Override
+		public void close() throws IOException {
+		}
+	}
+	
+	/**
+	 * Escapes quoted csv copy values as they are written
+	 */
+	private final class CsvValueWriter extends Writer {
+		private CopyOptions options;
+		
+		private CsvValueWriter(CopyOptions options) {
+			this.options = options;
+		}
+
+		@Override
+		public void write(char[] cbuf, int off, int len) throws IOException {
+			for (int i = off; i < off + len; i++) {
+				char c = cbuf[i];
+				if (c == options.quote || c == options.escape) {
+					writer.write(options.escape);
+				}
+				writer.write(c);
+			}
+		}
+		
+		@Override
+		public void flush() throws IOException {
+			writer.flush();
+		}
+		
+		@Override
+		public void close() throws IOException {
+		}
+	}
+	
+    private void getBinaryContent(ResultSetImpl rs, PgColInfo col, int column, Object value) throws SQLException, TeiidSQLException, IOException {
 	    switch (col.type) {
-	    case PG_TYPE_INT2:
-	        short sval = rs.getShort(column);
-	        if (!rs.wasNull()) {
-	            dataOut.writeShort(sval);
-	        }
-	        break;
-        case PG_TYPE_INT4:
-            int ival = rs.getInt(column);
-            if (!rs.wasNull()) {
-                dataOut.writeInt(ival);
-            }
-            break;
-        case PG_TYPE_INT8:
-            long lval = rs.getLong(column);
-            if (!rs.wasNull()) {
-                dataOut.writeLong(lval);
-            }
-            break;
-        case PG_TYPE_FLOAT4:
-            float fval = rs.getFloat(column);
-            if (!rs.wasNull()) {
-                dataOut.writeInt(Float.floatToIntBits(fval));
-            }
-            break;
-        case PG_TYPE_FLOAT8:
-            double dval = rs.getDouble(column);
-            if (!rs.wasNull()) {
-                dataOut.writeLong(Double.doubleToLongBits(dval));
-            }
-            break;
 	    case PG_TYPE_BYTEA:
 	        Blob blob = rs.getBlob(column);
             if (blob != null) {
@@ -534,43 +758,229 @@ public class PgBackendProtocol extends ChannelOutboundHandlerAdapter implements
                 }
             }
             break;
+	    case PG_TYPE_XML:
+	    case PG_TYPE_TEXT:
+	    	//the binary form of text is the same as the text form
+	    	getContent(rs, col, column, value, writer);
+	    	break;
 	    case PG_TYPE_DATE:
-	        Date d = rs.getDate(column);
-	        if (d != null) {
-	            long millis = d.getTime();
-	            millis += TimestampWithTimezone.getCalendar().getTimeZone().getOffset(millis);
-	            long secs = TimestampUtils.toPgSecs(millis / 1000);
-	            dataOut.writeInt((int) (secs / 86400));
-	        }
-	        break;
+	    	writeBinaryValue(rs.getDate(column), PG_TYPE_DATE);
+	    	break;
+	    case PG_TYPE_TIME:
+	    	writeBinaryValue(rs.getTime(column), PG_TYPE_TIME);
+	    	break;
+	    case PG_TYPE_TIMESTAMP_NO_TMZONE:
+	    	writeBinaryValue(rs.getTimestamp(column), PG_TYPE_TIMESTAMP_NO_TMZONE);
+	    	break;
 	    default:
-	        throw new AssertionError();
+	    	int elementType = getArrayElementType(col.type);
+	    	if (elementType == 0) {
+	    		writeBinaryValue(value, col.type);
+	    		break;
+	    	}
+	    	Object array = rs.getArray(column).getArray();
+	    	int length = java.lang.reflect.Array.getLength(array);
+	    	boolean hasNull = false;
+	    	for (int i = 0; i < length && !hasNull; i++) {
+	    		hasNull = java.lang.reflect.Array.get(array, i) == null;
+	    	}
+	    	//dimensions, has null flag, element type
+	    	dataOut.writeInt(1);
+	    	dataOut.writeInt(hasNull?1:0);
+	    	dataOut.writeInt(elementType);
+	    	//size and lower bound of the dimension
+	    	dataOut.writeInt(length);
+	    	dataOut.writeInt(1);
+	    	for (int i = 0; i < length; i++) {
+	    		Object o = java.lang.reflect.Array.get(array, i);
+	    		int dataBytesIndex = this.dataOut.writerIndex();
+	    		dataOut.writeInt(-1);
+	    		if (o == null) {
+	    			continue;
+	    		}
+	    		writeBinaryValue(o, elementType);
+	    		writer.flush();
+	    		this.dataOut.setInt(dataBytesIndex, this.dataOut.writerIndex() - dataBytesIndex - 4);
+	    	}
+	    	break;
 	    }
 	}
+    
+    /**
+     * Write the binary form of a non-null scalar value.  Since integer_datetimes is off, 
+     * times and timestamps are sent as float8 seconds. 
+     */
+    private void writeBinaryValue(Object value, int type) throws IOException {
+    	writeBinaryValue(value, type, this.dataOut, this.writer);
+    }
+    
+    static void writeBinaryValue(Object value, int type, ByteBuf out, Writer writer) throws IOException {
+    	switch (type) {
+    	case PG_TYPE_BOOL:
+    		out.writeByte(((Boolean)value)?1:0);
+    		break;
+    	case PG_TYPE_INT2:
+    		out.writeShort(((Number)value).shortValue());
+    		break;
+    	case PG_TYPE_INT4:
+    	case PG_TYPE_OID:
+    		out.writeInt(((Number)value).intValue());
+    		break;
+    	case PG_TYPE_INT8:
+    		out.writeLong(((Number)value).longValue());
+    		break;
+    	case PG_TYPE_FLOAT4:
+    		out.writeInt(Float.floatToIntBits(((Number)value).floatValue()));
+    		break;
+    	case PG_TYPE_FLOAT8:
+    		out.writeLong(Double.doubleToLongBits(((Number)value).doubleValue()));
+    		break;
+    	case PG_TYPE_NUMERIC:
+    		writeNumeric(value instanceof BigDecimal?(BigDecimal)value:new BigDecimal(value.toString()), out);
+    		break;
+    	case PG_TYPE_DATE:
+    	{
+    		long millis = ((Date)value).getTime();
+    		millis += TimestampWithTimezone.getCalendar().getTimeZone().getOffset(millis);
+    		long secs = TimestampUtils.toPgSecs(millis / 1000);
+    		out.writeInt((int) (secs / 86400));
+    		break;
+    	}
+    	case PG_TYPE_TIME:
+    	{
+    		long millis = ((Date)value).getTime();
+    		millis += TimestampWithTimezone.getCalendar().getTimeZone().getOffset(millis);
+    		out.writeLong(Double.doubleToLongBits(Math.floorMod(millis, 86400000L) / 1000d));
+    		break;
+    	}
+    	case PG_TYPE_TIMESTAMP_NO_TMZONE:
+    	{
+    		Timestamp ts = (Timestamp)value;
+    		long millis = ts.getTime();
+    		millis += TimestampWithTimezone.getCalendar().getTimeZone().getOffset(millis);
+    		long secs = TimestampUtils.toPgSecs(Math.floorDiv(millis, 1000L));
+    		out.writeLong(Double.doubleToLongBits(secs + ts.getNanos() / 1000000000d));
+    		break;
+    	}
+    	default:
+    		//character data, the binary form is just the encoded string
+    		writer.write(value.toString());
+    		break;
+    	}
+    }
+    
+    /**
+     * Write the pg numeric form - the number of base 10000 digits, the weight of the first digit, 
+     * the sign, the display scale and then the digits.
+     */
+    static void writeNumeric(BigDecimal value, ByteBuf out) {
+    	int sign = value.signum() < 0?NUMERIC_NEG:NUMERIC_POS;
+    	value = value.abs();
+    	if (value.scale() < 0) {
+    		value = value.setScale(0);
+    	}
+    	int scale = value.scale();
+    	String unscaled = value.unscaledValue().toString();
+    	int intDigits = unscaled.length() - scale;
+    	StringBuilder digits = new StringBuilder();
+    	//left pad the integer part and right pad the fractional part to whole base 10000 digits
+    	int intLength = intDigits > 0?intDigits:0;
+    	for (int i = (4 - intLength % 4) % 4; i > 0; i--) {
+    		digits.append('0');
+    	}
+    	if (intDigits > 0) {
+    		digits.append(unscaled, 0, intDigits);
+    	}
+    	int weight = digits.length() / 4 - 1;
+    	for (int i = intDigits; i < 0; i++) {
+    		digits.append('0');
+    	}
+    	digits.append(unscaled, intLength, unscaled.length());
+    	while (digits.length() % 4 != 0) {
+    		digits.append('0');
+    	}
+    	int start = 0;
+    	int end = digits.length();
+    	while (start < end && digits.substring(start, start + 4).equals("0000")) {
+    		start += 4;
+    		weight--;
+    	}
+    	while (end > start && digits.substring(end - 4, end).equals("0000")) {
+    		end -= 4;
+    	}
+    	if (start == end) {
+    		weight = 0;
+    	}
+    	out.writeShort((end - start) / 4);
+    	out.writeShort(weight);
+    	out.writeShort(sign);
+    	out.writeShort(scale);
+    	for (int i = start; i < end; i += 4) {
+    		out.writeShort(Integer.parseInt(digits.substring(i, i + 4)));
+    	}
+    }
+    
+    /**
+     * @return the element type of an array type that can be sent in binary form, or 0 
+     */
+    static int getArrayElementType(int oid) {
+    	switch (oid) {
+    	case PG_TYPE_BOOLARRAY:
+    		return PG_TYPE_BOOL;
+    	case PG_TYPE_INT2ARRAY:
+    		return PG_TYPE_INT2;
+    	case PG_TYPE_INT4ARRAY:
+    		return PG_TYPE_INT4;
+    	case PG_TYPE_OIDARRAY:
+    		return PG_TYPE_OID;
+    	case PG_TYPE_INT8ARRAY:
+    		return PG_TYPE_INT8;
+    	case PG_TYPE_FLOAT4ARRAY:
+    		return PG_TYPE_FLOAT4;
+    	case PG_TYPE_FLOAT8ARRAY:
+    		return PG_TYPE_FLOAT8;
+    	case PG_TYPE_NUMERICARRAY:
+    		return PG_TYPE_NUMERIC;
+    	case PG_TYPE_DATEARRAY:
+    		return PG_TYPE_DATE;
+    	case PG_TYPE_TIMEARRAY:
+    		return PG_TYPE_TIME;
+    	case PG_TYPE_TIMESTAMP_NO_TMZONEARRAY:
+    		return PG_TYPE_TIMESTAMP_NO_TMZONE;
+    	case PG_TYPE_TEXTARRAY:
+    		return PG_TYPE_TEXT;
+    	}
+    	return 0;
+    }
 	
-	private void getContent(ResultSet rs, PgColInfo col, int column) throws SQLException, TeiidSQLException, IOException {
+	private void getContent(ResultSetImpl rs, PgColInfo col, int column, Object value, Writer writer) throws SQLException, TeiidSQLException, IOException {
 		switch (col.type) {
+		    case PG_TYPE_BPCHAR:
+		    case PG_TYPE_INT2:
+		    case PG_TYPE_INT4:
+		    case PG_TYPE_INT8:
+		    case PG_TYPE_VARCHAR:
+		    	if (value instanceof String || value instanceof Number || value instanceof Character) {
+		    		writer.write(value.toString());
+		    		break;
+		    	}
+		    	//fall through for any other value type
 			case PG_TYPE_BOOL:
-			case PG_TYPE_BPCHAR:
 		    case PG_TYPE_DATE:
 		    case PG_TYPE_FLOAT4:
 		    case PG_TYPE_FLOAT8:
-		    case PG_TYPE_INT2:
-		    case PG_TYPE_INT4:
-		    case PG_TYPE_INT8:
 		    case PG_TYPE_NUMERIC:
 		    case PG_TYPE_TIME:
 		    case PG_TYPE_TIMESTAMP_NO_TMZONE:
-		    case PG_TYPE_VARCHAR:
-		    	String value = rs.getString(column);
-		    	if (value != null) {
-			    	writer.write(value);
+		    	String string = rs.getString(column);
+		    	if (string != null) {
+			    	writer.write(string);
 		    	}
 		    	break;
 		    case PG_TYPE_GEOMETRY:
 		        Object val = rs.getObject(column);
 		        if (val != null) {
-	                Blob blob = GeometryUtils.geometryToEwkb((GeometryType)rs.unwrap(ResultSetImpl.class).getRawCurrentValue());
+	                Blob blob = GeometryUtils.geometryToEwkb((GeometryType)rs.getRawCurrentValue());
                     String hexewkb = PropertiesUtils.toHex(blob.getBytes(1, (int) blob.length()));
                     writer.write(hexewkb);
 		        }
@@ -745,9 +1155,17 @@ public class PgBackendProtocol extends ChannelOutboundHandlerAdapter implements
 	    case PG_TYPE_FLOAT8:
 	    case PG_TYPE_BYTEA:
 	    case PG_TYPE_DATE:
+	    case PG_TYPE_TIME:
+	    case PG_TYPE_TIMESTAMP_NO_TMZONE:
+	    case PG_TYPE_BOOL:
+	    case PG_TYPE_NUMERIC:
+	    case PG_TYPE_VARCHAR:
+	    case PG_TYPE_BPCHAR:
+	    case PG_TYPE_TEXT:
+	    case PG_TYPE_XML:
 	        return true;
 	    }
-	    return false;
+	    return getArrayElementType(oid) != 0;
 	}
 	
 	private void sendRowDescription(List<PgColInfo> cols, short[] resultColumnFormat) {
@@ -949,11 +1367,11 @@ public class PgBackendProtocol extends ChannelOutboundHandlerAdapter implements
 		sendContents();
 	}
 	
-	private void sendContents() {
+	private ChannelFuture sendContents() {
 		ByteBuf cb = this.dataOut;
 		this.dataOut = null;
 		this.writer = null;
-		this.ctx.writeAndFlush(cb);
+		return this.ctx.writeAndFlush(cb);
 	}
 
 	private static void trace(String... msg) {
@@ -167,6 +167,12 @@ public class PgFrontendProtocol extends ByteToMessageDecoder {
         	return buildFlush();
         case 'F':
         	return buildFunctionCall(data);        	               	
+        case 'd':
+        	return buildCopyData(data);
+        case 'c':
+        	return buildCopyDone();
+        case 'f':
+        	return buildCopyFail(data);
         default:
         	return buildError();
         }
@@ -177,6 +183,21 @@ public class PgFrontendProtocol extends ByteToMessageDecoder {
 		return message;
 	}
 
+	private Object buildCopyData(NullTerminatedStringDataInputStream data) {
+		this.odbcProxy.copyData(data.readServiceToken(), this.pgBackendProtocol.getEncoding());
+		return message;
+	}
+	
+	private Object buildCopyDone() {
+		this.odbcProxy.copyDone();
+		return message;
+	}
+	
+	private Object buildCopyFail(NullTerminatedStringDataInputStream data) throws IOException {
+		this.odbcProxy.copyFail(data.readString());
+		return message;
+	}
+
 	private Object buildFlush() {
 		this.odbcProxy.flush();
 		return message;
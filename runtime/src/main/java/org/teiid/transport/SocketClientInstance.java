@@ -20,10 +20,15 @@ package org.teiid.transport;
 
 import java.io.IOException;
 import java.io.Serializable;
+import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.net.SocketException;
 import java.nio.channels.ClosedChannelException;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
 
 import org.teiid.client.security.ILogon;
 import org.teiid.client.util.ExceptionHolder;
@@ -41,6 +46,7 @@ import org.teiid.logging.MessageLevel;
 import org.teiid.net.CommunicationException;
 import org.teiid.net.socket.Handshake;
 import org.teiid.net.socket.Message;
+import org.teiid.net.socket.MultiplexedMessage;
 import org.teiid.net.socket.ObjectChannel;
 import org.teiid.runtime.RuntimePlugin;
 import org.teiid.transport.ObjectEncoder.FailedWriteException;
@@ -56,15 +62,70 @@ import org.teiid.transport.ObjectEncoder.FailedWriteException;
  */
 public class SocketClientInstance implements ChannelListener, ClientInstance {
 	
+	/**
+	 * A logical channel multiplexed over the physical channel
+	 */
+	private class LogicalObjectChannel implements ObjectChannel {
+		private final int id;
+		private volatile boolean open = true;
+		
+		public LogicalObjectChannel(int id) {
+			this.id = id;
+		}
+		
+		@Override
+		public Future<?> write(Object msg) {
+			return objectSocket.write(new MultiplexedMessage(id, MultiplexedMessage.DATA, msg));
+		}
+		
+		@Override
+		public void close() {
+			if (!open) {
+				return;
+			}
+			open = false;
+			SocketClientInstance instance = channels.remove(id);
+			if (objectSocket.isOpen()) {
+				objectSocket.write(new MultiplexedMessage(id, MultiplexedMessage.CLOSE, null));
+			}
+			if (instance != null) {
+				instance.disconnected();
+			}
+		}
+		
+		@Override
+		public boolean isOpen() {
+			return open && objectSocket.isOpen();
+		}
+		
+		@Override
+		public SocketAddress getRemoteAddress() {
+			return objectSocket.getRemoteAddress();
+		}
+		
+		@Override
+		public InetAddress getLocalAddress() {
+			return objectSocket.getLocalAddress();
+		}
+		
+		@Override
+		public Object read() throws IOException, ClassNotFoundException {
+			throw new UnsupportedOperationException();
+		}
+	}
+	
 	private final ObjectChannel objectSocket;
     private Cryptor cryptor;
     private ClientServiceRegistryImpl csr;
     private boolean usingEncryption; 
     private DhKeyGenerator keyGen;
     private DQPWorkContext workContext = new DQPWorkContext().local(false);
+    private boolean logical;
+    private Map<Integer, SocketClientInstance> channels = new ConcurrentHashMap<Integer, SocketClientInstance>();
         
     public SocketClientInstance(ObjectChannel objectSocket, ClientServiceRegistryImpl csr, boolean isClientEncryptionEnabled) {
         this.objectSocket = objectSocket;
+        this.logical = objectSocket instanceof LogicalObjectChannel;
         this.csr = csr;
         this.workContext.setSecurityHelper(csr.getSecurityHelper());
         this.usingEncryption = isClientEncryptionEnabled;
@@ -92,6 +153,15 @@ public class SocketClientInstance implements ChannelListener, ClientInstance {
     }
 
 	public void exceptionOccurred(Throwable t) {
+		if (t instanceof FailedWriteException && ((FailedWriteException)t).getObject() instanceof MultiplexedMessage) {
+			//route the failure to the logical channel
+			MultiplexedMessage m = (MultiplexedMessage)((FailedWriteException)t).getObject();
+			SocketClientInstance instance = channels.get(m.getChannelId());
+			if (instance != null) {
+				instance.exceptionOccurred(new FailedWriteException(m.getContents(), t.getCause()));
+				return;
+			}
+		}
 		//Object encoding may fail, so send a specific type of message to indicate there was a problem
 		if (objectSocket.isOpen() && !isClosedException(t)) {
 			if (workContext.getClientVersion().compareTo(Version.EIGHT_4) >= 0 && t instanceof FailedWriteException) {
@@ -149,6 +219,8 @@ public class SocketClientInstance implements ChannelListener, ClientInstance {
 	public void onConnection() throws CommunicationException {
         Handshake handshake = new Handshake();
         handshake.setAuthType(csr.getAuthenticationType());
+        handshake.setCompressBatches(true);
+        handshake.setMultiplex(!logical);
         if (usingEncryption) {
             keyGen = new DhKeyGenerator();
             byte[] publicKey;
@@ -169,6 +241,9 @@ public class SocketClientInstance implements ChannelListener, ClientInstance {
 	
 	@Override
 	public void disconnected() {
+		for (SocketClientInstance instance : new ArrayList<SocketClientInstance>(channels.values())) {
+			instance.objectSocket.close();
+		}
 		if (workContext.getSessionId() != null) {
 			workContext.runInContext(new Runnable() {
 				@Override
@@ -186,6 +261,7 @@ public class SocketClientInstance implements ChannelListener, ClientInstance {
 	private void receivedHahdshake(Handshake handshake) throws CommunicationException {
 		String clientVersion = handshake.getVersion();
 		this.workContext.setClientVersion(Version.getVersion(clientVersion));
+		this.workContext.setCompressBatches(handshake.isCompressBatches());
 		if (usingEncryption) {
             byte[] returnedPublicKey = handshake.getPublicKey();
             byte[] returnedPublicKeyLarge = handshake.getPublicKeyLarge();
@@ -219,7 +295,47 @@ public class SocketClientInstance implements ChannelListener, ClientInstance {
             processMessagePacket((Message)msg);
         } else if (msg instanceof Handshake) {
         	receivedHahdshake((Handshake)msg);
-        } 
+        } else if (msg instanceof MultiplexedMessage && !logical) {
+        	receivedMultiplexedMessage((MultiplexedMessage)msg);
+        }
+	}
+
+	private void receivedMultiplexedMessage(MultiplexedMessage msg) {
+		int id = msg.getChannelId();
+		SocketClientInstance instance = null;
+		switch (msg.getType()) {
+		case MultiplexedMessage.OPEN:
+			instance = new SocketClientInstance(new LogicalObjectChannel(id), csr, usingEncryption);
+			if (channels.putIfAbsent(id, instance) != null) {
+				return;
+			}
+			try {
+				instance.onConnection();
+			} catch (CommunicationException e) {
+				instance.exceptionOccurred(e);
+			}
+			break;
+		case MultiplexedMessage.CLOSE:
+			instance = channels.get(id);
+			if (instance != null) {
+				instance.objectSocket.close();
+			}
+			break;
+		default:
+			instance = channels.get(id);
+			if (instance == null) {
+				if (LogManager.isMessageToBeRecorded(LogConstants.CTX_TRANSPORT, MessageLevel.DETAIL)) { 
+					LogManager.logDetail(LogConstants.CTX_TRANSPORT, "ignoring message for closed channel:" + msg); //$NON-NLS-1$
+				}
+				return;
+			}
+			try {
+				instance.receivedMessage(msg.getContents());
+			} catch (CommunicationException e) {
+				instance.exceptionOccurred(e);
+			}
+			break;
+		}
 	}
 
 	private void processMessagePacket(Message packet) {
@@ -8,6 +8,7 @@
 package org.teiid.transport.pg;
 
 import java.sql.Date;
+import java.sql.Timestamp;
 import java.util.TimeZone;
 
 /**
@@ -42,6 +43,27 @@ public class TimestampUtils {
         return new Date(millis - offset);
     }
 
+    /**
+     * Returns the SQL Timestamp object matching the given float8 seconds
+     * from the postgresql epoch.
+     * 
+     * @param tz The timezone used.
+     * @param time The binary encoded timestamp value.
+     * @return The parsed timestamp object.
+     */
+    public static Timestamp toTimestamp(TimeZone tz, double time) {
+        long secs = (long) Math.floor(time);
+        long micros = Math.round((time - secs) * 1000000);
+        if (micros == 1000000) {
+            secs++;
+            micros = 0;
+        }
+        long millis = toJavaSecs(secs) * 1000L;
+        Timestamp ts = new Timestamp(millis - tz.getOffset(millis));
+        ts.setNanos((int) micros * 1000);
+        return ts;
+    }
+
     /**
      * Converts the given postgresql seconds to java seconds.
      * Reverse engineered by inserting varying dates to postgresql
@@ -0,0 +1,129 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.teiid.odbc;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.teiid.odbc.PGUtil.CopyOptions;
+import org.teiid.odbc.PGUtil.PgColInfo;
+
+@SuppressWarnings("nls")
+public class TestCopyDataReader {
+	
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	
+	private List<PgColInfo> getColumns(int... types) {
+		List<PgColInfo> cols = new ArrayList<PgColInfo>();
+		for (int type : types) {
+			PgColInfo col = new PgColInfo();
+			col.type = type;
+			cols.add(col);
+		}
+		return cols;
+	}
+	
+	@Test public void testText() throws Exception {
+		CopyDataReader reader = new CopyDataReader(CopyOptions.parse(null), getColumns(PGUtil.PG_TYPE_INT4, PGUtil.PG_TYPE_VARCHAR));
+		reader.addData("1\ta\\tb\n2\t".getBytes(UTF8), UTF8);
+		assertEquals(Arrays.asList("1", "a\tb"), reader.nextRow());
+		//partial row
+		assertNull(reader.nextRow());
+		reader.addData("\\N\n\\.\n".getBytes(UTF8), UTF8);
+		reader.end();
+		assertEquals(Arrays.asList("2", null), reader.nextRow());
+		assertNull(reader.nextRow());
+	}
+	
+	@Test public void testCsv() throws Exception {
+		CopyDataReader reader = new CopyDataReader(CopyOptions.parse("(FORMAT csv, HEADER)"), getColumns(PGUtil.PG_TYPE_INT4, PGUtil.PG_TYPE_VARCHAR));
+		reader.addData("x,y\n1,\"a\"\"\nb\"\n2,\"\"\n3,".getBytes(UTF8), UTF8);
+		assertEquals(Arrays.asList("1", "a\"\nb"), reader.nextRow());
+		assertEquals(Arrays.asList("2", ""), reader.nextRow());
+		assertNull(reader.nextRow());
+		reader.end();
+		assertEquals(Arrays.asList("3", null), reader.nextRow());
+		assertNull(reader.nextRow());
+	}
+	
+	@Test(expected=SQLException.class) public void testWrongColumnCount() throws Exception {
+		CopyDataReader reader = new CopyDataReader(CopyOptions.parse(null), getColumns(PGUtil.PG_TYPE_INT4, PGUtil.PG_TYPE_VARCHAR));
+		reader.addData("1\n".getBytes(UTF8), UTF8);
+		reader.nextRow();
+	}
+	
+	@Test public void testBinary() throws Exception {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		DataOutputStream dos = new DataOutputStream(baos);
+		dos.write(new byte[] {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte)0xff, '\r', '\n', 0});
+		dos.writeInt(0);
+		dos.writeInt(0);
+		dos.writeShort(3);
+		dos.writeInt(8);
+		dos.writeLong(-7);
+		dos.writeInt(-1);
+		//-12.5
+		dos.writeInt(12);
+		dos.writeShort(2);
+		dos.writeShort(0);
+		dos.writeShort(PGUtil.NUMERIC_NEG);
+		dos.writeShort(1);
+		dos.writeShort(12);
+		dos.writeShort(5000);
+		dos.writeShort(-1);
+		byte[] bytes = baos.toByteArray();
+		
+		CopyDataReader reader = new CopyDataReader(CopyOptions.parse("BINARY"), getColumns(PGUtil.PG_TYPE_INT8, PGUtil.PG_TYPE_VARCHAR, PGUtil.PG_TYPE_NUMERIC));
+		reader.addData(Arrays.copyOf(bytes, 30), UTF8);
+		assertNull(reader.nextRow());
+		reader.addData(Arrays.copyOfRange(bytes, 30, bytes.length), UTF8);
+		reader.end();
+		assertEquals(Arrays.asList(-7L, null, new BigDecimal("-12.5")), reader.nextRow());
+		assertNull(reader.nextRow());
+	}
+	
+	@Test public void testOptions() throws Exception {
+		CopyOptions options = CopyOptions.parse("WITH (FORMAT csv, HEADER false, NULL 'nil', QUOTE '''')");
+		assertTrue(options.csv);
+		assertFalse(options.header);
+		assertEquals("nil", options.nullString);
+		assertEquals(',', options.delimiter);
+		assertEquals('\'', options.escape);
+		
+		options = CopyOptions.parse("CSV HEADER DELIMITER AS E'\\t'");
+		assertTrue(options.header);
+		assertEquals('\t', options.delimiter);
+		assertEquals("", options.nullString);
+	}
+	
+	@Test(expected=SQLException.class) public void testInvalidOption() throws Exception {
+		CopyOptions.parse("(FORMAT xml)");
+	}
+
+}
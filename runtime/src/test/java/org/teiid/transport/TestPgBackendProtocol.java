@@ -0,0 +1,88 @@
+/*
+ * Copyright Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags and
+ * the COPYRIGHT.txt file distributed with this work.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.teiid.transport;
+
+import static org.junit.Assert.*;
+import static org.teiid.odbc.PGUtil.*;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+
+import org.junit.Test;
+
+@SuppressWarnings("nls")
+public class TestPgBackendProtocol {
+	
+	/**
+	 * Check the numeric header - digit count, weight, sign and display scale - 
+	 * followed by the base 10000 digits and that the value decodes back
+	 */
+	private void helpTestNumeric(String value, int... expected) throws Exception {
+		BigDecimal bd = new BigDecimal(value);
+		ByteBuf out = Unpooled.buffer();
+		PgBackendProtocol.writeNumeric(bd, out);
+		byte[] bytes = new byte[out.readableBytes()];
+		out.getBytes(0, bytes);
+		int[] actual = new int[bytes.length / 2];
+		for (int i = 0; i < actual.length; i++) {
+			actual[i] = out.readShort();
+		}
+		assertArrayEquals(expected, actual);
+		BigDecimal result = (BigDecimal)decodeBinary(bytes, PG_TYPE_NUMERIC, Charset.forName("UTF-8"));
+		assertEquals(0, bd.compareTo(result));
+	}
+	
+	@Test public void testNumericZero() throws Exception {
+		helpTestNumeric("0", 0, 0, NUMERIC_POS, 0);
+	}
+
+	@Test public void testNumericFraction() throws Exception {
+		helpTestNumeric("0.05", 1, -1, NUMERIC_POS, 2, 500);
+	}
+	
+	@Test public void testNumericBaseBoundary() throws Exception {
+		helpTestNumeric("10000", 1, 1, NUMERIC_POS, 0, 1);
+	}
+
+	@Test public void testNumericNegative() throws Exception {
+		helpTestNumeric("-12.5", 2, 0, NUMERIC_NEG, 1, 12, 5000);
+	}
+	
+	@Test public void testNumericLargeScale() throws Exception {
+		helpTestNumeric("1.000000000000000000001", 7, 0, NUMERIC_POS, 21, 1, 0, 0, 0, 0, 0, 1000);
+	}
+	
+	@Test public void testNumericNegativeScale() throws Exception {
+		helpTestNumeric("1E+5", 1, 1, NUMERIC_POS, 0, 10);
+	}
+	
+	@Test public void testBinaryBoolean() throws Exception {
+		ByteBuf out = Unpooled.buffer();
+		PgBackendProtocol.writeBinaryValue(Boolean.TRUE, PG_TYPE_BOOL, out, null);
+		PgBackendProtocol.writeBinaryValue(Boolean.FALSE, PG_TYPE_BOOL, out, null);
+		assertEquals(2, out.readableBytes());
+		assertEquals(1, out.readByte());
+		assertEquals(0, out.readByte());
+		assertEquals(Boolean.TRUE, decodeBinary(new byte[] {1}, PG_TYPE_BOOL, null));
+		assertEquals(Boolean.FALSE, decodeBinary(new byte[] {0}, PG_TYPE_BOOL, null));
+	}
+
+}
@@ -32,6 +32,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.After;
 import org.junit.Before;
@@ -40,6 +41,7 @@ import org.teiid.adminapi.Model.Type;
 import org.teiid.adminapi.impl.ModelMetaData;
 import org.teiid.adminapi.impl.VDBImportMetadata;
 import org.teiid.adminapi.impl.VDBMetaData;
+import org.teiid.client.util.ResultsFuture;
 import org.teiid.core.TeiidRuntimeException;
 import org.teiid.core.types.DataTypeManager;
 import org.teiid.core.util.UnitTestUtil;
@@ -689,4 +691,60 @@ public class TestMatViews {
         assertEquals("ax", rs.getString(1));
     }
 	
+    @Test
+    public void testIncrementalMatViewEvent() throws Exception {
+        ModelMetaData mmd2 = new ModelMetaData();
+        mmd2.setName("m");
+        mmd2.setModelType(Type.PHYSICAL);
+        mmd2.addSourceMapping("x", "x", null);
+        mmd2.addSourceMetadata("DDL", "CREATE foreign TABLE t (col string primary key, colx string); "
+                + "CREATE VIEW v1 (col1 string, col2 string, primary key (col1)) "
+                + "OPTIONS (MATERIALIZED true, \"teiid_rel:MATVIEW_INCREMENTAL\" true) AS select col, colx from t;");
+        
+        HardCodedExecutionFactory hcef = new HardCodedExecutionFactory() {
+            @Override
+            public boolean supportsCompareCriteriaEquals() {
+                return true;
+            }  
+        };
+        hcef.addData("SELECT t.col, t.colx FROM t", Arrays.asList(Arrays.asList("a", "ax")));
+        server.addTranslator("x", hcef);
+        
+        server.deployVDB("comp", mmd2);
+        
+        Connection c = server.getDriver().connect("jdbc:teiid:comp", null);
+        
+        Statement s = c.createStatement();
+        ResultSet rs = s.executeQuery("select count(*) from v1");
+        rs.next();
+        assertEquals(1, rs.getInt(1));
+        
+        //insert event
+        hcef.addData("SELECT t.col, t.colx FROM t WHERE t.col = 'b'", Arrays.asList(Arrays.asList("b", "bx")));
+        ResultsFuture<?> future = server.getEventDistributor().dataModification("comp", "1", "m", "t", null, new Object[] {"b", "bx"}, new String[] {"col", "colx"});
+        future.get(2, TimeUnit.SECONDS);
+        
+        rs = s.executeQuery("select col2 from v1 where col1 = 'b'");
+        assertTrue(rs.next());
+        assertEquals("bx", rs.getString(1));
+        
+        //update event
+        hcef.addData("SELECT t.col, t.colx FROM t WHERE t.col = 'a'", Arrays.asList(Arrays.asList("a", "ay")));
+        future = server.getEventDistributor().dataModification("comp", "1", "m", "t", new Object[] {"a", "ax"}, new Object[] {"a", "ay"}, new String[] {"col", "colx"});
+        future.get(2, TimeUnit.SECONDS);
+        
+        rs = s.executeQuery("select col2 from v1 where col1 = 'a'");
+        assertTrue(rs.next());
+        assertEquals("ay", rs.getString(1));
+        
+        //delete event
+        hcef.addData("SELECT t.col, t.colx FROM t WHERE t.col = 'b'", new ArrayList<List<?>>());
+        future = server.getEventDistributor().dataModification("comp", "1", "m", "t", new Object[] {"b", "bx"}, null, new String[] {"col", "colx"});
+        future.get(2, TimeUnit.SECONDS);
+        
+        rs = s.executeQuery("select count(*) from v1");
+        rs.next();
+        assertEquals(1, rs.getInt(1));
+    }
+	
 }
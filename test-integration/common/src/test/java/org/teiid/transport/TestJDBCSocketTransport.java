@@ -34,8 +34,14 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Types;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.After;
 import org.junit.AfterClass;
@@ -297,6 +303,99 @@ public class TestJDBCSocketTransport {
 		assertEquals(1, rs.getInt(1));
 	}
 	
+	@Test public void testMultiplexedConnections() throws Exception {
+		Properties p = new Properties();
+		p.setProperty("org.teiid.sockets.multiplexConnections", "true");
+		p.setProperty("org.teiid.sockets.maxPhysicalConnections", "1");
+		final SocketServerConnectionFactory sscf = new SocketServerConnectionFactory();
+		sscf.setDisablePing(true);
+		sscf.initialize(p);
+		final TeiidDriver td = new TeiidDriver();
+		td.setSocketProfile(new ConnectionProfile() {
+			
+			@Override
+			public ConnectionImpl connect(String url, Properties info)
+					throws TeiidSQLException {
+				try {
+					return new ConnectionImpl(sscf.getConnection(info), info, url);
+				} catch (CommunicationException e) {
+					throw TeiidSQLException.create(e);
+				} catch (ConnectionException e) {
+					throw TeiidSQLException.create(e);
+				}
+			}
+		});
+		final Properties info = new Properties();
+		info.setProperty("user", "testuser");
+		info.setProperty("password", "testpassword");
+		final String url = "jdbc:teiid:parts@mm://"+addr.getHostName()+":" +jdbcTransport.getPort();
+		int sockets = jdbcTransport.getChannelHandler().getConnectedChannels();
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		List<Connection> connections = new ArrayList<Connection>();
+		try {
+			List<Future<Connection>> connects = new ArrayList<Future<Connection>>();
+			for (int i = 0; i < 4; i++) {
+				connects.add(executor.submit(new Callable<Connection>() {
+					@Override
+					public Connection call() throws Exception {
+						return td.connect(url, info);
+					}
+				}));
+			}
+			for (Future<Connection> future : connects) {
+				connections.add(future.get());
+			}
+			//all of the logical connections share a single socket
+			assertEquals(sockets + 1, jdbcTransport.getChannelHandler().getConnectedChannels());
+			
+			List<Future<Integer>> queries = new ArrayList<Future<Integer>>();
+			for (int i = 0; i < connections.size(); i++) {
+				final Connection c = connections.get(i);
+				final int value = i;
+				queries.add(executor.submit(new Callable<Integer>() {
+					@Override
+					public Integer call() throws Exception {
+						int result = 0;
+						for (int j = 0; j < 10; j++) {
+							PreparedStatement ps = c.prepareStatement("select ? from tables");
+							ps.setInt(1, value);
+							ResultSet rs = ps.executeQuery();
+							while (rs.next()) {
+								assertEquals(value, rs.getInt(1));
+								result++;
+							}
+							ps.close();
+						}
+						return result;
+					}
+				}));
+			}
+			for (Future<Integer> future : queries) {
+				assertTrue(future.get() > 0);
+			}
+			
+			//a failed write is reported only to its logical connection
+			Statement s = connections.get(0).createStatement();
+			s.execute("set showplan debug");
+			try {
+				s.execute("select * from objecttable('teiid_context' columns teiid_row object 'teiid_row') as x");
+				fail();
+			} catch (SQLException e) {
+				assertTrue(e.getCause() instanceof NotSerializableException);
+			}
+			for (Connection c : connections) {
+				ResultSet rs = c.createStatement().executeQuery("select 1");
+				rs.next();
+				assertEquals(1, rs.getInt(1));
+			}
+		} finally {
+			for (Connection c : connections) {
+				c.close();
+			}
+			executor.shutdownNow();
+		}
+	}
+	
 	@Test public void testStreamingLob() throws Exception {
 		HardCodedExecutionFactory ef = new HardCodedExecutionFactory();
 		ef.addData("SELECT helloworld.x FROM helloworld", Arrays.asList(Arrays.asList(new BlobType(new BinaryWSProcedureExecution.StreamingBlob(new ByteArrayInputStream(new byte[100]))))));
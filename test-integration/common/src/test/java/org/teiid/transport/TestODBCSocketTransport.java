@@ -20,6 +20,8 @@ package org.teiid.transport;
 
 import static org.junit.Assert.*;
 
+import java.io.StringReader;
+import java.io.StringWriter;
 import java.net.InetSocketAddress;
 import java.nio.charset.Charset;
 import java.sql.Array;
@@ -30,6 +32,8 @@ import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Time;
+import java.sql.Timestamp;
 import java.util.Properties;
 
 import org.junit.After;
@@ -39,7 +43,10 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 import org.mockito.Mockito;
 import org.postgresql.Driver;
+import org.postgresql.PGConnection;
+import org.postgresql.PGStatement;
 import org.postgresql.core.v3.ExtendedQueryExectutorImpl;
+import org.postgresql.copy.CopyManager;
 import org.teiid.adminapi.Model.Type;
 import org.teiid.adminapi.Request.ProcessingState;
 import org.teiid.adminapi.impl.ModelMetaData;
@@ -621,6 +628,69 @@ public class TestODBCSocketTransport {
 	}
 	
 	
+	@Test public void testBinaryTransfer() throws Exception {
+		PreparedStatement s = conn.prepareStatement("select cast('2012-01-02 03:04:05.5' as timestamp), cast('03:04:05' as time), cast(1.5 as double), cast(? as integer), (1,2)");
+		//use a named statement so that the driver will request binary results
+		((PGStatement)s).setPrepareThreshold(1);
+		s.setInt(1, 3);
+		for (int i = 0; i < 3; i++) {
+			ResultSet rs = s.executeQuery();
+			assertTrue(rs.next());
+			assertEquals(Timestamp.valueOf("2012-01-02 03:04:05.5"), rs.getTimestamp(1));
+			assertEquals(Time.valueOf("03:04:05"), rs.getTime(2));
+			assertEquals(1.5, rs.getDouble(3), 0);
+			assertEquals(3, rs.getInt(4));
+			Object[] array = (Object[])rs.getArray(5).getArray();
+			assertEquals(2, array.length);
+			assertEquals("2", array[1].toString());
+			rs.close();
+		}
+	}
+	
+	@Test public void testCopy() throws Exception {
+		CopyManager copyManager = ((PGConnection)conn).getCopyAPI();
+		StringWriter writer = new StringWriter();
+		assertEquals(2, copyManager.copyOut("COPY (select 1, 'a,b' union all select 2, null) TO STDOUT (FORMAT csv)", writer));
+		assertEquals("\"1\",\"a,b\"\n\"2\",\n", writer.toString());
+		
+		Statement stmt = conn.createStatement();
+		assertFalse(stmt.execute("create local temporary table x (y integer, z string)"));
+		assertEquals(3, copyManager.copyIn("COPY x (y, z) FROM STDIN", new StringReader("1\ta\n2\t\\N\n3\tc\\tb\n")));
+		ResultSet rs = stmt.executeQuery("select z from x order by y");
+		assertTrue(rs.next());
+		assertEquals("a", rs.getString(1));
+		assertTrue(rs.next());
+		assertNull(rs.getString(1));
+		assertTrue(rs.next());
+		assertEquals("c\tb", rs.getString(1));
+		
+		writer = new StringWriter();
+		assertEquals(3, copyManager.copyOut("COPY x TO STDOUT", writer));
+		assertEquals("1\ta\n2\t\\N\n3\tc\\tb\n", writer.toString());
+	}
+	
+	@Test public void testCopyFailureRollsBack() throws Exception {
+		CopyManager copyManager = ((PGConnection)conn).getCopyAPI();
+		Statement stmt = conn.createStatement();
+		assertFalse(stmt.execute("create local temporary table x (y integer, z string)"));
+		//more than a single batch of rows before the bad value
+		StringBuilder data = new StringBuilder();
+		for (int i = 0; i < 5000; i++) {
+			data.append(i).append("\ta\n");
+		}
+		data.append("b\tc\n");
+		try {
+			copyManager.copyIn("COPY x (y, z) FROM STDIN", new StringReader(data.toString()));
+			fail();
+		} catch (SQLException e) {
+			
+		}
+		assertTrue(conn.getAutoCommit());
+		ResultSet rs = stmt.executeQuery("select count(*) from x");
+		assertTrue(rs.next());
+		assertEquals(0, rs.getInt(1));
+	}
+	
 	@Test public void testClientIp() throws Exception {
 		Statement s = conn.createStatement();
 		assertTrue(s.execute("select * from objecttable('teiid_context' COLUMNS y string 'teiid_row.session.IPAddress') as X"));